@@ -2,18 +2,16 @@ package org.hkprog.jogl.example;
 
 import com.jogamp.opengl.GLAutoDrawable;
 import com.jogamp.opengl.GL2;
-import com.jogamp.opengl.GLCapabilities;
-import com.jogamp.opengl.GLEventListener;
-import com.jogamp.opengl.GLProfile;
 import com.jogamp.opengl.awt.GLCanvas;
 import com.jogamp.opengl.glu.GLU;
 import com.jogamp.opengl.glu.GLUquadric;
-import com.jogamp.opengl.util.FPSAnimator;
 import com.jogamp.opengl.util.texture.awt.AWTTextureIO;
 import com.jogamp.opengl.util.texture.Texture;
-import com.jogamp.opengl.util.texture.TextureIO;
+import org.hkprog.jogl.example.capture.FrameCapture;
+import org.hkprog.jogl.example.math.CircleTable;
+import org.hkprog.jogl.example.render.GpuResources;
+import org.hkprog.jogl.example.render.ResourceCache;
 
-import java.awt.Frame;
 import java.awt.Graphics2D;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
@@ -21,15 +19,12 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
 import java.awt.event.MouseWheelEvent;
-import java.awt.event.WindowAdapter;
-import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.io.InputStream;
 
-public class Chapter0 implements GLEventListener {
+public class Chapter0 implements LauncherScene {
 
     private final GLU glu = new GLU();
+    private final FrameCapture capture = FrameCapture.fromSystemProperties("Chapter0");
     private GLUquadric sphereQuadric;
 
     private float rotationXDeg = 20.0f;
@@ -51,11 +46,30 @@ public class Chapter0 implements GLEventListener {
 
     // Textures
     private Texture earthTexture;
+    private boolean proceduralTexture; // ours to destroy; a loaded one belongs to the cache
+
+    // Material parameters, reused every frame instead of reallocated
+    private static final float[] WHITE = {1.0f, 1.0f, 1.0f, 1.0f};
+    private static final float[] MATERIAL_SPECULAR = {0.9f, 0.9f, 0.9f, 1.0f};
+    private final float[] materialAmbient = new float[4];
+    private final float[] materialDiffuse = new float[4];
+    private static final CircleTable ORBIT_RING = new CircleTable(128);
 
     @Override
     public void init(GLAutoDrawable drawable) {
         GL2 gl = drawable.getGL().getGL2();
+        applyRenderState(gl);
 
+        // Quadric for spheres
+        sphereQuadric = glu.gluNewQuadric();
+        glu.gluQuadricNormals(sphereQuadric, GLU.GLU_SMOOTH);
+        glu.gluQuadricTexture(sphereQuadric, true);
+
+        loadTextures(gl);
+    }
+
+    @Override
+    public void applyRenderState(GL2 gl) {
         gl.glClearColor(0.36f, 0.36f, 0.36f, 1.0f);
         gl.glEnable(GL2.GL_DEPTH_TEST);
         gl.glDepthFunc(GL2.GL_LEQUAL);
@@ -72,24 +86,27 @@ public class Chapter0 implements GLEventListener {
         gl.glLightfv(GL2.GL_LIGHT0, GL2.GL_DIFFUSE, lightDiffuse, 0);
         gl.glLightfv(GL2.GL_LIGHT0, GL2.GL_POSITION, lightPosition, 0);
 
-        // Quadric for spheres
-        sphereQuadric = glu.gluNewQuadric();
-        glu.gluQuadricNormals(sphereQuadric, GLU.GLU_SMOOTH);
-        glu.gluQuadricTexture(sphereQuadric, true);
-
         // Normalize normals for scaled objects
         gl.glEnable(GL2.GL_NORMALIZE);
 
         // Texturing
         gl.glEnable(GL2.GL_TEXTURE_2D);
-        loadTextures(gl);
     }
 
     @Override
     public void dispose(GLAutoDrawable drawable) {
+        capture.dispose(drawable.getGL().getGL2());
         if (sphereQuadric != null) {
-            sphereQuadric = null; // let GC clean; JOGL handles native cleanup
+            glu.gluDeleteQuadric(sphereQuadric);
+            sphereQuadric = null;
+        }
+        if (proceduralTexture) {
+            GpuResources.shared().free(GpuResources.Kind.TEXTURE, earthTexture.getTextureObject());
+            earthTexture.destroy(drawable.getGL().getGL2());
+        } else {
+            ResourceCache.shared().release(drawable.getGL().getGL2(), earthTexture);
         }
+        earthTexture = null;
     }
 
     @Override
@@ -107,6 +124,7 @@ public class Chapter0 implements GLEventListener {
 
         // Draw Earth at origin
         drawEarth(gl);
+        capture.afterFrame(gl, drawable.getSurfaceWidth(), drawable.getSurfaceHeight());
     }
 
     private void drawEarth(GL2 gl) {
@@ -119,11 +137,12 @@ public class Chapter0 implements GLEventListener {
         gl.glRotatef(90f, 0.0f, 1.0f, 0.0f);
 
         // Set material properties
-        setMaterial(gl, new float[]{1.0f, 1.0f, 1.0f, 1.0f});
+        setMaterial(gl, WHITE);
 
         if (earthTexture != null) {
             earthTexture.enable(gl);
             earthTexture.bind(gl);
+            ResourceCache.shared().markUsed(earthTexture);
         }
 
         // gluSphere generates a sphere with poles along Y-axis
@@ -177,13 +196,19 @@ public class Chapter0 implements GLEventListener {
     }
 
     private void setMaterial(GL2 gl, float[] rgba) {
-        float[] ambient = {rgba[0] * 0.2f, rgba[1] * 0.2f, rgba[2] * 0.2f, 1.0f};
-        float[] diffuse = {rgba[0], rgba[1], rgba[2], 1.0f};
-        float[] specular = {0.9f, 0.9f, 0.9f, 1.0f};
+        // Reuse the parameter arrays; this runs every frame
+        materialAmbient[0] = rgba[0] * 0.2f;
+        materialAmbient[1] = rgba[1] * 0.2f;
+        materialAmbient[2] = rgba[2] * 0.2f;
+        materialAmbient[3] = 1.0f;
+        materialDiffuse[0] = rgba[0];
+        materialDiffuse[1] = rgba[1];
+        materialDiffuse[2] = rgba[2];
+        materialDiffuse[3] = 1.0f;
         float shininess = 32.0f;
-        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_AMBIENT, ambient, 0);
-        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_DIFFUSE, diffuse, 0);
-        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_SPECULAR, specular, 0);
+        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_AMBIENT, materialAmbient, 0);
+        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_DIFFUSE, materialDiffuse, 0);
+        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_SPECULAR, MATERIAL_SPECULAR, 0);
         gl.glMaterialf(GL2.GL_FRONT_AND_BACK, GL2.GL_SHININESS, shininess);
     }
 
@@ -191,35 +216,20 @@ public class Chapter0 implements GLEventListener {
         gl.glDisable(GL2.GL_LIGHTING);
         gl.glColor3f(1.0f, 0.4f, 0.5f);
         gl.glBegin(GL2.GL_LINE_LOOP);
-        int segments = 128;
-        for (int i = 0; i < segments; i++) {
-            double ang = (2.0 * Math.PI * i) / segments;
-            float x = (float) (radius * Math.cos(ang));
-            float z = (float) (radius * Math.sin(ang));
-            gl.glVertex3f(x, 0.0f, z);
+        for (int i = 0; i < ORBIT_RING.segments; i++) {
+            gl.glVertex3f(radius * ORBIT_RING.cos[i], 0.0f, radius * ORBIT_RING.sin[i]);
         }
         gl.glEnd();
         gl.glEnable(GL2.GL_LIGHTING);
     }
 
     private void loadTextures(GL2 gl) {
-        earthTexture = tryLoadTextureFromResources(gl, "/textures/earth.jpg");
+        earthTexture = ResourceCache.shared().texture(gl, "/textures/earth.jpg");
         System.out.println("earthTexture: " + earthTexture);
 
         if (earthTexture == null) {
             earthTexture = createProceduralEarthTexture(gl);
-        }
-    }
-
-    private Texture tryLoadTextureFromResources(GL2 gl, String resourcePath) {
-        try (InputStream in = getClass().getResourceAsStream(resourcePath)) {
-            if (in == null) return null;
-            String lower = resourcePath.toLowerCase();
-            String ext = lower.endsWith(".png") ? "png" : lower.endsWith(".jpg") || lower.endsWith(".jpeg") ? "jpg" : null;
-            if (ext == null) return null;
-            return TextureIO.newTexture(in, true, ext);
-        } catch (IOException e) {
-            return null;
+            proceduralTexture = true;
         }
     }
 
@@ -239,10 +249,14 @@ public class Chapter0 implements GLEventListener {
             g.fillOval(x, y, w, h);
         }
         g.dispose();
-        return AWTTextureIO.newTexture(gl.getGLProfile(), img, true);
+        Texture texture = AWTTextureIO.newTexture(gl.getGLProfile(), img, true);
+        GpuResources.shared().track(GpuResources.Kind.TEXTURE, texture.getTextureObject(),
+                texture.getEstimatedMemorySize(), "procedural earth");
+        return texture;
     }
 
-    private void attachInputHandlers(GLCanvas canvas) {
+    @Override
+    public void attachInputHandlers(GLCanvas canvas) {
         canvas.addKeyListener(new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
@@ -253,6 +267,7 @@ public class Chapter0 implements GLEventListener {
                     case KeyEvent.VK_DOWN -> rotationXDeg += 3.0f;
                     case KeyEvent.VK_EQUALS, KeyEvent.VK_PLUS -> cameraZoom += 1.0f; // zoom in
                     case KeyEvent.VK_MINUS -> cameraZoom -= 1.0f; // zoom out
+                    case KeyEvent.VK_V -> capture.toggle();
                     case KeyEvent.VK_R -> {
                         rotationXDeg = 20.0f;
                         rotationYDeg = -30.0f;
@@ -299,35 +314,6 @@ public class Chapter0 implements GLEventListener {
     }
 
     public static void main(String[] args) {
-        GLProfile profile = GLProfile.get(GLProfile.GL2);
-        GLCapabilities capabilities = new GLCapabilities(profile);
-        capabilities.setDepthBits(24);
-
-        GLCanvas canvas = new GLCanvas(capabilities);
-        Chapter0 renderer = new Chapter0();
-        canvas.addGLEventListener(renderer);
-        renderer.attachInputHandlers(canvas);
-
-        Frame frame = new Frame("JOGL Earth–Moon Orbit");
-        frame.add(canvas);
-        frame.setSize(1000, 700);
-        frame.setLocationRelativeTo(null);
-
-        final FPSAnimator animator = new FPSAnimator(canvas, 60, true);
-        frame.addWindowListener(new WindowAdapter() {
-            @Override
-            public void windowClosing(WindowEvent e) {
-                new Thread(() -> {
-                    if (animator.isStarted()) {
-                        animator.stop();
-                    }
-                    System.exit(0);
-                }).start();
-            }
-        });
-
-        frame.setVisible(true);
-        animator.start();
-        canvas.requestFocusInWindow();
+        SceneLauncher.launch("chapter0");
     }
 }
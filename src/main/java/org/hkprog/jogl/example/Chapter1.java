@@ -1,14 +1,37 @@
 package org.hkprog.jogl.example;
 
+import com.jogamp.common.nio.Buffers;
 import com.jogamp.opengl.GLAutoDrawable;
 import com.jogamp.opengl.GL2;
-import com.jogamp.opengl.GLCapabilities;
-import com.jogamp.opengl.GLEventListener;
-import com.jogamp.opengl.GLProfile;
 import com.jogamp.opengl.awt.GLCanvas;
 import com.jogamp.opengl.glu.GLU;
-import com.jogamp.opengl.util.FPSAnimator;
-import com.jogamp.opengl.util.awt.TextRenderer;
+import com.jogamp.opengl.util.texture.Texture;
+import org.hkprog.jogl.example.batch.BatchScene;
+import org.hkprog.jogl.example.capture.FrameCapture;
+import org.hkprog.jogl.example.globe.SphereMesh;
+import org.hkprog.jogl.example.math.CircleTable;
+import org.hkprog.jogl.example.math.Mat4f;
+import org.hkprog.jogl.example.math.Quatf;
+import org.hkprog.jogl.example.math.Scratch;
+import org.hkprog.jogl.example.math.Vec3d;
+import org.hkprog.jogl.example.math.Vec3f;
+import org.hkprog.jogl.example.overlay.LabelEngine;
+import org.hkprog.jogl.example.overlay.SdfFontAtlas;
+import org.hkprog.jogl.example.overlay.TextBuffer;
+import org.hkprog.jogl.example.overlay.TextOverlay;
+import org.hkprog.jogl.example.overlay.TextOverlay.Anchor;
+import org.hkprog.jogl.example.replay.SessionRecorder;
+import org.hkprog.jogl.example.render.FrameStats;
+import org.hkprog.jogl.example.render.LogDepth;
+import org.hkprog.jogl.example.render.ResourceCache;
+import org.hkprog.jogl.example.render.RelativeToEye;
+import org.hkprog.jogl.example.render.VisibilityCuller;
+import org.hkprog.jogl.example.sim.AccessEngine;
+import org.hkprog.jogl.example.sim.ConjunctionScreener;
+import org.hkprog.jogl.example.sim.EclipseCalculator;
+import org.hkprog.jogl.example.sim.Ephemeris;
+import org.hkprog.jogl.example.sim.NBodySystem;
+import org.hkprog.jogl.example.sim.SatelliteCatalog;
 
 import java.awt.Frame;
 import java.awt.Font;
@@ -18,18 +41,40 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
 import java.awt.event.MouseWheelEvent;
-import java.awt.event.WindowAdapter;
-import java.awt.event.WindowEvent;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Demonstrates coordinate transformation between two reference frames:
  * O₁x₁y₁z₁ - Earth-centered inertial frame (地心惯性坐标系)
  * O₂x₂y₂z₂ - Satellite body-fixed frame (卫星本体坐标系)
  */
-public class Chapter1 implements GLEventListener {
+public class Chapter1 implements BatchScene, LauncherScene {
 
     private final GLU glu = new GLU();
-    private TextRenderer textRenderer;
+    private final FrameCapture capture = FrameCapture.fromSystemProperties("Chapter1");
+    private final SessionRecorder recorder = SessionRecorder.fromSystemProperties("chapter1");
+
+    // Overlays: static lines cached in a texture, numeric lines re-rendered only when their text changes
+    private static final long OVERLAY_REFRESH_MILLIS = 200;
+    private TextOverlay overlay;
+    private TextOverlay.Line positionLine;
+    private TextOverlay.Line attitudeLine;
+    private TextOverlay.Line testPointLine;
+    private TextOverlay.Line worldPointLine;
+    private TextOverlay realScaleOverlay;
+    private TextOverlay.Line realScaleStatusLine;
+    private TextOverlay.Line depthModeLine;
+    private TextOverlay.Line cullingLine;
+    private TextOverlay.Line dynamicsLine;
+    private TextOverlay.Line conjunctionLine;
+    private TextOverlay.Line shadowLine;
+    private TextOverlay.Line accessLine;
 
     // Camera control
     private float cameraRotX = 25.0f;
@@ -53,8 +98,12 @@ public class Chapter1 implements GLEventListener {
     private float testPointZ = 1.5f;
 
     // Animation control
+    private static final float ORBIT_SPEED = 0.3f; // radians per second
+    private static final float ATTITUDE_RATE = 30.0f; // degrees per second
     private boolean animationEnabled = true;
+    private boolean fixedTime = false; // set by batch rendering, which drives the clock itself
     private long lastTime = System.nanoTime();
+    private double animationTimeSec = 0.0; // advances only while animating
 
     // Display options
     private boolean showGrid = true;
@@ -65,10 +114,136 @@ public class Chapter1 implements GLEventListener {
     private static final float SATELLITE_SIZE = 0.6f;
     private static final float ORBIT_RADIUS = 8.0f;
 
+    // Colors for frames and points (constant, so not reallocated per frame)
+    private static final float[] O1_X_COLOR = {1.0f, 0.0f, 0.0f}; // X - red
+    private static final float[] O1_Y_COLOR = {0.0f, 0.8f, 0.0f}; // Y - green
+    private static final float[] O1_Z_COLOR = {0.0f, 0.0f, 1.0f}; // Z - blue
+    private static final float[] O2_X_COLOR = {1.0f, 0.5f, 0.0f}; // X - orange
+    private static final float[] O2_Y_COLOR = {0.5f, 1.0f, 0.5f}; // Y - light green
+    private static final float[] O2_Z_COLOR = {0.5f, 0.5f, 1.0f}; // Z - light blue
+    private static final float[] P2_COLOR = {1.0f, 0.0f, 1.0f, 1.0f};
+    private static final float[] P1_COLOR = {0.8f, 0.0f, 0.8f, 0.5f};
+
+    // Trig tables for the per-frame geometry
+    private static final CircleTable CONE_CIRCLE = new CircleTable(12);
+    private static final CircleTable EQUATOR = new CircleTable(64);
+    private static final CircleTable ORBIT = new CircleTable(128);
+
+    // Unit icosphere in a VBO, scaled per draw (1280 triangles, tighter than the old 20x20 quad strips)
+    private SphereMesh sphereMesh;
+
+    // O₂ → O₁ transform, rebuilt once per frame and reused by the scene and overlay
+    private final Quatf o2Attitude = new Quatf();
+    private final Mat4f o2ToO1 = new Mat4f();
+    private final Vec3f worldPoint = new Vec3f();
+
+    // Real-scale mode (K): meters kept in doubles, rendered relative to the eye
+    private static final double REAL_TIME_SCALE = 60.0; // simulated seconds per second
+    private static final double REAL_SATELLITE_VIEW_DISTANCE = 25.0; // meters
+    private boolean realScale = false;
+    private final SatelliteCatalog catalog = SatelliteCatalog.walkerDelta(72, 22, 1, 550_000.0, 53.0);
+    private final int firstGeoIndex = addGeoRing(catalog, 24);
+    private final RelativeToEye relativeToEye = new RelativeToEye();
+    private final LogDepth logDepth = new LogDepth();
+    private final Vec3d cameraFocus = new Vec3d();
+    private double realCameraDistance = 3.0 * SatelliteCatalog.EARTH_RADIUS_M;
+    private int focusIndex = -1; // -1 = Earth, otherwise a catalog index
+    private double simTimeSec = 0.0;
+    private float aspect = 1.0f;
+    private FloatBuffer eyeRelativePositions;
+    private FloatBuffer satelliteColors;
+
+    // Culling and per-frame instrumentation
+    private static final double SATELLITE_BOUNDING_RADIUS = 10.0; // meters
+    private final VisibilityCuller culler = new VisibilityCuller();
+    private final int[] visibleIndices = new int[catalog.size()];
+    private final FrameStats frameStats = new FrameStats();
+
+    // Satellite labels in real-scale mode (L toggles), ids equal catalog indices
+    private LabelEngine labels;
+    private boolean showLabels = true;
+    private final Mat4f labelProjection = new Mat4f();
+    private final Mat4f labelViewRotation = new Mat4f();
+    private final Mat4f labelViewProjection = new Mat4f();
+
+    // N-body dynamics (N): the catalog integrated with the Moon and J2 instead of on fixed circles
+    private static final double DYNAMICS_STEP_SEC = 10.0;
+    private final double epochSec = Ephemeris.epochFromSystemProperty();
+    private boolean dynamicsEnabled = false;
+    private Ephemeris ephemeris;
+    private NBodySystem dynamics;
+    private double[] dynamicPositions;
+    private double[] dynamicVelocities;
+
+    // Conjunction screening: pairs passing within 10 km inside ±1 s of the frame, drawn in red.
+    // 50 km cells cover the miss distance plus the fastest LEO crossing speed over the window.
+    private static final double CONJUNCTION_WINDOW_SEC = 1.0;
+    private static final int MAX_DRAWN_CONJUNCTIONS = 256;
+    private final ConjunctionScreener screener = new ConjunctionScreener(50_000.0, 10_000.0);
+    private final ConjunctionScreener.StateSource conjunctionStates = this::satelliteState;
+    private final int[] conjunctionIndices = new int[MAX_DRAWN_CONJUNCTIONS * 2];
+    private FloatBuffer conjunctionPositions;
+
+    // Earth shadow: satellites fade from their lit color toward the night color through the penumbra
+    private static final float[] SUNLIT_COLOR = {0.9f, 0.9f, 0.6f};
+    private static final float[] UMBRA_COLOR = {0.25f, 0.25f, 0.35f};
+    private final EclipseCalculator eclipses = new EclipseCalculator();
+    private final double[] sunPosition = new double[3];
+    private static final float[] NIGHT_AMBIENT = {0.12f, 0.12f, 0.15f, 1.0f};
+    private final float[] sunLight = {0.0f, 0.0f, 0.0f, 1.0f}; // GL_LIGHT0 diffuse
+    private final float[] sunDirection = new float[4]; // w = 0: a directional light
+    private Texture earthTexture;
+
+    // Ground-station access (A): windows computed hours ahead in the background, streamed in as
+    // they finish; each frame links every station to the satellites whose window is open
+    private static final double ACCESS_HORIZON_SEC = 6.0 * 3600.0;
+    private static final int ACCESS_STATIONS = 64;
+    private record AccessWindow(int satellite, int station, double rise, double set) {
+    }
+    private boolean showAccess = false;
+    private ExecutorService accessWorker;
+    private AccessEngine access;
+    private ConcurrentLinkedQueue<AccessWindow> accessArrivals;
+    private final List<AccessWindow> accessWindows = new ArrayList<>();
+    private double accessStart;
+    private double accessEnd;
+    private final double[] stationPositions = new double[ACCESS_STATIONS * 3];
+    private double[] linkEndpoints = new double[1024 * 6];
+    private int activeLinks;
+    private FloatBuffer stationBuffer;
+    private FloatBuffer linkBuffer;
+
     @Override
     public void init(GLAutoDrawable drawable) {
         GL2 gl = drawable.getGL().getGL2();
+        applyRenderState(gl);
+
+        // Initialize text overlays
+        createOverlays(new Font("SansSerif", Font.BOLD, 16));
+
+        // Real-scale resources
+        logDepth.init(gl);
+        eyeRelativePositions = Buffers.newDirectFloatBuffer(catalog.size() * 3);
+        conjunctionPositions = Buffers.newDirectFloatBuffer(conjunctionIndices.length * 3);
+        satelliteColors = Buffers.newDirectFloatBuffer(catalog.size() * 3);
+        stationBuffer = Buffers.newDirectFloatBuffer(ACCESS_STATIONS * 3);
+        linkBuffer = Buffers.newDirectFloatBuffer(linkEndpoints.length);
+        createLabels(gl);
+
+        sphereMesh = ResourceCache.shared().acquire(gl, "mesh:icosphere:3", g -> {
+            SphereMesh mesh = SphereMesh.icosphere(3);
+            mesh.upload(g);
+            return mesh;
+        }, (g, m) -> m.dispose(g));
+        earthTexture = ResourceCache.shared().texture(gl, "/textures/earth.jpg");
+        if (fixedTime) {
+            overlay.setSynchronous(true);
+            realScaleOverlay.setSynchronous(true);
+        }
+    }
 
+    @Override
+    public void applyRenderState(GL2 gl) {
         gl.glClearColor(0.15f, 0.15f, 0.15f, 1.0f);
         gl.glEnable(GL2.GL_DEPTH_TEST);
         gl.glDepthFunc(GL2.GL_LEQUAL);
@@ -79,28 +254,49 @@ public class Chapter1 implements GLEventListener {
         // Enable anti-aliasing
         gl.glEnable(GL2.GL_LINE_SMOOTH);
         gl.glHint(GL2.GL_LINE_SMOOTH_HINT, GL2.GL_NICEST);
-
-        // Initialize text renderer
-        textRenderer = new TextRenderer(new Font("SansSerif", Font.BOLD, 16));
     }
 
     @Override
     public void dispose(GLAutoDrawable drawable) {
-        if (textRenderer != null) {
-            textRenderer.dispose();
+        capture.dispose(drawable.getGL().getGL2());
+        recorder.close();
+        if (overlay != null) {
+            overlay.dispose(drawable.getGL().getGL2());
+            realScaleOverlay.dispose(drawable.getGL().getGL2());
+        }
+        logDepth.dispose(drawable.getGL().getGL2());
+        if (labels != null) {
+            labels.dispose(drawable.getGL().getGL2());
+        }
+        ResourceCache.shared().release(drawable.getGL().getGL2(), sphereMesh);
+        sphereMesh = null;
+        ResourceCache.shared().release(drawable.getGL().getGL2(), earthTexture);
+        earthTexture = null;
+        if (accessWorker != null) {
+            access.cancel();
+            accessWorker.shutdownNow();
         }
     }
 
     @Override
     public void display(GLAutoDrawable drawable) {
+        frameStats.beginFrame();
         GL2 gl = drawable.getGL().getGL2();
         gl.glClear(GL2.GL_COLOR_BUFFER_BIT | GL2.GL_DEPTH_BUFFER_BIT);
 
         // Update animation
-        if (animationEnabled) {
+        if (animationEnabled && !fixedTime) {
             updateAnimation();
         }
 
+        if (realScale) {
+            displayRealScale(drawable);
+            recordFrame(drawable);
+            capture.afterFrame(gl, drawable.getSurfaceWidth(), drawable.getSurfaceHeight());
+            frameStats.endFrame();
+            return;
+        }
+
         gl.glMatrixMode(GL2.GL_MODELVIEW);
         gl.glLoadIdentity();
 
@@ -118,93 +314,150 @@ public class Chapter1 implements GLEventListener {
         drawEarth(gl);
         
         // Draw O₁ inertial frame (Earth-centered)
-        drawCoordinateFrame(gl, "O₁", 
-            new float[]{1.0f, 0.0f, 0.0f}, // X - red
-            new float[]{0.0f, 0.8f, 0.0f}, // Y - green
-            new float[]{0.0f, 0.0f, 1.0f}, // Z - blue
+        drawCoordinateFrame(gl, "O₁", O1_X_COLOR, O1_Y_COLOR, O1_Z_COLOR,
             5.0f, 0.0f, 0.0f, 0.0f, 0.0f);
         
         // Draw orbital path
         drawOrbit(gl, ORBIT_RADIUS);
 
         // Draw satellite at O₂ position
+        updateO2Transform();
         gl.glPushMatrix();
-        gl.glTranslatef(o2TranslationX, o2TranslationY, o2TranslationZ);
-        gl.glRotatef(o2RotationAngle, 0.0f, 0.0f, 1.0f);
+        gl.glMultMatrixf(o2ToO1.m, 0);
         
         // Draw satellite body
         drawSatellite(gl);
 
         // Draw O₂ satellite body-fixed frame
-        drawCoordinateFrame(gl, "O₂", 
-            new float[]{1.0f, 0.5f, 0.0f}, // X - orange
-            new float[]{0.5f, 1.0f, 0.5f}, // Y - light green
-            new float[]{0.5f, 0.5f, 1.0f}, // Z - light blue
+        drawCoordinateFrame(gl, "O₂", O2_X_COLOR, O2_Y_COLOR, O2_Z_COLOR,
             4.0f, 0.0f, 0.0f, 0.0f, 0.0f);
 
         // Draw test point in O₂ frame (local coordinates)
-        drawPoint(gl, testPointX, testPointY, testPointZ, 
-                  new float[]{1.0f, 0.0f, 1.0f, 1.0f}, 8.0f);
+        drawPoint(gl, testPointX, testPointY, testPointZ, P2_COLOR, 8.0f);
 
         gl.glPopMatrix();
 
         // Draw the same point as it appears in O₁ frame (world coordinates)
-        float[] worldCoords = transformToO1Frame(testPointX, testPointY, testPointZ);
-        drawPoint(gl, worldCoords[0], worldCoords[1], worldCoords[2], 
-                  new float[]{0.8f, 0.0f, 0.8f, 0.5f}, 6.0f);
+        Vec3f worldCoords = transformToO1Frame(testPointX, testPointY, testPointZ, worldPoint);
+        drawPoint(gl, worldCoords.x, worldCoords.y, worldCoords.z, P1_COLOR, 6.0f);
 
         // Draw trajectory line between the two representations
         if (showTrajectory) {
             drawTrajectoryLine(gl, 
                 o2TranslationX + testPointX, o2TranslationY + testPointY, o2TranslationZ + testPointZ,
-                worldCoords[0], worldCoords[1], worldCoords[2]);
+                worldCoords.x, worldCoords.y, worldCoords.z);
         }
 
         // Draw 2D overlay with information
         drawOverlay(drawable, worldCoords);
+        recordFrame(drawable);
+        capture.afterFrame(gl, drawable.getSurfaceWidth(), drawable.getSurfaceHeight());
+        frameStats.endFrame();
     }
 
     private void updateAnimation() {
         long currentTime = System.nanoTime();
         float deltaTime = (currentTime - lastTime) / 1_000_000_000.0f;
         lastTime = currentTime;
+        animationTimeSec += deltaTime;
+        applyAnimationTime();
+    }
 
-        // Satellite orbital motion around Earth
-        float orbitSpeed = 0.3f; // radians per second
-        float angle = (currentTime / 1_000_000_000.0f) * orbitSpeed;
+    private void applyAnimationTime() {
+        simTimeSec = animationTimeSec * REAL_TIME_SCALE;
 
+        // Satellite orbital motion around Earth
+        float angle = (float) ((animationTimeSec * ORBIT_SPEED) % (2.0 * Math.PI));
         o2TranslationX = ORBIT_RADIUS * (float) Math.cos(angle);
         o2TranslationY = ORBIT_RADIUS * (float) Math.sin(angle);
         o2TranslationZ = 0.0f;
 
         // Satellite attitude rotation (yaw)
-        float rotationSpeed = 30.0f; // degrees per second
-        o2RotationAngle += rotationSpeed * deltaTime;
-        if (o2RotationAngle > 360.0f) {
-            o2RotationAngle -= 360.0f;
-        }
+        o2RotationAngle = (float) ((animationTimeSec * ATTITUDE_RATE) % 360.0);
     }
 
-    private float[] transformToO1Frame(float x2, float y2, float z2) {
-        // Transform point from O₂ frame to O₁ frame
-        // Formula: P₁ = R * P₂ + T
-        // where R is rotation matrix and T is translation vector
+    private void recordFrame(GLAutoDrawable drawable) {
+        recorder.option("realScale", Boolean.toString(realScale));
+        recorder.option("focus", focusName());
+        recorder.option("labels", Boolean.toString(showLabels));
+        recorder.option("grid", Boolean.toString(showGrid));
+        recorder.option("trajectory", Boolean.toString(showTrajectory));
+        recorder.option("dynamics", Boolean.toString(dynamicsEnabled));
+        recorder.option("access", Boolean.toString(showAccess));
+        recorder.endFrame(animationTimeSec, cameraRotX, cameraRotY, realScale ? (float) realCameraDistance : cameraZoom,
+                drawable.getSurfaceWidth(), drawable.getSurfaceHeight());
+    }
 
-        double angleRad = Math.toRadians(o2RotationAngle);
-        float cosA = (float) Math.cos(angleRad);
-        float sinA = (float) Math.sin(angleRad);
+    @Override
+    public void setView(float rotXDeg, float rotYDeg, float zoom) {
+        if (!Float.isNaN(rotXDeg)) {
+            cameraRotX = rotXDeg;
+        }
+        if (!Float.isNaN(rotYDeg)) {
+            cameraRotY = rotYDeg;
+        }
+        if (!Float.isNaN(zoom)) {
+            // Real-scale mode zooms by camera distance in meters instead
+            if (realScale) {
+                realCameraDistance = Math.max(2.0, zoom);
+            } else {
+                cameraZoom = zoom;
+            }
+        }
+    }
 
-        // Apply rotation (around Z-axis)
-        float x1_rot = cosA * x2 - sinA * y2;
-        float y1_rot = sinA * x2 + cosA * y2;
-        float z1_rot = z2;
+    @Override
+    public void setSimulationTime(double seconds) {
+        if (!fixedTime) {
+            fixedTime = true;
+            if (overlay != null) {
+                overlay.setSynchronous(true);
+                realScaleOverlay.setSynchronous(true);
+            }
+        }
+        animationTimeSec = seconds;
+        applyAnimationTime();
+    }
+
+    @Override
+    public boolean setOption(String key, String value) {
+        switch (key) {
+            case "realScale" -> realScale = Boolean.parseBoolean(value);
+            case "labels" -> showLabels = Boolean.parseBoolean(value);
+            case "grid" -> showGrid = Boolean.parseBoolean(value);
+            case "trajectory" -> showTrajectory = Boolean.parseBoolean(value);
+            case "dynamics" -> dynamicsEnabled = Boolean.parseBoolean(value);
+            case "access" -> showAccess = Boolean.parseBoolean(value);
+            case "focus" -> {
+                // earth, leo or geo, matching the F key's cycle
+                switch (value) {
+                    case "earth" -> focusIndex = -1;
+                    case "leo" -> focusIndex = 0;
+                    case "geo" -> focusIndex = firstGeoIndex;
+                    default -> {
+                        return false;
+                    }
+                }
+                realCameraDistance = focusIndex < 0 ? 3.0 * SatelliteCatalog.EARTH_RADIUS_M : REAL_SATELLITE_VIEW_DISTANCE;
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        // Apply translation
-        float x1 = x1_rot + o2TranslationX;
-        float y1 = y1_rot + o2TranslationY;
-        float z1 = z1_rot + o2TranslationZ;
+    private void updateO2Transform() {
+        // Build T * R(θ) once; the same matrix positions the satellite and maps test points
+        o2Attitude.setAxisAngleDeg(o2RotationAngle, 0.0f, 0.0f, 1.0f);
+        o2ToO1.composeTRS(o2TranslationX, o2TranslationY, o2TranslationZ, o2Attitude, 1.0f, 1.0f, 1.0f);
+    }
 
-        return new float[]{x1, y1, z1};
+    private Vec3f transformToO1Frame(float x2, float y2, float z2, Vec3f out) {
+        // Transform point from O₂ frame to O₁ frame
+        // Formula: P₁ = R * P₂ + T
+        // where R is rotation matrix and T is translation vector
+        return o2ToO1.transformPoint(out.set(x2, y2, z2));
     }
 
     private void drawCoordinateFrame(GL2 gl, String label, 
@@ -239,37 +492,30 @@ public class Chapter1 implements GLEventListener {
         gl.glVertex3f(x2, y2, z2);
         gl.glEnd();
 
-        // Draw arrowhead
+        // Draw arrowhead, oriented with a basis built from the direction (no trig)
         float dx = x2 - x1;
         float dy = y2 - y1;
         float dz = z2 - z1;
-        float length = (float) Math.sqrt(dx*dx + dy*dy + dz*dz);
-        
-        if (length > 0) {
-            gl.glPushMatrix();
-            gl.glTranslatef(x2, y2, z2);
-            
-            // Rotate to point in direction of arrow
-            float angleY = (float) Math.toDegrees(Math.atan2(dx, dz));
-            float angleX = (float) Math.toDegrees(Math.asin(-dy / length));
-            gl.glRotatef(angleY, 0, 1, 0);
-            gl.glRotatef(angleX, 1, 0, 0);
-            
-            // Draw cone
-            drawCone(gl, 0.15f, 0.4f);
-            gl.glPopMatrix();
+        if (dx != 0.0f || dy != 0.0f || dz != 0.0f) {
+            Scratch scratch = Scratch.get();
+            int mark = scratch.mark();
+            try {
+                Mat4f aim = scratch.mat4f().translationAimZ(x2, y2, z2, dx, dy, dz);
+                gl.glPushMatrix();
+                gl.glMultMatrixf(aim.m, 0);
+                drawCone(gl, 0.15f, 0.4f);
+                gl.glPopMatrix();
+            } finally {
+                scratch.release(mark);
+            }
         }
     }
 
     private void drawCone(GL2 gl, float radius, float height) {
-        int slices = 12;
         gl.glBegin(GL2.GL_TRIANGLE_FAN);
         gl.glVertex3f(0, 0, height); // tip
-        for (int i = 0; i <= slices; i++) {
-            float angle = (float) (2.0 * Math.PI * i / slices);
-            float x = radius * (float) Math.cos(angle);
-            float y = radius * (float) Math.sin(angle);
-            gl.glVertex3f(x, y, 0);
+        for (int i = 0; i <= CONE_CIRCLE.segments; i++) {
+            gl.glVertex3f(radius * CONE_CIRCLE.cos[i], radius * CONE_CIRCLE.sin[i], 0);
         }
         gl.glEnd();
     }
@@ -277,32 +523,8 @@ public class Chapter1 implements GLEventListener {
     private void drawSphere(GL2 gl, float x, float y, float z, float radius) {
         gl.glPushMatrix();
         gl.glTranslatef(x, y, z);
-        
-        int slices = 20;
-        int stacks = 20;
-        
-        for (int i = 0; i < stacks; i++) {
-            float lat0 = (float) (Math.PI * (-0.5 + (float) i / stacks));
-            float lat1 = (float) (Math.PI * (-0.5 + (float) (i + 1) / stacks));
-            float z0 = radius * (float) Math.sin(lat0);
-            float z1 = radius * (float) Math.sin(lat1);
-            float r0 = radius * (float) Math.cos(lat0);
-            float r1 = radius * (float) Math.cos(lat1);
-            
-            gl.glBegin(GL2.GL_QUAD_STRIP);
-            for (int j = 0; j <= slices; j++) {
-                float lng = (float) (2 * Math.PI * j / slices);
-                float x0 = r0 * (float) Math.cos(lng);
-                float y0 = r0 * (float) Math.sin(lng);
-                float x1 = r1 * (float) Math.cos(lng);
-                float y1 = r1 * (float) Math.sin(lng);
-                
-                gl.glVertex3f(x0, y0, z0);
-                gl.glVertex3f(x1, y1, z1);
-            }
-            gl.glEnd();
-        }
-        
+        gl.glScalef(radius, radius, radius);
+        sphereMesh.draw(gl, false);
         gl.glPopMatrix();
     }
     
@@ -318,12 +540,8 @@ public class Chapter1 implements GLEventListener {
         gl.glColor4f(0.3f, 0.3f, 0.3f, 0.5f);
         gl.glLineWidth(1.0f);
         gl.glBegin(GL2.GL_LINE_LOOP);
-        int segments = 64;
-        for (int i = 0; i < segments; i++) {
-            float angle = (float) (2.0 * Math.PI * i / segments);
-            float x = EARTH_RADIUS * (float) Math.cos(angle);
-            float y = EARTH_RADIUS * (float) Math.sin(angle);
-            gl.glVertex3f(x, y, 0.0f);
+        for (int i = 0; i < EQUATOR.segments; i++) {
+            gl.glVertex3f(EARTH_RADIUS * EQUATOR.cos[i], EARTH_RADIUS * EQUATOR.sin[i], 0.0f);
         }
         gl.glEnd();
         gl.glLineWidth(2.0f);
@@ -369,36 +587,42 @@ public class Chapter1 implements GLEventListener {
         gl.glBegin(GL2.GL_QUADS);
         
         // Front face
+        gl.glNormal3f(0, 0, 1);
         gl.glVertex3f(cx - w, cy - h, cz + d);
         gl.glVertex3f(cx + w, cy - h, cz + d);
         gl.glVertex3f(cx + w, cy + h, cz + d);
         gl.glVertex3f(cx - w, cy + h, cz + d);
         
         // Back face
+        gl.glNormal3f(0, 0, -1);
         gl.glVertex3f(cx - w, cy - h, cz - d);
         gl.glVertex3f(cx - w, cy + h, cz - d);
         gl.glVertex3f(cx + w, cy + h, cz - d);
         gl.glVertex3f(cx + w, cy - h, cz - d);
         
         // Top face
+        gl.glNormal3f(0, 1, 0);
         gl.glVertex3f(cx - w, cy + h, cz - d);
         gl.glVertex3f(cx - w, cy + h, cz + d);
         gl.glVertex3f(cx + w, cy + h, cz + d);
         gl.glVertex3f(cx + w, cy + h, cz - d);
         
         // Bottom face
+        gl.glNormal3f(0, -1, 0);
         gl.glVertex3f(cx - w, cy - h, cz - d);
         gl.glVertex3f(cx + w, cy - h, cz - d);
         gl.glVertex3f(cx + w, cy - h, cz + d);
         gl.glVertex3f(cx - w, cy - h, cz + d);
         
         // Right face
+        gl.glNormal3f(1, 0, 0);
         gl.glVertex3f(cx + w, cy - h, cz - d);
         gl.glVertex3f(cx + w, cy + h, cz - d);
         gl.glVertex3f(cx + w, cy + h, cz + d);
         gl.glVertex3f(cx + w, cy - h, cz + d);
         
         // Left face
+        gl.glNormal3f(-1, 0, 0);
         gl.glVertex3f(cx - w, cy - h, cz - d);
         gl.glVertex3f(cx - w, cy - h, cz + d);
         gl.glVertex3f(cx - w, cy + h, cz + d);
@@ -411,12 +635,8 @@ public class Chapter1 implements GLEventListener {
         gl.glColor4f(0.5f, 0.5f, 0.5f, 0.4f);
         gl.glLineWidth(1.5f);
         gl.glBegin(GL2.GL_LINE_LOOP);
-        int segments = 128;
-        for (int i = 0; i < segments; i++) {
-            float angle = (float) (2.0 * Math.PI * i / segments);
-            float x = radius * (float) Math.cos(angle);
-            float y = radius * (float) Math.sin(angle);
-            gl.glVertex3f(x, y, 0.0f);
+        for (int i = 0; i < ORBIT.segments; i++) {
+            gl.glVertex3f(radius * ORBIT.cos[i], radius * ORBIT.sin[i], 0.0f);
         }
         gl.glEnd();
         gl.glLineWidth(2.0f);
@@ -473,78 +693,475 @@ public class Chapter1 implements GLEventListener {
         gl.glLineWidth(2.0f);
     }
 
-    private void drawOverlay(GLAutoDrawable drawable, float[] worldCoords) {
+    private void createOverlays(Font font) {
+        int lineHeight = 35;
+        int y = 30;
+
+        overlay = new TextOverlay(font, OVERLAY_REFRESH_MILLIS);
+        overlay.addStatic(Anchor.TOP, 20, y, 1f, 1f, 1f, 1.0f, "Earth-Satellite Coordinate Transformation (地球-卫星坐标变换)");
+        y += lineHeight * 1.5;
+
+        overlay.addStatic(Anchor.TOP, 20, y, 0.2f, 0.4f, 0.7f, 1.0f, "Earth (地球) - O₁ Earth-Centered Inertial Frame (地心惯性坐标系)");
+        y += lineHeight;
+
+        overlay.addStatic(Anchor.TOP, 20, y, 0.8f, 0.8f, 0.9f, 1.0f, "Satellite (卫星) - O₂ Body-Fixed Frame (本体坐标系)");
+        y += lineHeight * 1.5;
+
+        positionLine = overlay.addDynamic(Anchor.TOP, 20, y, 1f, 1f, 1f, 1.0f);
+        y += lineHeight;
+
+        attitudeLine = overlay.addDynamic(Anchor.TOP, 20, y, 1f, 1f, 1f, 1.0f);
+        y += lineHeight;
+
+        overlay.addStatic(Anchor.TOP, 20, y, 1f, 1f, 1f, 1.0f,
+            new TextBuffer().append("Orbital Radius: ").append(ORBIT_RADIUS, 2).append(" km").toString());
+        y += lineHeight * 1.5;
+
+        testPointLine = overlay.addDynamic(Anchor.TOP, 20, y, 1.0f, 0.0f, 1.0f, 1.0f);
+        y += lineHeight;
+
+        worldPointLine = overlay.addDynamic(Anchor.TOP, 20, y, 0.8f, 0.0f, 0.8f, 1.0f);
+        y += lineHeight * 1.5;
+
+        overlay.addStatic(Anchor.TOP, 20, y, 0.3f, 0.3f, 1f, 1.0f, "Transformation: P₁ = R(θ) * P₂ + T");
+
+        overlay.addStatic(Anchor.BOTTOM, 20, 30, 0.4f, 0.4f, 0.4f, 1.0f,
+            "Controls: Mouse drag (rotate) | Wheel (zoom) | SPACE (pause) | R (reset) | G (grid) | T (trajectory) | K (real scale) | V (capture)");
+
+        y = 30;
+        realScaleOverlay = new TextOverlay(font, OVERLAY_REFRESH_MILLIS);
+        realScaleOverlay.addStatic(Anchor.TOP, 20, y, 1f, 1f, 1f, 1.0f, "Real Scale (真实尺度) - meters, relative-to-eye rendering");
+        y += lineHeight;
+
+        realScaleStatusLine = realScaleOverlay.addDynamic(Anchor.TOP, 20, y, 1f, 1f, 1f, 1.0f);
+        y += lineHeight;
+
+        // Decided once the GL context exists, so kept dynamic; it only uploads on change
+        depthModeLine = realScaleOverlay.addDynamic(Anchor.TOP, 20, y, 1f, 1f, 1f, 1.0f);
+        y += lineHeight;
+
+        cullingLine = realScaleOverlay.addDynamic(Anchor.TOP, 20, y, 1f, 1f, 1f, 1.0f);
+        y += lineHeight;
+
+        dynamicsLine = realScaleOverlay.addDynamic(Anchor.TOP, 20, y, 1f, 1f, 1f, 1.0f);
+        y += lineHeight;
+
+        conjunctionLine = realScaleOverlay.addDynamic(Anchor.TOP, 20, y, 1.0f, 0.4f, 0.4f, 1.0f);
+        y += lineHeight;
+
+        shadowLine = realScaleOverlay.addDynamic(Anchor.TOP, 20, y, 1f, 1f, 1f, 1.0f);
+        y += lineHeight;
+
+        accessLine = realScaleOverlay.addDynamic(Anchor.TOP, 20, y, 0.3f, 1.0f, 0.5f, 1.0f);
+
+        realScaleOverlay.addStatic(Anchor.BOTTOM, 20, 30, 0.4f, 0.4f, 0.4f, 1.0f,
+            "Controls: K (real scale) | F (focus Earth/LEO/GEO) | L (labels) | N (N-body) | A (access) | V (capture) | Wheel or +/- (zoom) | SPACE (pause)");
+    }
+
+    private void drawOverlay(GLAutoDrawable drawable, Vec3f worldCoords) {
+        if (overlay.tryBeginRefresh()) {
+            positionLine.begin().append("Satellite Position: (").append(o2TranslationX, 2).append(", ")
+                .append(o2TranslationY, 2).append(", ").append(o2TranslationZ, 2).append(") km");
+            positionLine.end();
+
+            attitudeLine.begin().append("Satellite Attitude (Yaw): ").append(o2RotationAngle, 1).append('°');
+            attitudeLine.end();
+
+            testPointLine.begin().append("Point in O₂ frame: P₂ = (").append(testPointX, 2).append(", ")
+                .append(testPointY, 2).append(", ").append(testPointZ, 2).append(')');
+            testPointLine.end();
+
+            worldPointLine.begin().append("Point in O₁ frame: P₁ = (").append(worldCoords.x, 2).append(", ")
+                .append(worldCoords.y, 2).append(", ").append(worldCoords.z, 2).append(')');
+            worldPointLine.end();
+        }
+        overlay.draw(drawable.getGL().getGL2(), drawable.getSurfaceWidth(), drawable.getSurfaceHeight());
+    }
+
+    private static int addGeoRing(SatelliteCatalog catalog, int count) {
+        int first = catalog.size();
+        for (int i = 0; i < count; i++) {
+            catalog.add(SatelliteCatalog.GEO_RADIUS_M, 0.0, 0.0, 360.0 * i / count);
+        }
+        return first;
+    }
+
+    private void displayRealScale(GLAutoDrawable drawable) {
         GL2 gl = drawable.getGL().getGL2();
-        
-        // Save the current matrices
-        gl.glMatrixMode(GL2.GL_PROJECTION);
-        gl.glPushMatrix();
-        gl.glLoadIdentity();
-        gl.glOrtho(0, drawable.getSurfaceWidth(), 0, drawable.getSurfaceHeight(), -1, 1);
-        
+        double[] positions = satellitePositions();
+
+        if (focusIndex < 0) {
+            cameraFocus.set(0.0, 0.0, 0.0);
+        } else {
+            int p = focusIndex * 3;
+            cameraFocus.set(positions[p], positions[p + 1], positions[p + 2]);
+        }
+        relativeToEye.orbit(cameraFocus, realCameraDistance, cameraRotX, cameraRotY);
+
+        // Near plane only matters without log depth; keep it just in front of the closest thing we look at
+        double toEarthSurface = relativeToEye.distanceTo(0.0, 0.0, 0.0) - SatelliteCatalog.EARTH_RADIUS_M;
+        double fallbackNear = Math.max(0.5, 0.5 * Math.min(realCameraDistance, Math.max(toEarthSurface, 1.0)));
+        double far = relativeToEye.distanceTo(0.0, 0.0, 0.0) + 2.0 * SatelliteCatalog.GEO_RADIUS_M;
+        logDepth.perspective(gl, 45.0, aspect, fallbackNear, far);
+
+        // Only satellites inside the frustum and above the Earth's horizon reach the draw batch
+        culler.setView(relativeToEye, 45.0, aspect, 1.0, far);
+        culler.setOccluderRadius(SatelliteCatalog.EARTH_RADIUS_M);
+        int visibleCount = culler.cull(positions, catalog.size(), SATELLITE_BOUNDING_RADIUS, visibleIndices);
+        frameStats.setCulling(visibleCount, culler.frustumCulled(), culler.horizonCulled());
+        int conjunctions = Math.min(MAX_DRAWN_CONJUNCTIONS,
+                screener.screen(positions, catalog.size(), CONJUNCTION_WINDOW_SEC, conjunctionStates));
+        for (int k = 0; k < conjunctions; k++) {
+            conjunctionIndices[2 * k] = screener.first(k);
+            conjunctionIndices[2 * k + 1] = screener.second(k);
+        }
+        ephemeris().position(Ephemeris.Body.SUN, epochSec + simTimeSec, sunPosition, 0);
+        eclipses.compute(positions, catalog.size(), sunPosition);
+
         gl.glMatrixMode(GL2.GL_MODELVIEW);
-        gl.glPushMatrix();
-        gl.glLoadIdentity();
-        
-        gl.glDisable(GL2.GL_DEPTH_TEST);
-        
-        textRenderer.beginRendering(drawable.getSurfaceWidth(), drawable.getSurfaceHeight());
-        textRenderer.setColor(1f, 1f, 1f, 1.0f);
-        
-        int y = drawable.getSurfaceHeight() - 30;
-        int lineHeight = 35;
-        
-        textRenderer.setColor(1f, 1f, 1f, 1.0f);
-        textRenderer.draw("Earth-Satellite Coordinate Transformation (地球-卫星坐标变换)", 20, y);
-        y -= lineHeight * 1.5;
-        
-        textRenderer.setColor(0.2f, 0.4f, 0.7f, 1.0f);
-        textRenderer.draw("Earth (地球) - O₁ Earth-Centered Inertial Frame (地心惯性坐标系)", 20, y);
-        y -= lineHeight;
-        
-        textRenderer.setColor(0.8f, 0.8f, 0.9f, 1.0f);
-        textRenderer.draw("Satellite (卫星) - O₂ Body-Fixed Frame (本体坐标系)", 20, y);
-        y -= lineHeight * 1.5;
-        
-        textRenderer.setColor(1f, 1f, 1f, 1.0f);
-        textRenderer.draw(String.format("Satellite Position: (%.2f, %.2f, %.2f) km", 
-            o2TranslationX, o2TranslationY, o2TranslationZ), 20, y);
-        y -= lineHeight;
-        
-        textRenderer.setColor(1f, 1f, 1f, 1.0f);
-        textRenderer.draw(String.format("Satellite Attitude (Yaw): %.1f°", o2RotationAngle), 20, y);
-        y -= lineHeight;
-        
-        textRenderer.setColor(1f, 1f, 1f, 1.0f);
-        textRenderer.draw(String.format("Orbital Radius: %.2f km", ORBIT_RADIUS), 20, y);
-        y -= lineHeight * 1.5;
-        
-        textRenderer.setColor(1.0f, 0.0f, 1.0f, 1.0f);
-        textRenderer.draw(String.format("Point in O₂ frame: P₂ = (%.2f, %.2f, %.2f)", 
-            testPointX, testPointY, testPointZ), 20, y);
-        y -= lineHeight;
-        
-        textRenderer.setColor(0.8f, 0.0f, 0.8f, 1.0f);
-        textRenderer.draw(String.format("Point in O₁ frame: P₁ = (%.2f, %.2f, %.2f)", 
-            worldCoords[0], worldCoords[1], worldCoords[2]), 20, y);
-        y -= lineHeight * 1.5;
-        
-        textRenderer.setColor(0.3f, 0.3f, 1f, 1.0f);
-        textRenderer.draw("Transformation: P₁ = R(θ) * P₂ + T", 20, y);
-        y -= lineHeight * 2;
-        
-        textRenderer.setColor(0.4f, 0.4f, 0.4f, 1.0f);
-        textRenderer.draw("Controls: Mouse drag (rotate) | Wheel (zoom) | SPACE (pause) | R (reset) | G (grid) | T (trajectory)", 
-            20, 30);
-        
-        textRenderer.endRendering();
-        
-        gl.glEnable(GL2.GL_DEPTH_TEST);
-        
-        // Restore matrices
-        gl.glPopMatrix();
+        logDepth.begin(gl);
+
+        // Sunlight from the ephemeris, set under the view rotation like any fixed-function light
+        double sunDistance = Math.sqrt(sunPosition[0] * sunPosition[0] + sunPosition[1] * sunPosition[1]
+                + sunPosition[2] * sunPosition[2]);
+        for (int i = 0; i < 3; i++) {
+            sunDirection[i] = (float) (sunPosition[i] / sunDistance);
+        }
+        relativeToEye.loadViewRotation(gl);
+        gl.glLightfv(GL2.GL_LIGHT0, GL2.GL_POSITION, sunDirection, 0);
+        gl.glLightfv(GL2.GL_LIGHT0, GL2.GL_AMBIENT, NIGHT_AMBIENT, 0);
+        setSunlight(gl, 1.0f);
+
+        // Earth: one double subtraction for the whole mesh, turned by sidereal time so the map is Earth-fixed
+        relativeToEye.loadModelView(gl, 0.0, 0.0, 0.0);
+        logDepth.setLighting(gl, true);
+        if (earthTexture != null) {
+            // The map has longitude 0 on -Y, a quarter turn behind the Earth-fixed frame's +X
+            gl.glRotated(Math.toDegrees(Ephemeris.greenwichSiderealRad(epochSec + simTimeSec)) + 90.0, 0.0, 0.0, 1.0);
+            logDepth.setSphereTexture(gl, earthTexture);
+            ResourceCache.shared().markUsed(earthTexture);
+            gl.glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
+        } else {
+            gl.glColor4f(0.2f, 0.4f, 0.7f, 1.0f);
+        }
+        drawSphere(gl, 0.0f, 0.0f, 0.0f, (float) SatelliteCatalog.EARTH_RADIUS_M);
+        logDepth.setSphereTexture(gl, null);
+        logDepth.setLighting(gl, false);
+
+        // Visible satellites as one point batch: per-object double subtraction, then float
+        relativeToEye.loadViewRotation(gl);
+        relativeToEye.writeEyeRelative(positions, visibleIndices, visibleCount, eyeRelativePositions);
+        writeSatelliteColors(visibleCount);
+        gl.glPointSize(3.0f);
+        gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+        gl.glEnableClientState(GL2.GL_COLOR_ARRAY);
+        gl.glVertexPointer(3, GL2.GL_FLOAT, 0, eyeRelativePositions);
+        gl.glColorPointer(3, GL2.GL_FLOAT, 0, satelliteColors);
+        gl.glDrawArrays(GL2.GL_POINTS, 0, visibleCount);
+        gl.glDisableClientState(GL2.GL_COLOR_ARRAY);
+
+        // Flagged pairs on top: both objects enlarged and joined, whether or not they passed culling
+        if (conjunctions > 0) {
+            relativeToEye.writeEyeRelative(positions, conjunctionIndices, 2 * conjunctions, conjunctionPositions);
+            gl.glColor4f(1.0f, 0.2f, 0.2f, 1.0f);
+            gl.glPointSize(7.0f);
+            gl.glVertexPointer(3, GL2.GL_FLOAT, 0, conjunctionPositions);
+            gl.glDrawArrays(GL2.GL_POINTS, 0, 2 * conjunctions);
+            gl.glDrawArrays(GL2.GL_LINES, 0, 2 * conjunctions);
+        }
+        if (showAccess) {
+            drawAccessLinks(gl, positions);
+        }
+        gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+
+        // The focused satellite in full detail, its model in meters
+        if (focusIndex >= 0) {
+            relativeToEye.loadModelView(gl, cameraFocus.x, cameraFocus.y, cameraFocus.z);
+            setSunlight(gl, eclipses.sunlight(focusIndex));
+            logDepth.setLighting(gl, true);
+            drawSatellite(gl);
+            logDepth.setLighting(gl, false);
+            drawCoordinateFrame(gl, "O₂", O2_X_COLOR, O2_Y_COLOR, O2_Z_COLOR,
+                4.0f, 0.0f, 0.0f, 0.0f, 0.0f);
+        }
+
+        logDepth.end(gl);
+        if (showLabels) {
+            drawSatelliteLabels(drawable, visibleCount, far);
+        }
+        drawRealScaleOverlay(drawable);
+        loadStandardProjection(gl);
+    }
+
+    /** Diffuse sunlight for GL_LIGHT0, dimmed by the fraction of the Sun that is visible. */
+    private void setSunlight(GL2 gl, float fraction) {
+        sunLight[0] = fraction;
+        sunLight[1] = fraction;
+        sunLight[2] = fraction;
+        gl.glLightfv(GL2.GL_LIGHT0, GL2.GL_DIFFUSE, sunLight, 0);
+    }
+
+    /**
+     * Satellite positions for this frame: the catalog's circular orbits, or
+     * with N-body dynamics on, the integrator advanced to the scene clock.
+     * Going back in time restarts the integration from the catalog.
+     */
+    private double[] satellitePositions() {
+        if (!dynamicsEnabled) {
+            dynamics = null; // turning it back on starts afresh rather than catching up
+            catalog.propagate(simTimeSec);
+            return catalog.positions;
+        }
+        if (dynamics == null || simTimeSec < dynamics.time()) {
+            if (dynamicPositions == null) {
+                dynamicPositions = new double[catalog.size() * 3];
+                dynamicVelocities = new double[catalog.size() * 3];
+            }
+            dynamics = NBodySystem.fromCatalog(catalog, ephemeris(), epochSec + simTimeSec, simTimeSec,
+                    NBodySystem.Scheme.YOSHIDA4, DYNAMICS_STEP_SEC);
+        }
+        dynamics.advanceTo(simTimeSec);
+        dynamics.geocentricPositions(dynamicPositions);
+        dynamics.geocentricVelocities(dynamicVelocities);
+        return dynamicPositions;
+    }
+
+    /**
+     * Links from ground stations to the satellites they can see now. The
+     * windows come from the catalog's circular orbits; under N-body the
+     * link ends on the integrated position instead.
+     */
+    private void drawAccessLinks(GL2 gl, double[] positions) {
+        updateAccessWindows();
+        for (int s = 0; s < ACCESS_STATIONS; s++) {
+            access.stationPosition(s, simTimeSec, stationPositions, s * 3);
+        }
+        activeLinks = 0;
+        int kept = 0;
+        for (AccessWindow window : accessWindows) {
+            if (window.set() < simTimeSec) {
+                continue; // over for good: the clock only restarts the run when it goes back
+            }
+            accessWindows.set(kept++, window);
+            if (window.rise() > simTimeSec) {
+                continue;
+            }
+            if ((activeLinks + 1) * 6 > linkEndpoints.length) {
+                linkEndpoints = Arrays.copyOf(linkEndpoints, linkEndpoints.length * 2);
+            }
+            System.arraycopy(stationPositions, window.station() * 3, linkEndpoints, activeLinks * 6, 3);
+            System.arraycopy(positions, window.satellite() * 3, linkEndpoints, activeLinks * 6 + 3, 3);
+            activeLinks++;
+        }
+        accessWindows.subList(kept, accessWindows.size()).clear();
+        if (linkBuffer.capacity() < linkEndpoints.length) {
+            linkBuffer = Buffers.newDirectFloatBuffer(linkEndpoints.length);
+        }
+
+        relativeToEye.writeEyeRelative(linkEndpoints, 2 * activeLinks, linkBuffer);
+        gl.glColor4f(0.3f, 1.0f, 0.5f, 0.35f);
+        gl.glVertexPointer(3, GL2.GL_FLOAT, 0, linkBuffer);
+        gl.glDrawArrays(GL2.GL_LINES, 0, 2 * activeLinks);
+
+        relativeToEye.writeEyeRelative(stationPositions, ACCESS_STATIONS, stationBuffer);
+        gl.glColor4f(0.3f, 1.0f, 0.5f, 1.0f);
+        gl.glPointSize(5.0f);
+        gl.glVertexPointer(3, GL2.GL_FLOAT, 0, stationBuffer);
+        gl.glDrawArrays(GL2.GL_POINTS, 0, ACCESS_STATIONS);
+    }
+
+    /** Takes in streamed windows, and starts a fresh run when the clock leaves the one in progress. */
+    private void updateAccessWindows() {
+        if (accessWorker == null) {
+            accessWorker = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "access-windows");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        if (access == null || simTimeSec < accessStart || simTimeSec > accessEnd) {
+            if (access != null) {
+                access.cancel();
+            }
+            AccessEngine engine = new AccessEngine(epochSec, 10.0, 30.0);
+            engine.addStationLattice(ACCESS_STATIONS);
+            ConcurrentLinkedQueue<AccessWindow> arrivals = new ConcurrentLinkedQueue<>();
+            double start = simTimeSec;
+            double end = simTimeSec + ACCESS_HORIZON_SEC;
+            Runnable run = () -> engine.run(catalog, start, end,
+                    (satellite, station, rise, set) -> arrivals.add(new AccessWindow(satellite, station, rise, set)));
+            if (fixedTime) {
+                run.run(); // batch frames must not depend on how far the worker got
+            } else {
+                accessWorker.execute(run);
+            }
+            access = engine;
+            accessArrivals = arrivals;
+            accessStart = start;
+            accessEnd = end;
+            accessWindows.clear();
+        }
+        for (AccessWindow window; (window = accessArrivals.poll()) != null; ) {
+            accessWindows.add(window);
+        }
+    }
+
+    private Ephemeris ephemeris() {
+        if (ephemeris == null) {
+            ephemeris = Ephemeris.covering(epochSec, epochSec + 366.0 * Ephemeris.SECONDS_PER_DAY);
+        }
+        return ephemeris;
+    }
+
+    /** Per-vertex colors for the visible batch, blended by each satellite's share of the solar disk. */
+    private void writeSatelliteColors(int visibleCount) {
+        satelliteColors.clear();
+        for (int k = 0; k < visibleCount; k++) {
+            float lit = eclipses.sunlight(visibleIndices[k]);
+            for (int c = 0; c < 3; c++) {
+                satelliteColors.put(UMBRA_COLOR[c] + (SUNLIT_COLOR[c] - UMBRA_COLOR[c]) * lit);
+            }
+        }
+        satelliteColors.flip();
+    }
+
+    /**
+     * State of satellite {@code i} at {@code dt} from this frame, for the
+     * conjunction refinement: exact on the catalog's circles, and a
+     * straight-line extrapolation of the integrated state under N-body,
+     * which over the one-second window is off by centimeters.
+     */
+    private void satelliteState(int i, double dt, double[] out) {
+        if (dynamics == null) {
+            catalog.state(i, simTimeSec + dt, out);
+            return;
+        }
+        int p = i * 3;
+        for (int k = 0; k < 3; k++) {
+            out[3 + k] = dynamicVelocities[p + k];
+            out[k] = dynamicPositions[p + k] + dynamicVelocities[p + k] * dt;
+        }
+    }
+
+    private void createLabels(GL2 gl) {
+        SdfFontAtlas atlas = SdfFontAtlas.load(new Font("SansSerif", Font.BOLD, 32), 32, 4, SdfFontAtlas.DEFAULT_CHARACTERS);
+        labels = new LabelEngine(atlas, 13.0f, 16_384);
+        TextBuffer name = new TextBuffer();
+        for (int i = 0; i < catalog.size(); i++) {
+            // GEO labels are fewer and farther apart, so let them win overlaps
+            if (i < firstGeoIndex) {
+                labels.add(name.clear().append("LEO #").append(i), 0.0f, 0.9f, 0.9f, 0.6f, 1.0f);
+            } else {
+                labels.add(name.clear().append("GEO #").append(i - firstGeoIndex), 1.0f, 0.6f, 0.9f, 1.0f, 1.0f);
+            }
+        }
+        labels.init(gl);
+    }
+
+    private void drawSatelliteLabels(GLAutoDrawable drawable, int visibleCount, double far) {
+        // Same eye-relative space the point batch was drawn in
+        labelProjection.perspective(45.0f, aspect, 1.0f, (float) far);
+        labelViewRotation.set(relativeToEye.viewRotation());
+        labelViewProjection.mul(labelProjection, labelViewRotation);
+
+        labels.begin(labelViewProjection, drawable.getSurfaceWidth(), drawable.getSurfaceHeight());
+        for (int k = 0; k < visibleCount; k++) {
+            labels.offer(visibleIndices[k], eyeRelativePositions.get(k * 3),
+                eyeRelativePositions.get(k * 3 + 1), eyeRelativePositions.get(k * 3 + 2));
+        }
+        labels.place();
+        labels.draw(drawable.getGL().getGL2());
+    }
+
+    private void cycleFocus() {
+        // Earth -> first LEO satellite -> first GEO satellite -> Earth
+        if (focusIndex < 0) {
+            focusIndex = 0;
+        } else if (focusIndex < firstGeoIndex) {
+            focusIndex = firstGeoIndex;
+        } else {
+            focusIndex = -1;
+        }
+        realCameraDistance = focusIndex < 0 ? 3.0 * SatelliteCatalog.EARTH_RADIUS_M : REAL_SATELLITE_VIEW_DISTANCE;
+    }
+
+    private String focusName() {
+        return focusIndex < 0 ? "earth" : focusIndex < firstGeoIndex ? "leo" : "geo";
+    }
+
+    private void zoomRealScale(double steps) {
+        realCameraDistance = Math.max(2.0, realCameraDistance * Math.pow(1.25, steps));
+    }
+
+    private void drawRealScaleOverlay(GLAutoDrawable drawable) {
+        if (realScaleOverlay.tryBeginRefresh()) {
+            TextBuffer status = realScaleStatusLine.begin().append("Satellites: ").append(catalog.size()).append(" | Focus: ");
+            if (focusIndex < 0) {
+                status.append("Earth");
+            } else if (focusIndex < firstGeoIndex) {
+                status.append("LEO #").append(focusIndex);
+            } else {
+                status.append("GEO #").append(focusIndex - firstGeoIndex);
+            }
+            status.append(" | Camera distance: ").append(realCameraDistance / 1000.0, 3).append(" km");
+            realScaleStatusLine.end();
+
+            depthModeLine.begin().append(logDepth.isAvailable() ? "Depth: logarithmic" : "Depth: fitted near/far");
+            depthModeLine.end();
+
+            cullingLine.begin().append("Visible: ").append(frameStats.visibleObjects())
+                .append(" | Frustum culled: ").append(frameStats.frustumCulled())
+                .append(" | Horizon culled: ").append(frameStats.horizonCulled())
+                .append(" | Frame: ").append(frameStats.frameMillis(), 2).append(" ms");
+            cullingLine.end();
+
+            TextBuffer motion = dynamicsLine.begin();
+            if (dynamicsEnabled && dynamics != null) {
+                motion.append("Motion: N-body + J2 | Energy drift: ").append(dynamics.satelliteEnergyDrift() * 1e9, 2)
+                    .append(" ppb | Steps: ").append(dynamics.steps());
+            } else {
+                motion.append("Motion: circular orbits");
+            }
+            dynamicsLine.end();
+
+            TextBuffer conjunctions = conjunctionLine.begin().append("Conjunctions (< 10 km): ").append(screener.size());
+            if (screener.size() > 0) {
+                conjunctions.append(" | Closest: ").append(screener.missDistance(closestConjunction()) / 1000.0, 2).append(" km");
+            }
+            conjunctions.append(" | Candidates (< 50 km): ").append(screener.candidateCount());
+            conjunctionLine.end();
+
+            shadowLine.begin().append("Earth shadow: umbra ").append(eclipses.umbraCount())
+                .append(" | penumbra ").append(eclipses.penumbraCount())
+                .append(" | sunlit ").append(eclipses.size() - eclipses.umbraCount() - eclipses.penumbraCount());
+            shadowLine.end();
+
+            TextBuffer links = accessLine.begin();
+            if (showAccess && access != null) {
+                links.append("Ground stations: ").append(ACCESS_STATIONS).append(" | Active links (> 10°): ").append(activeLinks)
+                    .append(" | Windows ahead: ").append(accessWindows.size());
+            } else {
+                links.append("Ground-station access: off");
+            }
+            accessLine.end();
+        }
+        realScaleOverlay.draw(drawable.getGL().getGL2(), drawable.getSurfaceWidth(), drawable.getSurfaceHeight());
+    }
+
+    private int closestConjunction() {
+        int closest = 0;
+        for (int k = 1; k < screener.size(); k++) {
+            if (screener.missDistance(k) < screener.missDistance(closest)) {
+                closest = k;
+            }
+        }
+        return closest;
+    }
+
+    private void loadStandardProjection(GL2 gl) {
         gl.glMatrixMode(GL2.GL_PROJECTION);
-        gl.glPopMatrix();
+        gl.glLoadIdentity();
+        glu.gluPerspective(45.0f, aspect, 0.1f, 1000.0f);
         gl.glMatrixMode(GL2.GL_MODELVIEW);
     }
 
@@ -553,14 +1170,12 @@ public class Chapter1 implements GLEventListener {
         GL2 gl = drawable.getGL().getGL2();
         gl.glViewport(0, 0, width, Math.max(height, 1));
 
-        float aspect = (height == 0) ? 1.0f : (float) width / (float) height;
-        gl.glMatrixMode(GL2.GL_PROJECTION);
-        gl.glLoadIdentity();
-        glu.gluPerspective(45.0f, aspect, 0.1f, 1000.0f);
-        gl.glMatrixMode(GL2.GL_MODELVIEW);
+        aspect = (height == 0) ? 1.0f : (float) width / (float) height;
+        loadStandardProjection(gl);
     }
 
-    private void attachInputHandlers(GLCanvas canvas) {
+    @Override
+    public void attachInputHandlers(GLCanvas canvas) {
         canvas.addKeyListener(new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
@@ -571,6 +1186,7 @@ public class Chapter1 implements GLEventListener {
                             lastTime = System.nanoTime();
                         }
                     }
+                    case KeyEvent.VK_V -> capture.toggle();
                     case KeyEvent.VK_R -> {
                         cameraRotX = 25.0f;
                         cameraRotY = -35.0f;
@@ -580,12 +1196,21 @@ public class Chapter1 implements GLEventListener {
                     }
                     case KeyEvent.VK_G -> showGrid = !showGrid;
                     case KeyEvent.VK_T -> showTrajectory = !showTrajectory;
+                    case KeyEvent.VK_K -> realScale = !realScale;
+                    case KeyEvent.VK_F -> cycleFocus();
+                    case KeyEvent.VK_L -> showLabels = !showLabels;
+                    case KeyEvent.VK_N -> dynamicsEnabled = !dynamicsEnabled;
+                    case KeyEvent.VK_A -> showAccess = !showAccess;
                     case KeyEvent.VK_LEFT -> cameraRotY -= 5.0f;
                     case KeyEvent.VK_RIGHT -> cameraRotY += 5.0f;
                     case KeyEvent.VK_UP -> cameraRotX -= 5.0f;
                     case KeyEvent.VK_DOWN -> cameraRotX += 5.0f;
-                    case KeyEvent.VK_EQUALS, KeyEvent.VK_PLUS -> cameraZoom += 2.0f;
-                    case KeyEvent.VK_MINUS -> cameraZoom -= 2.0f;
+                    case KeyEvent.VK_EQUALS, KeyEvent.VK_PLUS -> {
+                        if (realScale) zoomRealScale(-1.0); else cameraZoom += 2.0f;
+                    }
+                    case KeyEvent.VK_MINUS -> {
+                        if (realScale) zoomRealScale(1.0); else cameraZoom -= 2.0f;
+                    }
                 }
                 canvas.display();
             }
@@ -620,43 +1245,16 @@ public class Chapter1 implements GLEventListener {
         });
 
         canvas.addMouseWheelListener((MouseWheelEvent e) -> {
-            cameraZoom += e.getWheelRotation() * 2.0f;
+            if (realScale) {
+                zoomRealScale(e.getWheelRotation());
+            } else {
+                cameraZoom += e.getWheelRotation() * 2.0f;
+            }
             canvas.display();
         });
     }
 
     public static void main(String[] args) {
-        GLProfile profile = GLProfile.get(GLProfile.GL2);
-        GLCapabilities capabilities = new GLCapabilities(profile);
-        capabilities.setDepthBits(24);
-        capabilities.setSampleBuffers(true);
-        capabilities.setNumSamples(4);
-
-        GLCanvas canvas = new GLCanvas(capabilities);
-        Chapter1 demo = new Chapter1();
-        canvas.addGLEventListener(demo);
-        demo.attachInputHandlers(canvas);
-
-        Frame frame = new Frame("Coordinate System Transformation - O₁ ↔ O₂");
-        frame.add(canvas);
-        frame.setSize(1200, 800);
-        frame.setLocationRelativeTo(null);
-
-        final FPSAnimator animator = new FPSAnimator(canvas, 60, true);
-        frame.addWindowListener(new WindowAdapter() {
-            @Override
-            public void windowClosing(WindowEvent e) {
-                new Thread(() -> {
-                    if (animator.isStarted()) {
-                        animator.stop();
-                    }
-                    System.exit(0);
-                }).start();
-            }
-        });
-
-        frame.setVisible(true);
-        animator.start();
-        canvas.requestFocusInWindow();
+        SceneLauncher.launch("chapter1");
     }
 }
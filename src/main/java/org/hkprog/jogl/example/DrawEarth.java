@@ -2,31 +2,47 @@ package org.hkprog.jogl.example;
 
 import com.jogamp.opengl.GLAutoDrawable;
 import com.jogamp.opengl.GL2;
-import com.jogamp.opengl.GLCapabilities;
-import com.jogamp.opengl.GLEventListener;
-import com.jogamp.opengl.GLProfile;
 import com.jogamp.opengl.awt.GLCanvas;
 import com.jogamp.opengl.glu.GLU;
 import com.jogamp.opengl.glu.GLUquadric;
-import com.jogamp.opengl.util.FPSAnimator;
 import com.jogamp.opengl.util.texture.Texture;
-import com.jogamp.opengl.util.texture.TextureIO;
+import org.hkprog.jogl.example.batch.BatchScene;
+import org.hkprog.jogl.example.capture.FrameCapture;
+import org.hkprog.jogl.example.replay.SessionRecorder;
+import org.hkprog.jogl.example.sim.CoverageGrid;
+import org.hkprog.jogl.example.sim.Ephemeris;
+import org.hkprog.jogl.example.sim.SatelliteCatalog;
+import org.hkprog.jogl.example.globe.Atmosphere;
+import org.hkprog.jogl.example.globe.ChunkedGlobe;
+import org.hkprog.jogl.example.globe.CoverageLayer;
+import org.hkprog.jogl.example.globe.CubeMapTexture;
+import org.hkprog.jogl.example.globe.EarthMaterial;
+import org.hkprog.jogl.example.globe.ElevationTiles;
+import org.hkprog.jogl.example.globe.SphereMesh;
+import org.hkprog.jogl.example.globe.TextureSequence;
+import org.hkprog.jogl.example.globe.Starfield;
+import org.hkprog.jogl.example.globe.VectorLayer;
+import org.hkprog.jogl.example.math.Mat4f;
+import org.hkprog.jogl.example.math.Quatf;
+import org.hkprog.jogl.example.math.Vec3f;
+import org.hkprog.jogl.example.render.ResourceCache;
 
-import java.awt.Frame;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
 import java.awt.event.MouseWheelEvent;
-import java.awt.event.WindowAdapter;
-import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
+import javax.imageio.ImageIO;
 
-public class DrawEarth implements GLEventListener {
+public class DrawEarth implements BatchScene, LauncherScene {
 
     private final GLU glu = new GLU();
+    private final FrameCapture capture = FrameCapture.fromSystemProperties("DrawEarth");
+    private final SessionRecorder recorder = SessionRecorder.fromSystemProperties("earth");
     private GLUquadric sphereQuadric;
 
     // Camera controls
@@ -44,17 +60,150 @@ public class DrawEarth implements GLEventListener {
     private float earthSpinDeg = 0.0f;
     private float textureOffsetDeg = 90.0f; // Adjust texture alignment
     private static final double EARTH_ROTATION_PERIOD_SEC = 60.0; // 60 seconds per full rotation
+    // Ephemeris seconds per simulated second, so one spin is one solar day and the Sun holds still per spin
+    private static final double EPHEMERIS_SECONDS_PER_SIM_SECOND = Ephemeris.SECONDS_PER_DAY / EARTH_ROTATION_PERIOD_SEC;
+    private static final double EPHEMERIS_SPAN_SEC = 366.0 * Ephemeris.SECONDS_PER_DAY;
 
     // Animation
     private long lastNanos = System.nanoTime();
+    private double simTimeSec = 0.0;
+    private boolean fixedTime = false; // set by batch rendering, which drives the clock itself
 
     // Texture
     private Texture earthTexture;
 
+    // Globe meshes; L cycles through them for comparison
+    private enum GlobeMode {
+        LOD("lod", "chunked LOD"),
+        GLU_SPHERE("glu", "gluSphere 64x64"),
+        CUBE("cube", "cube sphere + cube map"),
+        ICOSPHERE("ico", "icosphere + cube map");
+
+        final String option; // value of the "globe" scene option
+        final String label;
+
+        GlobeMode(String option, String label) {
+            this.option = option;
+            this.label = label;
+        }
+    }
+
+    // Subdivisions giving about the same surface error as gluSphere 64x64 with fewer triangles
+    private static final int CUBE_SUBDIVISIONS = 22;
+    private static final int ICOSPHERE_SUBDIVISIONS = 4;
+    private static final int MAX_CUBE_FACE_SIZE = 2048;
+    private static final float FOV_Y_DEG = 45.0f;
+    private static final float ELEVATION_EXAGGERATION = 20.0f;
+    private ChunkedGlobe globe;
+    private ElevationTiles elevationTiles;
+    private GlobeMode globeMode = GlobeMode.LOD;
+    private SphereMesh cubeSphere;
+    private SphereMesh icosphere;
+    private CubeMapTexture earthCubeMap;
+    private TextureSequence layer; // animated clouds/weather, -Dglobe.layer.dir=<frames>
+    private SphereMesh layerSphere;
+    private VectorLayer vectors; // coastlines and borders, -Dglobe.vector.file=<geojson or binary>
+    private Starfield starfield; // sky background, -Dstars.catalog=<csv or .stars>
+    private boolean showVectors = true;
+    private final EarthMaterial material = new EarthMaterial();
+    private final Atmosphere atmosphere = new Atmosphere(EARTH_RADIUS);
+
+    // Sun from the ephemeris, starting at -Dephemeris.epoch
+    private final double epochSec = Ephemeris.epochFromSystemProperty();
+    private Ephemeris ephemeris;
+    private final double[] sunEarthFixed = new double[3];
+    private final Vec3f sunDirection = new Vec3f();
+    private final float[] sunPosition = new float[4];
+
+    // Coverage heatmap (C toggles): satellites in view of each 1° cell, over a 10,000-satellite constellation
+    private final SatelliteCatalog constellation = coverageConstellation();
+    private final CoverageGrid coverage = CoverageGrid.fromSystemProperties();
+    private CoverageLayer coverageLayer;
+    private boolean showCoverage = false;
+    private double coverageTimeSec = Double.NaN;
+
+    private float aspect = 1.0f;
+    private int viewportHeight = 1;
+    private final Quatf earthOrientation = new Quatf();
+    private final Quatf rotationStep = new Quatf();
+    private final Mat4f earthModelView = new Mat4f();
+    private final Mat4f projection = new Mat4f();
+    private final Mat4f earthClip = new Mat4f();
+    private final Vec3f earthLocalEye = new Vec3f();
+
+    // Material parameters, reused every frame instead of reallocated
+    private static final float[] WHITE = {1.0f, 1.0f, 1.0f, 1.0f};
+    private static final float[] MATERIAL_SPECULAR = {0.5f, 0.5f, 0.5f, 1.0f};
+    private final float[] materialAmbient = new float[4];
+    private final float[] materialDiffuse = new float[4];
+
     @Override
     public void init(GLAutoDrawable drawable) {
         GL2 gl = drawable.getGL().getGL2();
+        applyRenderState(gl);
+
+        // Setup sphere quadric
+        sphereQuadric = glu.gluNewQuadric();
+        glu.gluQuadricNormals(sphereQuadric, GLU.GLU_SMOOTH);
+        glu.gluQuadricTexture(sphereQuadric, true);
+
+        // Load Earth texture
+        loadTextures(gl);
+
+        // Elevation is optional: pass -Dglobe.elevation.dir=<tiles> to enable it
+        elevationTiles = ElevationTiles.fromSystemProperty(ChunkedGlobe.GRID + 1);
+        globe = new ChunkedGlobe(EARTH_RADIUS, elevationTiles,
+                EARTH_RADIUS / 6_371_000.0f * ELEVATION_EXAGGERATION);
+        globe.init(gl);
+
+        // Shared with other scenes and contexts through the cache
+        ResourceCache cache = ResourceCache.shared();
+        cubeSphere = cache.acquire(gl, "mesh:cube:" + CUBE_SUBDIVISIONS,
+                g -> uploaded(g, SphereMesh.cube(CUBE_SUBDIVISIONS)), (g, m) -> m.dispose(g));
+        icosphere = cache.acquire(gl, "mesh:icosphere:" + ICOSPHERE_SUBDIVISIONS,
+                g -> uploaded(g, SphereMesh.icosphere(ICOSPHERE_SUBDIVISIONS)), (g, m) -> m.dispose(g));
+        earthCubeMap = cache.acquire(gl, "cubemap:/textures/earth.jpg",
+                g -> tryLoadCubeMapFromResources(g, "/textures/earth.jpg"), (g, t) -> t.dispose(g));
+
+        material.init(gl);
+        atmosphere.init(gl);
+        ephemeris = Ephemeris.covering(epochSec, epochSec + EPHEMERIS_SPAN_SEC);
+
+        // Frames are hourly by default, so a sequence plays at the globe's spin rate
+        layer = TextureSequence.fromSystemProperty(EARTH_ROTATION_PERIOD_SEC / 24.0);
+        if (layer != null) {
+            layer.init(gl);
+            acquireLayerSphere(gl);
+        }
+        vectors = VectorLayer.fromSystemProperty();
+        starfield = Starfield.fromSystemProperties();
+        if (starfield != null) {
+            starfield.init(gl);
+        }
+    }
+
+    private void acquireLayerSphere(GL2 gl) {
+        if (layerSphere == null) {
+            layerSphere = ResourceCache.shared().acquire(gl, "mesh:uv:64x32",
+                    g -> uploaded(g, SphereMesh.uv(64, 32)), (g, m) -> m.dispose(g));
+        }
+    }
+
+    /** Two Walker shells of 5,000: a mid-inclination one at 550 km and a near-polar one at 1,200 km. */
+    private static SatelliteCatalog coverageConstellation() {
+        SatelliteCatalog catalog = new SatelliteCatalog(10_000);
+        catalog.addWalkerDelta(125, 40, 1, 550_000.0, 53.0);
+        catalog.addWalkerDelta(125, 40, 1, 1_200_000.0, 87.9);
+        return catalog;
+    }
 
+    private static SphereMesh uploaded(GL2 gl, SphereMesh mesh) {
+        mesh.upload(gl);
+        return mesh;
+    }
+
+    @Override
+    public void applyRenderState(GL2 gl) {
         // Background color (space black)
         gl.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
         
@@ -80,46 +229,98 @@ public class DrawEarth implements GLEventListener {
         gl.glLightfv(GL2.GL_LIGHT0, GL2.GL_SPECULAR, lightSpecular, 0);
         gl.glLightfv(GL2.GL_LIGHT0, GL2.GL_POSITION, lightPosition, 0);
 
-        // Setup sphere quadric
-        sphereQuadric = glu.gluNewQuadric();
-        glu.gluQuadricNormals(sphereQuadric, GLU.GLU_SMOOTH);
-        glu.gluQuadricTexture(sphereQuadric, true);
-
         // Enable normal normalization
         gl.glEnable(GL2.GL_NORMALIZE);
 
         // Enable 2D texturing
         gl.glEnable(GL2.GL_TEXTURE_2D);
-        
-        // Load Earth texture
-        loadTextures(gl);
     }
 
     @Override
     public void dispose(GLAutoDrawable drawable) {
+        capture.dispose(drawable.getGL().getGL2());
+        recorder.close();
         if (sphereQuadric != null) {
             glu.gluDeleteQuadric(sphereQuadric);
             sphereQuadric = null;
         }
+        if (globe != null) {
+            globe.dispose(drawable.getGL().getGL2());
+            globe = null;
+        }
+        if (elevationTiles != null) {
+            elevationTiles.close();
+            elevationTiles = null;
+        }
+        GL2 gl = drawable.getGL().getGL2();
+        if (layer != null) {
+            layer.dispose(gl);
+            layer.close();
+            layer = null;
+        }
+        if (vectors != null) {
+            vectors.dispose(gl);
+            vectors = null;
+        }
+        if (starfield != null) {
+            starfield.dispose(gl);
+            starfield = null;
+        }
+        if (coverageLayer != null) {
+            coverageLayer.dispose(gl);
+            coverageLayer = null;
+            coverageTimeSec = Double.NaN;
+        }
+        material.dispose(gl);
+        atmosphere.dispose(gl);
+        ResourceCache cache = ResourceCache.shared();
+        cache.release(gl, layerSphere);
+        layerSphere = null;
+        cache.release(gl, earthTexture);
+        cache.release(gl, cubeSphere);
+        cache.release(gl, icosphere);
+        cache.release(gl, earthCubeMap);
+        earthTexture = null;
+        cubeSphere = null;
+        icosphere = null;
+        earthCubeMap = null;
     }
 
     @Override
     public void display(GLAutoDrawable drawable) {
-        updateAnimation();
+        if (!fixedTime) {
+            updateAnimation();
+        }
 
         GL2 gl = drawable.getGL().getGL2();
         gl.glClear(GL2.GL_COLOR_BUFFER_BIT | GL2.GL_DEPTH_BUFFER_BIT);
 
         gl.glMatrixMode(GL2.GL_MODELVIEW);
         gl.glLoadIdentity();
+        if (starfield != null) {
+            drawStars(gl);
+        }
 
         // Apply camera transformations
         gl.glTranslatef(0.0f, 0.0f, cameraZoom);
         gl.glRotatef(rotationXDeg, 1.0f, 0.0f, 0.0f);
         gl.glRotatef(rotationYDeg, 0.0f, 1.0f, 0.0f);
 
+        // Batch and replay runs wait for layer frames so their output is repeatable
+        if (layer != null) {
+            layer.update(gl, simTimeSec, fixedTime);
+        }
+        if (showCoverage) {
+            updateCoverage(gl);
+        }
+
         // Draw Earth
         drawEarth(gl);
+        recorder.option("globe", globeMode.option);
+        recorder.option("coverage", Boolean.toString(showCoverage));
+        recorder.option("vectors", Boolean.toString(showVectors));
+        recorder.endFrame(simTimeSec, rotationXDeg, rotationYDeg, cameraZoom, drawable.getSurfaceWidth(), drawable.getSurfaceHeight());
+        capture.afterFrame(gl, drawable.getSurfaceWidth(), drawable.getSurfaceHeight());
     }
 
     @Override
@@ -127,13 +328,29 @@ public class DrawEarth implements GLEventListener {
         GL2 gl = drawable.getGL().getGL2();
         gl.glViewport(0, 0, width, Math.max(height, 1));
 
-        float aspect = (height == 0) ? 1.0f : (float) width / (float) height;
+        aspect = (height == 0) ? 1.0f : (float) width / (float) height;
+        viewportHeight = Math.max(height, 1);
         gl.glMatrixMode(GL2.GL_PROJECTION);
         gl.glLoadIdentity();
-        glu.gluPerspective(45.0, aspect, 0.1, 100.0);
+        glu.gluPerspective(FOV_Y_DEG, aspect, 0.1, 100.0);
         gl.glMatrixMode(GL2.GL_MODELVIEW);
     }
 
+    /** The stars at infinity: the globe's rotations without the camera distance, then inertial to globe frame. */
+    private void drawStars(GL2 gl) {
+        double t = epochSec + simTimeSec * EPHEMERIS_SECONDS_PER_SIM_SECOND;
+        gl.glPushMatrix();
+        gl.glRotatef(rotationXDeg, 1.0f, 0.0f, 0.0f);
+        gl.glRotatef(rotationYDeg, 0.0f, 1.0f, 0.0f);
+        gl.glRotatef(23.5f, 0.0f, 0.0f, 1.0f);
+        gl.glRotatef(earthSpinDeg + textureOffsetDeg, 0.0f, 1.0f, 0.0f);
+        gl.glRotatef(-90.0f, 1.0f, 0.0f, 0.0f);
+        // Earth-fixed to texture frame (see updateSunDirection), after the inertial frame turned by sidereal time
+        gl.glRotatef(-90.0f - (float) Math.toDegrees(Ephemeris.greenwichSiderealRad(t)), 0.0f, 0.0f, 1.0f);
+        starfield.draw(gl);
+        gl.glPopMatrix();
+    }
+
     private void drawEarth(GL2 gl) {
         gl.glPushMatrix();
 
@@ -144,30 +361,151 @@ public class DrawEarth implements GLEventListener {
         gl.glRotatef(earthSpinDeg + textureOffsetDeg, 0.0f, 1.0f, 0.0f);
 
         // Set material properties
-        setMaterial(gl, new float[]{1.0f, 1.0f, 1.0f, 1.0f});
+        setMaterial(gl, WHITE);
 
-        if (earthTexture != null) {
+        boolean cubeMapped = (globeMode == GlobeMode.CUBE || globeMode == GlobeMode.ICOSPHERE) && earthCubeMap != null;
+        if (cubeMapped) {
+            gl.glDisable(GL2.GL_TEXTURE_2D);
+            earthCubeMap.enable(gl);
+        } else if (earthTexture != null) {
             earthTexture.enable(gl);
             earthTexture.bind(gl);
+            ResourceCache.shared().markUsed(earthTexture);
         }
 
         // gluSphere generates a sphere with poles along Y-axis
         // Rotate 90 degrees around X to align gluSphere's poles with our Y-axis properly
         gl.glRotatef(-90.0f, 1.0f, 0.0f, 0.0f);
-        
+
+        // Directional sun in the globe's own frame, so lighting and the terminator follow the clock
+        updateSunDirection();
+        sunPosition[0] = sunDirection.x;
+        sunPosition[1] = sunDirection.y;
+        sunPosition[2] = sunDirection.z;
+        gl.glLightfv(GL2.GL_LIGHT0, GL2.GL_POSITION, sunPosition, 0);
+        updateEarthFrame();
+
+        // Night lights, ocean glint and clouds in the same pass as the day map
+        boolean shaded = material.isAvailable() && (cubeMapped || earthTexture != null);
+        if (shaded) {
+            material.begin(gl, cubeMapped, layer);
+        }
+
         // Draw the sphere
-        glu.gluSphere(sphereQuadric, EARTH_RADIUS, 64, 64);
+        switch (globeMode) {
+            case LOD -> drawLodGlobe(gl);
+            case GLU_SPHERE -> glu.gluSphere(sphereQuadric, EARTH_RADIUS, 64, 64);
+            case CUBE -> drawMesh(gl, cubeSphere, cubeMapped);
+            case ICOSPHERE -> drawMesh(gl, icosphere, cubeMapped);
+        }
+
+        if (shaded) {
+            material.end(gl);
+        }
 
-        if (earthTexture != null) {
+        if (cubeMapped) {
+            earthCubeMap.disable(gl);
+            gl.glEnable(GL2.GL_TEXTURE_2D);
+        } else if (earthTexture != null) {
             earthTexture.disable(gl);
         }
 
+        if (layer != null && layerSphere != null && !shaded) {
+            // Without the material shader the clouds go on a second sphere just above the surface
+            gl.glPushMatrix();
+            gl.glScalef(EARTH_RADIUS * 1.01f, EARTH_RADIUS * 1.01f, EARTH_RADIUS * 1.01f);
+            layer.draw(gl, layerSphere);
+            gl.glPopMatrix();
+        }
+
+        if (showCoverage && coverageLayer != null) {
+            gl.glPushMatrix();
+            gl.glScalef(EARTH_RADIUS * 1.005f, EARTH_RADIUS * 1.005f, EARTH_RADIUS * 1.005f);
+            coverageLayer.draw(gl, layerSphere);
+            gl.glPopMatrix();
+        }
+
+        if (showVectors && vectors != null) {
+            // Pixels per radian of arc at the nearest point of the surface
+            double surfaceDistance = Math.max(0.01, -cameraZoom - EARTH_RADIUS);
+            double pixelsPerRadian = EARTH_RADIUS / surfaceDistance
+                    * viewportHeight / (2.0 * Math.tan(Math.toRadians(FOV_Y_DEG) / 2.0));
+            gl.glPushMatrix();
+            gl.glScalef(EARTH_RADIUS * 1.002f, EARTH_RADIUS * 1.002f, EARTH_RADIUS * 1.002f);
+            vectors.draw(gl, pixelsPerRadian);
+            gl.glPopMatrix();
+        }
+
+        if (icosphere != null) {
+            atmosphere.draw(gl, icosphere, earthLocalEye, sunDirection);
+        }
+
         // Draw rotation axis through the poles
         drawRotationAxis(gl);
 
         gl.glPopMatrix();
     }
 
+    /**
+     * Sun direction in the globe's frame (after the pole rotation): the
+     * ephemeris direction at the scene clock, turned into the Earth-fixed
+     * frame by the sidereal angle.
+     */
+    private void updateSunDirection() {
+        double t = epochSec + simTimeSec * EPHEMERIS_SECONDS_PER_SIM_SECOND;
+        ephemeris.direction(Ephemeris.Body.SUN, t, sunEarthFixed, 0);
+        Ephemeris.inertialToEarthFixed(t, sunEarthFixed, 0);
+        // The texture puts longitude 0 on -Y and 90°E on +X
+        sunDirection.set((float) sunEarthFixed[1], (float) -sunEarthFixed[0], (float) sunEarthFixed[2]);
+    }
+
+    /**
+     * Moves the constellation's footprints to the scene clock and sends the
+     * cells that changed; nothing while the clock stands still.
+     */
+    private void updateCoverage(GL2 gl) {
+        if (coverageLayer == null) {
+            acquireLayerSphere(gl);
+            coverageLayer = new CoverageLayer();
+            coverageLayer.init(gl, coverage);
+        }
+        if (simTimeSec == coverageTimeSec) {
+            return;
+        }
+        coverageTimeSec = simTimeSec;
+        double t = simTimeSec * EPHEMERIS_SECONDS_PER_SIM_SECOND;
+        constellation.propagate(t);
+        coverage.update(constellation.positions, constellation.size(), Ephemeris.greenwichSiderealRad(epochSec + t));
+        coverageLayer.upload(gl, coverage);
+    }
+
+    private void drawMesh(GL2 gl, SphereMesh mesh, boolean cubeMapped) {
+        gl.glPushMatrix();
+        gl.glScalef(EARTH_RADIUS, EARTH_RADIUS, EARTH_RADIUS);
+        mesh.draw(gl, cubeMapped);
+        gl.glPopMatrix();
+    }
+
+    /** Rebuilds the modelview that display() and drawEarth() applied, to find the eye in the sphere's frame. */
+    private void updateEarthFrame() {
+        earthOrientation.setAxisAngleDeg(rotationXDeg, 1.0f, 0.0f, 0.0f);
+        earthOrientation.mul(earthOrientation, rotationStep.setAxisAngleDeg(rotationYDeg, 0.0f, 1.0f, 0.0f));
+        earthOrientation.mul(earthOrientation, rotationStep.setAxisAngleDeg(23.5f, 0.0f, 0.0f, 1.0f));
+        earthOrientation.mul(earthOrientation, rotationStep.setAxisAngleDeg(earthSpinDeg + textureOffsetDeg, 0.0f, 1.0f, 0.0f));
+        earthOrientation.mul(earthOrientation, rotationStep.setAxisAngleDeg(-90.0f, 1.0f, 0.0f, 0.0f));
+        earthModelView.composeTRS(0.0f, 0.0f, cameraZoom, earthOrientation, 1.0f, 1.0f, 1.0f);
+        projection.perspective(FOV_Y_DEG, aspect, 0.1f, 100.0f);
+        earthClip.mul(projection, earthModelView);
+
+        // eye = R⁻¹ * (0 - T)
+        earthLocalEye.set(0.0f, 0.0f, -cameraZoom);
+        earthOrientation.conjugate().rotate(earthLocalEye);
+    }
+
+    private void drawLodGlobe(GL2 gl) {
+        globe.draw(gl, earthClip, earthLocalEye.x, earthLocalEye.y, earthLocalEye.z, viewportHeight, FOV_Y_DEG);
+    }
+
     private void drawRotationAxis(GL2 gl) {
         // Disable lighting for the axis so it's always visible
         gl.glDisable(GL2.GL_LIGHTING);
@@ -190,82 +528,114 @@ public class DrawEarth implements GLEventListener {
     }
 
     private void setMaterial(GL2 gl, float[] rgba) {
-        float[] ambient = {rgba[0] * 0.3f, rgba[1] * 0.3f, rgba[2] * 0.3f, rgba[3]};
-        float[] diffuse = {rgba[0], rgba[1], rgba[2], rgba[3]};
-        float[] specular = {0.5f, 0.5f, 0.5f, 1.0f};
+        // Reuse the parameter arrays; this runs every frame
+        materialAmbient[0] = rgba[0] * 0.3f;
+        materialAmbient[1] = rgba[1] * 0.3f;
+        materialAmbient[2] = rgba[2] * 0.3f;
+        materialAmbient[3] = rgba[3];
+        materialDiffuse[0] = rgba[0];
+        materialDiffuse[1] = rgba[1];
+        materialDiffuse[2] = rgba[2];
+        materialDiffuse[3] = rgba[3];
         float shininess = 32.0f;
-        
-        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_AMBIENT, ambient, 0);
-        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_DIFFUSE, diffuse, 0);
-        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_SPECULAR, specular, 0);
+        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_AMBIENT, materialAmbient, 0);
+        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_DIFFUSE, materialDiffuse, 0);
+        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_SPECULAR, MATERIAL_SPECULAR, 0);
         gl.glMaterialf(GL2.GL_FRONT_AND_BACK, GL2.GL_SHININESS, shininess);
     }
 
     private void loadTextures(GL2 gl) {
-        earthTexture = tryLoadTextureFromResources(gl, "/textures/earth.jpg");
+        earthTexture = ResourceCache.shared().texture(gl, "/textures/earth.jpg");
         if (earthTexture == null) {
             System.err.println("WARNING: Could not load earth.jpg texture!");
+            return;
+        }
+        // Sanity check: equirectangular textures should be 2:1 aspect ratio
+        int imgW = earthTexture.getImageWidth();
+        int imgH = earthTexture.getImageHeight();
+        if (imgW > 0 && imgH > 0) {
+            double ratio = (double) imgW / (double) imgH;
+            if (Math.abs(ratio - 2.0) > 0.1) {
+                System.err.printf("WARNING: Texture %s is %dx%d (aspect %.2f). For correct globe mapping use an equirectangular 2:1 map.%n",
+                        "/textures/earth.jpg", imgW, imgH, ratio);
+            }
         }
     }
 
-    private Texture tryLoadTextureFromResources(GL2 gl, String resourcePath) {
+    private CubeMapTexture tryLoadCubeMapFromResources(GL2 gl, String resourcePath) {
         try (InputStream in = getClass().getResourceAsStream(resourcePath)) {
             if (in == null) {
-                System.err.println("Failed to load texture: " + resourcePath + " (resource not found)");
+                System.err.println("Failed to load cube map: " + resourcePath + " (resource not found)");
                 return null;
             }
-            
-            String lower = resourcePath.toLowerCase();
-            String ext = lower.endsWith(".png") ? "png" 
-                       : lower.endsWith(".jpg") || lower.endsWith(".jpeg") ? "jpg" 
-                       : null;
-            
-            if (ext == null) {
-                System.err.println("Failed to load texture: " + resourcePath + " (unsupported extension)");
+            BufferedImage image = ImageIO.read(in);
+            if (image == null) {
+                System.err.println("Failed to load cube map: " + resourcePath + " (unsupported image)");
                 return null;
             }
-            
-            Texture texture = TextureIO.newTexture(in, true, ext);
-            // Ensure texture coordinates wrap horizontally/vertically so texture matrix translation doesn't clamp
-            texture.bind(gl);
-            gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_S, GL2.GL_REPEAT);
-            gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_T, GL2.GL_REPEAT);
-            // Use decent filtering (mipmaps are generated by TextureIO when 'true' above)
-            gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MIN_FILTER, GL2.GL_LINEAR_MIPMAP_LINEAR);
-            gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MAG_FILTER, GL2.GL_LINEAR);
-            // Sanity check: equirectangular textures should be 2:1 aspect ratio
-            try {
-                int imgW = texture.getImageWidth();
-                int imgH = texture.getImageHeight();
-                if (imgW > 0 && imgH > 0) {
-                    double ratio = (double) imgW / (double) imgH;
-                    if (Math.abs(ratio - 2.0) > 0.1) {
-                        System.err.printf("WARNING: Texture %s is %dx%d (aspect %.2f). For correct globe mapping use an equirectangular 2:1 map.%n",
-                                resourcePath, imgW, imgH, ratio);
-                    }
-                }
-            } catch (Throwable t) {
-                // If querying image size isn't supported, ignore
-            }
-            System.out.println("Successfully loaded texture: " + resourcePath);
-            return texture;
+            // A face a quarter of the map wide keeps roughly the equator's texel density
+            int faceSize = Math.min(MAX_CUBE_FACE_SIZE, Math.max(1, image.getWidth() / 4));
+            return CubeMapTexture.fromEquirectangular(gl, image, faceSize);
         } catch (IOException e) {
-            System.err.println("Failed to load texture: " + resourcePath + " - " + e.getMessage());
-            e.printStackTrace();
+            System.err.println("Failed to load cube map: " + resourcePath + " - " + e.getMessage());
             return null;
         }
     }
 
+    @Override
+    public void setView(float rotXDeg, float rotYDeg, float zoom) {
+        if (!Float.isNaN(rotXDeg)) {
+            rotationXDeg = rotXDeg;
+        }
+        if (!Float.isNaN(rotYDeg)) {
+            rotationYDeg = rotYDeg;
+        }
+        if (!Float.isNaN(zoom)) {
+            cameraZoom = zoom;
+        }
+    }
+
+    @Override
+    public void setSimulationTime(double seconds) {
+        fixedTime = true;
+        simTimeSec = seconds;
+        earthSpinDeg = (float) ((360.0 * seconds / EARTH_ROTATION_PERIOD_SEC) % 360.0);
+    }
+
+    @Override
+    public boolean setOption(String key, String value) {
+        if (key.equals("vectors")) {
+            showVectors = Boolean.parseBoolean(value);
+            return true;
+        }
+        if (key.equals("coverage")) {
+            showCoverage = Boolean.parseBoolean(value);
+            return true;
+        }
+        if (!key.equals("globe")) {
+            return false;
+        }
+        for (GlobeMode mode : GlobeMode.values()) {
+            if (mode.option.equals(value)) {
+                globeMode = mode;
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void updateAnimation() {
         long now = System.nanoTime();
         long delta = now - lastNanos;
         lastNanos = now;
         
         double dt = delta / 1_000_000_000.0; // seconds
-        earthSpinDeg = (float) ((earthSpinDeg + (360.0 * dt / EARTH_ROTATION_PERIOD_SEC)) % 360.0);
+        simTimeSec += dt;
+        earthSpinDeg = (float) ((360.0 * simTimeSec / EARTH_ROTATION_PERIOD_SEC) % 360.0);
     }
 
-    private void attachInputHandlers(GLCanvas canvas) {
+    @Override
+    public void attachInputHandlers(GLCanvas canvas) {
         // Keyboard controls
         canvas.addKeyListener(new KeyAdapter() {
             @Override
@@ -277,10 +647,24 @@ public class DrawEarth implements GLEventListener {
                     case KeyEvent.VK_DOWN -> rotationXDeg += 5.0f;
                     case KeyEvent.VK_EQUALS, KeyEvent.VK_PLUS -> cameraZoom += 0.5f;
                     case KeyEvent.VK_MINUS -> cameraZoom -= 0.5f;
+                    case KeyEvent.VK_L -> {
+                        globeMode = GlobeMode.values()[(globeMode.ordinal() + 1) % GlobeMode.values().length];
+                        System.out.println("Globe: " + globeMode.label);
+                    }
+                    case KeyEvent.VK_C -> {
+                        showCoverage = !showCoverage;
+                        System.out.println("Coverage heatmap: " + (showCoverage ? "on" : "off"));
+                    }
+                    case KeyEvent.VK_B -> {
+                        showVectors = !showVectors;
+                        System.out.println("Coastlines and borders: " + (showVectors ? "on" : "off"));
+                    }
+                    case KeyEvent.VK_V -> capture.toggle();
                     case KeyEvent.VK_R -> {
                         rotationXDeg = 20.0f;
                         rotationYDeg = -30.0f;
                         cameraZoom = -10.0f;
+                        simTimeSec = 0.0;
                         earthSpinDeg = 0.0f;
                     }
                     default -> {}
@@ -329,43 +713,19 @@ public class DrawEarth implements GLEventListener {
     }
 
     public static void main(String[] args) {
-        GLProfile profile = GLProfile.get(GLProfile.GL2);
-        GLCapabilities capabilities = new GLCapabilities(profile);
-        capabilities.setDepthBits(24);
-
-        GLCanvas canvas = new GLCanvas(capabilities);
-        DrawEarth renderer = new DrawEarth();
-        canvas.addGLEventListener(renderer);
-        renderer.attachInputHandlers(canvas);
-
-        Frame frame = new Frame("Draw Earth with Texture");
-        frame.add(canvas);
-        frame.setSize(1200, 800);
-        frame.setLocationRelativeTo(null);
-
-        final FPSAnimator animator = new FPSAnimator(canvas, 60, true);
-        frame.addWindowListener(new WindowAdapter() {
-            @Override
-            public void windowClosing(WindowEvent e) {
-                new Thread(() -> {
-                    if (animator.isStarted()) {
-                        animator.stop();
-                    }
-                    System.exit(0);
-                }).start();
-            }
-        });
-
-        frame.setVisible(true);
-        animator.start();
-        canvas.requestFocusInWindow();
-        
+        SceneLauncher.launch("earth");
         System.out.println("Controls:");
         System.out.println("  Arrow keys: Rotate view");
         System.out.println("  +/- keys: Zoom in/out");
         System.out.println("  A/D keys: Adjust texture offset (rotate texture left/right)");
         System.out.println("  R key: Reset view");
+        System.out.println("  L key: Cycle globe mesh (LOD / gluSphere / cube sphere / icosphere)");
+        System.out.println("  B key: Toggle coastlines and borders (-Dglobe.vector.file=<geojson or binary>)");
+        System.out.println("  C key: Toggle the coverage heatmap (-Dcoverage.cellsPerDegree=n)");
         System.out.println("  Mouse drag: Rotate view");
         System.out.println("  Mouse wheel: Zoom");
+        System.out.println("  V key: Start/stop frame capture (-Dcapture.format=png|raw|y4m)");
+        System.out.println("  -Dreplay.record=file: Record this session for ReplayBenchmark");
+        System.out.println("  Ctrl+1..4: Switch scene");
     }
 }
@@ -2,34 +2,33 @@ package org.hkprog.jogl.example;
 
 import com.jogamp.opengl.GLAutoDrawable;
 import com.jogamp.opengl.GL2;
-import com.jogamp.opengl.GLCapabilities;
-import com.jogamp.opengl.GLEventListener;
-import com.jogamp.opengl.GLProfile;
 import com.jogamp.opengl.awt.GLCanvas;
 import com.jogamp.opengl.glu.GLU;
 import com.jogamp.opengl.glu.GLUquadric;
-import com.jogamp.opengl.util.FPSAnimator;
-import com.jogamp.opengl.util.texture.awt.AWTTextureIO;
 import com.jogamp.opengl.util.texture.Texture;
-import com.jogamp.opengl.util.texture.TextureIO;
-
-import java.awt.Frame;
-import java.awt.Graphics2D;
+import org.hkprog.jogl.example.capture.FrameCapture;
+import org.hkprog.jogl.example.globe.Graticule;
+import org.hkprog.jogl.example.math.CircleTable;
+import org.hkprog.jogl.example.math.Mat4f;
+import org.hkprog.jogl.example.math.Quatf;
+import org.hkprog.jogl.example.math.Vec3f;
+import org.hkprog.jogl.example.overlay.LabelEngine;
+import org.hkprog.jogl.example.overlay.SdfFontAtlas;
+import org.hkprog.jogl.example.render.ResourceCache;
+import org.hkprog.jogl.example.sim.Ephemeris;
+
+import java.awt.Font;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
 import java.awt.event.MouseWheelEvent;
-import java.awt.event.WindowAdapter;
-import java.awt.event.WindowEvent;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.io.InputStream;
 
-public class JoglExample implements GLEventListener {
+public class JoglExample implements LauncherScene {
 
     private final GLU glu = new GLU();
+    private final FrameCapture capture = FrameCapture.fromSystemProperties("JoglExample");
     private GLUquadric sphereQuadric;
 
     private float rotationXDeg = 20.0f;
@@ -40,29 +39,72 @@ public class JoglExample implements GLEventListener {
     private int lastMouseY;
     private boolean isDragging = false;
 
-    private double orbitAngleRad = 0.0; // moon orbital angle
+    private double simTimeSec = 0.0; // ephemeris seconds since the epoch
     private long lastNanos = System.nanoTime();
 
     // Scene parameters
     private static final float EARTH_RADIUS = 2.0f;
     private static final float MOON_RADIUS = 0.6f;
     private static final float MOON_ORBIT_RADIUS = 6.0f;
-    private static final double MOON_ORBIT_PERIOD_SEC = 8.0; // seconds per orbit
 
     // Axial rotation
     private float earthSpinDeg = 0.0f;
     private float moonSpinDeg = 0.0f;
     private static final double EARTH_ROTATION_PERIOD_SEC = 6.0; // seconds per full spin (demo)
     private static final double MOON_ROTATION_PERIOD_SEC = 10.0; // seconds per full spin (demo)
+    private static final double EPHEMERIS_SECONDS_PER_SECOND = Ephemeris.SECONDS_PER_DAY / EARTH_ROTATION_PERIOD_SEC;
+    private static final double EPHEMERIS_SPAN_SEC = 366.0 * Ephemeris.SECONDS_PER_DAY;
+
+    // Sun and Moon from the ephemeris, in the inertial frame (Z north, the sphere's pole axis)
+    private final double epochSec = Ephemeris.epochFromSystemProperty();
+    private Ephemeris ephemeris;
+    private final double[] bodyDirection = new double[3];
+    private final float[] sunPosition = new float[4]; // w = 0: directional
 
     // Textures
     private Texture earthTexture;
     private Texture moonTexture;
 
+    // Material parameters, reused every frame instead of reallocated
+    private static final float[] WHITE = { 1.0f, 1.0f, 1.0f, 1.0f };
+    private static final float[] MATERIAL_SPECULAR = { 0.9f, 0.9f, 0.9f, 1.0f };
+    private final float[] materialAmbient = new float[4];
+    private final float[] materialDiffuse = new float[4];
+
+    // Trig table for the orbit ring, built once instead of every frame
+    private static final CircleTable ORBIT_RING = new CircleTable(128);
+
+    // Lat/lon grid whose spacing follows the zoom; G toggles its labels
+    private static final float FOV_Y_DEG = 60.0f;
+    private final Graticule graticule = new Graticule();
+    private LabelEngine gridLabels;
+    private boolean showGridLabels = false;
+    private float aspect = 1.0f;
+    private int viewportWidth = 1;
+    private int viewportHeight = 1;
+    private final Quatf earthOrientation = new Quatf();
+    private final Quatf rotationStep = new Quatf();
+    private final Vec3f earthLocalEye = new Vec3f();
+    private final Mat4f earthModelView = new Mat4f();
+    private final Mat4f projection = new Mat4f();
+    private final Mat4f earthViewProjection = new Mat4f();
+
     @Override
     public void init(GLAutoDrawable drawable) {
         GL2 gl = drawable.getGL().getGL2();
+        applyRenderState(gl);
 
+        // Quadric for spheres
+        sphereQuadric = glu.gluNewQuadric();
+        glu.gluQuadricNormals(sphereQuadric, GLU.GLU_SMOOTH);
+        glu.gluQuadricTexture(sphereQuadric, true);
+
+        loadTextures(gl);
+        ephemeris = Ephemeris.covering(epochSec, epochSec + EPHEMERIS_SPAN_SEC);
+    }
+
+    @Override
+    public void applyRenderState(GL2 gl) {
         gl.glClearColor(0.36f, 0.36f, 0.36f, 1.0f);
         gl.glEnable(GL2.GL_DEPTH_TEST);
         gl.glDepthFunc(GL2.GL_LEQUAL);
@@ -74,29 +116,33 @@ public class JoglExample implements GLEventListener {
         gl.glEnable(GL2.GL_LIGHT0);
         float[] lightAmbient = { 0.8f, 0.8f, 0.8f, 1.0f };
         float[] lightDiffuse = { 0.9f, 0.9f, 0.9f, 1.0f };
-        float[] lightPosition = { 10.0f, 8.0f, 12.0f, 1.0f };
         gl.glLightfv(GL2.GL_LIGHT0, GL2.GL_AMBIENT, lightAmbient, 0);
         gl.glLightfv(GL2.GL_LIGHT0, GL2.GL_DIFFUSE, lightDiffuse, 0);
-        gl.glLightfv(GL2.GL_LIGHT0, GL2.GL_POSITION, lightPosition, 0);
-
-        // Quadric for spheres
-        sphereQuadric = glu.gluNewQuadric();
-        glu.gluQuadricNormals(sphereQuadric, GLU.GLU_SMOOTH);
-        glu.gluQuadricTexture(sphereQuadric, true);
+        // The position follows the Sun; it's set every frame in display()
 
         // Normalize normals for scaled objects
         gl.glEnable(GL2.GL_NORMALIZE);
 
         // Texturing
         gl.glEnable(GL2.GL_TEXTURE_2D);
-        loadTextures(gl);
     }
 
     @Override
     public void dispose(GLAutoDrawable drawable) {
+        capture.dispose(drawable.getGL().getGL2());
+        graticule.dispose(drawable.getGL().getGL2());
+        if (gridLabels != null) {
+            gridLabels.dispose(drawable.getGL().getGL2());
+            gridLabels = null;
+        }
         if (sphereQuadric != null) {
-            sphereQuadric = null; // let GC clean; JOGL handles native cleanup
+            glu.gluDeleteQuadric(sphereQuadric);
+            sphereQuadric = null;
         }
+        ResourceCache.shared().release(drawable.getGL().getGL2(), earthTexture);
+        ResourceCache.shared().release(drawable.getGL().getGL2(), moonTexture);
+        earthTexture = null;
+        moonTexture = null;
     }
 
     @Override
@@ -114,14 +160,22 @@ public class JoglExample implements GLEventListener {
         gl.glRotatef(rotationXDeg, 1.0f, 0.0f, 0.0f);
         gl.glRotatef(rotationYDeg, 0.0f, 1.0f, 0.0f);
 
+        double t = epochSec + simTimeSec;
+        ephemeris.direction(Ephemeris.Body.SUN, t, bodyDirection, 0);
+        sunPosition[0] = (float) bodyDirection[0];
+        sunPosition[1] = (float) bodyDirection[1];
+        sunPosition[2] = (float) bodyDirection[2];
+        gl.glLightfv(GL2.GL_LIGHT0, GL2.GL_POSITION, sunPosition, 0);
+
         // Draw Earth at origin
         gl.glPushMatrix();
         // gl.glRotatef(23.5f, 0.0f, 0.0f, 1.0f); // axial tilt (visual only)
         // gl.glRotatef(earthSpinDeg, 0.0f, 1.0f, 0.0f);
-        setMaterial(gl, new float[] { 1.0f, 1.0f, 1.0f, 1.0f });
+        setMaterial(gl, WHITE);
 
         earthTexture.enable(gl);
         earthTexture.bind(gl);
+        ResourceCache.shared().markUsed(earthTexture);
         gl.glMatrixMode(GL2.GL_TEXTURE);
         gl.glLoadIdentity();
 
@@ -139,22 +193,33 @@ public class JoglExample implements GLEventListener {
         drawSphereGrid(gl, EARTH_RADIUS + 0.01f); // slightly larger to avoid z-fighting
         gl.glPopMatrix();
 
-        // Draw Moon orbiting Earth
-        // gl.glPushMatrix();
-        // float moonX = (float) (MOON_ORBIT_RADIUS * Math.cos(orbitAngleRad));
-        // float moonZ = (float) (MOON_ORBIT_RADIUS * Math.sin(orbitAngleRad));
-        // gl.glTranslatef(moonX, 0.0f, moonZ);
-        // gl.glRotatef(-90.0f, 0.0f, 1.0f, 0.0f); // Adjust texture horizontal alignment
-        // gl.glRotatef(moonSpinDeg, 0.0f, 1.0f, 0.0f);
-        // setMaterial(gl, new float[] { 1.0f, 1.0f, 1.0f, 1.0f });
-        // moonTexture.enable(gl);
-        // moonTexture.bind(gl);
-        // glu.gluSphere(sphereQuadric, MOON_RADIUS, 32, 24);
-        // moonTexture.disable(gl);
-        // gl.glPopMatrix();
+        // Draw Moon where the ephemeris puts it, at the demo orbit radius
+        ephemeris.direction(Ephemeris.Body.MOON, t, bodyDirection, 0);
+        gl.glPushMatrix();
+        gl.glTranslatef((float) (MOON_ORBIT_RADIUS * bodyDirection[0]), (float) (MOON_ORBIT_RADIUS * bodyDirection[1]),
+                (float) (MOON_ORBIT_RADIUS * bodyDirection[2]));
+        gl.glRotatef(-90.0f, 0.0f, 1.0f, 0.0f); // Adjust texture horizontal alignment
+        gl.glRotatef(moonSpinDeg, 0.0f, 1.0f, 0.0f);
+        setMaterial(gl, WHITE);
+        if (moonTexture != null) {
+            moonTexture.enable(gl);
+            moonTexture.bind(gl);
+            ResourceCache.shared().markUsed(moonTexture);
+        }
+        glu.gluSphere(sphereQuadric, MOON_RADIUS, 32, 24);
+        if (moonTexture != null) {
+            moonTexture.disable(gl);
+        }
+        gl.glPopMatrix();
 
         // Optional: simple orbit ring to visualize path
         // drawOrbitRing(gl, MOON_ORBIT_RADIUS);
+
+        if (showGridLabels) {
+            drawGridLabels(gl, EARTH_RADIUS + 0.01f);
+        }
+
+        capture.afterFrame(gl, drawable.getSurfaceWidth(), drawable.getSurfaceHeight());
     }
 
     @Override
@@ -162,21 +227,29 @@ public class JoglExample implements GLEventListener {
         GL2 gl = drawable.getGL().getGL2();
         gl.glViewport(0, 0, width, Math.max(height, 1));
 
-        float aspect = (height == 0) ? 1.0f : (float) width / (float) height;
+        aspect = (height == 0) ? 1.0f : (float) width / (float) height;
+        viewportWidth = Math.max(width, 1);
+        viewportHeight = Math.max(height, 1);
         gl.glMatrixMode(GL2.GL_PROJECTION);
         gl.glLoadIdentity();
-        glu.gluPerspective(60.0f, aspect, 0.1f, 1000.0f);
+        glu.gluPerspective(FOV_Y_DEG, aspect, 0.1f, 1000.0f);
         gl.glMatrixMode(GL2.GL_MODELVIEW);
     }
 
     private void setMaterial(GL2 gl, float[] rgba) {
-        float[] ambient = { rgba[0] * 0.2f, rgba[1] * 0.2f, rgba[2] * 0.2f, 1.0f };
-        float[] diffuse = { rgba[0], rgba[1], rgba[2], 1.0f };
-        float[] specular = { 0.9f, 0.9f, 0.9f, 1.0f };
+        // Reuse the parameter arrays; this runs every frame
+        materialAmbient[0] = rgba[0] * 0.2f;
+        materialAmbient[1] = rgba[1] * 0.2f;
+        materialAmbient[2] = rgba[2] * 0.2f;
+        materialAmbient[3] = 1.0f;
+        materialDiffuse[0] = rgba[0];
+        materialDiffuse[1] = rgba[1];
+        materialDiffuse[2] = rgba[2];
+        materialDiffuse[3] = 1.0f;
         float shininess = 32.0f;
-        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_AMBIENT, ambient, 0);
-        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_DIFFUSE, diffuse, 0);
-        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_SPECULAR, specular, 0);
+        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_AMBIENT, materialAmbient, 0);
+        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_DIFFUSE, materialDiffuse, 0);
+        gl.glMaterialfv(GL2.GL_FRONT_AND_BACK, GL2.GL_SPECULAR, MATERIAL_SPECULAR, 0);
         gl.glMaterialf(GL2.GL_FRONT_AND_BACK, GL2.GL_SHININESS, shininess);
     }
 
@@ -184,60 +257,51 @@ public class JoglExample implements GLEventListener {
         gl.glDisable(GL2.GL_LIGHTING);
         gl.glColor3f(1.0f, 0.4f, 0.5f);
         gl.glBegin(GL2.GL_LINE_LOOP);
-        int segments = 128;
-        for (int i = 0; i < segments; i++) {
-            double ang = (2.0 * Math.PI * i) / segments;
-            float x = (float) (radius * Math.cos(ang));
-            float z = (float) (radius * Math.sin(ang));
-            gl.glVertex3f(x, 0.0f, z);
+        for (int i = 0; i < ORBIT_RING.segments; i++) {
+            gl.glVertex3f(radius * ORBIT_RING.cos[i], 0.0f, radius * ORBIT_RING.sin[i]);
         }
         gl.glEnd();
         gl.glEnable(GL2.GL_LIGHTING);
     }
 
     private void drawSphereGrid(GL2 gl, float radius) {
+        updateEarthFrame();
+        graticule.update(gl, earthLocalEye.x, earthLocalEye.y, earthLocalEye.z, radius,
+                viewportHeight, FOV_Y_DEG, aspect);
+
         gl.glDisable(GL2.GL_LIGHTING);
         gl.glColor3f(0.2f, 0.2f, 0.2f);
         gl.glLineWidth(1.0f);
-        
-        int segments = 64;
-        int latitudeLines = 12;  // number of latitude lines (excluding poles)
-        int longitudeLines = 24; // number of longitude lines
-        
-        // Draw latitude lines (circles parallel to equator)
-        for (int i = 1; i < latitudeLines; i++) {
-            float lat = (float) (Math.PI * i / latitudeLines - Math.PI / 2.0); // from -90 to +90 degrees
-            float y = (float) (radius * Math.sin(lat));
-            float circleRadius = (float) (radius * Math.cos(lat));
-            
-            gl.glBegin(GL2.GL_LINE_LOOP);
-            for (int j = 0; j <= segments; j++) {
-                float lon = (float) (2.0 * Math.PI * j / segments);
-                float x = (float) (circleRadius * Math.cos(lon));
-                float z = (float) (circleRadius * Math.sin(lon));
-                gl.glVertex3f(x, y, z);
-            }
-            gl.glEnd();
-        }
-        
-        // Draw longitude lines (great circles through poles)
-        for (int i = 0; i < longitudeLines; i++) {
-            float lon = (float) (2.0 * Math.PI * i / longitudeLines);
-            
-            gl.glBegin(GL2.GL_LINE_STRIP);
-            for (int j = 0; j <= segments; j++) {
-                float lat = (float) (Math.PI * j / segments - Math.PI / 2.0); // from -90 to +90 degrees
-                float y = (float) (radius * Math.sin(lat));
-                float circleRadius = (float) (radius * Math.cos(lat));
-                float x = (float) (circleRadius * Math.cos(lon));
-                float z = (float) (circleRadius * Math.sin(lon));
-                gl.glVertex3f(x, y, z);
-            }
-            gl.glEnd();
-        }
-        
+        gl.glPushMatrix();
+        gl.glScalef(radius, radius, radius);
+        graticule.draw(gl);
+        gl.glPopMatrix();
         gl.glEnable(GL2.GL_LIGHTING);
-        gl.glLineWidth(1.0f);
+    }
+
+    /** Rebuilds the camera transform display() applied, to find the eye in the Earth's frame. */
+    private void updateEarthFrame() {
+        earthOrientation.setAxisAngleDeg(rotationXDeg, 1.0f, 0.0f, 0.0f);
+        earthOrientation.mul(earthOrientation, rotationStep.setAxisAngleDeg(rotationYDeg, 0.0f, 1.0f, 0.0f));
+        earthModelView.composeTRS(0.0f, 0.0f, cameraZoom, earthOrientation, 1.0f, 1.0f, 1.0f);
+        projection.perspective(FOV_Y_DEG, aspect, 0.1f, 1000.0f);
+        earthViewProjection.mul(projection, earthModelView);
+
+        // eye = R⁻¹ * (0 - T)
+        earthLocalEye.set(0.0f, 0.0f, -cameraZoom);
+        earthOrientation.conjugate().rotate(earthLocalEye);
+    }
+
+    private void drawGridLabels(GL2 gl, float radius) {
+        if (gridLabels == null) {
+            SdfFontAtlas atlas = SdfFontAtlas.load(new Font("SansSerif", Font.BOLD, 32), 32, 4, SdfFontAtlas.DEFAULT_CHARACTERS);
+            gridLabels = new LabelEngine(atlas, 12.0f, 4_096);
+            gridLabels.init(gl);
+        }
+        gridLabels.begin(earthViewProjection, viewportWidth, viewportHeight);
+        graticule.offerLabels(gridLabels, radius);
+        gridLabels.place();
+        gridLabels.draw(gl);
     }
 
     private void updateAnimation() {
@@ -245,41 +309,18 @@ public class JoglExample implements GLEventListener {
         long delta = now - lastNanos;
         lastNanos = now;
         double dt = delta / 1_000_000_000.0; // seconds
-        double angularSpeed = (1.0 * Math.PI) / MOON_ORBIT_PERIOD_SEC; // rad/sec
-        orbitAngleRad = (orbitAngleRad + angularSpeed * dt) % (2.0 * Math.PI);
+        simTimeSec += dt * EPHEMERIS_SECONDS_PER_SECOND;
         earthSpinDeg = (float) ((earthSpinDeg + (360.0 * dt / EARTH_ROTATION_PERIOD_SEC)) % 360.0);
         moonSpinDeg = (float) ((moonSpinDeg + (360.0 * dt / MOON_ROTATION_PERIOD_SEC)) % 360.0);
     }
 
     private void loadTextures(GL2 gl) {
-        earthTexture = tryLoadTextureFromResources(gl, "/textures/earth.jpg");
-        moonTexture = tryLoadTextureFromResources(gl, "/textures/moon.jpg");
-    }
-
-    private Texture tryLoadTextureFromResources(GL2 gl, String resourcePath) {
-        try (InputStream in = getClass().getResourceAsStream(resourcePath)) {
-            if (in == null) {
-                System.err.println("Failed to load texture: " + resourcePath + " (resource not found)");
-                return null;
-            }
-            String lower = resourcePath.toLowerCase();
-            String ext = lower.endsWith(".png") ? "png"
-                    : lower.endsWith(".jpg") || lower.endsWith(".jpeg") ? "jpg" : null;
-            if (ext == null) {
-                System.err.println("Failed to load texture: " + resourcePath + " (unsupported extension)");
-                return null;
-            }
-            Texture texture = TextureIO.newTexture(in, true, ext);
-            System.out.println("Successfully loaded texture: " + resourcePath);
-            return texture;
-        } catch (IOException e) {
-            System.err.println("Failed to load texture: " + resourcePath + " - " + e.getMessage());
-            e.printStackTrace();
-            return null;
-        }
+        earthTexture = ResourceCache.shared().texture(gl, "/textures/earth.jpg");
+        moonTexture = ResourceCache.shared().texture(gl, "/textures/moon.jpg");
     }
 
-    private void attachInputHandlers(GLCanvas canvas) {
+    @Override
+    public void attachInputHandlers(GLCanvas canvas) {
         canvas.addKeyListener(new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
@@ -290,6 +331,8 @@ public class JoglExample implements GLEventListener {
                     case KeyEvent.VK_DOWN -> rotationXDeg += 3.0f;
                     case KeyEvent.VK_EQUALS, KeyEvent.VK_PLUS -> cameraZoom += 1.0f; // zoom in
                     case KeyEvent.VK_MINUS -> cameraZoom -= 1.0f; // zoom out
+                    case KeyEvent.VK_V -> capture.toggle();
+                    case KeyEvent.VK_G -> showGridLabels = !showGridLabels;
                     case KeyEvent.VK_R -> {
                         rotationXDeg = 20.0f;
                         rotationYDeg = -30.0f;
@@ -338,35 +381,6 @@ public class JoglExample implements GLEventListener {
     }
 
     public static void main(String[] args) {
-        GLProfile profile = GLProfile.get(GLProfile.GL2);
-        GLCapabilities capabilities = new GLCapabilities(profile);
-        capabilities.setDepthBits(24);
-
-        GLCanvas canvas = new GLCanvas(capabilities);
-        JoglExample renderer = new JoglExample();
-        canvas.addGLEventListener(renderer);
-        renderer.attachInputHandlers(canvas);
-
-        Frame frame = new Frame("JOGL Earth–Moon Orbit");
-        frame.add(canvas);
-        frame.setSize(1600, 1000);
-        frame.setLocationRelativeTo(null);
-
-        final FPSAnimator animator = new FPSAnimator(canvas, 60, true);
-        frame.addWindowListener(new WindowAdapter() {
-            @Override
-            public void windowClosing(WindowEvent e) {
-                new Thread(() -> {
-                    if (animator.isStarted()) {
-                        animator.stop();
-                    }
-                    System.exit(0);
-                }).start();
-            }
-        });
-
-        frame.setVisible(true);
-        animator.start();
-        canvas.requestFocusInWindow();
+        SceneLauncher.launch("example");
     }
 }
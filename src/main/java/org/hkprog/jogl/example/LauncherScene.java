@@ -0,0 +1,20 @@
+package org.hkprog.jogl.example;
+
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.GLEventListener;
+import com.jogamp.opengl.awt.GLCanvas;
+
+/**
+ * A scene the {@link SceneLauncher} can show. All scenes share the
+ * launcher's one context, so the fixed GL state a scene's init() sets up is
+ * kept in {@link #applyRenderState}, which the launcher calls again
+ * whenever it switches back to the scene.
+ */
+public interface LauncherScene extends GLEventListener {
+
+    /** Sets the scene's fixed GL state; called with an identity modelview matrix. */
+    void applyRenderState(GL2 gl);
+
+    /** Adds the scene's keyboard and mouse handlers to {@code canvas}. */
+    void attachInputHandlers(GLCanvas canvas);
+}
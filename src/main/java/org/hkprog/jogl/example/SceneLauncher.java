@@ -0,0 +1,265 @@
+package org.hkprog.jogl.example;
+
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.GLAutoDrawable;
+import com.jogamp.opengl.GLCapabilities;
+import com.jogamp.opengl.GLEventListener;
+import com.jogamp.opengl.GLProfile;
+import com.jogamp.opengl.awt.GLCanvas;
+import com.jogamp.opengl.util.FPSAnimator;
+import org.hkprog.jogl.example.render.GpuResources;
+import org.hkprog.jogl.example.render.ResourceCache;
+
+import java.awt.EventQueue;
+import java.awt.Frame;
+import java.awt.Menu;
+import java.awt.MenuBar;
+import java.awt.MenuItem;
+import java.awt.MenuShortcut;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+import java.awt.event.MouseWheelListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Runs every scene in one window and one GL context; Ctrl+1..4 (or the
+ * Scene menu) switches between them.
+ *
+ * A scene is created and initialized the first time it is shown and then
+ * kept, so switching back only re-applies its GL state and viewport and
+ * takes effect on the next frame. Textures and meshes the scenes have in
+ * common are loaded once through the
+ * {@link org.hkprog.jogl.example.render.ResourceCache}. Between scenes the
+ * context is reset to its initial state with the attribute stack, so one
+ * scene's enables and lights never leak into another.
+ *
+ * <pre>
+ * SceneLauncher [chapter0 | example | earth | chapter1]
+ * </pre>
+ */
+public final class SceneLauncher implements GLEventListener {
+
+    private record Entry(String name, String title, int width, int height, Supplier<LauncherScene> factory) {
+    }
+
+    private static final List<Entry> SCENES = List.of(
+            new Entry("chapter0", "JOGL Earth–Moon Orbit", 1000, 700, Chapter0::new),
+            new Entry("example", "JOGL Earth–Moon Orbit", 1600, 1000, JoglExample::new),
+            new Entry("earth", "Draw Earth with Texture", 1200, 800, DrawEarth::new),
+            new Entry("chapter1", "Coordinate System Transformation - O₁ ↔ O₂", 1200, 800, Chapter1::new));
+
+    /** A scene once created, with the input handlers it attached to the canvas. */
+    private static final class Slot {
+        final Entry entry;
+        LauncherScene scene;
+        KeyListener[] keys;
+        MouseListener[] mouse;
+        MouseMotionListener[] motion;
+        MouseWheelListener[] wheel;
+        boolean initialized;
+
+        Slot(Entry entry) {
+            this.entry = entry;
+        }
+    }
+
+    private final Frame frame;
+    private final GLCanvas canvas;
+    private final Slot[] slots = new Slot[SCENES.size()];
+    private volatile Slot requested;
+
+    // GL thread only
+    private Slot active;
+    private int width;
+    private int height;
+
+    private SceneLauncher(Frame frame, GLCanvas canvas) {
+        this.frame = frame;
+        this.canvas = canvas;
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot(SCENES.get(i));
+        }
+    }
+
+    public static void main(String[] args) {
+        launch(args.length > 0 ? args[0] : "example");
+    }
+
+    /** Opens the launcher window showing the scene registered as {@code sceneName}. */
+    public static void launch(String sceneName) {
+        int first = -1;
+        for (int i = 0; i < SCENES.size(); i++) {
+            if (SCENES.get(i).name().equals(sceneName)) {
+                first = i;
+            }
+        }
+        if (first < 0) {
+            System.err.println("Unknown scene " + sceneName + ", expected one of "
+                    + SCENES.stream().map(Entry::name).toList());
+            System.exit(1);
+        }
+
+        GLProfile profile = GLProfile.get(GLProfile.GL2);
+        GLCapabilities capabilities = new GLCapabilities(profile);
+        capabilities.setDepthBits(24);
+        // Chapter1 wants multisampling; the others don't mind it
+        capabilities.setSampleBuffers(true);
+        capabilities.setNumSamples(4);
+
+        GLCanvas canvas = new GLCanvas(capabilities);
+        Frame frame = new Frame();
+        SceneLauncher launcher = new SceneLauncher(frame, canvas);
+        canvas.addGLEventListener(launcher);
+
+        Menu menu = new Menu("Scene");
+        for (int i = 0; i < SCENES.size(); i++) {
+            int index = i;
+            Entry entry = SCENES.get(i);
+            MenuItem item = new MenuItem(entry.title() + " (" + entry.name() + ")", new MenuShortcut(KeyEvent.VK_1 + i));
+            item.addActionListener(e -> launcher.show(index));
+            menu.add(item);
+        }
+        MenuBar menuBar = new MenuBar();
+        menuBar.add(menu);
+        frame.setMenuBar(menuBar);
+
+        frame.add(canvas);
+        frame.setSize(SCENES.get(first).width(), SCENES.get(first).height());
+        frame.setLocationRelativeTo(null);
+        launcher.show(first);
+
+        final FPSAnimator animator = new FPSAnimator(canvas, 60, true);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                new Thread(() -> {
+                    if (animator.isStarted()) {
+                        animator.stop();
+                    }
+                    // Tears down the canvas, so every scene's dispose runs before the leak report
+                    try {
+                        EventQueue.invokeAndWait(frame::dispose);
+                    } catch (InterruptedException | InvocationTargetException ex) {
+                        System.err.println("Failed to close the window cleanly - " + ex.getMessage());
+                    }
+                    System.exit(0);
+                }).start();
+            }
+        });
+
+        frame.setVisible(true);
+        animator.start();
+        canvas.requestFocusInWindow();
+    }
+
+    /** Switches to scene {@code index} on the next frame; call on the AWT event thread. */
+    private void show(int index) {
+        Slot next = slots[index];
+        Slot previous = requested;
+        if (next == previous) {
+            return;
+        }
+        if (previous != null) {
+            Arrays.stream(previous.keys).forEach(canvas::removeKeyListener);
+            Arrays.stream(previous.mouse).forEach(canvas::removeMouseListener);
+            Arrays.stream(previous.motion).forEach(canvas::removeMouseMotionListener);
+            Arrays.stream(previous.wheel).forEach(canvas::removeMouseWheelListener);
+        }
+        if (next.scene == null) {
+            next.scene = next.entry.factory().get();
+            // Whatever the scene adds is its input; remember it so it can be detached again
+            List<KeyListener> keys = List.of(canvas.getKeyListeners());
+            List<MouseListener> mouse = List.of(canvas.getMouseListeners());
+            List<MouseMotionListener> motion = List.of(canvas.getMouseMotionListeners());
+            List<MouseWheelListener> wheel = List.of(canvas.getMouseWheelListeners());
+            next.scene.attachInputHandlers(canvas);
+            next.keys = Arrays.stream(canvas.getKeyListeners()).filter(l -> !keys.contains(l)).toArray(KeyListener[]::new);
+            next.mouse = Arrays.stream(canvas.getMouseListeners()).filter(l -> !mouse.contains(l)).toArray(MouseListener[]::new);
+            next.motion = Arrays.stream(canvas.getMouseMotionListeners()).filter(l -> !motion.contains(l)).toArray(MouseMotionListener[]::new);
+            next.wheel = Arrays.stream(canvas.getMouseWheelListeners()).filter(l -> !wheel.contains(l)).toArray(MouseWheelListener[]::new);
+        } else {
+            Arrays.stream(next.keys).forEach(canvas::addKeyListener);
+            Arrays.stream(next.mouse).forEach(canvas::addMouseListener);
+            Arrays.stream(next.motion).forEach(canvas::addMouseMotionListener);
+            Arrays.stream(next.wheel).forEach(canvas::addMouseWheelListener);
+        }
+        frame.setTitle(next.entry.title());
+        requested = next;
+    }
+
+    @Override
+    public void init(GLAutoDrawable drawable) {
+        // The pristine state every scene starts from; popped and pushed again on each switch
+        GL2 gl = drawable.getGL().getGL2();
+        gl.glPushAttrib((int) GL2.GL_ALL_ATTRIB_BITS);
+        gl.glPushClientAttrib((int) GL2.GL_CLIENT_ALL_ATTRIB_BITS);
+        active = null;
+    }
+
+    @Override
+    public void dispose(GLAutoDrawable drawable) {
+        for (Slot slot : slots) {
+            if (slot.initialized) {
+                slot.scene.dispose(drawable);
+                slot.initialized = false;
+            }
+        }
+        GL2 gl = drawable.getGL().getGL2();
+        gl.glPopClientAttrib();
+        gl.glPopAttrib();
+    }
+
+    @Override
+    public void display(GLAutoDrawable drawable) {
+        Slot next = requested;
+        if (next != active) {
+            activate(drawable, next);
+        }
+        GL2 gl = drawable.getGL().getGL2();
+        ResourceCache.shared().applyReloads(gl);
+        active.scene.display(drawable);
+        GpuResources.shared().enforceBudget(gl);
+    }
+
+    @Override
+    public void reshape(GLAutoDrawable drawable, int x, int y, int width, int height) {
+        this.width = width;
+        this.height = height;
+        if (active != null) {
+            active.scene.reshape(drawable, x, y, width, height);
+        }
+    }
+
+    private void activate(GLAutoDrawable drawable, Slot next) {
+        long start = System.nanoTime();
+        GL2 gl = drawable.getGL().getGL2();
+        gl.glPopClientAttrib();
+        gl.glPopAttrib();
+        gl.glPushAttrib((int) GL2.GL_ALL_ATTRIB_BITS);
+        gl.glPushClientAttrib((int) GL2.GL_CLIENT_ALL_ATTRIB_BITS);
+        for (int mode : new int[] {GL2.GL_TEXTURE, GL2.GL_PROJECTION, GL2.GL_MODELVIEW}) {
+            gl.glMatrixMode(mode);
+            gl.glLoadIdentity();
+        }
+
+        if (next.initialized) {
+            next.scene.applyRenderState(gl);
+        } else {
+            next.scene.init(drawable);
+            next.initialized = true;
+        }
+        next.scene.reshape(drawable, 0, 0, width, height);
+        boolean first = active == null;
+        active = next;
+        if (!first) {
+            System.out.printf("Switched to %s in %.1f ms%n", next.entry.name(), (System.nanoTime() - start) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package org.hkprog.jogl.example.batch;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.GLAutoDrawable;
+import com.jogamp.opengl.GLCapabilities;
+import com.jogamp.opengl.GLDrawableFactory;
+import com.jogamp.opengl.GLEventListener;
+import com.jogamp.opengl.GLOffscreenAutoDrawable;
+import com.jogamp.opengl.GLProfile;
+import org.hkprog.jogl.example.capture.PboReadback;
+import org.hkprog.jogl.example.capture.PngSequenceEncoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders frames without a window, as fast as the GL allows.
+ *
+ * <pre>
+ * BatchRenderer &lt;jobFile&gt; [--out dir] [--contexts N] [--encoders N]
+ * </pre>
+ *
+ * Each line of the job file is {@code name scene key=value...}, with
+ * {@code #} comments. Scenes are {@code earth} and {@code chapter1}. Common
+ * keys: {@code width}, {@code height}, {@code frames}, {@code time} and
+ * {@code timeStep} (simulated seconds), {@code rotX}, {@code rotY},
+ * {@code rotYStep} (degrees per frame) and {@code zoom}; anything else is
+ * passed to {@link BatchScene#setOption}. A one-frame job writes
+ * {@code name.png}, longer jobs {@code name/frame_000000.png}...
+ *
+ * One instance of each scene is first initialized in a 1x1 master
+ * context, which loads its textures and meshes into the
+ * {@link org.hkprog.jogl.example.render.ResourceCache}. Every worker thread
+ * then owns an offscreen context in the master's share group, so its scenes
+ * find those already loaded; per-context state such as the chunked globe
+ * is rebuilt in each. Workers take runs of up to {@value #RUN_FRAMES}
+ * consecutive frames of one job from a common counter, read them back
+ * through a PBO ring and hand them to a shared PNG encoder pool. A worker
+ * keeps only the scene of the job it is on and disposes it when it moves
+ * to the next job, whose runs all come later, so thousands of stills
+ * never hold more than one live scene per context. On Mesa's llvmpipe
+ * each context rasterizes with {@code LP_NUM_THREADS} threads, so more
+ * contexts mostly pay off when that is lowered (e.g. to cores / contexts).
+ */
+public final class BatchRenderer {
+
+    private static final int RING_SIZE = 3;
+    private static final int RUN_FRAMES = 16;
+
+    private record Job(String name, String scene, int width, int height, int frames,
+                       double time, double timeStep, float rotX, float rotY, float rotYStep, float zoom,
+                       Map<String, String> options) {
+    }
+
+    private record Task(Job job, int frame, Path output) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path jobFile = null;
+        Path outputRoot = Paths.get("batch-out");
+        int contexts = 2;
+        int encoderThreads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out" -> outputRoot = Paths.get(args[++i]);
+                case "--contexts" -> contexts = Math.max(1, Integer.parseInt(args[++i]));
+                case "--encoders" -> encoderThreads = Math.max(1, Integer.parseInt(args[++i]));
+                default -> jobFile = Paths.get(args[i]);
+            }
+        }
+        if (jobFile == null) {
+            System.err.println("Usage: BatchRenderer <jobFile> [--out dir] [--contexts N] [--encoders N]");
+            System.exit(1);
+        }
+
+        List<Job> jobs = readJobs(jobFile);
+        List<Task> tasks = new ArrayList<>();
+        for (Job job : jobs) {
+            if (job.frames() == 1) {
+                Files.createDirectories(outputRoot);
+                tasks.add(new Task(job, 0, outputRoot.resolve(job.name() + ".png")));
+                continue;
+            }
+            Path dir = Files.createDirectories(outputRoot.resolve(job.name()));
+            for (int f = 0; f < job.frames(); f++) {
+                tasks.add(new Task(job, f, dir.resolve(String.format("frame_%06d.png", f))));
+            }
+        }
+        if (tasks.isEmpty()) {
+            System.err.println("No frames to render in " + jobFile);
+            return;
+        }
+
+        new BatchRenderer(tasks.toArray(new Task[0]), contexts, encoderThreads).run();
+    }
+
+    private static List<Job> readJobs(Path file) throws IOException {
+        List<Job> jobs = new ArrayList<>();
+        List<String> lines = Files.readAllLines(file);
+        for (int n = 0; n < lines.size(); n++) {
+            String line = lines.get(n).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                jobs.add(parseJob(line.split("\\s+")));
+            } catch (IllegalArgumentException e) {
+                System.err.println(file + ":" + (n + 1) + ": " + e.getMessage());
+            }
+        }
+        return jobs;
+    }
+
+    private static Job parseJob(String[] words) {
+        if (words.length < 2) {
+            throw new IllegalArgumentException("expected: name scene key=value...");
+        }
+        if (!Scenes.names().contains(words[1])) {
+            throw new IllegalArgumentException("unknown scene " + words[1] + ", expected one of " + Scenes.names());
+        }
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 2; i < words.length; i++) {
+            int eq = words[i].indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("expected key=value, got " + words[i]);
+            }
+            values.put(words[i].substring(0, eq), words[i].substring(eq + 1));
+        }
+        // Whatever the common keys don't take is left for the scene
+        int width = Integer.parseInt(take(values, "width", "1280"));
+        int height = Integer.parseInt(take(values, "height", "720"));
+        int frames = Integer.parseInt(take(values, "frames", "1"));
+        double time = Double.parseDouble(take(values, "time", "0"));
+        double timeStep = Double.parseDouble(take(values, "timeStep", "0.0333333"));
+        float rotX = Float.parseFloat(take(values, "rotX", "NaN"));
+        float rotY = Float.parseFloat(take(values, "rotY", "NaN"));
+        float rotYStep = Float.parseFloat(take(values, "rotYStep", "0"));
+        float zoom = Float.parseFloat(take(values, "zoom", "NaN"));
+        if (width <= 0 || height <= 0 || frames <= 0) {
+            throw new IllegalArgumentException("width, height and frames must be positive");
+        }
+        return new Job(words[0], words[1], width, height, frames, time, timeStep, rotX, rotY, rotYStep, zoom, values);
+    }
+
+    private static String take(Map<String, String> values, String key, String fallback) {
+        String value = values.remove(key);
+        return value != null ? value : fallback;
+    }
+
+    private final Task[] tasks;
+    private final int[] jobEnds; // per task, the index just past its job's last task
+    private final int contexts;
+    private final AtomicInteger nextTask = new AtomicInteger();
+
+    // Encoding
+    private final ExecutorService encoders;
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private BatchRenderer(Task[] tasks, int contexts, int encoderThreads) {
+        this.tasks = tasks;
+        this.contexts = contexts;
+        jobEnds = new int[tasks.length];
+        for (int end = tasks.length, i = tasks.length - 1; i >= 0; i--) {
+            if (i + 1 < tasks.length && tasks[i + 1].job() != tasks[i].job()) {
+                end = i + 1;
+            }
+            jobEnds[i] = end;
+        }
+        encoders = Executors.newFixedThreadPool(encoderThreads, r -> {
+            Thread t = new Thread(r, "batch-encoder");
+            t.setDaemon(true);
+            return t;
+        });
+        // Enough for every context's ring plus one frame per encoder; readback waits when they're all taken
+        int pooled = contexts * RING_SIZE + encoderThreads;
+        freeBuffers = new ArrayBlockingQueue<>(pooled);
+        for (int i = 0; i < pooled; i++) {
+            freeBuffers.add(Buffers.newDirectByteBuffer(0));
+        }
+    }
+
+    private void run() throws InterruptedException {
+        GLProfile profile = GLProfile.get(GLProfile.GL2);
+        GLCapabilities capabilities = new GLCapabilities(profile);
+        capabilities.setOnscreen(false);
+        GLDrawableFactory factory = GLDrawableFactory.getFactory(profile);
+
+        // These hold the shared resources until every worker is done; initialized before any worker starts
+        Set<String> preloaded = new HashSet<>();
+        GLOffscreenAutoDrawable master = factory.createOffscreenAutoDrawable(null, capabilities, null, 1, 1);
+        for (Task task : tasks) {
+            if (preloaded.add(task.job().scene())) {
+                master.addGLEventListener(Scenes.create(task.job().scene()));
+            }
+        }
+        master.display();
+
+        long start = System.nanoTime();
+        Worker[] workers = new Worker[contexts];
+        Thread[] threads = new Thread[contexts];
+        for (int i = 0; i < contexts; i++) {
+            GLOffscreenAutoDrawable drawable = factory.createOffscreenAutoDrawable(null, capabilities, null,
+                    tasks[0].job().width(), tasks[0].job().height());
+            drawable.setSharedAutoDrawable(master);
+            workers[i] = new Worker(drawable);
+            threads[i] = new Thread(workers[i], "batch-context-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long rendered = System.nanoTime();
+        encoders.shutdown();
+        encoders.awaitTermination(1, TimeUnit.HOURS);
+        long finished = System.nanoTime();
+        master.destroy();
+
+        double renderSeconds = (rendered - start) / 1e9;
+        double totalSeconds = (finished - start) / 1e9;
+        System.out.printf("Rendered %d frames on %d contexts in %.2f s (%.1f fps), written in %.2f s (%.1f fps), %d failed%n",
+                tasks.length, contexts, renderSeconds, tasks.length / renderSeconds,
+                totalSeconds, written.get() / totalSeconds, failed.get());
+        for (int i = 0; i < contexts; i++) {
+            System.out.printf("  context %d: %d frames%n", i, workers[i].frames);
+        }
+    }
+
+    /** Claims the next run of tasks, all from one job; returns its start, or tasks.length when none are left. */
+    private int claimRun(int[] end) {
+        while (true) {
+            int start = nextTask.get();
+            if (start >= tasks.length) {
+                return tasks.length;
+            }
+            int stop = Math.min(start + RUN_FRAMES, jobEnds[start]);
+            if (nextTask.compareAndSet(start, stop)) {
+                end[0] = stop;
+                return start;
+            }
+        }
+    }
+
+    private void encode(long tag, int width, int height, ByteBuffer pixels) {
+        Task task = tasks[(int) tag];
+        if (pixels == null) {
+            failed.incrementAndGet();
+            System.err.println("Failed to read back " + task.output());
+            return;
+        }
+        ByteBuffer target;
+        try {
+            target = freeBuffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (target.capacity() < pixels.remaining()) {
+            target = Buffers.newDirectByteBuffer(pixels.remaining());
+        }
+        target.clear();
+        target.put(pixels).flip();
+
+        ByteBuffer frame = target;
+        encoders.execute(() -> {
+            try {
+                PngSequenceEncoder.write(task.output(), width, height, frame);
+                written.incrementAndGet();
+            } catch (IOException e) {
+                failed.incrementAndGet();
+                System.err.println("Failed to write " + task.output() + " - " + e.getMessage());
+            } finally {
+                freeBuffers.offer(frame);
+            }
+        });
+    }
+
+    /** One offscreen context and the thread that drives it. */
+    private final class Worker implements Runnable, GLEventListener {
+
+        private final GLOffscreenAutoDrawable drawable;
+        // Only the current job's scene: options never leak into the next job, and runs of a job are never revisited
+        private BatchScene scene;
+        private Job sceneJob;
+        private final PboReadback readback = new PboReadback(RING_SIZE);
+        private final PboReadback.Sink sink = BatchRenderer.this::encode;
+        private int width;
+        private int height;
+        private int taskIndex;
+        private int frames;
+
+        Worker(GLOffscreenAutoDrawable drawable) {
+            this.drawable = drawable;
+            drawable.addGLEventListener(this);
+        }
+
+        @Override
+        public void run() {
+            int[] end = new int[1];
+            for (int start = claimRun(end); start < tasks.length; start = claimRun(end)) {
+                Job job = tasks[start].job();
+                if (job.width() != drawable.getSurfaceWidth() || job.height() != drawable.getSurfaceHeight()) {
+                    drawable.setSurfaceSize(job.width(), job.height());
+                }
+                for (int i = start; i < end[0]; i++) {
+                    taskIndex = i;
+                    drawable.display();
+                    frames++;
+                }
+            }
+            // dispose() drains the readback ring
+            drawable.destroy();
+        }
+
+        @Override
+        public void init(GLAutoDrawable drawable) {
+            readback.init(drawable.getGL().getGL2());
+        }
+
+        @Override
+        public void reshape(GLAutoDrawable drawable, int x, int y, int width, int height) {
+            this.width = width;
+            this.height = height;
+            if (scene != null) {
+                scene.reshape(drawable, x, y, width, height);
+            }
+        }
+
+        @Override
+        public void display(GLAutoDrawable drawable) {
+            Task task = tasks[taskIndex];
+            Job job = task.job();
+            if (sceneJob != job) {
+                disposeScene(drawable);
+                scene = Scenes.create(job.scene());
+                scene.setSimulationTime(job.time());
+                for (Map.Entry<String, String> option : job.options().entrySet()) {
+                    if (!scene.setOption(option.getKey(), option.getValue())) {
+                        System.err.println("Job " + job.name() + ": " + job.scene() + " ignores " + option.getKey() + "=" + option.getValue());
+                    }
+                }
+                scene.init(drawable);
+                scene.reshape(drawable, 0, 0, width, height);
+                sceneJob = job;
+            }
+            scene.setSimulationTime(job.time() + task.frame() * job.timeStep());
+            scene.setView(job.rotX(), job.rotY() + task.frame() * job.rotYStep(), job.zoom());
+            scene.display(drawable);
+            readback.read(drawable.getGL().getGL2(), width, height, taskIndex, sink);
+        }
+
+        @Override
+        public void dispose(GLAutoDrawable drawable) {
+            GL2 gl = drawable.getGL().getGL2();
+            readback.flush(gl, sink);
+            readback.dispose(gl);
+            disposeScene(drawable);
+        }
+
+        private void disposeScene(GLAutoDrawable drawable) {
+            if (scene != null) {
+                scene.dispose(drawable);
+                scene = null;
+                sceneJob = null;
+            }
+        }
+    }
+}
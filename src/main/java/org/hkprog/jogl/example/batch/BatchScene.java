@@ -0,0 +1,22 @@
+package org.hkprog.jogl.example.batch;
+
+import com.jogamp.opengl.GLEventListener;
+
+/**
+ * A scene the {@link BatchRenderer} can drive: camera and clock are set
+ * explicitly before each frame instead of coming from input and wall time.
+ * Setters are called on the rendering thread, between frames.
+ */
+public interface BatchScene extends GLEventListener {
+
+    /** Camera rotation in degrees and the scene's own zoom value; NaN keeps the current value. */
+    void setView(float rotXDeg, float rotYDeg, float zoom);
+
+    /** Freezes the scene at {@code seconds} of simulated time. */
+    void setSimulationTime(double seconds);
+
+    /** Applies a scene-specific job option; returns false if the key is unknown. */
+    default boolean setOption(String key, String value) {
+        return false;
+    }
+}
@@ -0,0 +1,29 @@
+package org.hkprog.jogl.example.batch;
+
+import org.hkprog.jogl.example.Chapter1;
+import org.hkprog.jogl.example.DrawEarth;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/** The scenes that can be driven without a window, by the names job files and session logs use. */
+public final class Scenes {
+
+    private static final Map<String, Supplier<BatchScene>> SCENES = Map.of(
+            "earth", DrawEarth::new,
+            "chapter1", Chapter1::new);
+
+    private Scenes() {
+    }
+
+    public static Set<String> names() {
+        return SCENES.keySet();
+    }
+
+    /** Creates the named scene, or returns null if there is none. */
+    public static BatchScene create(String name) {
+        Supplier<BatchScene> factory = SCENES.get(name);
+        return factory != null ? factory.get() : null;
+    }
+}
@@ -0,0 +1,9 @@
+package org.hkprog.jogl.example.capture;
+
+/** What {@link FrameCapture} does when the encoders fall behind. */
+public enum CapturePolicy {
+    /** Skip the frame and count it; the scene keeps its frame rate. */
+    DROP,
+    /** Wait for an encoder to free a buffer; every frame is kept but the scene slows down. */
+    BLOCK
+}
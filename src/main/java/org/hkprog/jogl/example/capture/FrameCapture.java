@@ -0,0 +1,223 @@
+package org.hkprog.jogl.example.capture;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records what a scene renders without stalling it.
+ *
+ * {@link #afterFrame} reads the frame back through a {@link PboReadback}
+ * ring, so glReadPixels returns immediately and each frame is mapped three
+ * frames later, when its transfer has long finished. Its pixels are copied
+ * into a pooled buffer and handed to a background encoder pool. When every
+ * pooled buffer is still being encoded the {@link CapturePolicy} decides
+ * between dropping the frame and waiting.
+ *
+ * Configured from system properties: {@code capture.format}
+ * ({@code png}, {@code raw}, {@code y4m}; default y4m), {@code capture.dir}
+ * (default {@code captures}), {@code capture.policy} ({@code drop} or
+ * {@code block}; default drop) and {@code capture.fps} (default 60).
+ * {@link #toggle()} may be called from any thread, e.g. a key handler.
+ */
+public final class FrameCapture {
+
+    private static final int RING_SIZE = 3;
+    private static final int POOLED_FRAMES = 6;
+
+    private final String sceneName;
+    private final String format;
+    private final Path outputRoot;
+    private final CapturePolicy policy;
+    private final int fps;
+
+    private volatile boolean toggleRequested;
+    private boolean recording;
+
+    private final PboReadback readback = new PboReadback(RING_SIZE);
+    private final PboReadback.Sink sink = this::enqueue;
+    private long frameIndex;
+
+    // Encoding
+    private FrameEncoder encoder;
+    private ExecutorService encoders;
+    private BlockingQueue<ByteBuffer> freeBuffers;
+    private AtomicLong encoded = new AtomicLong();
+    private AtomicLong failed = new AtomicLong();
+    private long dropped;
+    private Path outputDirectory;
+
+    public FrameCapture(String sceneName, String format, Path outputRoot, CapturePolicy policy, int fps) {
+        this.sceneName = sceneName;
+        this.format = format;
+        this.outputRoot = outputRoot;
+        this.policy = policy;
+        this.fps = fps;
+    }
+
+    public static FrameCapture fromSystemProperties(String sceneName) {
+        String format = System.getProperty("capture.format", "y4m").toLowerCase();
+        Path dir = Paths.get(System.getProperty("capture.dir", "captures"));
+        CapturePolicy policy = "block".equalsIgnoreCase(System.getProperty("capture.policy"))
+                ? CapturePolicy.BLOCK : CapturePolicy.DROP;
+        int fps = Integer.getInteger("capture.fps", 60);
+        return new FrameCapture(sceneName, format, dir, policy, fps);
+    }
+
+    /** Starts or stops recording at the end of the next frame. */
+    public void toggle() {
+        toggleRequested = true;
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    /** Call at the end of display(), after everything to be recorded has been drawn. */
+    public void afterFrame(GL2 gl, int width, int height) {
+        if (toggleRequested) {
+            toggleRequested = false;
+            if (recording) {
+                stop(gl);
+            } else {
+                start(gl);
+            }
+        }
+        if (!recording || width <= 0 || height <= 0) {
+            return;
+        }
+
+        readback.read(gl, width, height, frameIndex++, sink);
+    }
+
+    private void enqueue(long index, int width, int height, ByteBuffer pixels) {
+        if (pixels == null) {
+            dropped++;
+            return;
+        }
+        int bytes = width * height * 4;
+        ByteBuffer target = policy == CapturePolicy.BLOCK ? takeBlocking() : freeBuffers.poll();
+        if (target == null) {
+            dropped++;
+            return;
+        }
+        if (target.capacity() < bytes) {
+            target = Buffers.newDirectByteBuffer(bytes);
+        }
+        target.clear();
+        target.put(pixels).flip();
+
+        ByteBuffer frame = target;
+        FrameEncoder encoderForFrame = encoder;
+        BlockingQueue<ByteBuffer> pool = freeBuffers;
+        AtomicLong encodedFrames = encoded;
+        AtomicLong failedFrames = failed;
+        encoders.execute(() -> {
+            try {
+                encoderForFrame.encode(index, width, height, frame);
+                encodedFrames.incrementAndGet();
+            } catch (IOException e) {
+                if (failedFrames.getAndIncrement() == 0) {
+                    System.err.println("Failed to encode captured frame " + index + " - " + e.getMessage());
+                }
+            } finally {
+                pool.offer(frame);
+            }
+        });
+    }
+
+    private ByteBuffer takeBlocking() {
+        try {
+            return freeBuffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private void start(GL2 gl) {
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        outputDirectory = outputRoot.resolve(sceneName + "-" + stamp);
+        try {
+            Files.createDirectories(outputDirectory);
+            encoder = switch (format) {
+                case "png" -> new PngSequenceEncoder(outputDirectory);
+                case "raw" -> new RawVideoEncoder(outputDirectory.resolve("capture.bgra"));
+                default -> new Y4mEncoder(outputDirectory.resolve("capture.y4m"), fps);
+            };
+        } catch (IOException e) {
+            System.err.println("Failed to start capture in " + outputDirectory + " - " + e.getMessage());
+            return;
+        }
+
+        // Single-stream encoders get one thread, which also keeps their frames in order
+        int threads = encoder.parallelism();
+        encoders = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "capture-encoder");
+            t.setDaemon(true);
+            return t;
+        });
+        freeBuffers = new ArrayBlockingQueue<>(POOLED_FRAMES + threads);
+        for (int i = 0; i < POOLED_FRAMES + threads; i++) {
+            freeBuffers.add(Buffers.newDirectByteBuffer(0));
+        }
+        readback.init(gl);
+        frameIndex = 0;
+        dropped = 0;
+        encoded = new AtomicLong();
+        failed = new AtomicLong();
+        recording = true;
+        System.out.println("Capture started: " + outputDirectory + " (" + format + ", " + policy.name().toLowerCase() + " when behind)");
+    }
+
+    private void stop(GL2 gl) {
+        readback.flush(gl, sink);
+        readback.dispose(gl);
+        recording = false;
+
+        ExecutorService pool = encoders;
+        FrameEncoder finishing = encoder;
+        long frames = frameIndex;
+        long droppedFrames = dropped;
+        AtomicLong encodedFrames = encoded;
+        AtomicLong failedFrames = failed;
+        Path directory = outputDirectory;
+        encoders = null;
+        encoder = null;
+        // Let the encoders drain without holding up the GL thread
+        Thread finisher = new Thread(() -> {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(1, TimeUnit.HOURS);
+                finishing.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                System.err.println("Failed to finish capture " + directory + " - " + e.getMessage());
+            }
+            System.out.printf("Capture finished: %s (%d frames read, %d encoded, %d dropped, %d failed)%n",
+                    directory, frames, encodedFrames.get(), droppedFrames, failedFrames.get());
+        }, "capture-finisher");
+        finisher.start();
+    }
+
+    /** Stops a recording in progress; call from the scene's dispose(). */
+    public void dispose(GL2 gl) {
+        if (recording) {
+            stop(gl);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.hkprog.jogl.example.capture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes read-back frames. Pixels are tightly packed BGRA rows, bottom row
+ * first as glReadPixels returns them; encoders flip as they write.
+ */
+public interface FrameEncoder {
+
+    /**
+     * How many frames may be encoded at once. Encoders that append to a
+     * single stream return 1 and are then called in frame order.
+     */
+    int parallelism();
+
+    void encode(long frameIndex, int width, int height, ByteBuffer bgra) throws IOException;
+
+    void close() throws IOException;
+}
@@ -0,0 +1,108 @@
+package org.hkprog.jogl.example.capture;
+
+import com.jogamp.opengl.GL2;
+import org.hkprog.jogl.example.render.GpuResources;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Asynchronous glReadPixels through a ring of pixel buffer objects.
+ *
+ * {@link #read} starts a transfer into the next PBO and returns at once.
+ * Before a PBO is reused, the frame it holds (read {@code ringSize} frames
+ * earlier, so long since finished) is mapped and passed to the sink. Pixels
+ * are BGRA, bottom row first. GL thread only.
+ */
+public final class PboReadback {
+
+    /** Receives a finished frame. {@code pixels} is only valid during the call, and null if mapping failed. */
+    public interface Sink {
+        void accept(long tag, int width, int height, ByteBuffer pixels);
+    }
+
+    private final int[] pbos;
+    private final int[] widths;
+    private final int[] heights;
+    private final long[] tags;
+    private final boolean[] pending;
+    private int capacityBytes;
+    private int next;
+
+    public PboReadback(int ringSize) {
+        pbos = new int[ringSize];
+        widths = new int[ringSize];
+        heights = new int[ringSize];
+        tags = new long[ringSize];
+        pending = new boolean[ringSize];
+    }
+
+    public void init(GL2 gl) {
+        gl.glGenBuffers(pbos.length, pbos, 0);
+        capacityBytes = 0;
+        next = 0;
+    }
+
+    /** Reads the current read buffer's lower-left {@code width x height} pixels. */
+    public void read(GL2 gl, int width, int height, long tag, Sink sink) {
+        int slot = next;
+        next = (next + 1) % pbos.length;
+        if (pending[slot]) {
+            complete(gl, slot, sink);
+        }
+
+        int bytes = width * height * 4;
+        if (bytes > capacityBytes) {
+            // Finish everything in flight, then grow every slot so they stay interchangeable
+            flush(gl, sink);
+            capacityBytes = bytes;
+            for (int pbo : pbos) {
+                gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, pbo);
+                gl.glBufferData(GL2.GL_PIXEL_PACK_BUFFER, capacityBytes, null, GL2.GL_STREAM_READ);
+                GpuResources.shared().track(GpuResources.Kind.BUFFER, pbo, capacityBytes, "readback PBO");
+            }
+        }
+        gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, pbos[slot]);
+        gl.glPixelStorei(GL2.GL_PACK_ALIGNMENT, 4);
+        gl.glReadPixels(0, 0, width, height, GL2.GL_BGRA, GL2.GL_UNSIGNED_BYTE, 0L);
+        gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, 0);
+        widths[slot] = width;
+        heights[slot] = height;
+        tags[slot] = tag;
+        pending[slot] = true;
+    }
+
+    /** Completes every transfer still in flight, oldest first. */
+    public void flush(GL2 gl, Sink sink) {
+        for (int i = 0; i < pbos.length; i++) {
+            int slot = (next + i) % pbos.length;
+            if (pending[slot]) {
+                complete(gl, slot, sink);
+            }
+        }
+    }
+
+    private void complete(GL2 gl, int slot, Sink sink) {
+        pending[slot] = false;
+        int bytes = widths[slot] * heights[slot] * 4;
+        gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, pbos[slot]);
+        ByteBuffer mapped = gl.glMapBufferRange(GL2.GL_PIXEL_PACK_BUFFER, 0, bytes, GL2.GL_MAP_READ_BIT);
+        if (mapped != null) {
+            mapped.limit(bytes);
+            sink.accept(tags[slot], widths[slot], heights[slot], mapped);
+            gl.glUnmapBuffer(GL2.GL_PIXEL_PACK_BUFFER);
+        } else {
+            System.err.println("Failed to map pixel buffer for frame " + tags[slot]);
+            sink.accept(tags[slot], widths[slot], heights[slot], null);
+        }
+        gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, 0);
+    }
+
+    public void dispose(GL2 gl) {
+        for (int pbo : pbos) {
+            GpuResources.shared().free(GpuResources.Kind.BUFFER, pbo);
+        }
+        gl.glDeleteBuffers(pbos.length, pbos, 0);
+        Arrays.fill(pending, false);
+    }
+}
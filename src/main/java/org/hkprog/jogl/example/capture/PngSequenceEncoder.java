@@ -0,0 +1,50 @@
+package org.hkprog.jogl.example.capture;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+
+/** One numbered PNG per frame; frames are independent so several encode at once. */
+public final class PngSequenceEncoder implements FrameEncoder {
+
+    private final Path directory;
+    private final int threads;
+
+    public PngSequenceEncoder(Path directory) {
+        this.directory = directory;
+        // PNG deflate is the slow part of capture; give it half the machine
+        this.threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    @Override
+    public int parallelism() {
+        return threads;
+    }
+
+    @Override
+    public void encode(long frameIndex, int width, int height, ByteBuffer bgra) throws IOException {
+        write(directory.resolve(String.format("frame_%06d.png", frameIndex)), width, height, bgra);
+    }
+
+    /** Writes bottom-up BGRA pixels as a top-down PNG. */
+    public static void write(Path file, int width, int height, ByteBuffer bgra) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        // Little-endian BGRA bytes read as ints are 0xAARRGGBB, which TYPE_INT_RGB takes as is
+        IntBuffer source = bgra.duplicate().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        for (int row = 0; row < height; row++) {
+            source.position((height - 1 - row) * width);
+            source.get(pixels, row * width, width);
+        }
+        ImageIO.write(image, "png", file.toFile());
+    }
+
+    @Override
+    public void close() {
+    }
+}
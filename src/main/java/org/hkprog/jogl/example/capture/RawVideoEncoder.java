@@ -0,0 +1,57 @@
+package org.hkprog.jogl.example.capture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Uncompressed BGRA frames appended to one file, top row first. Cheapest to
+ * produce; convert afterwards with e.g.
+ * {@code ffmpeg -f rawvideo -pixel_format bgra -video_size WxH -framerate 60 -i capture.bgra out.mp4}.
+ */
+public final class RawVideoEncoder implements FrameEncoder {
+
+    private final FileChannel channel;
+    private final Path file;
+    private int width = -1;
+    private int height = -1;
+
+    public RawVideoEncoder(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    @Override
+    public int parallelism() {
+        return 1;
+    }
+
+    @Override
+    public void encode(long frameIndex, int frameWidth, int frameHeight, ByteBuffer bgra) throws IOException {
+        if (width < 0) {
+            width = frameWidth;
+            height = frameHeight;
+        } else if (frameWidth != width || frameHeight != height) {
+            return; // a raw stream has one frame size; frames after a resize are skipped
+        }
+        int rowBytes = width * 4;
+        ByteBuffer rows = bgra.duplicate();
+        for (int row = height - 1; row >= 0; row--) {
+            rows.limit((row + 1) * rowBytes).position(row * rowBytes);
+            while (rows.hasRemaining()) {
+                channel.write(rows);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        if (width > 0) {
+            System.out.printf("Raw capture %s: bgra %dx%d%n", file, width, height);
+        }
+    }
+}
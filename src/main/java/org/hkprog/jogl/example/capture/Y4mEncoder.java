@@ -0,0 +1,103 @@
+package org.hkprog.jogl.example.capture;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+/**
+ * YUV4MPEG2 (4:2:0, full-range BT.601) stream, playable by mpv/ffplay and
+ * accepted by every encoder. Odd frame dimensions are cropped to even.
+ */
+public final class Y4mEncoder implements FrameEncoder {
+
+    private static final byte[] FRAME_HEADER = "FRAME\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+    private final int fps;
+    private int width = -1;
+    private int height = -1;
+    private byte[] y;
+    private byte[] u;
+    private byte[] v;
+
+    public Y4mEncoder(Path file, int fps) throws IOException {
+        this.out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 20);
+        this.fps = fps;
+    }
+
+    @Override
+    public int parallelism() {
+        return 1;
+    }
+
+    @Override
+    public void encode(long frameIndex, int frameWidth, int frameHeight, ByteBuffer bgra) throws IOException {
+        int w = frameWidth & ~1;
+        int h = frameHeight & ~1;
+        if (width < 0) {
+            width = w;
+            height = h;
+            y = new byte[w * h];
+            u = new byte[w * h / 4];
+            v = new byte[w * h / 4];
+            out.write(String.format("YUV4MPEG2 W%d H%d F%d:1 Ip A1:1 C420jpeg%n", w, h, fps)
+                    .getBytes(StandardCharsets.US_ASCII));
+        } else if (w != width || h != height) {
+            return; // the stream header fixes the size; frames after a resize are skipped
+        }
+
+        // Row pairs convert independently; only the write below is sequential
+        IntBuffer pixels = bgra.duplicate().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        IntStream.range(0, height / 2).parallel().forEach(pair -> convertRowPair(pixels, frameWidth, frameHeight, pair));
+        out.write(FRAME_HEADER);
+        out.write(y);
+        out.write(u);
+        out.write(v);
+    }
+
+    private void convertRowPair(IntBuffer pixels, int frameWidth, int frameHeight, int pair) {
+        int row = pair * 2;
+        // Output row 'row' is source row frameHeight - 1 - row (glReadPixels is bottom-up)
+        int top = (frameHeight - 1 - row) * frameWidth;
+        int bottom = top - frameWidth;
+        int yTop = row * width;
+        int yBottom = yTop + width;
+        int c = pair * (width / 2);
+        for (int col = 0; col < width; col += 2, c++) {
+            int p0 = pixels.get(top + col);
+            int p1 = pixels.get(top + col + 1);
+            int p2 = pixels.get(bottom + col);
+            int p3 = pixels.get(bottom + col + 1);
+            y[yTop + col] = luma(p0);
+            y[yTop + col + 1] = luma(p1);
+            y[yBottom + col] = luma(p2);
+            y[yBottom + col + 1] = luma(p3);
+            int sumR = ((p0 >> 16) & 0xFF) + ((p1 >> 16) & 0xFF) + ((p2 >> 16) & 0xFF) + ((p3 >> 16) & 0xFF);
+            int sumG = ((p0 >> 8) & 0xFF) + ((p1 >> 8) & 0xFF) + ((p2 >> 8) & 0xFF) + ((p3 >> 8) & 0xFF);
+            int sumB = (p0 & 0xFF) + (p1 & 0xFF) + (p2 & 0xFF) + (p3 & 0xFF);
+            u[c] = (byte) clamp(((-43 * sumR - 85 * sumG + 128 * sumB + 512) >> 10) + 128);
+            v[c] = (byte) clamp(((128 * sumR - 107 * sumG - 21 * sumB + 512) >> 10) + 128);
+        }
+    }
+
+    // Little-endian BGRA read as an int is 0xAARRGGBB
+    private static byte luma(int argb) {
+        return (byte) ((77 * ((argb >> 16) & 0xFF) + 150 * ((argb >> 8) & 0xFF) + 29 * (argb & 0xFF) + 128) >> 8);
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
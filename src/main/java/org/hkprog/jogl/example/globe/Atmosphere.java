@@ -0,0 +1,229 @@
+package org.hkprog.jogl.example.globe;
+
+import com.jogamp.opengl.GL2;
+import org.hkprog.jogl.example.math.Vec3f;
+import org.hkprog.jogl.example.render.GlslProgram;
+import org.hkprog.jogl.example.render.GpuResources;
+
+import java.util.Locale;
+
+/**
+ * Atmosphere shell drawn over the globe: the sky glow at the limb, the
+ * blue haze over the day side and the reddening along the terminator.
+ *
+ * All the scattering is integrated ahead of time by
+ * {@link AtmosphereTables}; per fragment the shader only finds where the
+ * view ray enters the air and samples the tables there. The shell is
+ * blended over whatever was drawn, adding the light scattered towards the
+ * eye and dimming the ground by the transmittance of the air in front of
+ * it. Needs GLSL; without it the globe is drawn without an atmosphere.
+ */
+public final class Atmosphere {
+
+    private static final float SUN_INTENSITY = 20.0f;
+    private static final float MIE_G = 0.76f;
+
+    private static final String VERTEX_SHADER = """
+            varying vec3 position;
+            void main() {
+                gl_Position = ftransform();
+                position = gl_Vertex.xyz * RT;
+            }
+            """;
+
+    private static final String FRAGMENT_SHADER = """
+            uniform sampler2D transmittance;
+            uniform sampler3D inscatter;
+            uniform vec3 eye; // km, globe frame
+            uniform vec3 sun;
+            varying vec3 position;
+            const float PI = 3.14159265;
+
+            vec3 transmittanceAt(float r, float mu) {
+                float x = (mu - MU_S_MIN) / (1.0 - MU_S_MIN);
+                float y = sqrt(max(r - RG, 0.0) / (RT - RG));
+                return texture2D(transmittance, vec2((x * (T_MU - 1.0) + 0.5) / T_MU, (y * (T_R - 1.0) + 0.5) / T_R)).rgb;
+            }
+
+            // nu is interpolated by hand between the two nu cells either side
+            vec4 inscatterAt(float r, float mu, float muS, float nu) {
+                float z = (sqrt(max(r - RG, 0.0) / (RT - RG)) * (S_R - 1.0) + 0.5) / S_R;
+                float y = ((mu + 1.0) * 0.5 * (S_MU - 1.0) + 0.5) / S_MU;
+                float s = clamp((muS - MU_S_MIN) / (1.0 - MU_S_MIN), 0.0, 1.0) * (S_MU_S - 1.0) + 0.5;
+                float n = (nu + 1.0) * 0.5 * (S_NU - 1.0);
+                float n0 = min(floor(n), S_NU - 2.0);
+                vec4 a = texture3D(inscatter, vec3((n0 * S_MU_S + s) / (S_NU * S_MU_S), y, z));
+                vec4 b = texture3D(inscatter, vec3(((n0 + 1.0) * S_MU_S + s) / (S_NU * S_MU_S), y, z));
+                return mix(a, b, n - n0);
+            }
+
+            void main() {
+                vec3 dir = normalize(position - eye);
+                // From outside the ray starts where it enters the shell, from inside at the eye
+                vec3 x = length(eye) < RT ? eye : position;
+                float r = length(x);
+                float mu = dot(x, dir) / r;
+                float nu = dot(dir, sun);
+
+                vec4 s = max(inscatterAt(r, mu, dot(x, sun) / r, nu), 0.0);
+                float phaseR = 3.0 / (16.0 * PI) * (1.0 + nu * nu);
+                float phaseM = 3.0 / (8.0 * PI) * (1.0 - MIE_G * MIE_G) * (1.0 + nu * nu)
+                        / ((2.0 + MIE_G * MIE_G) * pow(1.0 + MIE_G * MIE_G - 2.0 * MIE_G * nu, 1.5));
+                vec3 light = SUN_INTENSITY * (s.rgb * phaseR + s.a * phaseM);
+
+                // Ground behind the air: T(x -> ground) = T(ground, up the ray) / T(x, up the ray)
+                float alpha = 0.0;
+                float b = dot(x, dir);
+                float disc = b * b - r * r + RG * RG;
+                if (disc > 0.0 && -b - sqrt(disc) > 0.0) {
+                    vec3 ground = x + dir * (-b - sqrt(disc));
+                    vec3 t = transmittanceAt(RG, dot(ground, -dir) / RG) / max(transmittanceAt(r, -mu), vec3(1e-4));
+                    alpha = 1.0 - clamp(dot(t, vec3(1.0 / 3.0)), 0.0, 1.0);
+                }
+                gl_FragColor = vec4(1.0 - exp(-light), alpha);
+            }
+            """;
+
+    private final float kmPerUnit;
+    private GlslProgram program;
+    private int eyeUniform = -1;
+    private int sunUniform = -1;
+    private int transmittance;
+    private int inscatter;
+
+    /** {@code groundRadius} is the globe's radius in scene units. */
+    public Atmosphere(float groundRadius) {
+        this.kmPerUnit = AtmosphereTables.GROUND_RADIUS / groundRadius;
+    }
+
+    public void init(GL2 gl) {
+        program = GlslProgram.tryBuild(gl, "atmosphere", defines() + VERTEX_SHADER,
+                defines() + FRAGMENT_SHADER);
+        if (program == null) {
+            System.err.println("WARNING: Atmosphere shader unavailable, drawing the globe without one");
+            return;
+        }
+        program.use(gl);
+        gl.glUniform1i(program.uniform(gl, "transmittance"), 0);
+        gl.glUniform1i(program.uniform(gl, "inscatter"), 1);
+        eyeUniform = program.uniform(gl, "eye");
+        sunUniform = program.uniform(gl, "sun");
+        GlslProgram.useNone(gl);
+
+        AtmosphereTables tables = AtmosphereTables.load();
+        int[] ids = new int[2];
+        gl.glGenTextures(2, ids, 0);
+        transmittance = ids[0];
+        inscatter = ids[1];
+
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, transmittance);
+        setLinearClamp(gl, GL2.GL_TEXTURE_2D);
+        gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, GL2.GL_RGB16F, AtmosphereTables.TRANSMITTANCE_MU, AtmosphereTables.TRANSMITTANCE_R,
+                0, GL2.GL_RGB, GL2.GL_FLOAT, tables.transmittance());
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+        GpuResources.shared().track(GpuResources.Kind.TEXTURE, transmittance,
+                (long) AtmosphereTables.TRANSMITTANCE_MU * AtmosphereTables.TRANSMITTANCE_R * 6, "atmosphere transmittance");
+
+        int width = AtmosphereTables.INSCATTER_NU * AtmosphereTables.INSCATTER_MU_S;
+        gl.glBindTexture(GL2.GL_TEXTURE_3D, inscatter);
+        setLinearClamp(gl, GL2.GL_TEXTURE_3D);
+        gl.glTexParameteri(GL2.GL_TEXTURE_3D, GL2.GL_TEXTURE_WRAP_R, GL2.GL_CLAMP_TO_EDGE);
+        gl.glTexImage3D(GL2.GL_TEXTURE_3D, 0, GL2.GL_RGBA16F, width, AtmosphereTables.INSCATTER_MU, AtmosphereTables.INSCATTER_R,
+                0, GL2.GL_RGBA, GL2.GL_FLOAT, tables.inscatter());
+        gl.glBindTexture(GL2.GL_TEXTURE_3D, 0);
+        GpuResources.shared().track(GpuResources.Kind.TEXTURE, inscatter,
+                (long) width * AtmosphereTables.INSCATTER_MU * AtmosphereTables.INSCATTER_R * 8, "atmosphere inscatter");
+    }
+
+    public boolean isAvailable() {
+        return program != null;
+    }
+
+    /**
+     * Draws the shell on {@code shell}, a unit sphere mesh, in the globe's
+     * frame. {@code eye} is the camera in that frame in scene units and
+     * {@code sun} the unit direction to the sun.
+     */
+    public void draw(GL2 gl, SphereMesh shell, Vec3f eye, Vec3f sun) {
+        if (program == null) {
+            return;
+        }
+        float top = AtmosphereTables.TOP_RADIUS / kmPerUnit;
+        boolean inside = eye.length() < top;
+
+        gl.glPushAttrib(GL2.GL_ENABLE_BIT | GL2.GL_COLOR_BUFFER_BIT | GL2.GL_DEPTH_BUFFER_BIT | GL2.GL_POLYGON_BIT);
+        gl.glDisable(GL2.GL_LIGHTING);
+        gl.glDisable(GL2.GL_TEXTURE_2D);
+        gl.glEnable(GL2.GL_BLEND);
+        gl.glBlendFunc(GL2.GL_ONE, GL2.GL_ONE_MINUS_SRC_ALPHA);
+        gl.glDepthMask(false);
+        // From outside the near side of the shell is the entry point; from inside, the far side is the exit
+        gl.glEnable(GL2.GL_CULL_FACE);
+        gl.glCullFace(inside ? GL2.GL_FRONT : GL2.GL_BACK);
+        if (inside) {
+            gl.glDisable(GL2.GL_DEPTH_TEST);
+        }
+
+        gl.glActiveTexture(GL2.GL_TEXTURE1);
+        gl.glBindTexture(GL2.GL_TEXTURE_3D, inscatter);
+        gl.glActiveTexture(GL2.GL_TEXTURE0);
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, transmittance);
+        program.use(gl);
+        gl.glUniform3f(eyeUniform, eye.x * kmPerUnit, eye.y * kmPerUnit, eye.z * kmPerUnit);
+        gl.glUniform3f(sunUniform, sun.x, sun.y, sun.z);
+
+        gl.glPushMatrix();
+        gl.glScalef(top, top, top);
+        shell.draw(gl, false);
+        gl.glPopMatrix();
+
+        GlslProgram.useNone(gl);
+        gl.glActiveTexture(GL2.GL_TEXTURE1);
+        gl.glBindTexture(GL2.GL_TEXTURE_3D, 0);
+        gl.glActiveTexture(GL2.GL_TEXTURE0);
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+        gl.glPopAttrib();
+    }
+
+    public void dispose(GL2 gl) {
+        if (program != null) {
+            program.dispose(gl);
+            program = null;
+        }
+        if (transmittance != 0) {
+            GpuResources.shared().free(GpuResources.Kind.TEXTURE, transmittance);
+            GpuResources.shared().free(GpuResources.Kind.TEXTURE, inscatter);
+            gl.glDeleteTextures(2, new int[]{transmittance, inscatter}, 0);
+            transmittance = 0;
+            inscatter = 0;
+        }
+    }
+
+    /** Table sizes and constants, so the shader's lookups always match the tables. */
+    private static String defines() {
+        StringBuilder sb = new StringBuilder("#version 120\n");
+        define(sb, "RG", AtmosphereTables.GROUND_RADIUS);
+        define(sb, "RT", AtmosphereTables.TOP_RADIUS);
+        define(sb, "MU_S_MIN", AtmosphereTables.MU_S_MIN);
+        define(sb, "T_MU", AtmosphereTables.TRANSMITTANCE_MU);
+        define(sb, "T_R", AtmosphereTables.TRANSMITTANCE_R);
+        define(sb, "S_NU", AtmosphereTables.INSCATTER_NU);
+        define(sb, "S_MU_S", AtmosphereTables.INSCATTER_MU_S);
+        define(sb, "S_MU", AtmosphereTables.INSCATTER_MU);
+        define(sb, "S_R", AtmosphereTables.INSCATTER_R);
+        define(sb, "SUN_INTENSITY", SUN_INTENSITY);
+        define(sb, "MIE_G", MIE_G);
+        return sb.toString();
+    }
+
+    private static void define(StringBuilder sb, String name, float value) {
+        sb.append(String.format(Locale.ROOT, "#define %s %.6f\n", name, value));
+    }
+
+    private static void setLinearClamp(GL2 gl, int target) {
+        gl.glTexParameteri(target, GL2.GL_TEXTURE_MIN_FILTER, GL2.GL_LINEAR);
+        gl.glTexParameteri(target, GL2.GL_TEXTURE_MAG_FILTER, GL2.GL_LINEAR);
+        gl.glTexParameteri(target, GL2.GL_TEXTURE_WRAP_S, GL2.GL_CLAMP_TO_EDGE);
+        gl.glTexParameteri(target, GL2.GL_TEXTURE_WRAP_T, GL2.GL_CLAMP_TO_EDGE);
+    }
+}
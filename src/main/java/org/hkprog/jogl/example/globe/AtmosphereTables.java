@@ -0,0 +1,339 @@
+package org.hkprog.jogl.example.globe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed single-scattering tables for Earth's atmosphere, after
+ * Bruneton and Neyret's precomputed atmospheric scattering, without the
+ * multiple-scattering orders.
+ *
+ * Two tables, all distances in km:
+ * <ul>
+ * <li>transmittance: RGB, from a point at radius r looking along a ray at
+ *     cos(zenith) mu out to the top of the atmosphere. Width is mu, height r.
+ * <li>inscatter: single Rayleigh scattering (RGB, without the phase
+ *     function) and Mie (alpha, grey) gathered along a ray from (r, mu) to
+ *     the ground or the top, lit by a sun at cos(zenith) muS and at cos
+ *     angle nu to the ray. A 3D texture: width is nu and muS packed
+ *     together ({@value #INSCATTER_NU} nu cells of {@value #INSCATTER_MU_S}
+ *     muS), height mu, depth r.
+ * </ul>
+ *
+ * Every cell is independent, so the tables are built in parallel across
+ * cores, then written to a versioned cache file (see
+ * {@value #CACHE_DIR_PROPERTY}). Later runs memory-map that file and hand
+ * the mapping straight to the texture upload. The file name carries a
+ * fingerprint of the constants below, so changing any of them rebuilds it.
+ */
+public final class AtmosphereTables {
+
+    /** Directory for cached tables; defaults to {@code ~/.cache/jogl-example/atmosphere}. */
+    public static final String CACHE_DIR_PROPERTY = "atmosphere.cache.dir";
+
+    // Planet and atmosphere, km
+    public static final float GROUND_RADIUS = 6371.0f;
+    public static final float TOP_RADIUS = 6431.0f;
+    static final float RAYLEIGH_SCALE_HEIGHT = 8.0f;
+    static final float MIE_SCALE_HEIGHT = 1.2f;
+    // Scattering coefficients at sea level, per km (Rayleigh for 680, 550 and 440 nm)
+    static final float[] RAYLEIGH_SCATTERING = {5.8e-3f, 13.5e-3f, 33.1e-3f};
+    static final float MIE_SCATTERING = 4.0e-3f;
+    static final float MIE_EXTINCTION = MIE_SCATTERING / 0.9f;
+    // Lowest sun cos(zenith) kept; the sun is below every horizon in the atmosphere past this
+    static final float MU_S_MIN = -0.2f;
+
+    public static final int TRANSMITTANCE_MU = 128;
+    public static final int TRANSMITTANCE_R = 32;
+    public static final int INSCATTER_NU = 8;
+    public static final int INSCATTER_MU_S = 32;
+    public static final int INSCATTER_MU = 128;
+    public static final int INSCATTER_R = 16;
+
+    private static final int TRANSMITTANCE_STEPS = 200;
+    private static final int INSCATTER_STEPS = 50;
+
+    private static final int MAGIC = 0x4F4D5441; // "ATMO"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+
+    private final ByteBuffer transmittance;
+    private final ByteBuffer inscatter;
+
+    private AtmosphereTables(ByteBuffer transmittance, ByteBuffer inscatter) {
+        this.transmittance = transmittance;
+        this.inscatter = inscatter;
+    }
+
+    /** Maps the cached tables, building and caching them first if there are none for these constants. */
+    public static AtmosphereTables load() {
+        Path cacheFile = cacheDirectory().resolve(String.format("atmosphere-%08x-v%d.lut", fingerprint(), VERSION));
+        if (Files.isRegularFile(cacheFile)) {
+            AtmosphereTables tables = map(cacheFile);
+            if (tables != null) {
+                return tables;
+            }
+            System.err.println("Ignoring stale atmosphere cache: " + cacheFile);
+        }
+
+        long start = System.nanoTime();
+        ByteBuffer file = build();
+        System.out.printf("Built atmosphere tables (%.1f MB) in %.0f ms%n",
+                file.capacity() / (1024.0 * 1024.0), (System.nanoTime() - start) / 1e6);
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tmp = Files.createTempFile(cacheFile.getParent(), "atmosphere", ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (file.hasRemaining()) {
+                    channel.write(file);
+                }
+            }
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to cache atmosphere tables to " + cacheFile + " - " + e.getMessage());
+        }
+        return slice(file.rewind());
+    }
+
+    /** Transmittance, RGB floats, {@value #TRANSMITTANCE_MU} x {@value #TRANSMITTANCE_R}. */
+    public FloatBuffer transmittance() {
+        return transmittance.duplicate().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+    }
+
+    /** Inscatter, RGBA floats, (nu * muS) x mu x r. */
+    public FloatBuffer inscatter() {
+        return inscatter.duplicate().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+    }
+
+    private static Path cacheDirectory() {
+        String dir = System.getProperty(CACHE_DIR_PROPERTY);
+        return dir != null ? Paths.get(dir) : Paths.get(System.getProperty("user.home"), ".cache", "jogl-example", "atmosphere");
+    }
+
+    private static int fingerprint() {
+        int hash = Float.hashCode(GROUND_RADIUS);
+        float[] constants = {TOP_RADIUS, RAYLEIGH_SCALE_HEIGHT, MIE_SCALE_HEIGHT, RAYLEIGH_SCATTERING[0],
+                RAYLEIGH_SCATTERING[1], RAYLEIGH_SCATTERING[2], MIE_SCATTERING, MIE_EXTINCTION, MU_S_MIN,
+                TRANSMITTANCE_MU, TRANSMITTANCE_R, INSCATTER_NU, INSCATTER_MU_S, INSCATTER_MU, INSCATTER_R,
+                TRANSMITTANCE_STEPS, INSCATTER_STEPS};
+        for (float c : constants) {
+            hash = 31 * hash + Float.hashCode(c);
+        }
+        return hash;
+    }
+
+    private static int transmittanceBytes() {
+        return TRANSMITTANCE_MU * TRANSMITTANCE_R * 3 * Float.BYTES;
+    }
+
+    private static int inscatterBytes() {
+        return INSCATTER_NU * INSCATTER_MU_S * INSCATTER_MU * INSCATTER_R * 4 * Float.BYTES;
+    }
+
+    /** Returns null if the file isn't a complete table file of this version and size. */
+    private static AtmosphereTables map(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long expected = HEADER_BYTES + (long) transmittanceBytes() + inscatterBytes();
+            if (channel.size() != expected) {
+                return null;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, expected);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.getInt() != MAGIC || mapped.getInt() != VERSION || mapped.getInt() != fingerprint()) {
+                return null;
+            }
+            return slice(mapped.rewind());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to map atmosphere tables " + file + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static AtmosphereTables slice(ByteBuffer file) {
+        ByteBuffer t = file.slice(HEADER_BYTES, transmittanceBytes());
+        ByteBuffer s = file.slice(HEADER_BYTES + transmittanceBytes(), inscatterBytes());
+        return new AtmosphereTables(t, s);
+    }
+
+    // ---- Table layout, shared with the shader in Atmosphere ----
+
+    /** Radius of row {@code i} of {@code n}: denser near the ground, where density changes fastest. */
+    static float radius(int i, int n) {
+        float x = i / (float) (n - 1);
+        float h = x * x * (TOP_RADIUS - GROUND_RADIUS);
+        return GROUND_RADIUS + h;
+    }
+
+    static float transmittanceMu(int i) {
+        return MU_S_MIN + (1.0f - MU_S_MIN) * i / (TRANSMITTANCE_MU - 1);
+    }
+
+    static float inscatterMu(int i) {
+        return -1.0f + 2.0f * i / (INSCATTER_MU - 1);
+    }
+
+    static float inscatterMuS(int i) {
+        return MU_S_MIN + (1.0f - MU_S_MIN) * i / (INSCATTER_MU_S - 1);
+    }
+
+    static float inscatterNu(int i) {
+        return -1.0f + 2.0f * i / (INSCATTER_NU - 1);
+    }
+
+    // ---- Precomputation ----
+
+    private static ByteBuffer build() {
+        ByteBuffer file = ByteBuffer.allocateDirect(HEADER_BYTES + transmittanceBytes() + inscatterBytes())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        file.putInt(MAGIC).putInt(VERSION).putInt(fingerprint());
+
+        float[] t = new float[TRANSMITTANCE_MU * TRANSMITTANCE_R * 3];
+        IntStream.range(0, TRANSMITTANCE_R).parallel().forEach(ri -> {
+            float r = radius(ri, TRANSMITTANCE_R);
+            for (int mi = 0; mi < TRANSMITTANCE_MU; mi++) {
+                float[] depth = opticalDepth(r, transmittanceMu(mi));
+                int o = (ri * TRANSMITTANCE_MU + mi) * 3;
+                for (int c = 0; c < 3; c++) {
+                    t[o + c] = (float) Math.exp(-(RAYLEIGH_SCATTERING[c] * depth[0] + MIE_EXTINCTION * depth[1]));
+                }
+            }
+        });
+        file.position(HEADER_BYTES);
+        file.asFloatBuffer().put(t);
+
+        // One task per (r, mu) row; each writes its own nu x muS run
+        int width = INSCATTER_NU * INSCATTER_MU_S;
+        float[] s = new float[width * INSCATTER_MU * INSCATTER_R * 4];
+        IntStream.range(0, INSCATTER_R * INSCATTER_MU).parallel().forEach(row -> {
+            int ri = row / INSCATTER_MU;
+            int mi = row % INSCATTER_MU;
+            float[] sample = new float[4];
+            for (int ni = 0; ni < INSCATTER_NU; ni++) {
+                for (int si = 0; si < INSCATTER_MU_S; si++) {
+                    singleScattering(t, radius(ri, INSCATTER_R), inscatterMu(mi), inscatterMuS(si), inscatterNu(ni), sample);
+                    System.arraycopy(sample, 0, s, (row * width + ni * INSCATTER_MU_S + si) * 4, 4);
+                }
+            }
+        });
+        file.position(HEADER_BYTES + transmittanceBytes());
+        file.asFloatBuffer().put(s);
+        return file.rewind();
+    }
+
+    /** Rayleigh and Mie density integrated from (r, mu) to the top, ignoring the ground. */
+    private static float[] opticalDepth(float r, float mu) {
+        float length = distanceToTop(r, mu);
+        float dx = length / TRANSMITTANCE_STEPS;
+        double rayleigh = 0.0;
+        double mie = 0.0;
+        for (int i = 0; i < TRANSMITTANCE_STEPS; i++) {
+            float d = (i + 0.5f) * dx;
+            float h = radiusAt(r, mu, d) - GROUND_RADIUS;
+            rayleigh += Math.exp(-h / RAYLEIGH_SCALE_HEIGHT) * dx;
+            mie += Math.exp(-h / MIE_SCALE_HEIGHT) * dx;
+        }
+        return new float[] {(float) rayleigh, (float) mie};
+    }
+
+    /**
+     * Marches from (r, mu) to the ground or the top, lighting each step by
+     * the sun through the transmittance table. The sun vector is placed in
+     * the plane of the local up and view directions where nu allows.
+     */
+    private static void singleScattering(float[] t, float r, float mu, float muS, float nu, float[] out) {
+        // Local frame: up = z, view in the x-z plane
+        float sinMu = (float) Math.sqrt(Math.max(0.0f, 1.0f - mu * mu));
+        float sunX = sinMu > 1e-4f ? (nu - mu * muS) / sinMu : 0.0f;
+        float sunY2 = 1.0f - sunX * sunX - muS * muS;
+        if (sunY2 < 0.0f) {
+            // nu isn't reachable for this mu and muS; take the nearest sun that is
+            sunX = Math.signum(sunX) * (float) Math.sqrt(Math.max(0.0f, 1.0f - muS * muS));
+        }
+
+        float length = intersectsGround(r, mu) ? distanceToGround(r, mu) : distanceToTop(r, mu);
+        float dx = length / INSCATTER_STEPS;
+        float[] sunTransmittance = new float[3];
+        double depthR = 0.0;
+        double depthM = 0.0;
+        double[] rayleigh = new double[3];
+        double mie = 0.0;
+        for (int i = 0; i < INSCATTER_STEPS; i++) {
+            float d = (i + 0.5f) * dx;
+            float px = sinMu * d;
+            float pz = r + mu * d;
+            float rp = (float) Math.sqrt(px * px + pz * pz);
+            float h = Math.max(0.0f, rp - GROUND_RADIUS);
+            double densityR = Math.exp(-h / RAYLEIGH_SCALE_HEIGHT);
+            double densityM = Math.exp(-h / MIE_SCALE_HEIGHT);
+            depthR += densityR * dx * 0.5;
+            depthM += densityM * dx * 0.5;
+
+            float muSp = (px * sunX + pz * muS) / rp;
+            lookupTransmittance(t, rp, muSp, sunTransmittance);
+            for (int c = 0; c < 3; c++) {
+                double seen = Math.exp(-(RAYLEIGH_SCATTERING[c] * depthR + MIE_EXTINCTION * depthM)) * sunTransmittance[c];
+                rayleigh[c] += densityR * seen * dx;
+                if (c == 1) {
+                    mie += densityM * seen * dx;
+                }
+            }
+            depthR += densityR * dx * 0.5;
+            depthM += densityM * dx * 0.5;
+        }
+        for (int c = 0; c < 3; c++) {
+            out[c] = (float) (rayleigh[c] * RAYLEIGH_SCATTERING[c]);
+        }
+        out[3] = (float) (mie * MIE_SCATTERING);
+    }
+
+    /** Bilinear lookup; zero when the sun is behind the ground from radius r. */
+    private static void lookupTransmittance(float[] t, float r, float mu, float[] out) {
+        if (intersectsGround(r, mu)) {
+            out[0] = out[1] = out[2] = 0.0f;
+            return;
+        }
+        float x = (mu - MU_S_MIN) / (1.0f - MU_S_MIN) * (TRANSMITTANCE_MU - 1);
+        float y = (float) Math.sqrt(Math.max(0.0f, (r - GROUND_RADIUS) / (TOP_RADIUS - GROUND_RADIUS))) * (TRANSMITTANCE_R - 1);
+        x = Math.max(0.0f, Math.min(TRANSMITTANCE_MU - 1.001f, x));
+        y = Math.max(0.0f, Math.min(TRANSMITTANCE_R - 1.001f, y));
+        int x0 = (int) x;
+        int y0 = (int) y;
+        float fx = x - x0;
+        float fy = y - y0;
+        for (int c = 0; c < 3; c++) {
+            float a = t[(y0 * TRANSMITTANCE_MU + x0) * 3 + c];
+            float b = t[(y0 * TRANSMITTANCE_MU + x0 + 1) * 3 + c];
+            float e = t[((y0 + 1) * TRANSMITTANCE_MU + x0) * 3 + c];
+            float f = t[((y0 + 1) * TRANSMITTANCE_MU + x0 + 1) * 3 + c];
+            out[c] = (a + (b - a) * fx) + ((e + (f - e) * fx) - (a + (b - a) * fx)) * fy;
+        }
+    }
+
+    private static float radiusAt(float r, float mu, float d) {
+        return (float) Math.sqrt(d * d + 2.0f * r * mu * d + r * r);
+    }
+
+    private static boolean intersectsGround(float r, float mu) {
+        return mu < 0.0f && r * r * (mu * mu - 1.0f) + GROUND_RADIUS * GROUND_RADIUS >= 0.0f;
+    }
+
+    private static float distanceToTop(float r, float mu) {
+        float disc = r * r * (mu * mu - 1.0f) + TOP_RADIUS * TOP_RADIUS;
+        return Math.max(0.0f, -r * mu + (float) Math.sqrt(Math.max(0.0f, disc)));
+    }
+
+    private static float distanceToGround(float r, float mu) {
+        float disc = r * r * (mu * mu - 1.0f) + GROUND_RADIUS * GROUND_RADIUS;
+        return Math.max(0.0f, -r * mu - (float) Math.sqrt(Math.max(0.0f, disc)));
+    }
+}
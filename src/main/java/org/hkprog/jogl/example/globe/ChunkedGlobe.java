@@ -0,0 +1,446 @@
+package org.hkprog.jogl.example.globe;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL2;
+import org.hkprog.jogl.example.math.Mat4f;
+import org.hkprog.jogl.example.render.GpuResources;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Chunked level-of-detail globe.
+ *
+ * The sphere is split into 4 × 2 root patches in texture space (u around the
+ * pole axis, v from south to north), each the root of a quadtree. Every
+ * frame the tree is walked from the roots: a patch is split while the
+ * projected length of one of its grid cells exceeds {@link #setPixelTolerance
+ * the pixel tolerance}, so the number of drawn triangles tracks screen size
+ * rather than zoom level. Patches outside the frustum or behind the horizon
+ * are skipped. Cracks
+ * between neighbours at different levels are hidden with skirts.
+ *
+ * Geometry uses the same frame and texture coordinates as {@code gluSphere}
+ * (poles on local Z, s = 0 on +Y), so it is a drop-in replacement for the
+ * quadric with an equirectangular texture bound. Each patch mesh lives in
+ * its own static VBO, built on first use and evicted when unused.
+ */
+public final class ChunkedGlobe {
+
+    public static final int GRID = 16;
+
+    private static final int ROOT_COLUMNS = 4;
+    private static final int ROOT_ROWS = 2;
+    private static final int MAX_LEVEL = 14;
+    private static final int FLOATS_PER_VERTEX = 8; // position, normal, texcoord
+    private static final int STRIDE = FLOATS_PER_VERTEX * Buffers.SIZEOF_FLOAT;
+    private static final int EDGE = GRID + 1;
+    private static final int GRID_VERTICES = EDGE * EDGE;
+    private static final int VERTEX_COUNT = GRID_VERTICES + 4 * EDGE;
+    private static final int MAX_ELEVATION_M = 9000;
+
+    private static final class Patch {
+        final int level;
+        final int col;
+        final int row;
+        final float u0, v0, u1, v1;
+        float cx, cy, cz;
+        float boundRadius;
+        float cellLength;
+        Patch[] children;
+        int vbo;
+        ElevationTiles.Tile elevationTile;
+        int elevationGeneration = -1;
+        int lastUsedFrame;
+        int lastDrawnFrame;
+
+        Patch(int level, int col, int row) {
+            this.level = level;
+            this.col = col;
+            this.row = row;
+            float cols = ROOT_COLUMNS << level;
+            float rows = ROOT_ROWS << level;
+            u0 = col / cols;
+            u1 = (col + 1) / cols;
+            v0 = row / rows;
+            v1 = (row + 1) / rows;
+        }
+    }
+
+    private final float radius;
+    private final ElevationTiles elevation;
+    private final float elevationScale;
+    private final Patch[] roots = new Patch[ROOT_COLUMNS * ROOT_ROWS];
+    private final FloatBuffer vertexScratch = Buffers.newDirectFloatBuffer(VERTEX_COUNT * FLOATS_PER_VERTEX);
+    private final float[] vertexArray = new float[VERTEX_COUNT * FLOATS_PER_VERTEX];
+    private final int[] idScratch = new int[1];
+
+    private float pixelTolerance = 32.0f;
+    private int maxCachedMeshes = 1024;
+
+    private int indexBuffer;
+    private int indexCount;
+    private int cachedMeshes;
+    private int frame;
+
+    // Per-frame view state
+    private float eyeX, eyeY, eyeZ;
+    private final float[] planes = new float[24];
+    private float projectionScale;
+    private int drawnPatches;
+    private int drawnTriangles;
+
+    /**
+     * @param elevation      tile source, or {@code null} for a smooth sphere
+     * @param elevationScale scene units per meter of elevation (including any exaggeration)
+     */
+    public ChunkedGlobe(float radius, ElevationTiles elevation, float elevationScale) {
+        this.radius = radius;
+        this.elevation = elevation;
+        this.elevationScale = elevationScale;
+        for (int r = 0; r < ROOT_ROWS; r++) {
+            for (int c = 0; c < ROOT_COLUMNS; c++) {
+                roots[r * ROOT_COLUMNS + c] = createPatch(0, c, r);
+            }
+        }
+    }
+
+    /** Target projected size of one grid cell, in pixels. */
+    public void setPixelTolerance(float pixels) {
+        pixelTolerance = pixels;
+    }
+
+    public void setMaxCachedMeshes(int meshes) {
+        maxCachedMeshes = meshes;
+    }
+
+    public int drawnPatches() {
+        return drawnPatches;
+    }
+
+    public int drawnTriangles() {
+        return drawnTriangles;
+    }
+
+    public void init(GL2 gl) {
+        ShortBuffer indices = buildIndices();
+        indexCount = indices.remaining();
+        gl.glGenBuffers(1, idScratch, 0);
+        indexBuffer = idScratch[0];
+        gl.glBindBuffer(GL2.GL_ELEMENT_ARRAY_BUFFER, indexBuffer);
+        gl.glBufferData(GL2.GL_ELEMENT_ARRAY_BUFFER, (long) indexCount * Buffers.SIZEOF_SHORT, indices, GL2.GL_STATIC_DRAW);
+        gl.glBindBuffer(GL2.GL_ELEMENT_ARRAY_BUFFER, 0);
+        GpuResources.shared().track(GpuResources.Kind.BUFFER, indexBuffer, (long) indexCount * Buffers.SIZEOF_SHORT, "globe patch indices");
+    }
+
+    public void dispose(GL2 gl) {
+        for (Patch root : roots) {
+            releaseMeshes(gl, root, Integer.MAX_VALUE);
+        }
+        if (indexBuffer != 0) {
+            GpuResources.shared().free(GpuResources.Kind.BUFFER, indexBuffer);
+            idScratch[0] = indexBuffer;
+            gl.glDeleteBuffers(1, idScratch, 0);
+            indexBuffer = 0;
+        }
+    }
+
+    /**
+     * Draws the globe with the current modelview at the sphere's center.
+     * {@code modelViewProjection} and the eye position must describe that
+     * same local frame; they drive frustum culling and refinement.
+     */
+    public void draw(GL2 gl, Mat4f modelViewProjection, float eyeX, float eyeY, float eyeZ,
+                     int viewportHeight, float fovYDeg) {
+        modelViewProjection.frustumPlanes(planes);
+        this.eyeX = eyeX;
+        this.eyeY = eyeY;
+        this.eyeZ = eyeZ;
+        projectionScale = (float) (viewportHeight / (2.0 * Math.tan(Math.toRadians(fovYDeg) * 0.5)));
+        frame++;
+        drawnPatches = 0;
+        drawnTriangles = 0;
+
+        gl.glBindBuffer(GL2.GL_ELEMENT_ARRAY_BUFFER, indexBuffer);
+        gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+        gl.glEnableClientState(GL2.GL_NORMAL_ARRAY);
+        gl.glEnableClientState(GL2.GL_TEXTURE_COORD_ARRAY);
+
+        for (Patch root : roots) {
+            visit(gl, root);
+        }
+
+        gl.glDisableClientState(GL2.GL_TEXTURE_COORD_ARRAY);
+        gl.glDisableClientState(GL2.GL_NORMAL_ARRAY);
+        gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, 0);
+        gl.glBindBuffer(GL2.GL_ELEMENT_ARRAY_BUFFER, 0);
+
+        if (cachedMeshes > maxCachedMeshes) {
+            for (Patch root : roots) {
+                releaseMeshes(gl, root, frame);
+            }
+        }
+    }
+
+    private void visit(GL2 gl, Patch p) {
+        p.lastUsedFrame = frame;
+        if (outsideFrustum(p) || belowHorizon(p)) {
+            return;
+        }
+
+        float dx = p.cx - eyeX, dy = p.cy - eyeY, dz = p.cz - eyeZ;
+        float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz) - p.boundRadius;
+        float projectedCell = p.cellLength * projectionScale / Math.max(distance, radius * 1.0e-5f);
+        if (projectedCell > pixelTolerance && p.level < MAX_LEVEL) {
+            if (p.children == null) {
+                int level = p.level + 1;
+                p.children = new Patch[]{
+                    createPatch(level, p.col * 2, p.row * 2),
+                    createPatch(level, p.col * 2 + 1, p.row * 2),
+                    createPatch(level, p.col * 2, p.row * 2 + 1),
+                    createPatch(level, p.col * 2 + 1, p.row * 2 + 1)
+                };
+            }
+            for (Patch child : p.children) {
+                visit(gl, child);
+            }
+            return;
+        }
+        drawPatch(gl, p);
+    }
+
+    private boolean outsideFrustum(Patch p) {
+        float[] pl = planes;
+        for (int k = 0; k < 24; k += 4) {
+            if (pl[k] * p.cx + pl[k + 1] * p.cy + pl[k + 2] * p.cz + pl[k + 3] < -p.boundRadius) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean belowHorizon(Patch p) {
+        // Same cone test as the satellite culler: hidden if behind the horizon plane and inside the tangent cone
+        float occluder = radius - p.boundRadius;
+        float eyeSq = eyeX * eyeX + eyeY * eyeY + eyeZ * eyeZ;
+        if (occluder <= 0.0f || eyeSq <= occluder * occluder) {
+            return false;
+        }
+        float horizonSq = eyeSq - occluder * occluder;
+        float vtDotVc = eyeSq - (p.cx * eyeX + p.cy * eyeY + p.cz * eyeZ);
+        float rx = p.cx - eyeX, ry = p.cy - eyeY, rz = p.cz - eyeZ;
+        return vtDotVc > horizonSq && vtDotVc * vtDotVc > horizonSq * (rx * rx + ry * ry + rz * rz);
+    }
+
+    private void drawPatch(GL2 gl, Patch p) {
+        if (p.vbo == 0) {
+            buildMesh(gl, p);
+        } else if (elevation != null && p.elevationGeneration != elevation.generation()) {
+            // Something finished streaming; rebuild only if a better tile now covers this patch
+            p.elevationGeneration = elevation.generation();
+            if (elevation.find(p.level, p.col, p.row) != p.elevationTile) {
+                buildMesh(gl, p);
+            }
+        }
+        p.lastDrawnFrame = frame;
+        gl.glPushMatrix();
+        gl.glTranslatef(p.cx, p.cy, p.cz);
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, p.vbo);
+        gl.glVertexPointer(3, GL2.GL_FLOAT, STRIDE, 0L);
+        gl.glNormalPointer(GL2.GL_FLOAT, STRIDE, 3L * Buffers.SIZEOF_FLOAT);
+        gl.glTexCoordPointer(2, GL2.GL_FLOAT, STRIDE, 6L * Buffers.SIZEOF_FLOAT);
+        gl.glDrawElements(GL2.GL_TRIANGLES, indexCount, GL2.GL_UNSIGNED_SHORT, 0L);
+        gl.glPopMatrix();
+        drawnPatches++;
+        drawnTriangles += indexCount / 3;
+    }
+
+    private Patch createPatch(int level, int col, int row) {
+        Patch p = new Patch(level, col, row);
+        float[] dir = new float[3];
+        direction((p.u0 + p.u1) * 0.5f, (p.v0 + p.v1) * 0.5f, dir);
+        p.cx = dir[0] * radius;
+        p.cy = dir[1] * radius;
+        p.cz = dir[2] * radius;
+
+        // Bound the patch by sampling its border and interior on a coarse grid
+        float maxSq = 0.0f;
+        for (int j = 0; j <= 4; j++) {
+            for (int i = 0; i <= 4; i++) {
+                direction(p.u0 + (p.u1 - p.u0) * i / 4.0f, p.v0 + (p.v1 - p.v0) * j / 4.0f, dir);
+                float dx = dir[0] * radius - p.cx, dy = dir[1] * radius - p.cy, dz = dir[2] * radius - p.cz;
+                maxSq = Math.max(maxSq, dx * dx + dy * dy + dz * dz);
+            }
+        }
+        float relief = elevation == null ? 0.0f : MAX_ELEVATION_M * elevationScale;
+        p.boundRadius = (float) Math.sqrt(maxSq) + relief;
+
+        // Widest grid cell: along a meridian, or along the parallel nearest the equator
+        double dLat = Math.PI * (p.v1 - p.v0) / GRID;
+        double latNearEquator = Math.min(Math.abs(p.v0 - 0.5f), Math.abs(p.v1 - 0.5f)) * Math.PI;
+        if (p.v0 <= 0.5f && p.v1 >= 0.5f) {
+            latNearEquator = 0.0;
+        }
+        double dLon = 2.0 * Math.PI * (p.u1 - p.u0) / GRID * Math.cos(latNearEquator);
+        p.cellLength = (float) (radius * Math.max(dLat, dLon));
+        return p;
+    }
+
+    /** Unit direction for texture coordinate (u, v), matching gluSphere. */
+    private static void direction(float u, float v, float[] out) {
+        double theta = 2.0 * Math.PI * u;
+        double rho = Math.PI * (1.0 - v);
+        double sinRho = Math.sin(rho);
+        out[0] = (float) (-Math.sin(theta) * sinRho);
+        out[1] = (float) (Math.cos(theta) * sinRho);
+        out[2] = (float) Math.cos(rho);
+    }
+
+    private void buildMesh(GL2 gl, Patch p) {
+        // Read the generation first so a tile landing mid-build triggers another check
+        p.elevationGeneration = elevation == null ? 0 : elevation.generation();
+        ElevationTiles.Tile tile = elevation == null ? null : elevation.find(p.level, p.col, p.row);
+        p.elevationTile = tile;
+        float skirtDepth = p.cellLength * 0.5f + (tile == null ? 0.0f : MAX_ELEVATION_M * elevationScale * 0.25f);
+        float[] v = vertexArray;
+        float[] dir = new float[3];
+
+        for (int j = 0; j < EDGE; j++) {
+            float tv = p.v0 + (p.v1 - p.v0) * j / GRID;
+            for (int i = 0; i < EDGE; i++) {
+                float tu = p.u0 + (p.u1 - p.u0) * i / GRID;
+                direction(tu, tv, dir);
+                float h = radius + sampleElevation(tile, tu, tv) * elevationScale;
+                writeVertex(v, (j * EDGE + i) * FLOATS_PER_VERTEX, dir, h, p, tu, tv);
+            }
+        }
+        // Skirts: copies of the four border rows pushed toward the center
+        for (int edge = 0; edge < 4; edge++) {
+            for (int t = 0; t < EDGE; t++) {
+                int src = borderIndex(edge, t) * FLOATS_PER_VERTEX;
+                int dst = (GRID_VERTICES + edge * EDGE + t) * FLOATS_PER_VERTEX;
+                System.arraycopy(v, src, v, dst, FLOATS_PER_VERTEX);
+                v[dst] -= v[dst + 3] * skirtDepth;
+                v[dst + 1] -= v[dst + 4] * skirtDepth;
+                v[dst + 2] -= v[dst + 5] * skirtDepth;
+            }
+        }
+
+        vertexScratch.clear();
+        vertexScratch.put(v);
+        vertexScratch.flip();
+        if (p.vbo == 0) {
+            gl.glGenBuffers(1, idScratch, 0);
+            p.vbo = idScratch[0];
+            cachedMeshes++;
+        }
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, p.vbo);
+        gl.glBufferData(GL2.GL_ARRAY_BUFFER, (long) v.length * Buffers.SIZEOF_FLOAT, vertexScratch, GL2.GL_STATIC_DRAW);
+        GpuResources.shared().track(GpuResources.Kind.BUFFER, p.vbo, (long) v.length * Buffers.SIZEOF_FLOAT, "globe patch");
+    }
+
+    private void writeVertex(float[] v, int o, float[] dir, float h, Patch p, float tu, float tv) {
+        // Positions relative to the patch center keep float precision at deep levels
+        v[o] = dir[0] * h - p.cx;
+        v[o + 1] = dir[1] * h - p.cy;
+        v[o + 2] = dir[2] * h - p.cz;
+        v[o + 3] = dir[0];
+        v[o + 4] = dir[1];
+        v[o + 5] = dir[2];
+        v[o + 6] = tu;
+        v[o + 7] = tv;
+    }
+
+    private static float sampleElevation(ElevationTiles.Tile tile, float u, float v) {
+        if (tile == null) {
+            return 0.0f;
+        }
+        // Map (u, v) into the tile's own cell, then bilinear filter its samples
+        float cols = ROOT_COLUMNS << tile.level;
+        float rows = ROOT_ROWS << tile.level;
+        int n = (int) Math.round(Math.sqrt(tile.heights.length)) - 1;
+        float x = Math.min(Math.max((u * cols - tile.col) * n, 0.0f), n);
+        float y = Math.min(Math.max((v * rows - tile.row) * n, 0.0f), n);
+        int x0 = Math.min((int) x, n - 1);
+        int y0 = Math.min((int) y, n - 1);
+        float fx = x - x0;
+        float fy = y - y0;
+        short[] hs = tile.heights;
+        int stride = n + 1;
+        float h00 = hs[y0 * stride + x0];
+        float h10 = hs[y0 * stride + x0 + 1];
+        float h01 = hs[(y0 + 1) * stride + x0];
+        float h11 = hs[(y0 + 1) * stride + x0 + 1];
+        return (h00 * (1 - fx) + h10 * fx) * (1 - fy) + (h01 * (1 - fx) + h11 * fx) * fy;
+    }
+
+    /** Grid index of the t-th vertex along border {@code edge} (south, east, north, west). */
+    private static int borderIndex(int edge, int t) {
+        return switch (edge) {
+            case 0 -> t;
+            case 1 -> t * EDGE + GRID;
+            case 2 -> GRID * EDGE + t;
+            default -> t * EDGE;
+        };
+    }
+
+    private static ShortBuffer buildIndices() {
+        int gridIndices = GRID * GRID * 6;
+        int skirtIndices = 4 * GRID * 12; // both windings, so culling never hides a skirt
+        ShortBuffer out = Buffers.newDirectShortBuffer(gridIndices + skirtIndices);
+        for (int j = 0; j < GRID; j++) {
+            for (int i = 0; i < GRID; i++) {
+                int a = j * EDGE + i;
+                int b = a + 1;
+                int c = a + EDGE + 1;
+                int d = a + EDGE;
+                // Counter-clockwise seen from outside (u east, v north)
+                putTriangle(out, a, b, c);
+                putTriangle(out, a, c, d);
+            }
+        }
+        for (int edge = 0; edge < 4; edge++) {
+            for (int t = 0; t < GRID; t++) {
+                int a = borderIndex(edge, t);
+                int b = borderIndex(edge, t + 1);
+                int as = GRID_VERTICES + edge * EDGE + t;
+                int bs = as + 1;
+                putTriangle(out, a, as, b);
+                putTriangle(out, b, as, bs);
+                putTriangle(out, a, b, as);
+                putTriangle(out, b, bs, as);
+            }
+        }
+        out.flip();
+        return out;
+    }
+
+    private static void putTriangle(ShortBuffer out, int a, int b, int c) {
+        out.put((short) a);
+        out.put((short) b);
+        out.put((short) c);
+    }
+
+    /** Frees meshes not drawn since {@code keepFrame} and drops subtrees not visited since then. */
+    private void releaseMeshes(GL2 gl, Patch p, int keepFrame) {
+        if (p.children != null) {
+            boolean childrenUsed = false;
+            for (Patch child : p.children) {
+                releaseMeshes(gl, child, keepFrame);
+                childrenUsed |= child.lastUsedFrame >= keepFrame;
+            }
+            if (!childrenUsed) {
+                p.children = null;
+            }
+        }
+        if (p.vbo != 0 && p.lastDrawnFrame < keepFrame) {
+            GpuResources.shared().free(GpuResources.Kind.BUFFER, p.vbo);
+            idScratch[0] = p.vbo;
+            gl.glDeleteBuffers(1, idScratch, 0);
+            p.vbo = 0;
+            p.elevationTile = null;
+            cachedMeshes--;
+        }
+    }
+}
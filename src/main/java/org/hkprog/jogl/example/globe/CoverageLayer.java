@@ -0,0 +1,141 @@
+package org.hkprog.jogl.example.globe;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL2;
+import org.hkprog.jogl.example.render.GpuResources;
+import org.hkprog.jogl.example.sim.CoverageGrid;
+
+import java.nio.IntBuffer;
+
+/**
+ * A {@link CoverageGrid} draped over the globe as a heatmap: one texel per
+ * cell, transparent where nothing sees it and running from blue through
+ * green and yellow to red as the number of satellites in view grows to
+ * {@link #SATURATION}.
+ *
+ * Only the cells the grid marked dirty are recolored and sent. Consecutive
+ * dirty rows go up together as one rectangle spanning their columns,
+ * read straight out of the full-size staging buffer by setting the unpack
+ * row length, so a frame where footprints barely moved uploads a few
+ * narrow strips instead of the whole texture.
+ */
+public final class CoverageLayer {
+
+    /** Satellites in view at which the ramp tops out. */
+    public static final int SATURATION = 32;
+
+    private static final int ALPHA = 0x99;
+    // Ramp stops as 0xRRGGBB, spread evenly from one satellite to SATURATION
+    private static final int[] STOPS = {0x2040C0, 0x20A0A0, 0x40C040, 0xE0E020, 0xE04020};
+
+    private final int[] ramp = buildRamp();
+    private IntBuffer pixels;
+    private int width;
+    private int height;
+    private int texture;
+    private long uploadedTexels;
+
+    public void init(GL2 gl, CoverageGrid grid) {
+        width = grid.width();
+        height = grid.height();
+        pixels = Buffers.newDirectIntBuffer(width * height);
+        int[] id = new int[1];
+        gl.glGenTextures(1, id, 0);
+        texture = id[0];
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, texture);
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MIN_FILTER, GL2.GL_LINEAR);
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MAG_FILTER, GL2.GL_LINEAR);
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_S, GL2.GL_REPEAT);
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_T, GL2.GL_CLAMP_TO_EDGE);
+        gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, GL2.GL_RGBA8, width, height, 0,
+                GL2.GL_BGRA, GL2.GL_UNSIGNED_INT_8_8_8_8_REV, pixels);
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+        GpuResources.shared().track(GpuResources.Kind.TEXTURE, texture, (long) width * height * 4, "coverage heatmap");
+    }
+
+    /** Recolors and uploads the grid's dirty cells, then clears them. */
+    public void upload(GL2 gl, CoverageGrid grid) {
+        int[] counts = grid.counts();
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, texture);
+        gl.glPixelStorei(GL2.GL_UNPACK_ROW_LENGTH, width);
+        int r = 0;
+        while (r < height) {
+            if (grid.dirtyFrom(r) >= grid.dirtyTo(r)) {
+                r++;
+                continue;
+            }
+            // Grow the rectangle over the following dirty rows
+            int top = r;
+            int from = width;
+            int to = 0;
+            while (r < height && grid.dirtyFrom(r) < grid.dirtyTo(r)) {
+                from = Math.min(from, grid.dirtyFrom(r));
+                to = Math.max(to, grid.dirtyTo(r));
+                r++;
+            }
+            for (int row = top; row < r; row++) {
+                for (int c = from, i = row * width + from; c < to; c++, i++) {
+                    pixels.put(i, ramp[Math.min(counts[i], SATURATION)]);
+                }
+            }
+            // Rows in grid order, north first, the same way the Earth texture is uploaded
+            pixels.position(top * width + from);
+            gl.glTexSubImage2D(GL2.GL_TEXTURE_2D, 0, from, top, to - from, r - top,
+                    GL2.GL_BGRA, GL2.GL_UNSIGNED_INT_8_8_8_8_REV, pixels);
+            uploadedTexels += (long) (to - from) * (r - top);
+        }
+        pixels.position(0);
+        gl.glPixelStorei(GL2.GL_UNPACK_ROW_LENGTH, 0);
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+        grid.clearDirty();
+    }
+
+    /** Texels sent since the layer was created. */
+    public long uploadedTexels() {
+        return uploadedTexels;
+    }
+
+    /** Draws the heatmap on {@code mesh}, a {@link SphereMesh#uv} sphere, in the current modelview, unlit. */
+    public void draw(GL2 gl, SphereMesh mesh) {
+        gl.glPushAttrib(GL2.GL_ENABLE_BIT | GL2.GL_COLOR_BUFFER_BIT | GL2.GL_DEPTH_BUFFER_BIT | GL2.GL_TEXTURE_BIT
+                | GL2.GL_CURRENT_BIT);
+        gl.glDisable(GL2.GL_LIGHTING);
+        gl.glEnable(GL2.GL_BLEND);
+        gl.glBlendFunc(GL2.GL_SRC_ALPHA, GL2.GL_ONE_MINUS_SRC_ALPHA);
+        gl.glDepthMask(false);
+        gl.glEnable(GL2.GL_TEXTURE_2D);
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, texture);
+        gl.glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
+        mesh.draw(gl, false);
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+        gl.glPopAttrib();
+    }
+
+    public void dispose(GL2 gl) {
+        if (texture != 0) {
+            GpuResources.shared().free(GpuResources.Kind.TEXTURE, texture);
+            gl.glDeleteTextures(1, new int[]{texture}, 0);
+            texture = 0;
+        }
+        pixels = null;
+    }
+
+    /** ARGB per count up to {@link #SATURATION}; zero keeps the first stop's color so filtering doesn't darken edges. */
+    private static int[] buildRamp() {
+        int[] ramp = new int[SATURATION + 1];
+        ramp[0] = STOPS[0];
+        for (int n = 1; n <= SATURATION; n++) {
+            double x = (double) (n - 1) / (SATURATION - 1) * (STOPS.length - 1);
+            int k = Math.min((int) x, STOPS.length - 2);
+            double t = x - k;
+            int rgb = 0;
+            for (int shift = 0; shift <= 16; shift += 8) {
+                int a = (STOPS[k] >> shift) & 0xFF;
+                int b = (STOPS[k + 1] >> shift) & 0xFF;
+                rgb |= (int) Math.round(a + (b - a) * t) << shift;
+            }
+            ramp[n] = ALPHA << 24 | rgb;
+        }
+        return ramp;
+    }
+}
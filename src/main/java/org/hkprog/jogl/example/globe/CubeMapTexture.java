@@ -0,0 +1,151 @@
+package org.hkprog.jogl.example.globe;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL2;
+import org.hkprog.jogl.example.render.GpuResources;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * Cube map built from a 2:1 equirectangular image, for the seamless
+ * {@link SphereMesh#cube} and {@link SphereMesh#icosphere} topologies.
+ *
+ * Face texels are resampled (bilinear, wrapping in longitude) in the same
+ * frame as {@code gluSphere}: north pole on +Z and longitude 0 of the image
+ * on +Y, so a mesh textured with this map lines up with the UV sphere under
+ * the same transforms. Faces are converted in parallel, once, at load time.
+ */
+public final class CubeMapTexture {
+
+    private int texture;
+
+    private CubeMapTexture(int texture) {
+        this.texture = texture;
+    }
+
+    public static CubeMapTexture fromEquirectangular(GL2 gl, BufferedImage image, int faceSize) {
+        ByteBuffer[] faces = convert(image, faceSize);
+
+        int[] id = new int[1];
+        gl.glGenTextures(1, id, 0);
+        gl.glBindTexture(GL2.GL_TEXTURE_CUBE_MAP, id[0]);
+        gl.glPixelStorei(GL2.GL_UNPACK_ALIGNMENT, 1);
+        for (int face = 0; face < 6; face++) {
+            gl.glTexImage2D(GL2.GL_TEXTURE_CUBE_MAP_POSITIVE_X + face, 0, GL2.GL_RGB8, faceSize, faceSize, 0,
+                    GL2.GL_RGB, GL2.GL_UNSIGNED_BYTE, faces[face]);
+        }
+        gl.glPixelStorei(GL2.GL_UNPACK_ALIGNMENT, 4);
+        gl.glTexParameteri(GL2.GL_TEXTURE_CUBE_MAP, GL2.GL_TEXTURE_WRAP_S, GL2.GL_CLAMP_TO_EDGE);
+        gl.glTexParameteri(GL2.GL_TEXTURE_CUBE_MAP, GL2.GL_TEXTURE_WRAP_T, GL2.GL_CLAMP_TO_EDGE);
+        gl.glTexParameteri(GL2.GL_TEXTURE_CUBE_MAP, GL2.GL_TEXTURE_WRAP_R, GL2.GL_CLAMP_TO_EDGE);
+        gl.glTexParameteri(GL2.GL_TEXTURE_CUBE_MAP, GL2.GL_TEXTURE_MIN_FILTER, GL2.GL_LINEAR_MIPMAP_LINEAR);
+        gl.glTexParameteri(GL2.GL_TEXTURE_CUBE_MAP, GL2.GL_TEXTURE_MAG_FILTER, GL2.GL_LINEAR);
+        gl.glGenerateMipmap(GL2.GL_TEXTURE_CUBE_MAP);
+        gl.glBindTexture(GL2.GL_TEXTURE_CUBE_MAP, 0);
+        // Six RGB8 faces, padded to 4 bytes a texel by most drivers, plus a third for the mips
+        GpuResources.shared().track(GpuResources.Kind.TEXTURE, id[0], 6L * faceSize * faceSize * 4 * 4 / 3, "earth cube map");
+        return new CubeMapTexture(id[0]);
+    }
+
+    /**
+     * Resamples the image into six RGB faces in GL order (+X, -X, +Y, -Y,
+     * +Z, -Z), each {@code faceSize²} texels with rows in increasing t.
+     */
+    public static ByteBuffer[] convert(BufferedImage image, int faceSize) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+
+        ByteBuffer[] faces = new ByteBuffer[6];
+        for (int face = 0; face < 6; face++) {
+            faces[face] = Buffers.newDirectByteBuffer(faceSize * faceSize * 3);
+        }
+        IntStream.range(0, 6 * faceSize).parallel().forEach(job -> {
+            int face = job / faceSize;
+            int row = job % faceSize;
+            ByteBuffer out = faces[face];
+            double[] dir = new double[3];
+            int o = row * faceSize * 3;
+            for (int col = 0; col < faceSize; col++) {
+                faceDirection(face, (col + 0.5) / faceSize * 2.0 - 1.0, (row + 0.5) / faceSize * 2.0 - 1.0, dir);
+                int rgb = sampleEquirectangular(argb, width, height, dir);
+                out.put(o++, (byte) (rgb >> 16));
+                out.put(o++, (byte) (rgb >> 8));
+                out.put(o++, (byte) rgb);
+            }
+        });
+        return faces;
+    }
+
+    /** Direction for face coordinates (sc, tc) in [-1, 1], per the GL cube map face table. */
+    private static void faceDirection(int face, double sc, double tc, double[] out) {
+        switch (face) {
+            case 0 -> set(out, 1.0, -tc, -sc);
+            case 1 -> set(out, -1.0, -tc, sc);
+            case 2 -> set(out, sc, 1.0, tc);
+            case 3 -> set(out, sc, -1.0, -tc);
+            case 4 -> set(out, sc, -tc, 1.0);
+            default -> set(out, -sc, -tc, -1.0);
+        }
+    }
+
+    private static void set(double[] out, double x, double y, double z) {
+        double inv = 1.0 / Math.sqrt(x * x + y * y + z * z);
+        out[0] = x * inv;
+        out[1] = y * inv;
+        out[2] = z * inv;
+    }
+
+    private static int sampleEquirectangular(int[] argb, int width, int height, double[] dir) {
+        // Inverse of gluSphere's mapping: x = -sinθ sinρ, y = cosθ sinρ, z = cosρ, s = θ / 2π, t = 1 - ρ / π
+        double theta = Math.atan2(-dir[0], dir[1]);
+        if (theta < 0.0) {
+            theta += 2.0 * Math.PI;
+        }
+        double rho = Math.acos(Math.max(-1.0, Math.min(1.0, dir[2])));
+        double x = theta / (2.0 * Math.PI) * width - 0.5;
+        double y = rho / Math.PI * height - 0.5; // image row 0 is the north edge
+
+        int x0 = (int) Math.floor(x);
+        int y0 = (int) Math.floor(y);
+        double fx = x - x0;
+        double fy = y - y0;
+        int xa = Math.floorMod(x0, width);
+        int xb = Math.floorMod(x0 + 1, width);
+        int ya = Math.max(0, Math.min(height - 1, y0));
+        int yb = Math.max(0, Math.min(height - 1, y0 + 1));
+
+        int c00 = argb[ya * width + xa];
+        int c10 = argb[ya * width + xb];
+        int c01 = argb[yb * width + xa];
+        int c11 = argb[yb * width + xb];
+        int result = 0;
+        for (int shift = 0; shift <= 16; shift += 8) {
+            double top = ((c00 >> shift) & 0xFF) * (1.0 - fx) + ((c10 >> shift) & 0xFF) * fx;
+            double bottom = ((c01 >> shift) & 0xFF) * (1.0 - fx) + ((c11 >> shift) & 0xFF) * fx;
+            int channel = (int) Math.round(top * (1.0 - fy) + bottom * fy);
+            result |= Math.min(255, channel) << shift;
+        }
+        return result;
+    }
+
+    public void enable(GL2 gl) {
+        gl.glEnable(GL2.GL_TEXTURE_CUBE_MAP);
+        gl.glBindTexture(GL2.GL_TEXTURE_CUBE_MAP, texture);
+    }
+
+    public void disable(GL2 gl) {
+        gl.glBindTexture(GL2.GL_TEXTURE_CUBE_MAP, 0);
+        gl.glDisable(GL2.GL_TEXTURE_CUBE_MAP);
+    }
+
+    public void dispose(GL2 gl) {
+        if (texture != 0) {
+            GpuResources.shared().free(GpuResources.Kind.TEXTURE, texture);
+            gl.glDeleteTextures(1, new int[]{texture}, 0);
+            texture = 0;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package org.hkprog.jogl.example.globe;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.util.texture.Texture;
+import org.hkprog.jogl.example.render.GlslProgram;
+import org.hkprog.jogl.example.render.GpuResources;
+import org.hkprog.jogl.example.render.ResourceCache;
+
+/**
+ * Earth surface shading in one pass: day imagery lit by the sun, city
+ * lights on the night side, sun glint on the oceans and the cloud layer,
+ * all combined per fragment in a GLSL 1.20 program.
+ *
+ * The sun is GL_LIGHT0, taken as a direction, so the terminator follows
+ * wherever the caller points it. The day map stays bound on unit 0 by the
+ * caller (2D or, for the cube and icosphere globes, a cube map); the night
+ * map, ocean mask and the two cloud frames are bound here. A missing
+ * layer is replaced by a blank texture rather than a branch, so every
+ * fragment takes the same five samples whatever is loaded.
+ */
+public final class EarthMaterial {
+
+    public static final String NIGHT_TEXTURE = "/textures/earth_night.jpg";
+    public static final String OCEAN_MASK_TEXTURE = "/textures/earth_specular.png";
+
+    private static final String VERTEX_SHADER = """
+            #version 120
+            varying vec3 normal;
+            varying vec3 view;
+            varying vec3 direction;
+            varying vec2 uv;
+            void main() {
+                gl_Position = ftransform();
+                vec4 eye = gl_ModelViewMatrix * gl_Vertex;
+                normal = gl_NormalMatrix * gl_Normal;
+                view = -eye.xyz;
+                direction = gl_Normal;
+                uv = gl_MultiTexCoord0.st;
+            }
+            """;
+
+    private static final String FRAGMENT_SHADER = """
+            #ifdef CUBE_DAY
+            uniform samplerCube day;
+            #else
+            uniform sampler2D day;
+            #endif
+            uniform sampler2D night;
+            uniform sampler2D oceanMask;
+            uniform sampler2D cloudsA;
+            uniform sampler2D cloudsB;
+            uniform float cloudBlend;
+            varying vec3 normal;
+            varying vec3 view;
+            varying vec3 direction;
+            varying vec2 uv;
+            const float PI = 3.14159265;
+            void main() {
+            #ifdef CUBE_DAY
+                // Same layout as gluSphere: poles on Z, s = 0 on +Y
+                vec3 d = normalize(direction);
+                vec2 st = vec2(fract(atan(-d.x, d.y) / (2.0 * PI) + 1.0), 1.0 - acos(clamp(d.z, -1.0, 1.0)) / PI);
+                vec3 dayColor = textureCube(day, direction).rgb;
+            #else
+                vec2 st = uv;
+                vec3 dayColor = texture2D(day, st).rgb;
+            #endif
+                vec3 n = normalize(normal);
+                vec3 sun = normalize(gl_LightSource[0].position.xyz);
+                float ndl = dot(n, sun);
+                float lit = max(ndl, 0.0);
+                float dark = 1.0 - smoothstep(-0.15, 0.05, ndl); // soft terminator
+
+                vec4 clouds = mix(texture2D(cloudsA, st), texture2D(cloudsB, st), cloudBlend);
+                float clear = 1.0 - clouds.a;
+                vec3 light = gl_FrontLightProduct[0].ambient.rgb + gl_FrontLightProduct[0].diffuse.rgb * lit;
+
+                vec3 color = dayColor * light;
+                color += texture2D(night, st).rgb * dark * clear;
+                vec3 h = normalize(sun + normalize(view));
+                float glint = pow(max(dot(n, h), 0.0), 40.0) * texture2D(oceanMask, st).r;
+                color += gl_FrontLightProduct[0].specular.rgb * glint * clear * step(0.0, ndl);
+                color = mix(color, clouds.rgb * light, clouds.a);
+                gl_FragColor = vec4(color, 1.0);
+            }
+            """;
+
+    private GlslProgram program2d;
+    private GlslProgram programCube;
+    private int cloudBlend2d = -1;
+    private int cloudBlendCube = -1;
+    private Texture night;
+    private Texture oceanMask;
+    private int blank;
+
+    public void init(GL2 gl) {
+        program2d = build(gl, "earth-material", false);
+        programCube = build(gl, "earth-material-cube", true);
+        if (program2d == null || programCube == null) {
+            System.err.println("WARNING: Earth material shader unavailable, using single-texture lighting");
+            dispose(gl);
+            return;
+        }
+        cloudBlend2d = program2d.uniform(gl, "cloudBlend");
+        cloudBlendCube = programCube.uniform(gl, "cloudBlend");
+        night = optionalTexture(gl, NIGHT_TEXTURE);
+        oceanMask = optionalTexture(gl, OCEAN_MASK_TEXTURE);
+
+        // Stands in for any layer that isn't there: no lights, no ocean, no cloud
+        int[] id = new int[1];
+        gl.glGenTextures(1, id, 0);
+        blank = id[0];
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, blank);
+        gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, GL2.GL_RGBA8, 1, 1, 0,
+                GL2.GL_BGRA, GL2.GL_UNSIGNED_INT_8_8_8_8_REV, Buffers.newDirectIntBuffer(1));
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MIN_FILTER, GL2.GL_NEAREST);
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MAG_FILTER, GL2.GL_NEAREST);
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+        GpuResources.shared().track(GpuResources.Kind.TEXTURE, blank, 4, "blank layer");
+    }
+
+    public boolean isAvailable() {
+        return program2d != null && programCube != null;
+    }
+
+    /**
+     * Binds the layers and the program for the globe about to be drawn.
+     * The day map must already be bound on unit 0; {@code clouds} may be
+     * null.
+     */
+    public void begin(GL2 gl, boolean cubeMapped, TextureSequence clouds) {
+        GlslProgram program = cubeMapped ? programCube : program2d;
+        bind(gl, 1, night != null ? night.getTextureObject() : blank);
+        bind(gl, 2, oceanMask != null ? oceanMask.getTextureObject() : blank);
+        boolean cloudy = clouds != null && clouds.hasFrame();
+        bind(gl, 3, cloudy ? clouds.frameTexture(false) : blank);
+        bind(gl, 4, cloudy ? clouds.frameTexture(true) : blank);
+        gl.glActiveTexture(GL2.GL_TEXTURE0);
+
+        program.use(gl);
+        gl.glUniform1f(cubeMapped ? cloudBlendCube : cloudBlend2d, cloudy ? clouds.blend() : 0.0f);
+        if (night != null) {
+            ResourceCache.shared().markUsed(night);
+        }
+        if (oceanMask != null) {
+            ResourceCache.shared().markUsed(oceanMask);
+        }
+    }
+
+    public void end(GL2 gl) {
+        GlslProgram.useNone(gl);
+        for (int unit = 4; unit >= 1; unit--) {
+            bind(gl, unit, 0);
+        }
+        gl.glActiveTexture(GL2.GL_TEXTURE0);
+    }
+
+    public void dispose(GL2 gl) {
+        if (program2d != null) {
+            program2d.dispose(gl);
+            program2d = null;
+        }
+        if (programCube != null) {
+            programCube.dispose(gl);
+            programCube = null;
+        }
+        ResourceCache.shared().release(gl, night);
+        ResourceCache.shared().release(gl, oceanMask);
+        night = null;
+        oceanMask = null;
+        if (blank != 0) {
+            GpuResources.shared().free(GpuResources.Kind.TEXTURE, blank);
+            gl.glDeleteTextures(1, new int[]{blank}, 0);
+            blank = 0;
+        }
+    }
+
+    private static GlslProgram build(GL2 gl, String name, boolean cubeDay) {
+        String header = cubeDay ? "#version 120\n#define CUBE_DAY\n" : "#version 120\n";
+        GlslProgram program = GlslProgram.tryBuild(gl, name, VERTEX_SHADER, header + FRAGMENT_SHADER);
+        if (program != null) {
+            // Texture units never change, so the samplers are set once
+            program.use(gl);
+            String[] samplers = {"day", "night", "oceanMask", "cloudsA", "cloudsB"};
+            for (int unit = 0; unit < samplers.length; unit++) {
+                gl.glUniform1i(program.uniform(gl, samplers[unit]), unit);
+            }
+            GlslProgram.useNone(gl);
+        }
+        return program;
+    }
+
+    /** The layers beyond the day map are extras: quietly absent if the resource isn't shipped. */
+    private static Texture optionalTexture(GL2 gl, String resourcePath) {
+        if (EarthMaterial.class.getResource(resourcePath) == null) {
+            System.out.println("Earth layer " + resourcePath + " not found, skipping it");
+            return null;
+        }
+        return ResourceCache.shared().texture(gl, resourcePath);
+    }
+
+    private static void bind(GL2 gl, int unit, int texture) {
+        gl.glActiveTexture(GL2.GL_TEXTURE0 + unit);
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, texture);
+    }
+}
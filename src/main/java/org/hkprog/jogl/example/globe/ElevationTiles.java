@@ -0,0 +1,153 @@
+package org.hkprog.jogl.example.globe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Elevation tiles streamed from disk on a background thread.
+ *
+ * Layout: {@code <dir>/<level>/<col>/<row>.raw}, each file holding
+ * {@code samples × samples} big-endian signed 16-bit heights in meters,
+ * rows from south to north, matching the quadtree addressing used by
+ * {@link ChunkedGlobe}. Missing files are remembered so they are not
+ * requested again; callers fall back to the nearest loaded ancestor.
+ */
+public final class ElevationTiles implements AutoCloseable {
+
+    /** System property naming the tile directory; elevation is off when unset. */
+    public static final String DIRECTORY_PROPERTY = "globe.elevation.dir";
+
+    private static final int MAX_IN_FLIGHT = 32;
+
+    public static final class Tile {
+        public final int level;
+        public final int col;
+        public final int row;
+        public final short[] heights;
+
+        Tile(int level, int col, int row, short[] heights) {
+            this.level = level;
+            this.col = col;
+            this.row = row;
+            this.heights = heights;
+        }
+    }
+
+    private static final Tile PENDING = new Tile(-1, 0, 0, new short[0]);
+    private static final Tile MISSING = new Tile(-1, 0, 0, new short[0]);
+
+    private final Path directory;
+    private final int samples;
+    private final ConcurrentHashMap<Long, Tile> tiles = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "elevation-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ElevationTiles(Path directory, int samples) {
+        this.directory = directory;
+        this.samples = samples;
+    }
+
+    /** Tiles from {@link #DIRECTORY_PROPERTY}, or {@code null} if it is unset or not a directory. */
+    public static ElevationTiles fromSystemProperty(int samples) {
+        String dir = System.getProperty(DIRECTORY_PROPERTY);
+        if (dir == null || dir.isEmpty()) {
+            return null;
+        }
+        Path path = Paths.get(dir);
+        if (!Files.isDirectory(path)) {
+            System.err.println("WARNING: Elevation directory not found: " + path);
+            return null;
+        }
+        System.out.println("Streaming elevation tiles from " + path);
+        return new ElevationTiles(path, samples);
+    }
+
+    public int samples() {
+        return samples;
+    }
+
+    /** Bumped every time a tile finishes loading, so cached meshes know to rebuild. */
+    public int generation() {
+        return generation.get();
+    }
+
+    /**
+     * Returns the deepest loaded tile covering (level, col, row), walking up
+     * to the root, and queues a load for the exact tile if it has not been
+     * requested yet. Returns {@code null} if nothing is loaded.
+     */
+    public Tile find(int level, int col, int row) {
+        request(level, col, row);
+        for (int l = level, c = col, r = row; l >= 0; l--, c >>= 1, r >>= 1) {
+            Tile tile = tiles.get(key(l, c, r));
+            if (tile != null && tile != PENDING && tile != MISSING) {
+                return tile;
+            }
+        }
+        return null;
+    }
+
+    private void request(int level, int col, int row) {
+        long key = key(level, col, row);
+        if (tiles.containsKey(key) || inFlight.get() >= MAX_IN_FLIGHT) {
+            return; // already known, or try again on a later frame
+        }
+        if (tiles.putIfAbsent(key, PENDING) != null) {
+            return;
+        }
+        inFlight.incrementAndGet();
+        loader.execute(() -> {
+            try {
+                tiles.put(key, load(level, col, row));
+                generation.incrementAndGet();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    private Tile load(int level, int col, int row) {
+        Path file = directory.resolve(Integer.toString(level))
+                .resolve(Integer.toString(col))
+                .resolve(row + ".raw");
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            if (bytes.length != samples * samples * 2) {
+                System.err.println("WARNING: Elevation tile " + file + " has " + bytes.length
+                        + " bytes, expected " + (samples * samples * 2));
+                return MISSING;
+            }
+            short[] heights = new short[samples * samples];
+            ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN).asShortBuffer().get(heights);
+            return new Tile(level, col, row, heights);
+        } catch (NoSuchFileException e) {
+            return MISSING;
+        } catch (IOException e) {
+            System.err.println("Failed to load elevation tile: " + file + " - " + e.getMessage());
+            return MISSING;
+        }
+    }
+
+    private static long key(int level, int col, int row) {
+        return ((long) level << 56) | ((long) col << 28) | row;
+    }
+
+    @Override
+    public void close() {
+        loader.shutdownNow();
+    }
+}
@@ -0,0 +1,395 @@
+package org.hkprog.jogl.example.globe;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL2;
+import org.hkprog.jogl.example.overlay.LabelEngine;
+import org.hkprog.jogl.example.render.GpuResources;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Latitude/longitude lines on the unit sphere whose spacing and smoothness
+ * follow the zoom.
+ *
+ * {@link #update} measures how many pixels a radian of arc covers below the
+ * eye and picks the finest of {@link #SPACINGS_DEG} whose lines stay at
+ * least {@link #MIN_GAP_PIXELS} apart, and a segment length whose sag off
+ * the sphere is under half a pixel. Only the lines inside the patch of
+ * sphere the view can show are built: the horizon cap, narrowed to the
+ * view cone once the cone no longer takes in the whole limb. The window is
+ * rounded outward to whole blocks of lines, and each level keeps its last
+ * window in a vertex buffer until the view leaves it, so the buffer is
+ * rebuilt now and then rather than every frame. Meridians stop short of
+ * the pole unless a coarser spacing also has them, so they don't crowd
+ * together there.
+ *
+ * Positions use the Earth texture's frame, the one gluSphere's poles and
+ * the ephemeris share: Z north, longitude 0 on -Y and 90°E on +X.
+ */
+public final class Graticule {
+
+    /** Line spacings, coarsest first. */
+    public static final double[] SPACINGS_DEG = {30.0, 10.0, 1.0, 0.1};
+
+    public static final double MIN_GAP_PIXELS = 48.0;
+
+    private static final double MAX_SAG_PIXELS = 0.5;
+    private static final int BLOCK_LINES = 8; // windows are rounded out to this many spacings
+    private static final int MAX_SUBDIVISIONS = 64;
+    private static final int MAX_VERTICES = 1 << 17;
+    private static final int MAX_LABELS = 128;
+    private static final String WIDEST_LABEL = "000.0°W"; // reserves each slot's glyphs
+
+    /** One spacing's cached lines. */
+    private static final class Level {
+        final double spacing;
+        int buffer;
+        int vertexCount;
+        int subdivisions;
+        double latMin, latMax, lonMin, lonMax;
+
+        Level(double spacing) {
+            this.spacing = spacing;
+        }
+
+        boolean covers(double south, double north, double west, double east, int needed) {
+            return buffer != 0 && subdivisions == needed
+                    && south >= latMin && north <= latMax && west >= lonMin && east <= lonMax;
+        }
+    }
+
+    private final Level[] levels = new Level[SPACINGS_DEG.length];
+    private int current = -1;
+    private boolean rebuilt;
+    private float[] scratch = new float[0];
+    private FloatBuffer upload = Buffers.newDirectFloatBuffer(0);
+
+    // View from the last update
+    private double eyeX, eyeY, eyeZ; // unit vector
+    private double eyeLat;
+    private double eyeLon;
+    private double eyeDistance; // in sphere radii
+    private double south, north, west, east;
+
+    // One engine label per line in view, retexted as the view moves
+    private LabelEngine labelEngine;
+    private int[] labelIds = new int[0];
+    private String[] labelTexts = new String[0];
+    private int labelsOffered;
+
+    public Graticule() {
+        for (int l = 0; l < levels.length; l++) {
+            levels[l] = new Level(SPACINGS_DEG[l]);
+        }
+    }
+
+    /**
+     * Picks the level for an eye at {@code eye*} in the sphere's frame, in
+     * units of its {@code radius}, and rebuilds that level's buffer if the
+     * view has left it. Returns the level.
+     */
+    public int update(GL2 gl, double eyeX, double eyeY, double eyeZ, double radius,
+                      int viewportHeight, double fovYDeg, double aspect) {
+        double distance = Math.sqrt(eyeX * eyeX + eyeY * eyeY + eyeZ * eyeZ);
+        double d = Math.max(1.0001, distance / radius);
+        eyeDistance = d;
+        this.eyeX = eyeX / distance;
+        this.eyeY = eyeY / distance;
+        this.eyeZ = eyeZ / distance;
+        eyeLat = Math.toDegrees(Math.asin(this.eyeZ));
+        eyeLon = Math.toDegrees(Math.atan2(this.eyeX, -this.eyeY));
+
+        double tanHalfFov = Math.tan(Math.toRadians(fovYDeg) / 2.0);
+        double pixelsPerRadian = viewportHeight / (2.0 * tanHalfFov) / (d - 1.0);
+        int level = 0;
+        for (int l = SPACINGS_DEG.length - 1; l > 0; l--) {
+            if (Math.toRadians(SPACINGS_DEG[l]) * pixelsPerRadian >= MIN_GAP_PIXELS) {
+                level = l;
+                break;
+            }
+        }
+
+        // Angle from the sub-eye point to the farthest point in view: the horizon,
+        // or where the corners of the view cone meet the sphere when they do
+        double corner = Math.atan(tanHalfFov * Math.sqrt(1.0 + aspect * aspect));
+        double reach = d * Math.sin(corner) >= 1.0 ? Math.acos(1.0 / d) : Math.asin(d * Math.sin(corner)) - corner;
+        double reachDeg = Math.toDegrees(reach);
+        south = Math.max(-90.0, eyeLat - reachDeg);
+        north = Math.min(90.0, eyeLat + reachDeg);
+        if (south <= -90.0 || north >= 90.0) {
+            west = -180.0;
+            east = 180.0;
+        } else {
+            double halfWidth = Math.toDegrees(Math.asin(Math.min(1.0, Math.sin(reach) / Math.cos(Math.toRadians(eyeLat)))));
+            west = eyeLon - halfWidth;
+            east = eyeLon + halfWidth;
+        }
+
+        // Sag of an arc θ is θ²/8 of the radius
+        double segment = Math.sqrt(8.0 * MAX_SAG_PIXELS / pixelsPerRadian);
+        rebuilt = false;
+        for (; level >= 0; level--) {
+            Level candidate = levels[level];
+            int subdivisions = subdivisions(candidate.spacing, segment);
+            if (candidate.covers(south, north, west, east, subdivisions)) {
+                break;
+            }
+            if (build(gl, candidate, subdivisions)) {
+                rebuilt = true;
+                break;
+            }
+            // Too many lines for this spacing here; fall back to a coarser one
+        }
+        current = Math.max(0, level);
+        return current;
+    }
+
+    /** Draws the current level's lines on the unit sphere in the current modelview and color. */
+    public void draw(GL2 gl) {
+        Level level = current >= 0 ? levels[current] : null;
+        if (level == null || level.vertexCount == 0) {
+            return;
+        }
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, level.buffer);
+        gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+        gl.glVertexPointer(3, GL2.GL_FLOAT, 0, 0L);
+        gl.glDrawArrays(GL2.GL_LINES, 0, level.vertexCount);
+        gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, 0);
+    }
+
+    /** Spacing of the lines drawn, in degrees. */
+    public double spacingDeg() {
+        return SPACINGS_DEG[Math.max(0, current)];
+    }
+
+    public int vertexCount() {
+        return current >= 0 ? levels[current].vertexCount : 0;
+    }
+
+    /** True if the last {@link #update} had to rebuild a buffer. */
+    public boolean rebuilt() {
+        return rebuilt;
+    }
+
+    /**
+     * Offers a label for each line in view to {@code labels}, on a sphere of
+     * {@code radius}: parallels along the meridian nearest the eye and
+     * meridians along the parallel nearest it. Each line in view reuses one
+     * of at most {@value #MAX_LABELS} labels registered with the engine, so
+     * panning never registers more.
+     */
+    public void offerLabels(LabelEngine labels, float radius) {
+        if (current < 0) {
+            return;
+        }
+        if (labels != labelEngine) {
+            labelEngine = labels;
+            labelIds = new int[0];
+            labelTexts = new String[0];
+        }
+        labelsOffered = 0;
+        double spacing = SPACINGS_DEG[current];
+        double anchorLon = Math.round(eyeLon / spacing) * spacing;
+        double anchorLat = Math.max(-80.0, Math.min(80.0, Math.round(eyeLat / spacing) * spacing));
+        for (long k = (long) Math.ceil(south / spacing); k * spacing <= north; k++) {
+            double lat = k * spacing;
+            if (Math.abs(lat) < 90.0) {
+                offer(labels, latitudeText(lat, spacing), lat, anchorLon, radius);
+            }
+        }
+        for (long k = (long) Math.ceil(west / spacing); k * spacing < east; k++) {
+            double lon = k * spacing;
+            offer(labels, longitudeText(wrap(lon), spacing), anchorLat, lon, radius);
+        }
+    }
+
+    private void offer(LabelEngine labels, String text, double latDeg, double lonDeg, float radius) {
+        double lat = Math.toRadians(latDeg);
+        double lon = Math.toRadians(lonDeg);
+        double x = Math.cos(lat) * Math.sin(lon);
+        double y = -Math.cos(lat) * Math.cos(lon);
+        double z = Math.sin(lat);
+        // Only the near side: the point must face the eye
+        if ((x * eyeX + y * eyeY + z * eyeZ) * eyeDistance < 1.0 || labelsOffered == MAX_LABELS) {
+            return;
+        }
+        int slot = labelsOffered++;
+        if (slot == labelIds.length) {
+            labelIds = Arrays.copyOf(labelIds, Math.min(MAX_LABELS, Math.max(16, slot * 2)));
+            labelTexts = Arrays.copyOf(labelTexts, labelIds.length);
+            for (int i = slot; i < labelIds.length; i++) {
+                labelIds[i] = labels.add(WIDEST_LABEL, 0.0f, 0.85f, 0.85f, 0.85f, 1.0f);
+            }
+        }
+        if (!text.equals(labelTexts[slot])) {
+            labels.setText(labelIds[slot], text);
+            labelTexts[slot] = text;
+        }
+        labels.offer(labelIds[slot], (float) (x * radius), (float) (y * radius), (float) (z * radius));
+    }
+
+    public void dispose(GL2 gl) {
+        for (Level level : levels) {
+            if (level.buffer != 0) {
+                GpuResources.shared().free(GpuResources.Kind.BUFFER, level.buffer);
+                gl.glDeleteBuffers(1, new int[]{level.buffer}, 0);
+                level.buffer = 0;
+                level.vertexCount = 0;
+            }
+        }
+        labelEngine = null;
+        labelIds = new int[0];
+        labelTexts = new String[0];
+        current = -1;
+    }
+
+    private static int subdivisions(double spacingDeg, double segmentRad) {
+        int n = 1;
+        while (n < MAX_SUBDIVISIONS && Math.toRadians(spacingDeg) / n > segmentRad) {
+            n *= 2;
+        }
+        return n;
+    }
+
+    /**
+     * Fills {@code level} with the lines of the current window, rounded out
+     * to whole blocks; false, leaving it as it was, if that takes more than
+     * {@link #MAX_VERTICES}.
+     */
+    private boolean build(GL2 gl, Level level, int subdivisions) {
+        double spacing = level.spacing;
+        double block = spacing * BLOCK_LINES;
+        double latMin = Math.max(-90.0, Math.floor(south / block) * block);
+        double latMax = Math.min(90.0, Math.ceil(north / block) * block);
+        double lonMin = Math.floor(west / block) * block;
+        double lonMax = Math.ceil(east / block) * block;
+        if (lonMax - lonMin >= 360.0) {
+            lonMin = -180.0;
+            lonMax = 180.0;
+        }
+        int count = emit(null, spacing, subdivisions, latMin, latMax, lonMin, lonMax);
+        if (count > MAX_VERTICES) {
+            return false;
+        }
+        if (scratch.length < count * 3) {
+            scratch = new float[count * 3];
+            upload = Buffers.newDirectFloatBuffer(count * 3);
+        }
+        emit(scratch, spacing, subdivisions, latMin, latMax, lonMin, lonMax);
+
+        if (level.buffer == 0) {
+            int[] id = new int[1];
+            gl.glGenBuffers(1, id, 0);
+            level.buffer = id[0];
+        }
+        long bytes = (long) count * 3 * Buffers.SIZEOF_FLOAT;
+        upload.clear();
+        upload.put(scratch, 0, count * 3).flip();
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, level.buffer);
+        gl.glBufferData(GL2.GL_ARRAY_BUFFER, bytes, upload, GL2.GL_STATIC_DRAW);
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, 0);
+        GpuResources.shared().track(GpuResources.Kind.BUFFER, level.buffer, bytes, "graticule " + spacing + "°");
+        level.vertexCount = count;
+        level.subdivisions = subdivisions;
+        level.latMin = latMin;
+        level.latMax = latMax;
+        level.lonMin = lonMin;
+        level.lonMax = lonMax;
+        return true;
+    }
+
+    /** Writes the window's lines as GL_LINES vertex pairs into {@code out}, or only counts them if it is null. */
+    private static int emit(float[] out, double spacing, int subdivisions,
+                            double latMin, double latMax, double lonMin, double lonMax) {
+        double step = spacing / subdivisions;
+        boolean fullCircle = lonMax - lonMin >= 360.0;
+        int n = 0;
+        // Parallels, poles excluded
+        for (long k = (long) Math.ceil(latMin / spacing); k * spacing <= latMax; k++) {
+            double lat = k * spacing;
+            if (Math.abs(lat) >= 90.0 - 1e-9) {
+                continue;
+            }
+            // A parallel's radius shrinks with cos φ, and its sag for a given longitude step with it
+            double shrink = Math.sqrt(Math.cos(Math.toRadians(lat)));
+            n = arc(out, n, lat, lonMin, lat, lonMax, (int) Math.ceil((lonMax - lonMin) * shrink / step - 1e-9));
+        }
+        // Meridians, each up to the latitude where the finer ones thin out
+        long last = (long) Math.floor(lonMax / spacing) - (fullCircle ? 1 : 0);
+        for (long k = (long) Math.ceil(lonMin / spacing); k <= last; k++) {
+            double lon = k * spacing;
+            double limit = meridianLimit(lon, spacing);
+            double from = Math.max(latMin, -limit);
+            double to = Math.min(latMax, limit);
+            if (to > from) {
+                n = arc(out, n, from, lon, to, lon, (int) Math.ceil((to - from) / step - 1e-9));
+            }
+        }
+        return n;
+    }
+
+    /**
+     * How far toward the poles a meridian runs: all the way if it falls on
+     * a multiple of 90°, otherwise to where its neighbors at the coarsest
+     * spacing it belongs to (this one times a power of ten) close to a
+     * quarter of this spacing.
+     */
+    private static double meridianLimit(double lonDeg, double spacing) {
+        double rounded = Math.round(lonDeg * 1e6) / 1e6;
+        if (rounded % 90.0 == 0.0) {
+            return 90.0;
+        }
+        double coarsest = spacing;
+        while (coarsest * 10.0 < 360.0 && Math.abs(Math.IEEEremainder(rounded, coarsest * 10.0)) < spacing * 1e-3) {
+            coarsest *= 10.0;
+        }
+        return Math.toDegrees(Math.acos(spacing / (4.0 * coarsest)));
+    }
+
+    /** A line of {@code segments} pieces from one latitude/longitude to another, interpolated linearly in both. */
+    private static int arc(float[] out, int n, double lat0, double lon0, double lat1, double lon1, int segments) {
+        segments = Math.max(1, segments);
+        if (out == null) {
+            return n + 2 * segments;
+        }
+        for (int i = 0; i < segments; i++) {
+            n = vertex(out, n, lat0 + (lat1 - lat0) * i / segments, lon0 + (lon1 - lon0) * i / segments);
+            n = vertex(out, n, lat0 + (lat1 - lat0) * (i + 1) / segments, lon0 + (lon1 - lon0) * (i + 1) / segments);
+        }
+        return n;
+    }
+
+    private static int vertex(float[] out, int n, double latDeg, double lonDeg) {
+        double lat = Math.toRadians(latDeg);
+        double lon = Math.toRadians(lonDeg);
+        out[3 * n] = (float) (Math.cos(lat) * Math.sin(lon));
+        out[3 * n + 1] = (float) (-Math.cos(lat) * Math.cos(lon));
+        out[3 * n + 2] = (float) Math.sin(lat);
+        return n + 1;
+    }
+
+    private static double wrap(double lonDeg) {
+        double wrapped = Math.IEEEremainder(lonDeg, 360.0);
+        return wrapped == -180.0 ? 180.0 : wrapped;
+    }
+
+    private static String latitudeText(double lat, double spacing) {
+        String value = number(Math.abs(lat), spacing);
+        return Math.abs(lat) < spacing / 2 ? "0°" : value + (lat > 0 ? "°N" : "°S");
+    }
+
+    private static String longitudeText(double lon, double spacing) {
+        String value = number(Math.abs(lon), spacing);
+        if (Math.abs(lon) < spacing / 2 || Math.abs(lon) > 180.0 - spacing / 2) {
+            return value + "°";
+        }
+        return value + (lon > 0 ? "°E" : "°W");
+    }
+
+    private static String number(double value, double spacing) {
+        return spacing < 1.0 ? String.format(Locale.ROOT, "%.1f", value) : Long.toString(Math.round(value));
+    }
+}
@@ -0,0 +1,298 @@
+package org.hkprog.jogl.example.globe;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL2;
+import org.hkprog.jogl.example.render.GpuResources;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Static unit-sphere meshes in three topologies:
+ * <ul>
+ *   <li>{@link #uv} – latitude/longitude grid laid out like {@code gluSphere}
+ *       (poles on Z, s = 0 on +Y), with equirectangular texture coordinates;</li>
+ *   <li>{@link #cube} – a subdivided cube pushed onto the sphere, with a
+ *       tangent warp so cells stay close to equal size;</li>
+ *   <li>{@link #icosphere} – a recursively subdivided icosahedron.</li>
+ * </ul>
+ * The cube and icosphere have no seam or pole and are textured with a cube
+ * map looked up by vertex direction (see {@link CubeMapTexture}), which is
+ * why they reach the same accuracy as the UV sphere with far fewer triangles.
+ * Positions double as normals and cube-map coordinates.
+ */
+public final class SphereMesh {
+
+    private final String name;
+    private final float[] positions;
+    private final float[] texCoords; // equirectangular, UV sphere only
+    private final int[] indices;
+
+    private int vertexBuffer;
+    private int texCoordBuffer;
+    private int indexBuffer;
+
+    private SphereMesh(String name, float[] positions, float[] texCoords, int[] indices) {
+        this.name = name;
+        this.positions = positions;
+        this.texCoords = texCoords;
+        this.indices = indices;
+    }
+
+    public static SphereMesh uv(int slices, int stacks) {
+        float[] pos = new float[(slices + 1) * (stacks + 1) * 3];
+        float[] tex = new float[(slices + 1) * (stacks + 1) * 2];
+        for (int j = 0; j <= stacks; j++) {
+            double rho = Math.PI * j / stacks;
+            for (int i = 0; i <= slices; i++) {
+                double theta = 2.0 * Math.PI * i / slices;
+                int v = j * (slices + 1) + i;
+                pos[v * 3] = (float) (-Math.sin(theta) * Math.sin(rho));
+                pos[v * 3 + 1] = (float) (Math.cos(theta) * Math.sin(rho));
+                pos[v * 3 + 2] = (float) Math.cos(rho);
+                tex[v * 2] = (float) i / slices;
+                tex[v * 2 + 1] = 1.0f - (float) j / stacks;
+            }
+        }
+        int[] idx = new int[slices * stacks * 6];
+        int n = 0;
+        for (int j = 0; j < stacks; j++) {
+            for (int i = 0; i < slices; i++) {
+                int a = j * (slices + 1) + i;
+                int b = a + slices + 1;
+                // j runs north to south, so (a, b, b+1) is counter-clockwise from outside
+                idx[n++] = a;
+                idx[n++] = b;
+                idx[n++] = b + 1;
+                idx[n++] = a;
+                idx[n++] = b + 1;
+                idx[n++] = a + 1;
+            }
+        }
+        return new SphereMesh("uv " + slices + "x" + stacks, pos, tex, idx);
+    }
+
+    public static SphereMesh cube(int subdivisions) {
+        int edge = subdivisions + 1;
+        float[] pos = new float[6 * edge * edge * 3];
+        int[] idx = new int[6 * subdivisions * subdivisions * 6];
+        int v = 0;
+        int n = 0;
+        // Each face: normal axis, two in-face axes (cyclic, so a × b points outward) and the side
+        int[][] faces = {
+            {0, 1, 2, 1}, {0, 1, 2, -1},
+            {1, 2, 0, 1}, {1, 2, 0, -1},
+            {2, 0, 1, 1}, {2, 0, 1, -1}
+        };
+        double[] p = new double[3];
+        for (int[] face : faces) {
+            int base = v;
+            for (int j = 0; j < edge; j++) {
+                for (int i = 0; i < edge; i++) {
+                    // tan warp spreads vertices evenly in angle instead of along the cube face
+                    double a = Math.tan((2.0 * i / subdivisions - 1.0) * Math.PI / 4.0);
+                    double b = Math.tan((2.0 * j / subdivisions - 1.0) * Math.PI / 4.0);
+                    p[face[0]] = face[3];
+                    p[face[1]] = a * face[3];
+                    p[face[2]] = b;
+                    double inv = 1.0 / Math.sqrt(p[0] * p[0] + p[1] * p[1] + p[2] * p[2]);
+                    pos[v * 3] = (float) (p[0] * inv);
+                    pos[v * 3 + 1] = (float) (p[1] * inv);
+                    pos[v * 3 + 2] = (float) (p[2] * inv);
+                    v++;
+                }
+            }
+            for (int j = 0; j < subdivisions; j++) {
+                for (int i = 0; i < subdivisions; i++) {
+                    int a = base + j * edge + i;
+                    idx[n++] = a;
+                    idx[n++] = a + 1;
+                    idx[n++] = a + edge + 1;
+                    idx[n++] = a;
+                    idx[n++] = a + edge + 1;
+                    idx[n++] = a + edge;
+                }
+            }
+        }
+        return new SphereMesh("cube " + subdivisions, pos, null, idx);
+    }
+
+    public static SphereMesh icosphere(int subdivisions) {
+        double t = (1.0 + Math.sqrt(5.0)) / 2.0;
+        double[] verts = {
+            -1, t, 0,  1, t, 0,  -1, -t, 0,  1, -t, 0,
+            0, -1, t,  0, 1, t,  0, -1, -t,  0, 1, -t,
+            t, 0, -1,  t, 0, 1,  -t, 0, -1,  -t, 0, 1
+        };
+        int[] tris = {
+            0, 11, 5,  0, 5, 1,  0, 1, 7,  0, 7, 10,  0, 10, 11,
+            1, 5, 9,  5, 11, 4,  11, 10, 2,  10, 7, 6,  7, 1, 8,
+            3, 9, 4,  3, 4, 2,  3, 2, 6,  3, 6, 8,  3, 8, 9,
+            4, 9, 5,  2, 4, 11,  6, 2, 10,  8, 6, 7,  9, 8, 1
+        };
+        int vertexCount = 10 * (1 << (2 * subdivisions)) + 2;
+        double[] pos = Arrays.copyOf(verts, vertexCount * 3);
+        for (int i = 0; i < 12; i++) {
+            normalize(pos, i);
+        }
+        int count = 12;
+        Map<Long, Integer> midpoints = new HashMap<>();
+        for (int s = 0; s < subdivisions; s++) {
+            int[] next = new int[tris.length * 4];
+            int n = 0;
+            midpoints.clear();
+            for (int k = 0; k < tris.length; k += 3) {
+                int a = tris[k], b = tris[k + 1], c = tris[k + 2];
+                int[] mid = new int[3];
+                int[][] edges = {{a, b}, {b, c}, {c, a}};
+                for (int e = 0; e < 3; e++) {
+                    int lo = Math.min(edges[e][0], edges[e][1]);
+                    int hi = Math.max(edges[e][0], edges[e][1]);
+                    Integer existing = midpoints.get(((long) lo << 32) | hi);
+                    if (existing == null) {
+                        for (int d = 0; d < 3; d++) {
+                            pos[count * 3 + d] = (pos[lo * 3 + d] + pos[hi * 3 + d]) * 0.5;
+                        }
+                        normalize(pos, count);
+                        midpoints.put(((long) lo << 32) | hi, count);
+                        existing = count++;
+                    }
+                    mid[e] = existing;
+                }
+                int ab = mid[0], bc = mid[1], ca = mid[2];
+                int[] sub = {a, ab, ca, b, bc, ab, c, ca, bc, ab, bc, ca};
+                System.arraycopy(sub, 0, next, n, 12);
+                n += 12;
+            }
+            tris = next;
+        }
+        float[] out = new float[count * 3];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (float) pos[i];
+        }
+        return new SphereMesh("icosphere " + subdivisions, out, null, tris);
+    }
+
+    private static void normalize(double[] p, int i) {
+        int o = i * 3;
+        double inv = 1.0 / Math.sqrt(p[o] * p[o] + p[o + 1] * p[o + 1] + p[o + 2] * p[o + 2]);
+        p[o] *= inv;
+        p[o + 1] *= inv;
+        p[o + 2] *= inv;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int vertexCount() {
+        return positions.length / 3;
+    }
+
+    public int triangleCount() {
+        return indices.length / 3;
+    }
+
+    public boolean hasEquirectangularTexCoords() {
+        return texCoords != null;
+    }
+
+    /**
+     * Largest gap between the mesh and the unit sphere, measured at triangle
+     * centroids. This is the "quality" the benchmark matches across topologies.
+     */
+    public double maxSurfaceError() {
+        double worst = 0.0;
+        for (int k = 0; k < indices.length; k += 3) {
+            double cx = 0, cy = 0, cz = 0;
+            for (int e = 0; e < 3; e++) {
+                int o = indices[k + e] * 3;
+                cx += positions[o];
+                cy += positions[o + 1];
+                cz += positions[o + 2];
+            }
+            double len = Math.sqrt(cx * cx + cy * cy + cz * cz) / 3.0;
+            if (len > 1.0e-6) { // degenerate pole triangles have no area to judge
+                worst = Math.max(worst, 1.0 - len);
+            }
+        }
+        return worst;
+    }
+
+    public void upload(GL2 gl) {
+        int[] ids = new int[3];
+        gl.glGenBuffers(texCoords != null ? 3 : 2, ids, 0);
+        vertexBuffer = ids[0];
+        indexBuffer = ids[1];
+        texCoordBuffer = texCoords != null ? ids[2] : 0;
+
+        FloatBuffer pos = Buffers.newDirectFloatBuffer(positions);
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, vertexBuffer);
+        gl.glBufferData(GL2.GL_ARRAY_BUFFER, (long) positions.length * Buffers.SIZEOF_FLOAT, pos, GL2.GL_STATIC_DRAW);
+        if (texCoords != null) {
+            FloatBuffer tex = Buffers.newDirectFloatBuffer(texCoords);
+            gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, texCoordBuffer);
+            gl.glBufferData(GL2.GL_ARRAY_BUFFER, (long) texCoords.length * Buffers.SIZEOF_FLOAT, tex, GL2.GL_STATIC_DRAW);
+        }
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, 0);
+
+        IntBuffer idx = Buffers.newDirectIntBuffer(indices);
+        gl.glBindBuffer(GL2.GL_ELEMENT_ARRAY_BUFFER, indexBuffer);
+        gl.glBufferData(GL2.GL_ELEMENT_ARRAY_BUFFER, (long) indices.length * Buffers.SIZEOF_INT, idx, GL2.GL_STATIC_DRAW);
+        gl.glBindBuffer(GL2.GL_ELEMENT_ARRAY_BUFFER, 0);
+
+        GpuResources registry = GpuResources.shared();
+        registry.track(GpuResources.Kind.BUFFER, vertexBuffer, (long) positions.length * Buffers.SIZEOF_FLOAT, "sphere positions");
+        registry.track(GpuResources.Kind.BUFFER, indexBuffer, (long) indices.length * Buffers.SIZEOF_INT, "sphere indices");
+        if (texCoords != null) {
+            registry.track(GpuResources.Kind.BUFFER, texCoordBuffer, (long) texCoords.length * Buffers.SIZEOF_FLOAT, "sphere texcoords");
+        }
+    }
+
+    /**
+     * Draws the unit sphere with normals. With {@code cubeMapCoords} the
+     * positions are also sent as 3D texture coordinates for a bound cube map;
+     * otherwise the equirectangular coordinates are used if the mesh has them.
+     */
+    public void draw(GL2 gl, boolean cubeMapCoords) {
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, vertexBuffer);
+        gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+        gl.glEnableClientState(GL2.GL_NORMAL_ARRAY);
+        gl.glVertexPointer(3, GL2.GL_FLOAT, 0, 0L);
+        gl.glNormalPointer(GL2.GL_FLOAT, 0, 0L);
+        boolean textured = cubeMapCoords || texCoords != null;
+        if (cubeMapCoords) {
+            gl.glEnableClientState(GL2.GL_TEXTURE_COORD_ARRAY);
+            gl.glTexCoordPointer(3, GL2.GL_FLOAT, 0, 0L);
+        } else if (texCoords != null) {
+            gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, texCoordBuffer);
+            gl.glEnableClientState(GL2.GL_TEXTURE_COORD_ARRAY);
+            gl.glTexCoordPointer(2, GL2.GL_FLOAT, 0, 0L);
+        }
+
+        gl.glBindBuffer(GL2.GL_ELEMENT_ARRAY_BUFFER, indexBuffer);
+        gl.glDrawElements(GL2.GL_TRIANGLES, indices.length, GL2.GL_UNSIGNED_INT, 0L);
+
+        if (textured) {
+            gl.glDisableClientState(GL2.GL_TEXTURE_COORD_ARRAY);
+        }
+        gl.glDisableClientState(GL2.GL_NORMAL_ARRAY);
+        gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+        gl.glBindBuffer(GL2.GL_ELEMENT_ARRAY_BUFFER, 0);
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, 0);
+    }
+
+    public void dispose(GL2 gl) {
+        int[] ids = {vertexBuffer, indexBuffer, texCoordBuffer};
+        for (int id : ids) {
+            GpuResources.shared().free(GpuResources.Kind.BUFFER, id);
+        }
+        gl.glDeleteBuffers(texCoordBuffer != 0 ? 3 : 2, ids, 0);
+        vertexBuffer = 0;
+        indexBuffer = 0;
+        texCoordBuffer = 0;
+    }
+}
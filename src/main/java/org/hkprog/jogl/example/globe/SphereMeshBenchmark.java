@@ -0,0 +1,143 @@
+package org.hkprog.jogl.example.globe;
+
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.GLAutoDrawable;
+import com.jogamp.opengl.GLCapabilities;
+import com.jogamp.opengl.GLDrawableFactory;
+import com.jogamp.opengl.GLEventListener;
+import com.jogamp.opengl.GLException;
+import com.jogamp.opengl.GLOffscreenAutoDrawable;
+import com.jogamp.opengl.GLProfile;
+
+/**
+ * Compares the sphere topologies at matched quality: the subdivisions are
+ * chosen so the cube sphere and icosphere do not exceed the maximum surface
+ * error of the 64x64 UV sphere DrawEarth has always used.
+ *
+ * Prints vertex/triangle counts and errors, then, if an offscreen GL2 context
+ * can be created, the average GPU time to draw each mesh many times per frame.
+ *
+ * Usage: SphereMeshBenchmark [drawsPerFrame] [frames]
+ */
+public final class SphereMeshBenchmark {
+
+    private static final int VIEWPORT = 512;
+
+    public static void main(String[] args) {
+        int drawsPerFrame = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+
+        SphereMesh reference = SphereMesh.uv(64, 64);
+        double target = reference.maxSurfaceError();
+        SphereMesh[] meshes = {reference, matchCube(target), matchIcosphere(target)};
+
+        System.out.printf("%-16s %10s %10s %12s%n", "mesh", "vertices", "triangles", "max error");
+        for (SphereMesh mesh : meshes) {
+            System.out.printf("%-16s %10d %10d %12.6f%n",
+                    mesh.name(), mesh.vertexCount(), mesh.triangleCount(), mesh.maxSurfaceError());
+        }
+
+        GLOffscreenAutoDrawable drawable;
+        try {
+            GLProfile profile = GLProfile.get(GLProfile.GL2);
+            GLCapabilities caps = new GLCapabilities(profile);
+            caps.setOnscreen(false);
+            caps.setFBO(true);
+            caps.setDepthBits(24);
+            drawable = GLDrawableFactory.getFactory(profile)
+                    .createOffscreenAutoDrawable(null, caps, null, VIEWPORT, VIEWPORT);
+        } catch (GLException e) {
+            System.err.println("No offscreen GL2 context, skipping draw timing: " + e.getMessage());
+            return;
+        }
+        drawable.addGLEventListener(new TimingListener(meshes, drawsPerFrame, frames));
+        drawable.display();
+        drawable.destroy();
+    }
+
+    private static SphereMesh matchCube(double target) {
+        for (int n = 1; ; n++) {
+            SphereMesh mesh = SphereMesh.cube(n);
+            if (mesh.maxSurfaceError() <= target) {
+                return mesh;
+            }
+        }
+    }
+
+    private static SphereMesh matchIcosphere(double target) {
+        for (int n = 0; ; n++) {
+            SphereMesh mesh = SphereMesh.icosphere(n);
+            if (mesh.maxSurfaceError() <= target) {
+                return mesh;
+            }
+        }
+    }
+
+    private static final class TimingListener implements GLEventListener {
+        private final SphereMesh[] meshes;
+        private final int drawsPerFrame;
+        private final int frames;
+
+        TimingListener(SphereMesh[] meshes, int drawsPerFrame, int frames) {
+            this.meshes = meshes;
+            this.drawsPerFrame = drawsPerFrame;
+            this.frames = frames;
+        }
+
+        @Override
+        public void init(GLAutoDrawable drawable) {
+            GL2 gl = drawable.getGL().getGL2();
+            gl.glEnable(GL2.GL_DEPTH_TEST);
+            gl.glEnable(GL2.GL_CULL_FACE);
+            gl.glEnable(GL2.GL_LIGHTING);
+            gl.glEnable(GL2.GL_LIGHT0);
+            gl.glMatrixMode(GL2.GL_PROJECTION);
+            gl.glLoadIdentity();
+            gl.glOrtho(-1.5, 1.5, -1.5, 1.5, -2.0, 2.0);
+            gl.glMatrixMode(GL2.GL_MODELVIEW);
+            gl.glLoadIdentity();
+            for (SphereMesh mesh : meshes) {
+                mesh.upload(gl);
+            }
+        }
+
+        @Override
+        public void display(GLAutoDrawable drawable) {
+            GL2 gl = drawable.getGL().getGL2();
+            System.out.printf("%n%-16s %14s %16s%n", "mesh", "ms / frame", "Mtris / s");
+            for (SphereMesh mesh : meshes) {
+                // Warm up driver-side state before timing
+                renderFrame(gl, mesh);
+                renderFrame(gl, mesh);
+
+                long start = System.nanoTime();
+                for (int f = 0; f < frames; f++) {
+                    renderFrame(gl, mesh);
+                }
+                double ms = (System.nanoTime() - start) / 1e6 / frames;
+                double mtris = (double) mesh.triangleCount() * drawsPerFrame / (ms * 1e3);
+                System.out.printf("%-16s %14.3f %16.1f%n", mesh.name(), ms, mtris);
+            }
+        }
+
+        private void renderFrame(GL2 gl, SphereMesh mesh) {
+            gl.glClear(GL2.GL_COLOR_BUFFER_BIT | GL2.GL_DEPTH_BUFFER_BIT);
+            for (int i = 0; i < drawsPerFrame; i++) {
+                mesh.draw(gl, false);
+            }
+            gl.glFinish();
+        }
+
+        @Override
+        public void dispose(GLAutoDrawable drawable) {
+            GL2 gl = drawable.getGL().getGL2();
+            for (SphereMesh mesh : meshes) {
+                mesh.dispose(gl);
+            }
+        }
+
+        @Override
+        public void reshape(GLAutoDrawable drawable, int x, int y, int width, int height) {
+        }
+    }
+}
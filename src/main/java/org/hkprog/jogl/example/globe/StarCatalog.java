@@ -0,0 +1,285 @@
+package org.hkprog.jogl.example.globe;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A star catalog converted once into a compact binary sorted from the
+ * brightest star down, so the first N records are always the N brightest
+ * and any prefix of the file is a complete sky at a fainter limit.
+ *
+ * Each record is {@value #RECORD_BYTES} bytes, ready to be handed to
+ * glBufferData as interleaved vertex data: a float unit vector in the
+ * inertial frame (Z north, X towards the March equinox, the frame
+ * {@link org.hkprog.jogl.example.sim.Ephemeris} uses) and RGBA bytes holding
+ * the star's color scaled by its brightness. The magnitudes follow the
+ * records as one float per star, for reporting the limit a prefix reaches.
+ *
+ * The source is a CSV with a header row naming at least {@code ra} (hours),
+ * {@code dec} (degrees) and {@code mag}, and optionally {@code ci}, the B-V
+ * color index, as in the HYG database. The converted file goes to a cache
+ * directory (see {@value #CACHE_DIR_PROPERTY}) under a name carrying the
+ * source's size and modification time, and later runs memory-map it. A
+ * {@code .stars} file is mapped directly.
+ */
+public final class StarCatalog {
+
+    /** Directory for converted catalogs; defaults to {@code ~/.cache/jogl-example/stars}. */
+    public static final String CACHE_DIR_PROPERTY = "stars.cache.dir";
+
+    public static final int RECORD_BYTES = 16;
+    public static final String EXTENSION = ".stars";
+
+    // Magnitudes drawn at full and at the faintest intensity
+    private static final float BRIGHT_MAG = 0.0f;
+    private static final float FAINT_MAG = 8.0f;
+    private static final float MIN_INTENSITY = 0.12f;
+    // Brighter than any star but the Sun, which HYG lists as its first row
+    private static final float SUN_MAG = -5.0f;
+
+    private static final int MAGIC = 0x52415453; // "STAR"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private final ByteBuffer records;
+    private final ByteBuffer magnitudes;
+    private final int count;
+
+    private StarCatalog(ByteBuffer file, int count) {
+        this.count = count;
+        this.records = file.slice(HEADER_BYTES, count * RECORD_BYTES);
+        this.magnitudes = file.slice(HEADER_BYTES + count * RECORD_BYTES, count * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** Maps the converted form of {@code source}, converting and caching it first if needed; null on failure. */
+    public static StarCatalog load(Path source) {
+        if (source.getFileName().toString().endsWith(EXTENSION)) {
+            StarCatalog catalog = map(source);
+            if (catalog == null) {
+                System.err.println("Not a star catalog: " + source);
+            }
+            return catalog;
+        }
+
+        Path cacheFile;
+        try {
+            String name = source.getFileName().toString().replaceFirst("\\.[^.]*$", "");
+            cacheFile = cacheDirectory().resolve(String.format("%s-%x-%x-v%d%s", name, Files.size(source),
+                    Files.getLastModifiedTime(source).toMillis(), VERSION, EXTENSION));
+        } catch (IOException e) {
+            System.err.println("Failed to read star catalog " + source + " - " + e.getMessage());
+            return null;
+        }
+        if (Files.isRegularFile(cacheFile)) {
+            StarCatalog catalog = map(cacheFile);
+            if (catalog != null) {
+                return catalog;
+            }
+            System.err.println("Ignoring stale star cache: " + cacheFile);
+        }
+
+        long start = System.nanoTime();
+        ByteBuffer file;
+        try {
+            file = convert(source);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to convert star catalog " + source + " - " + e.getMessage());
+            return null;
+        }
+        int count = file.getInt(8);
+        System.out.printf("Converted %d stars from %s in %.0f ms%n", count, source, (System.nanoTime() - start) / 1e6);
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tmp = Files.createTempFile(cacheFile.getParent(), "stars", ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (file.hasRemaining()) {
+                    channel.write(file);
+                }
+            }
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to cache star catalog to " + cacheFile + " - " + e.getMessage());
+        }
+        return new StarCatalog(file.rewind(), count);
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /** The first {@code n} records, brightest first, as a direct buffer for glBufferData. */
+    public ByteBuffer records(int n) {
+        return records.slice(0, n * RECORD_BYTES);
+    }
+
+    /** Magnitude of the faintest of the first {@code n} stars. */
+    public float limitingMagnitude(int n) {
+        return n <= 0 ? Float.NaN : magnitudes.getFloat((n - 1) * Float.BYTES);
+    }
+
+    private static Path cacheDirectory() {
+        String dir = System.getProperty(CACHE_DIR_PROPERTY);
+        return dir != null ? Paths.get(dir) : Paths.get(System.getProperty("user.home"), ".cache", "jogl-example", "stars");
+    }
+
+    /** Returns null if the file isn't a complete catalog of this version. */
+    private static StarCatalog map(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+                return null;
+            }
+            int count = mapped.getInt(8);
+            if (count < 0 || channel.size() != HEADER_BYTES + (long) count * (RECORD_BYTES + Float.BYTES)) {
+                return null;
+            }
+            return new StarCatalog(mapped, count);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to map star catalog " + file + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    // ---- Conversion ----
+
+    private static ByteBuffer convert(Path source) throws IOException {
+        float[] ra = new float[1 << 16];
+        float[] dec = new float[ra.length];
+        float[] mag = new float[ra.length];
+        float[] ci = new float[ra.length];
+        int n = 0;
+        try (BufferedReader in = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            String header = in.readLine();
+            if (header == null) {
+                throw new IOException("empty file");
+            }
+            String[] names = header.split(",");
+            int raColumn = column(names, "ra");
+            int decColumn = column(names, "dec");
+            int magColumn = column(names, "mag");
+            int ciColumn = column(names, "ci");
+            if (raColumn < 0 || decColumn < 0 || magColumn < 0) {
+                throw new IOException("header needs ra, dec and mag columns");
+            }
+            String[] fields = new String[names.length];
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (split(line, fields) <= Math.max(raColumn, Math.max(decColumn, magColumn))) {
+                    continue;
+                }
+                float m = parse(fields[magColumn]);
+                if (!(m > SUN_MAG)) {
+                    continue;
+                }
+                if (n == ra.length) {
+                    ra = Arrays.copyOf(ra, n * 2);
+                    dec = Arrays.copyOf(dec, n * 2);
+                    mag = Arrays.copyOf(mag, n * 2);
+                    ci = Arrays.copyOf(ci, n * 2);
+                }
+                ra[n] = parse(fields[raColumn]);
+                dec[n] = parse(fields[decColumn]);
+                mag[n] = m;
+                ci[n] = ciColumn >= 0 && fields[ciColumn] != null ? parse(fields[ciColumn]) : Float.NaN;
+                if (!Float.isNaN(ra[n]) && !Float.isNaN(dec[n])) {
+                    n++;
+                }
+            }
+        }
+
+        // Magnitude in the high half, row in the low, so one primitive sort orders the rows
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) {
+            int bits = Float.floatToIntBits(mag[i]);
+            bits ^= (bits >> 31) & 0x7FFFFFFF;
+            order[i] = (long) bits << 32 | i;
+        }
+        Arrays.parallelSort(order);
+
+        ByteBuffer file = ByteBuffer.allocateDirect(HEADER_BYTES + n * (RECORD_BYTES + Float.BYTES))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        file.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0);
+        int magnitudeOffset = HEADER_BYTES + n * RECORD_BYTES;
+        for (int k = 0; k < n; k++) {
+            int i = (int) order[k];
+            double alpha = Math.toRadians(ra[i] * 15.0);
+            double delta = Math.toRadians(dec[i]);
+            file.putFloat((float) (Math.cos(delta) * Math.cos(alpha)))
+                    .putFloat((float) (Math.cos(delta) * Math.sin(alpha)))
+                    .putFloat((float) Math.sin(delta))
+                    .putInt(color(mag[i], ci[i]));
+            file.putFloat(magnitudeOffset + k * Float.BYTES, mag[i]);
+        }
+        return file.rewind();
+    }
+
+    private static int column(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].trim().replace("\"", "").equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Splits on commas into {@code fields}, no quoting; returns how many were filled. */
+    private static int split(String line, String[] fields) {
+        Arrays.fill(fields, null);
+        int n = 0;
+        int start = 0;
+        while (n < fields.length) {
+            int end = line.indexOf(',', start);
+            fields[n++] = end < 0 ? line.substring(start) : line.substring(start, end);
+            if (end < 0) {
+                break;
+            }
+            start = end + 1;
+        }
+        return n;
+    }
+
+    private static float parse(String field) {
+        String s = field.trim();
+        if (s.isEmpty()) {
+            return Float.NaN;
+        }
+        try {
+            return Float.parseFloat(s);
+        } catch (NumberFormatException e) {
+            return Float.NaN;
+        }
+    }
+
+    /** RGBA bytes, in memory order, for a star's color index scaled by its brightness. */
+    static int color(float mag, float bv) {
+        // Ballesteros' B-V to temperature, then a blackbody fit per channel; no index reads as the Sun's
+        double b = Float.isNaN(bv) ? 0.65 : Math.max(-0.4, Math.min(2.0, bv));
+        double kelvin = 4600.0 * (1.0 / (0.92 * b + 1.7) + 1.0 / (0.92 * b + 0.62));
+        double t = kelvin / 100.0;
+        double r = t <= 66.0 ? 1.0 : 1.2930 * Math.pow(t - 60.0, -0.1332);
+        double g = t <= 66.0 ? 0.3901 * Math.log(t) - 0.6318 : 1.1299 * Math.pow(t - 60.0, -0.0755);
+        double bl = t >= 66.0 ? 1.0 : t <= 19.0 ? 0.0 : 0.5432 * Math.log(t - 10.0) - 1.1963;
+
+        double intensity = Math.max(MIN_INTENSITY, Math.min(1.0, (FAINT_MAG - mag) / (FAINT_MAG - BRIGHT_MAG)));
+        return channel(r * intensity) | channel(g * intensity) << 8 | channel(bl * intensity) << 16 | 0xFF << 24;
+    }
+
+    private static int channel(double value) {
+        return (int) Math.round(Math.max(0.0, Math.min(1.0, value)) * 255.0);
+    }
+}
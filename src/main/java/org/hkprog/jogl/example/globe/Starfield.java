@@ -0,0 +1,179 @@
+package org.hkprog.jogl.example.globe;
+
+import com.jogamp.opengl.GL2;
+import org.hkprog.jogl.example.render.GpuResources;
+
+import java.nio.file.Paths;
+
+/**
+ * A {@link StarCatalog} drawn as the sky background: one static vertex
+ * buffer of points, uploaded straight from the memory-mapped file, and one
+ * draw call a frame.
+ *
+ * Because the catalog is sorted brightest first, the level of detail is
+ * just how many of the buffer's points are drawn. Where timer queries are
+ * available the draw is timed on the GPU, a frame or two behind so it never
+ * stalls, and the count is steered towards {@value #BUDGET_PROPERTY}; the
+ * faintest stars are the first to go when the budget is exceeded.
+ *
+ * Draw it before anything else in the frame, with the rotation from the
+ * inertial frame to the view and no translation: the points sit on the unit
+ * sphere and write no depth.
+ */
+public final class Starfield {
+
+    /** System property naming the catalog (CSV or converted {@code .stars}); the starfield is off when unset. */
+    public static final String CATALOG_PROPERTY = "stars.catalog";
+    /** Most stars uploaded; the GPU buffer holds the brightest this many. */
+    public static final String MAX_STARS_PROPERTY = "stars.max";
+    /** GPU milliseconds per frame the starfield may spend. */
+    public static final String BUDGET_PROPERTY = "stars.budget.ms";
+
+    private static final int DEFAULT_MAX_STARS = 1 << 20;
+    private static final double DEFAULT_BUDGET_MS = 0.5;
+    private static final int MIN_STARS = 2_000;
+    // Fraction of the way to the budget's count taken per measurement
+    private static final double STEER = 0.25;
+
+    private final StarCatalog catalog;
+    private final int uploaded;
+    private final double budgetNanos;
+    private int buffer;
+    private int drawn;
+    private int query;
+    private boolean queryPending;
+    private int queriedCount;
+    private final int[] available = new int[1];
+    private final long[] elapsed = new long[1];
+
+    private Starfield(StarCatalog catalog, int maxStars, double budgetMs) {
+        this.catalog = catalog;
+        this.uploaded = Math.min(catalog.count(), Math.max(maxStars, 1));
+        this.budgetNanos = budgetMs * 1e6;
+        this.drawn = uploaded;
+    }
+
+    /** The starfield in {@link #CATALOG_PROPERTY}, or {@code null} if it is unset or can't be loaded. */
+    public static Starfield fromSystemProperties() {
+        String file = System.getProperty(CATALOG_PROPERTY);
+        if (file == null || file.isEmpty()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        StarCatalog catalog = StarCatalog.load(Paths.get(file));
+        if (catalog == null || catalog.count() == 0) {
+            return null;
+        }
+        int maxStars = Integer.getInteger(MAX_STARS_PROPERTY, DEFAULT_MAX_STARS);
+        double budgetMs = DEFAULT_BUDGET_MS;
+        String budget = System.getProperty(BUDGET_PROPERTY);
+        if (budget != null) {
+            try {
+                budgetMs = Double.parseDouble(budget);
+            } catch (NumberFormatException e) {
+                System.err.println("Ignoring " + BUDGET_PROPERTY + "=" + budget + ", using " + DEFAULT_BUDGET_MS);
+            }
+        }
+        Starfield starfield = new Starfield(catalog, maxStars, budgetMs);
+        System.out.printf("Stars: %d of %d from %s, down to magnitude %.1f, %.0f ms%n", starfield.uploaded,
+                catalog.count(), file, catalog.limitingMagnitude(starfield.uploaded), (System.nanoTime() - start) / 1e6);
+        return starfield;
+    }
+
+    public void init(GL2 gl) {
+        int[] ids = new int[1];
+        gl.glGenBuffers(1, ids, 0);
+        buffer = ids[0];
+        long bytes = (long) uploaded * StarCatalog.RECORD_BYTES;
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, buffer);
+        gl.glBufferData(GL2.GL_ARRAY_BUFFER, bytes, catalog.records(uploaded), GL2.GL_STATIC_DRAW);
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, 0);
+        GpuResources.shared().track(GpuResources.Kind.BUFFER, buffer, bytes, "starfield");
+
+        if (gl.isExtensionAvailable("GL_ARB_timer_query")) {
+            gl.glGenQueries(1, ids, 0);
+            query = ids[0];
+        }
+    }
+
+    /** Stars drawn last frame. */
+    public int drawnCount() {
+        return drawn;
+    }
+
+    /** Magnitude of the faintest star drawn last frame. */
+    public float limitingMagnitude() {
+        return catalog.limitingMagnitude(drawn);
+    }
+
+    /** Draws the brightest stars the budget allows on the unit sphere in the current modelview. */
+    public void draw(GL2 gl) {
+        if (buffer == 0) {
+            return;
+        }
+        steer(gl);
+        boolean timed = query != 0 && !queryPending;
+        if (timed) {
+            gl.glBeginQuery(GL2.GL_TIME_ELAPSED, query);
+        }
+
+        gl.glPushAttrib(GL2.GL_ENABLE_BIT | GL2.GL_COLOR_BUFFER_BIT | GL2.GL_DEPTH_BUFFER_BIT | GL2.GL_POINT_BIT);
+        gl.glDisable(GL2.GL_LIGHTING);
+        gl.glDisable(GL2.GL_TEXTURE_2D);
+        gl.glDisable(GL2.GL_DEPTH_TEST);
+        gl.glDepthMask(false);
+        // Additive, so close pairs brighten instead of hiding each other
+        gl.glEnable(GL2.GL_BLEND);
+        gl.glBlendFunc(GL2.GL_ONE, GL2.GL_ONE);
+        gl.glEnable(GL2.GL_POINT_SMOOTH);
+        gl.glPointSize(1.5f);
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, buffer);
+        gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+        gl.glEnableClientState(GL2.GL_COLOR_ARRAY);
+        gl.glVertexPointer(3, GL2.GL_FLOAT, StarCatalog.RECORD_BYTES, 0L);
+        gl.glColorPointer(4, GL2.GL_UNSIGNED_BYTE, StarCatalog.RECORD_BYTES, 3L * Float.BYTES);
+        gl.glDrawArrays(GL2.GL_POINTS, 0, drawn);
+        gl.glDisableClientState(GL2.GL_COLOR_ARRAY);
+        gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, 0);
+        gl.glPopAttrib();
+
+        if (timed) {
+            gl.glEndQuery(GL2.GL_TIME_ELAPSED);
+            queryPending = true;
+            queriedCount = drawn;
+        }
+    }
+
+    /** Moves the count towards the budget once the last timing is back; never waits for it. */
+    private void steer(GL2 gl) {
+        if (!queryPending) {
+            return;
+        }
+        gl.glGetQueryObjectiv(query, GL2.GL_QUERY_RESULT_AVAILABLE, available, 0);
+        if (available[0] == 0) {
+            return;
+        }
+        gl.glGetQueryObjectui64v(query, GL2.GL_QUERY_RESULT, elapsed, 0);
+        queryPending = false;
+        if (elapsed[0] <= 0) {
+            return;
+        }
+        double target = queriedCount * budgetNanos / elapsed[0];
+        double next = drawn + STEER * (target - drawn);
+        drawn = (int) Math.max(Math.min(MIN_STARS, uploaded), Math.min(uploaded, next));
+    }
+
+    public void dispose(GL2 gl) {
+        if (query != 0) {
+            gl.glDeleteQueries(1, new int[]{query}, 0);
+            query = 0;
+            queryPending = false;
+        }
+        if (buffer != 0) {
+            GpuResources.shared().free(GpuResources.Kind.BUFFER, buffer);
+            gl.glDeleteBuffers(1, new int[]{buffer}, 0);
+            buffer = 0;
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package org.hkprog.jogl.example.globe;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL2;
+import org.hkprog.jogl.example.render.GlslProgram;
+import org.hkprog.jogl.example.render.GpuResources;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * An animated equirectangular layer (hourly clouds, weather) drawn over
+ * the globe from a directory of same-sized images, played in file-name
+ * order against the simulation clock and looped.
+ *
+ * Frames are decoded ahead of time on background threads into a fixed
+ * ring of {@code prefetch} direct buffers, copied into GL through a pixel
+ * unpack buffer one frame ahead of need, and the two frames either side
+ * of the current time are cross-faded in a shader. CPU memory is the ring
+ * and GPU memory three textures, however long the sequence; if a frame is
+ * late the previous one simply stays up, the render thread never waits on
+ * disk (unless asked to by {@link #update}, for deterministic batch output).
+ *
+ * Images without alpha are treated as bright-on-black: their brightest
+ * channel becomes the opacity.
+ */
+public final class TextureSequence implements AutoCloseable {
+
+    /** System property naming the frame directory; the layer is off when unset. */
+    public static final String DIRECTORY_PROPERTY = "globe.layer.dir";
+    /** Hours of Earth rotation each frame covers; 1 by default. */
+    public static final String FRAME_HOURS_PROPERTY = "globe.layer.frameHours";
+    /** Frames decoded ahead; at least 3, 4 by default. */
+    public static final String PREFETCH_PROPERTY = "globe.layer.prefetch";
+
+    private static final int TEXTURES = 3; // current, next, and the one uploaded ahead
+
+    private static final String VERTEX_SHADER = """
+            #version 120
+            varying vec2 uv;
+            varying float light;
+            void main() {
+                gl_Position = ftransform();
+                uv = gl_MultiTexCoord0.st;
+                vec3 n = normalize(gl_NormalMatrix * gl_Normal);
+                vec4 eye = gl_ModelViewMatrix * gl_Vertex;
+                vec3 l = normalize(gl_LightSource[0].position.xyz - eye.xyz * gl_LightSource[0].position.w);
+                light = min(1.0, gl_LightSource[0].ambient.r + gl_LightSource[0].diffuse.r * max(dot(n, l), 0.0));
+            }
+            """;
+
+    private static final String FRAGMENT_SHADER = """
+            #version 120
+            uniform sampler2D frameA;
+            uniform sampler2D frameB;
+            uniform float blend;
+            varying vec2 uv;
+            varying float light;
+            void main() {
+                vec4 c = mix(texture2D(frameA, uv), texture2D(frameB, uv), blend);
+                gl_FragColor = vec4(c.rgb * light, c.a);
+            }
+            """;
+
+    /** One ring buffer; the render thread assigns it, a decoder fills it. */
+    private static final class Slot {
+        final IntBuffer pixels;
+        volatile long step = Long.MIN_VALUE; // unwrapped playback position the frame was requested for
+        volatile int frame = -1;
+        volatile boolean loading;
+        volatile boolean ready;
+
+        Slot(int pixelCount) {
+            pixels = Buffers.newDirectIntBuffer(pixelCount);
+        }
+    }
+
+    private final List<Path> frames;
+    private final double frameSeconds;
+    private final int width;
+    private final int height;
+    private final Slot[] slots;
+    private final ExecutorService decoders;
+
+    // GL thread only
+    private final int[] textures = new int[TEXTURES];
+    private final int[] textureFrames = {-1, -1, -1};
+    private int pbo;
+    private GlslProgram program;
+    private int frameALocation = -1;
+    private int frameBLocation = -1;
+    private int blendLocation = -1;
+    private int shownA = -1;
+    private int shownB = -1;
+    private float shownBlend;
+
+    public TextureSequence(List<Path> frames, double frameSeconds, int width, int height, int prefetch) {
+        this.frames = frames;
+        this.frameSeconds = frameSeconds;
+        this.width = width;
+        this.height = height;
+        this.slots = new Slot[prefetch];
+        for (int i = 0; i < prefetch; i++) {
+            slots[i] = new Slot(width * height);
+        }
+        this.decoders = Executors.newFixedThreadPool(Math.min(2, prefetch), r -> {
+            Thread t = new Thread(r, "layer-decoder");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * The sequence in {@link #DIRECTORY_PROPERTY}, or {@code null} if it is
+     * unset or holds no readable images. {@code secondsPerHour} is how much
+     * simulation time one hour of Earth rotation takes.
+     */
+    public static TextureSequence fromSystemProperty(double secondsPerHour) {
+        String dir = System.getProperty(DIRECTORY_PROPERTY);
+        if (dir == null || dir.isEmpty()) {
+            return null;
+        }
+        Path path = Paths.get(dir);
+        List<Path> frames;
+        try (Stream<Path> files = Files.list(path)) {
+            frames = files.filter(TextureSequence::isImage).sorted().toList();
+        } catch (IOException e) {
+            System.err.println("WARNING: Layer directory not readable: " + path + " - " + e.getMessage());
+            return null;
+        }
+        if (frames.isEmpty()) {
+            System.err.println("WARNING: No png or jpg frames in layer directory " + path);
+            return null;
+        }
+        int[] size = imageSize(frames.get(0));
+        if (size == null) {
+            return null;
+        }
+        double hours = Double.parseDouble(System.getProperty(FRAME_HOURS_PROPERTY, "1"));
+        int prefetch = Math.max(TEXTURES, Integer.getInteger(PREFETCH_PROPERTY, 4));
+        System.out.printf("Layer: %d frames of %dx%d from %s, %d prefetched (%.0f MB)%n", frames.size(),
+                size[0], size[1], path, prefetch, prefetch * size[0] * size[1] * 4 / (1024.0 * 1024.0));
+        return new TextureSequence(frames, hours * secondsPerHour, size[0], size[1], prefetch);
+    }
+
+    public void init(GL2 gl) {
+        gl.glGenTextures(TEXTURES, textures, 0);
+        for (int texture : textures) {
+            gl.glBindTexture(GL2.GL_TEXTURE_2D, texture);
+            gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MIN_FILTER, GL2.GL_LINEAR);
+            gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MAG_FILTER, GL2.GL_LINEAR);
+            gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_S, GL2.GL_REPEAT);
+            gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_T, GL2.GL_CLAMP_TO_EDGE);
+            // Storage once; frames only ever replace its contents
+            gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, GL2.GL_RGBA8, width, height, 0,
+                    GL2.GL_BGRA, GL2.GL_UNSIGNED_INT_8_8_8_8_REV, null);
+            GpuResources.shared().track(GpuResources.Kind.TEXTURE, texture, (long) width * height * 4, "layer frame");
+        }
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+        int[] id = new int[1];
+        gl.glGenBuffers(1, id, 0);
+        pbo = id[0];
+        GpuResources.shared().track(GpuResources.Kind.BUFFER, pbo, (long) width * height * 4, "layer upload PBO");
+
+        program = GlslProgram.tryBuild(gl, "layer-blend", VERTEX_SHADER, FRAGMENT_SHADER);
+        if (program != null) {
+            frameALocation = program.uniform(gl, "frameA");
+            frameBLocation = program.uniform(gl, "frameB");
+            blendLocation = program.uniform(gl, "blend");
+        } else {
+            System.err.println("WARNING: Layer blend shader unavailable, frames will switch without fading");
+        }
+        Arrays.fill(textureFrames, -1);
+        shownA = -1;
+        shownB = -1;
+    }
+
+    /**
+     * Queues decodes around {@code simSeconds} and uploads at most one
+     * frame that has arrived. With {@code complete} it instead waits for
+     * and uploads both frames the time needs, so batch and replay output
+     * doesn't depend on decoder timing.
+     */
+    public void update(GL2 gl, double simSeconds, boolean complete) {
+        double position = simSeconds / frameSeconds;
+        double whole = Math.floor(position);
+        long step = (long) whole;
+        int current = Math.floorMod(step, frames.size());
+        int next = (current + 1) % frames.size();
+        // Slots go by unwrapped position, so the window never puts two frames in one slot as playback wraps
+        int window = Math.min(slots.length, frames.size());
+        for (int k = 0; k < window; k++) {
+            request(step + k);
+        }
+
+        for (int k = 0; k < TEXTURES; k++) {
+            int frame = (current + k) % frames.size();
+            if (textureFor(frame) >= 0) {
+                continue;
+            }
+            Slot slot = slots[Math.floorMod(step + k, slots.length)];
+            if (complete && k < 2) {
+                while (slot.step != step + k || slot.loading) {
+                    request(step + k); // no-op until the slot's older decode finishes
+                    Thread.onSpinWait();
+                }
+            }
+            if (slot.step != step + k || !slot.ready) {
+                break; // uploads stay in playback order
+            }
+            upload(gl, slot, freeTexture(current, next));
+            if (!complete || k >= 1) {
+                break;
+            }
+        }
+
+        int a = textureFor(current);
+        int b = textureFor(next);
+        if (a >= 0) {
+            shownA = a;
+            shownB = b >= 0 ? b : a;
+            shownBlend = b >= 0 ? (float) (position - whole) : 0.0f;
+        }
+    }
+
+    /** True once a frame is resident, from then on {@link #frameTexture} and {@link #blend} describe it. */
+    public boolean hasFrame() {
+        return shownA >= 0;
+    }
+
+    /** GL name of the frame at or just before the current time, or the one after it with {@code next}. */
+    public int frameTexture(boolean next) {
+        return textures[next ? shownB : shownA];
+    }
+
+    /** How far the current time is from the first frame toward the next, 0 to 1. */
+    public float blend() {
+        return shownBlend;
+    }
+
+    /** Draws the layer on {@code mesh}, a {@link SphereMesh#uv} sphere, in the current modelview; nothing until a frame has arrived. */
+    public void draw(GL2 gl, SphereMesh mesh) {
+        if (shownA < 0) {
+            return;
+        }
+        gl.glPushAttrib(GL2.GL_ENABLE_BIT | GL2.GL_COLOR_BUFFER_BIT | GL2.GL_DEPTH_BUFFER_BIT | GL2.GL_TEXTURE_BIT);
+        gl.glEnable(GL2.GL_BLEND);
+        gl.glBlendFunc(GL2.GL_SRC_ALPHA, GL2.GL_ONE_MINUS_SRC_ALPHA);
+        gl.glDepthMask(false);
+        if (program != null) {
+            gl.glActiveTexture(GL2.GL_TEXTURE1);
+            gl.glBindTexture(GL2.GL_TEXTURE_2D, textures[shownB]);
+            gl.glActiveTexture(GL2.GL_TEXTURE0);
+            gl.glBindTexture(GL2.GL_TEXTURE_2D, textures[shownA]);
+            program.use(gl);
+            gl.glUniform1i(frameALocation, 0);
+            gl.glUniform1i(frameBLocation, 1);
+            gl.glUniform1f(blendLocation, shownBlend);
+            mesh.draw(gl, false);
+            GlslProgram.useNone(gl);
+            gl.glActiveTexture(GL2.GL_TEXTURE1);
+            gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+            gl.glActiveTexture(GL2.GL_TEXTURE0);
+        } else {
+            gl.glEnable(GL2.GL_TEXTURE_2D);
+            gl.glBindTexture(GL2.GL_TEXTURE_2D, textures[shownBlend < 0.5f ? shownA : shownB]);
+            mesh.draw(gl, false);
+        }
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+        gl.glPopAttrib();
+    }
+
+    private void request(long step) {
+        Slot slot = slots[Math.floorMod(step, slots.length)];
+        if (slot.step == step || slot.loading) {
+            return; // already there or on its way, or the slot is still busy with an older frame
+        }
+        int frame = Math.floorMod(step, frames.size());
+        slot.ready = false;
+        slot.step = step;
+        slot.frame = frame;
+        slot.loading = true;
+        decoders.execute(() -> {
+            slot.ready = decode(frames.get(frame), slot.pixels);
+            slot.loading = false;
+        });
+    }
+
+    private boolean decode(Path file, IntBuffer target) {
+        BufferedImage image;
+        try {
+            image = ImageIO.read(file.toFile());
+        } catch (IOException e) {
+            System.err.println("Failed to load layer frame: " + file + " - " + e.getMessage());
+            return false;
+        }
+        if (image == null) {
+            System.err.println("Failed to load layer frame: " + file + " (unsupported image)");
+            return false;
+        }
+        if (image.getWidth() != width || image.getHeight() != height) {
+            BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = scaled.createGraphics();
+            g.drawImage(image, 0, 0, width, height, null);
+            g.dispose();
+            image = scaled;
+        }
+        boolean alpha = image.getColorModel().hasAlpha();
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            if (!alpha) {
+                for (int x = 0; x < width; x++) {
+                    int p = row[x];
+                    int opacity = Math.max((p >> 16) & 0xFF, Math.max((p >> 8) & 0xFF, p & 0xFF));
+                    row[x] = (opacity << 24) | (p & 0xFFFFFF);
+                }
+            }
+            // Rows in image order, the same way the Earth texture is uploaded
+            target.put(y * width, row);
+        }
+        return true;
+    }
+
+    private void upload(GL2 gl, Slot slot, int texture) {
+        long bytes = (long) width * height * 4;
+        gl.glBindBuffer(GL2.GL_PIXEL_UNPACK_BUFFER, pbo);
+        // Orphan first so the copy never waits for the previous transfer
+        gl.glBufferData(GL2.GL_PIXEL_UNPACK_BUFFER, bytes, null, GL2.GL_STREAM_DRAW);
+        ByteBuffer mapped = gl.glMapBuffer(GL2.GL_PIXEL_UNPACK_BUFFER, GL2.GL_WRITE_ONLY);
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, textures[texture]);
+        if (mapped != null) {
+            mapped.order(slot.pixels.order()).asIntBuffer().put(slot.pixels.duplicate().clear());
+            gl.glUnmapBuffer(GL2.GL_PIXEL_UNPACK_BUFFER);
+            gl.glTexSubImage2D(GL2.GL_TEXTURE_2D, 0, 0, 0, width, height,
+                    GL2.GL_BGRA, GL2.GL_UNSIGNED_INT_8_8_8_8_REV, 0L);
+            gl.glBindBuffer(GL2.GL_PIXEL_UNPACK_BUFFER, 0);
+        } else {
+            gl.glBindBuffer(GL2.GL_PIXEL_UNPACK_BUFFER, 0);
+            gl.glTexSubImage2D(GL2.GL_TEXTURE_2D, 0, 0, 0, width, height,
+                    GL2.GL_BGRA, GL2.GL_UNSIGNED_INT_8_8_8_8_REV, slot.pixels.duplicate().clear());
+        }
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+        textureFrames[texture] = slot.frame;
+    }
+
+    private int textureFor(int frame) {
+        for (int i = 0; i < TEXTURES; i++) {
+            if (textureFrames[i] == frame) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** A texture holding neither the current nor the next frame, preferring an empty one. */
+    private int freeTexture(int current, int next) {
+        int free = -1;
+        for (int i = 0; i < TEXTURES; i++) {
+            int frame = textureFrames[i];
+            if (frame < 0) {
+                return i;
+            }
+            if (frame != current && frame != next && free < 0) {
+                free = i;
+            }
+        }
+        return free;
+    }
+
+    public void dispose(GL2 gl) {
+        for (int texture : textures) {
+            GpuResources.shared().free(GpuResources.Kind.TEXTURE, texture);
+        }
+        gl.glDeleteTextures(TEXTURES, textures, 0);
+        GpuResources.shared().free(GpuResources.Kind.BUFFER, pbo);
+        gl.glDeleteBuffers(1, new int[]{pbo}, 0);
+        pbo = 0;
+        if (program != null) {
+            program.dispose(gl);
+            program = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        decoders.shutdownNow();
+    }
+
+    private static boolean isImage(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg");
+    }
+
+    /** Reads just the header of {@code file}; null after printing why if it can't. */
+    private static int[] imageSize(Path file) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                System.err.println("WARNING: Unsupported layer frame: " + file);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in);
+                return new int[] {reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            System.err.println("WARNING: Unreadable layer frame: " + file + " - " + e.getMessage());
+            return null;
+        }
+    }
+}
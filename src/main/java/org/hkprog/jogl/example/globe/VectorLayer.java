@@ -0,0 +1,421 @@
+package org.hkprog.jogl.example.globe;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL2;
+import org.hkprog.jogl.example.render.GpuResources;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Coastlines, borders and other geographic polylines drawn on the unit
+ * sphere, with a Douglas–Peucker simplification per zoom level.
+ *
+ * At load time every polyline is simplified at each of {@link #TOLERANCES_RAD}
+ * in parallel, measuring a point's deviation as its angle off the great
+ * circle through the span's ends. {@link #draw} picks the coarsest level
+ * whose tolerance stays under a pixel at the given scale and keeps each
+ * level as its own static vertex and index buffer, uploaded the first
+ * time it is picked: the full-resolution level only reaches the GPU once
+ * the camera is close enough to need it.
+ *
+ * Two file formats are read, chosen by extension:
+ * <ul>
+ *   <li>{@code .geojson} / {@code .json} – the {@code coordinates} of every
+ *       LineString, MultiLineString, Polygon and MultiPolygon, rings as
+ *       closed lines;</li>
+ *   <li>anything else – big-endian binary: a polyline count, then per
+ *       polyline a point count and that many float longitude/latitude
+ *       pairs in degrees.</li>
+ * </ul>
+ * Positions use the Earth texture's frame: Z north, longitude 0 on -Y and
+ * 90°E on +X.
+ */
+public final class VectorLayer {
+
+    /** System property naming the polyline file; the layer is off when unset. */
+    public static final String FILE_PROPERTY = "globe.vector.file";
+
+    /** Simplification per level, finest first; 0 keeps every point. */
+    public static final double[] TOLERANCES_RAD = {0.0, 1e-4, 4e-4, 1.6e-3, 6.4e-3};
+
+    private static final double MAX_ERROR_PIXELS = 1.0;
+
+    /** One simplification; its buffers exist once it has been drawn. */
+    private static final class Level {
+        final float[] vertices;
+        final int[] indices;
+        int vertexBuffer;
+        int indexBuffer;
+
+        Level(float[] vertices, int[] indices) {
+            this.vertices = vertices;
+            this.indices = indices;
+        }
+    }
+
+    private final Level[] levels;
+
+    private VectorLayer(Level[] levels) {
+        this.levels = levels;
+    }
+
+    /**
+     * The layer in {@link #FILE_PROPERTY}, simplified and ready to draw, or
+     * {@code null} if it is unset, unreadable or holds no polylines.
+     */
+    public static VectorLayer fromSystemProperty() {
+        String file = System.getProperty(FILE_PROPERTY);
+        if (file == null || file.isEmpty()) {
+            return null;
+        }
+        Path path = Paths.get(file);
+        long start = System.nanoTime();
+        List<double[]> polylines;
+        try {
+            String name = path.getFileName().toString().toLowerCase();
+            polylines = name.endsWith(".geojson") || name.endsWith(".json") ? readGeoJson(path) : readBinary(path);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to load vector layer: " + path + " - " + e.getMessage());
+            return null;
+        }
+        if (polylines.isEmpty()) {
+            System.err.println("WARNING: No polylines in vector layer " + path);
+            return null;
+        }
+        VectorLayer layer = simplified(polylines);
+        StringBuilder points = new StringBuilder();
+        for (Level level : layer.levels) {
+            points.append(points.length() == 0 ? "" : " / ").append(level.vertices.length / 3);
+        }
+        System.out.printf("Vectors: %d polylines from %s, %s points per level, %.0f ms%n",
+                polylines.size(), path, points, (System.nanoTime() - start) / 1e6);
+        return layer;
+    }
+
+    /** Builds every level from polylines of packed longitude/latitude pairs in degrees. */
+    public static VectorLayer simplified(List<double[]> polylines) {
+        double[][] unit = polylines.parallelStream().map(VectorLayer::toUnitVectors).toArray(double[][]::new);
+        Level[] levels = new Level[TOLERANCES_RAD.length];
+        for (int l = 0; l < levels.length; l++) {
+            double tolerance = TOLERANCES_RAD[l];
+            int[][] kept = IntStream.range(0, unit.length).parallel()
+                    .mapToObj(p -> simplify(unit[p], tolerance))
+                    .toArray(int[][]::new);
+            levels[l] = pack(unit, kept);
+        }
+        return new VectorLayer(levels);
+    }
+
+    public int levelCount() {
+        return levels.length;
+    }
+
+    /** Points kept at {@code level}. */
+    public int pointCount(int level) {
+        return levels[level].vertices.length / 3;
+    }
+
+    /** The coarsest level whose tolerance is within a pixel at {@code pixelsPerRadian} on the surface. */
+    public int levelFor(double pixelsPerRadian) {
+        for (int l = levels.length - 1; l > 0; l--) {
+            if (TOLERANCES_RAD[l] * pixelsPerRadian <= MAX_ERROR_PIXELS) {
+                return l;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Draws the lines on the unit sphere in the current modelview, unlit,
+     * at the level for {@code pixelsPerRadian}; returns that level.
+     */
+    public int draw(GL2 gl, double pixelsPerRadian) {
+        int l = levelFor(pixelsPerRadian);
+        Level level = levels[l];
+        if (level.indices.length == 0) {
+            return l;
+        }
+        if (level.vertexBuffer == 0) {
+            upload(gl, level, l);
+        }
+        gl.glPushAttrib(GL2.GL_ENABLE_BIT | GL2.GL_LINE_BIT | GL2.GL_CURRENT_BIT);
+        gl.glDisable(GL2.GL_LIGHTING);
+        gl.glDisable(GL2.GL_TEXTURE_2D);
+        gl.glColor3f(0.95f, 0.85f, 0.4f);
+        gl.glLineWidth(1.0f);
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, level.vertexBuffer);
+        gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+        gl.glVertexPointer(3, GL2.GL_FLOAT, 0, 0L);
+        gl.glBindBuffer(GL2.GL_ELEMENT_ARRAY_BUFFER, level.indexBuffer);
+        gl.glDrawElements(GL2.GL_LINES, level.indices.length, GL2.GL_UNSIGNED_INT, 0L);
+        gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+        gl.glBindBuffer(GL2.GL_ELEMENT_ARRAY_BUFFER, 0);
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, 0);
+        gl.glPopAttrib();
+        return l;
+    }
+
+    private static void upload(GL2 gl, Level level, int l) {
+        int[] ids = new int[2];
+        gl.glGenBuffers(2, ids, 0);
+        level.vertexBuffer = ids[0];
+        level.indexBuffer = ids[1];
+        long vertexBytes = (long) level.vertices.length * Buffers.SIZEOF_FLOAT;
+        long indexBytes = (long) level.indices.length * Buffers.SIZEOF_INT;
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, level.vertexBuffer);
+        gl.glBufferData(GL2.GL_ARRAY_BUFFER, vertexBytes, Buffers.newDirectFloatBuffer(level.vertices), GL2.GL_STATIC_DRAW);
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, 0);
+        gl.glBindBuffer(GL2.GL_ELEMENT_ARRAY_BUFFER, level.indexBuffer);
+        gl.glBufferData(GL2.GL_ELEMENT_ARRAY_BUFFER, indexBytes, Buffers.newDirectIntBuffer(level.indices), GL2.GL_STATIC_DRAW);
+        gl.glBindBuffer(GL2.GL_ELEMENT_ARRAY_BUFFER, 0);
+        GpuResources registry = GpuResources.shared();
+        registry.track(GpuResources.Kind.BUFFER, level.vertexBuffer, vertexBytes, "vector level " + l + " positions");
+        registry.track(GpuResources.Kind.BUFFER, level.indexBuffer, indexBytes, "vector level " + l + " indices");
+    }
+
+    public void dispose(GL2 gl) {
+        for (Level level : levels) {
+            if (level.vertexBuffer == 0) {
+                continue;
+            }
+            GpuResources.shared().free(GpuResources.Kind.BUFFER, level.vertexBuffer);
+            GpuResources.shared().free(GpuResources.Kind.BUFFER, level.indexBuffer);
+            gl.glDeleteBuffers(2, new int[]{level.vertexBuffer, level.indexBuffer}, 0);
+            level.vertexBuffer = 0;
+            level.indexBuffer = 0;
+        }
+    }
+
+    private static double[] toUnitVectors(double[] lonLat) {
+        int n = lonLat.length / 2;
+        double[] unit = new double[n * 3];
+        for (int i = 0; i < n; i++) {
+            double lon = Math.toRadians(lonLat[2 * i]);
+            double lat = Math.toRadians(lonLat[2 * i + 1]);
+            unit[3 * i] = Math.cos(lat) * Math.sin(lon);
+            unit[3 * i + 1] = -Math.cos(lat) * Math.cos(lon);
+            unit[3 * i + 2] = Math.sin(lat);
+        }
+        return unit;
+    }
+
+    /** Indices of the points Douglas–Peucker keeps at {@code tolerance}, in order; every point at 0. */
+    private static int[] simplify(double[] unit, double tolerance) {
+        int n = unit.length / 3;
+        if (tolerance <= 0.0 || n <= 2) {
+            return IntStream.range(0, n).toArray();
+        }
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        // Spans still to split, as first/last pairs; an explicit stack, since coastlines run to 10⁵ points
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        int kept = 2;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            int a = 3 * first, b = 3 * last;
+            // Normal of the great circle through the ends; a closed ring's ends coincide, so measure from the ends
+            double nx = unit[a + 1] * unit[b + 2] - unit[a + 2] * unit[b + 1];
+            double ny = unit[a + 2] * unit[b] - unit[a] * unit[b + 2];
+            double nz = unit[a] * unit[b + 1] - unit[a + 1] * unit[b];
+            double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            boolean degenerate = length < 1e-12;
+            double ab = unit[a] * unit[b] + unit[a + 1] * unit[b + 1] + unit[a + 2] * unit[b + 2];
+            double farthest = -1.0;
+            int split = -1;
+            for (int i = first + 1; i < last; i++) {
+                int p = 3 * i;
+                double pa = unit[p] * unit[a] + unit[p + 1] * unit[a + 1] + unit[p + 2] * unit[a + 2];
+                double pb = unit[p] * unit[b] + unit[p + 1] * unit[b + 1] + unit[p + 2] * unit[b + 2];
+                double d;
+                // (A×P)·(A×B) and (P×B)·(A×B) both non-negative: P lies over the arc, not just the circle
+                if (!degenerate && pb - ab * pa >= 0.0 && pa - ab * pb >= 0.0) {
+                    d = Math.abs(unit[p] * nx + unit[p + 1] * ny + unit[p + 2] * nz) / length;
+                } else {
+                    // Past an end, or no arc at all: chord to the nearer end, from |P - A|² = 2 - 2 P·A
+                    d = Math.sqrt(Math.max(0.0, 2.0 - 2.0 * Math.max(pa, pb)));
+                }
+                if (d > farthest) {
+                    farthest = d;
+                    split = i;
+                }
+            }
+            // Sine of the angle off the arc, or the chord to an end: the angle itself at these sizes
+            if (split < 0 || farthest <= tolerance) {
+                continue;
+            }
+            keep[split] = true;
+            kept++;
+            if (top + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            stack[top++] = first;
+            stack[top++] = split;
+            stack[top++] = split;
+            stack[top++] = last;
+        }
+        int[] indices = new int[kept];
+        for (int i = 0, k = 0; i < n; i++) {
+            if (keep[i]) {
+                indices[k++] = i;
+            }
+        }
+        return indices;
+    }
+
+    /** One level's float positions and GL_LINES index pairs, polyline after polyline. */
+    private static Level pack(double[][] unit, int[][] kept) {
+        int points = 0;
+        int segments = 0;
+        for (int[] k : kept) {
+            points += k.length;
+            segments += Math.max(0, k.length - 1);
+        }
+        float[] vertices = new float[points * 3];
+        int[] indices = new int[segments * 2];
+        int v = 0;
+        int s = 0;
+        for (int p = 0; p < unit.length; p++) {
+            int base = v;
+            for (int i : kept[p]) {
+                vertices[3 * v] = (float) unit[p][3 * i];
+                vertices[3 * v + 1] = (float) unit[p][3 * i + 1];
+                vertices[3 * v + 2] = (float) unit[p][3 * i + 2];
+                v++;
+            }
+            for (int i = base + 1; i < v; i++) {
+                indices[s++] = i - 1;
+                indices[s++] = i;
+            }
+        }
+        return new Level(vertices, indices);
+    }
+
+    private static List<double[]> readBinary(Path path) throws IOException {
+        List<double[]> polylines = new ArrayList<>();
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            int count = in.readInt();
+            for (int p = 0; p < count; p++) {
+                int n = in.readInt();
+                double[] lonLat = new double[n * 2];
+                for (int i = 0; i < lonLat.length; i++) {
+                    lonLat[i] = in.readFloat();
+                }
+                if (n >= 2) {
+                    polylines.add(lonLat);
+                }
+            }
+        }
+        return polylines;
+    }
+
+    private static List<double[]> readGeoJson(Path path) throws IOException {
+        String json = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        List<double[]> polylines = new ArrayList<>();
+        int at = 0;
+        while ((at = json.indexOf("\"coordinates\"", at)) >= 0) {
+            at = json.indexOf(':', at) + 1;
+            GeoJsonCoordinates reader = new GeoJsonCoordinates(json, at, polylines);
+            reader.value();
+            at = reader.pos;
+        }
+        return polylines;
+    }
+
+    /** Walks one nested {@code coordinates} array: arrays of positions become polylines. */
+    private static final class GeoJsonCoordinates {
+        final String json;
+        final List<double[]> out;
+        int pos;
+
+        GeoJsonCoordinates(String json, int pos, List<double[]> out) {
+            this.json = json;
+            this.pos = pos;
+            this.out = out;
+        }
+
+        /** Reads the array at {@link #pos}; returns its longitude/latitude if it is a position, else null. */
+        double[] value() {
+            skipSpace();
+            expect('[');
+            skipSpace();
+            char c = json.charAt(pos);
+            if (c == '-' || c == '+' || (c >= '0' && c <= '9')) {
+                double lon = number();
+                expect(',');
+                double lat = number();
+                while (json.charAt(pos) != ']') { // altitude and anything else after it
+                    pos++;
+                }
+                pos++;
+                return new double[]{lon, lat};
+            }
+            List<double[]> positions = new ArrayList<>();
+            while (true) {
+                skipSpace();
+                if (json.charAt(pos) == ']') {
+                    pos++;
+                    break;
+                }
+                double[] position = value();
+                if (position != null) {
+                    positions.add(position);
+                }
+                skipSpace();
+                if (json.charAt(pos) == ',') {
+                    pos++;
+                }
+            }
+            if (positions.size() >= 2) {
+                double[] lonLat = new double[positions.size() * 2];
+                for (int i = 0; i < positions.size(); i++) {
+                    lonLat[2 * i] = positions.get(i)[0];
+                    lonLat[2 * i + 1] = positions.get(i)[1];
+                }
+                out.add(lonLat);
+            }
+            return null;
+        }
+
+        private double number() {
+            skipSpace();
+            int start = pos;
+            while ("+-.eE0123456789".indexOf(json.charAt(pos)) >= 0) {
+                pos++;
+            }
+            double value = Double.parseDouble(json.substring(start, pos));
+            skipSpace();
+            return value;
+        }
+
+        private void expect(char c) {
+            skipSpace();
+            if (json.charAt(pos) != c) {
+                throw new IllegalArgumentException("expected '" + c + "' at offset " + pos);
+            }
+            pos++;
+        }
+
+        private void skipSpace() {
+            while (Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+    }
+}
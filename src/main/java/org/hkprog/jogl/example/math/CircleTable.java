@@ -0,0 +1,29 @@
+package org.hkprog.jogl.example.math;
+
+/**
+ * Precomputed cos/sin of {@code segments + 1} evenly spaced angles over an
+ * arc, so per-frame line loops and fans can be emitted without trig calls.
+ * Index {@code segments} repeats the end angle, which closes strips.
+ */
+public final class CircleTable {
+
+    public final int segments;
+    public final float[] cos;
+    public final float[] sin;
+
+    /** Full circle, 0 to 2π. */
+    public CircleTable(int segments) {
+        this(segments, 0.0, 2.0 * Math.PI);
+    }
+
+    public CircleTable(int segments, double startRad, double endRad) {
+        this.segments = segments;
+        this.cos = new float[segments + 1];
+        this.sin = new float[segments + 1];
+        for (int i = 0; i <= segments; i++) {
+            double angle = startRad + (endRad - startRad) * i / segments;
+            cos[i] = (float) Math.cos(angle);
+            sin[i] = (float) Math.sin(angle);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package org.hkprog.jogl.example.math;
+
+/**
+ * Mutable double-precision 4x4 matrix stored column-major in {@link #m}, the
+ * layout expected by {@code glLoadMatrixd}/{@code glMultMatrixd}.
+ * Element (row r, column c) is {@code m[c * 4 + r]}.
+ */
+public final class Mat4d {
+
+    public final double[] m = new double[16];
+
+    public Mat4d() {
+        identity();
+    }
+
+    public Mat4d identity() {
+        double[] a = m;
+        a[0] = 1; a[4] = 0; a[8] = 0;  a[12] = 0;
+        a[1] = 0; a[5] = 1; a[9] = 0;  a[13] = 0;
+        a[2] = 0; a[6] = 0; a[10] = 1; a[14] = 0;
+        a[3] = 0; a[7] = 0; a[11] = 0; a[15] = 1;
+        return this;
+    }
+
+    public Mat4d set(Mat4d other) {
+        System.arraycopy(other.m, 0, m, 0, 16);
+        return this;
+    }
+
+    public Mat4d set(Mat4f other) {
+        for (int i = 0; i < 16; i++) {
+            m[i] = other.m[i];
+        }
+        return this;
+    }
+
+    /** this = a * b; safe when this aliases a or b */
+    public Mat4d mul(Mat4d a, Mat4d b) {
+        double[] x = a.m;
+        double[] y = b.m;
+        double a00 = x[0], a01 = x[4], a02 = x[8],  a03 = x[12];
+        double a10 = x[1], a11 = x[5], a12 = x[9],  a13 = x[13];
+        double a20 = x[2], a21 = x[6], a22 = x[10], a23 = x[14];
+        double a30 = x[3], a31 = x[7], a32 = x[11], a33 = x[15];
+        double[] r = m;
+        for (int c = 0; c < 4; c++) {
+            int o = c * 4;
+            double b0 = y[o], b1 = y[o + 1], b2 = y[o + 2], b3 = y[o + 3];
+            r[o]     = a00 * b0 + a01 * b1 + a02 * b2 + a03 * b3;
+            r[o + 1] = a10 * b0 + a11 * b1 + a12 * b2 + a13 * b3;
+            r[o + 2] = a20 * b0 + a21 * b1 + a22 * b2 + a23 * b3;
+            r[o + 3] = a30 * b0 + a31 * b1 + a32 * b2 + a33 * b3;
+        }
+        return this;
+    }
+
+    public Mat4d translation(double tx, double ty, double tz) {
+        identity();
+        m[12] = tx;
+        m[13] = ty;
+        m[14] = tz;
+        return this;
+    }
+
+    /**
+     * Fused translate * rotate * scale, equivalent to
+     * {@code glTranslatef; glRotatef; glScalef} but without any trig.
+     */
+    public Mat4d composeTRS(double tx, double ty, double tz, Quatd r, double sx, double sy, double sz) {
+        double qx = r.x, qy = r.y, qz = r.z, qw = r.w;
+        double xx = qx * qx, yy = qy * qy, zz = qz * qz;
+        double xy = qx * qy, xz = qx * qz, yz = qy * qz;
+        double wx = qw * qx, wy = qw * qy, wz = qw * qz;
+        double[] a = m;
+        a[0] = (1 - 2 * (yy + zz)) * sx;
+        a[1] = 2 * (xy + wz) * sx;
+        a[2] = 2 * (xz - wy) * sx;
+        a[3] = 0;
+        a[4] = 2 * (xy - wz) * sy;
+        a[5] = (1 - 2 * (xx + zz)) * sy;
+        a[6] = 2 * (yz + wx) * sy;
+        a[7] = 0;
+        a[8] = 2 * (xz + wy) * sz;
+        a[9] = 2 * (yz - wx) * sz;
+        a[10] = (1 - 2 * (xx + yy)) * sz;
+        a[11] = 0;
+        a[12] = tx;
+        a[13] = ty;
+        a[14] = tz;
+        a[15] = 1;
+        return this;
+    }
+
+    public Mat4d composeTRS(Vec3d t, Quatd r, Vec3d s) {
+        return composeTRS(t.x, t.y, t.z, r, s.x, s.y, s.z);
+    }
+
+    /**
+     * Rigid transform that moves the origin to (tx, ty, tz) and turns +Z onto
+     * the direction (dx, dy, dz). Uses only a square root, no trig.
+     */
+    public Mat4d translationAimZ(double tx, double ty, double tz, double dx, double dy, double dz) {
+        double len = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (len == 0.0) {
+            return translation(tx, ty, tz);
+        }
+        double inv = 1.0 / len;
+        double fx = dx * inv, fy = dy * inv, fz = dz * inv;
+        // Pick the world axis least parallel to f as the helper "up"
+        double ux = 0.0, uy = 1.0, uz = 0.0;
+        if (Math.abs(fy) > 0.9) {
+            ux = 1.0;
+            uy = 0.0;
+        }
+        // s = normalize(up × f), u = f × s
+        double sx = uy * fz - uz * fy;
+        double sy = uz * fx - ux * fz;
+        double sz = ux * fy - uy * fx;
+        double sInv = (1.0 / Math.sqrt(sx * sx + sy * sy + sz * sz));
+        sx *= sInv;
+        sy *= sInv;
+        sz *= sInv;
+        double vx = fy * sz - fz * sy;
+        double vy = fz * sx - fx * sz;
+        double vz = fx * sy - fy * sx;
+        double[] a = m;
+        a[0] = sx; a[4] = vx; a[8] = fx;  a[12] = tx;
+        a[1] = sy; a[5] = vy; a[9] = fy;  a[13] = ty;
+        a[2] = sz; a[6] = vz; a[10] = fz; a[14] = tz;
+        a[3] = 0;  a[7] = 0;  a[11] = 0;  a[15] = 1;
+        return this;
+    }
+
+    /** Same matrix as {@code gluLookAt}. */
+    public Mat4d lookAt(double eyeX, double eyeY, double eyeZ,
+                        double centerX, double centerY, double centerZ,
+                        double upX, double upY, double upZ) {
+        double fx = centerX - eyeX, fy = centerY - eyeY, fz = centerZ - eyeZ;
+        double fInv = (1.0 / Math.sqrt(fx * fx + fy * fy + fz * fz));
+        fx *= fInv;
+        fy *= fInv;
+        fz *= fInv;
+        double sx = fy * upZ - fz * upY;
+        double sy = fz * upX - fx * upZ;
+        double sz = fx * upY - fy * upX;
+        double sInv = (1.0 / Math.sqrt(sx * sx + sy * sy + sz * sz));
+        sx *= sInv;
+        sy *= sInv;
+        sz *= sInv;
+        double ux = sy * fz - sz * fy;
+        double uy = sz * fx - sx * fz;
+        double uz = sx * fy - sy * fx;
+        double[] a = m;
+        a[0] = sx;  a[4] = sy;  a[8] = sz;   a[12] = -(sx * eyeX + sy * eyeY + sz * eyeZ);
+        a[1] = ux;  a[5] = uy;  a[9] = uz;   a[13] = -(ux * eyeX + uy * eyeY + uz * eyeZ);
+        a[2] = -fx; a[6] = -fy; a[10] = -fz; a[14] = fx * eyeX + fy * eyeY + fz * eyeZ;
+        a[3] = 0;   a[7] = 0;   a[11] = 0;   a[15] = 1;
+        return this;
+    }
+
+    /** Same matrix as {@code gluPerspective}. */
+    public Mat4d perspective(double fovYDeg, double aspect, double near, double far) {
+        double f = (1.0 / Math.tan(Math.toRadians(fovYDeg) * 0.5));
+        double[] a = m;
+        a[0] = f / aspect; a[4] = 0; a[8] = 0;                            a[12] = 0;
+        a[1] = 0;          a[5] = f; a[9] = 0;                            a[13] = 0;
+        a[2] = 0;          a[6] = 0; a[10] = (far + near) / (near - far); a[14] = 2 * far * near / (near - far);
+        a[3] = 0;          a[7] = 0; a[11] = -1;                          a[15] = 0;
+        return this;
+    }
+
+    /**
+     * Extracts the six clip planes (left, right, bottom, top, near, far) of
+     * this view-projection matrix into {@code out} as normalized
+     * (a, b, c, d) quadruples with normals pointing into the frustum.
+     */
+    public void frustumPlanes(double[] out) {
+        double[] a = m;
+        // Gribb-Hartmann: the fourth row plus or minus each of the first three
+        for (int i = 0; i < 3; i++) {
+            for (int sign = 0; sign < 2; sign++) {
+                double s = sign == 0 ? 1 : -1;
+                int o = (i * 2 + sign) * 4;
+                double pa = a[3] + s * a[i];
+                double pb = a[7] + s * a[4 + i];
+                double pc = a[11] + s * a[8 + i];
+                double pd = a[15] + s * a[12 + i];
+                double inv = (1.0 / Math.sqrt(pa * pa + pb * pb + pc * pc));
+                out[o] = pa * inv;
+                out[o + 1] = pb * inv;
+                out[o + 2] = pc * inv;
+                out[o + 3] = pd * inv;
+            }
+        }
+    }
+
+    /** Transforms the point {@code p} in place (w = 1, affine part only). */
+    public Vec3d transformPoint(Vec3d p) {
+        double[] a = m;
+        double x = p.x, y = p.y, z = p.z;
+        return p.set(a[0] * x + a[4] * y + a[8] * z + a[12],
+                     a[1] * x + a[5] * y + a[9] * z + a[13],
+                     a[2] * x + a[6] * y + a[10] * z + a[14]);
+    }
+
+    /** Transforms the direction {@code d} in place (w = 0). */
+    public Vec3d transformDirection(Vec3d d) {
+        double[] a = m;
+        double x = d.x, y = d.y, z = d.z;
+        return d.set(a[0] * x + a[4] * y + a[8] * z,
+                     a[1] * x + a[5] * y + a[9] * z,
+                     a[2] * x + a[6] * y + a[10] * z);
+    }
+
+    /**
+     * Transforms {@code count} packed xyz points from {@code src} into
+     * {@code dst}. The arrays may be the same when the offsets match.
+     */
+    public void transformPoints(double[] src, int srcOffset, double[] dst, int dstOffset, int count) {
+        double[] a = m;
+        double m0 = a[0], m1 = a[1], m2 = a[2];
+        double m4 = a[4], m5 = a[5], m6 = a[6];
+        double m8 = a[8], m9 = a[9], m10 = a[10];
+        double m12 = a[12], m13 = a[13], m14 = a[14];
+        for (int i = 0; i < count; i++) {
+            int s = srcOffset + i * 3;
+            int d = dstOffset + i * 3;
+            double x = src[s], y = src[s + 1], z = src[s + 2];
+            dst[d]     = m0 * x + m4 * y + m8 * z + m12;
+            dst[d + 1] = m1 * x + m5 * y + m9 * z + m13;
+            dst[d + 2] = m2 * x + m6 * y + m10 * z + m14;
+        }
+    }
+}
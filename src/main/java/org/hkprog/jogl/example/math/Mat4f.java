@@ -0,0 +1,234 @@
+package org.hkprog.jogl.example.math;
+
+/**
+ * Mutable single-precision 4x4 matrix stored column-major in {@link #m}, the
+ * layout expected by {@code glLoadMatrixf}/{@code glMultMatrixf}.
+ * Element (row r, column c) is {@code m[c * 4 + r]}.
+ */
+public final class Mat4f {
+
+    public final float[] m = new float[16];
+
+    public Mat4f() {
+        identity();
+    }
+
+    public Mat4f identity() {
+        float[] a = m;
+        a[0] = 1; a[4] = 0; a[8] = 0;  a[12] = 0;
+        a[1] = 0; a[5] = 1; a[9] = 0;  a[13] = 0;
+        a[2] = 0; a[6] = 0; a[10] = 1; a[14] = 0;
+        a[3] = 0; a[7] = 0; a[11] = 0; a[15] = 1;
+        return this;
+    }
+
+    public Mat4f set(Mat4f other) {
+        System.arraycopy(other.m, 0, m, 0, 16);
+        return this;
+    }
+
+    public Mat4f set(Mat4d other) {
+        for (int i = 0; i < 16; i++) {
+            m[i] = (float) other.m[i];
+        }
+        return this;
+    }
+
+    /** this = a * b; safe when this aliases a or b */
+    public Mat4f mul(Mat4f a, Mat4f b) {
+        float[] x = a.m;
+        float[] y = b.m;
+        float a00 = x[0], a01 = x[4], a02 = x[8],  a03 = x[12];
+        float a10 = x[1], a11 = x[5], a12 = x[9],  a13 = x[13];
+        float a20 = x[2], a21 = x[6], a22 = x[10], a23 = x[14];
+        float a30 = x[3], a31 = x[7], a32 = x[11], a33 = x[15];
+        float[] r = m;
+        for (int c = 0; c < 4; c++) {
+            int o = c * 4;
+            float b0 = y[o], b1 = y[o + 1], b2 = y[o + 2], b3 = y[o + 3];
+            r[o]     = a00 * b0 + a01 * b1 + a02 * b2 + a03 * b3;
+            r[o + 1] = a10 * b0 + a11 * b1 + a12 * b2 + a13 * b3;
+            r[o + 2] = a20 * b0 + a21 * b1 + a22 * b2 + a23 * b3;
+            r[o + 3] = a30 * b0 + a31 * b1 + a32 * b2 + a33 * b3;
+        }
+        return this;
+    }
+
+    public Mat4f translation(float tx, float ty, float tz) {
+        identity();
+        m[12] = tx;
+        m[13] = ty;
+        m[14] = tz;
+        return this;
+    }
+
+    /**
+     * Fused translate * rotate * scale, equivalent to
+     * {@code glTranslatef; glRotatef; glScalef} but without any trig.
+     */
+    public Mat4f composeTRS(float tx, float ty, float tz, Quatf r, float sx, float sy, float sz) {
+        float qx = r.x, qy = r.y, qz = r.z, qw = r.w;
+        float xx = qx * qx, yy = qy * qy, zz = qz * qz;
+        float xy = qx * qy, xz = qx * qz, yz = qy * qz;
+        float wx = qw * qx, wy = qw * qy, wz = qw * qz;
+        float[] a = m;
+        a[0] = (1 - 2 * (yy + zz)) * sx;
+        a[1] = 2 * (xy + wz) * sx;
+        a[2] = 2 * (xz - wy) * sx;
+        a[3] = 0;
+        a[4] = 2 * (xy - wz) * sy;
+        a[5] = (1 - 2 * (xx + zz)) * sy;
+        a[6] = 2 * (yz + wx) * sy;
+        a[7] = 0;
+        a[8] = 2 * (xz + wy) * sz;
+        a[9] = 2 * (yz - wx) * sz;
+        a[10] = (1 - 2 * (xx + yy)) * sz;
+        a[11] = 0;
+        a[12] = tx;
+        a[13] = ty;
+        a[14] = tz;
+        a[15] = 1;
+        return this;
+    }
+
+    public Mat4f composeTRS(Vec3f t, Quatf r, Vec3f s) {
+        return composeTRS(t.x, t.y, t.z, r, s.x, s.y, s.z);
+    }
+
+    /**
+     * Rigid transform that moves the origin to (tx, ty, tz) and turns +Z onto
+     * the direction (dx, dy, dz). Uses only a square root, no trig.
+     */
+    public Mat4f translationAimZ(float tx, float ty, float tz, float dx, float dy, float dz) {
+        float len = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (len == 0.0f) {
+            return translation(tx, ty, tz);
+        }
+        float inv = 1.0f / len;
+        float fx = dx * inv, fy = dy * inv, fz = dz * inv;
+        // Pick the world axis least parallel to f as the helper "up"
+        float ux = 0.0f, uy = 1.0f, uz = 0.0f;
+        if (Math.abs(fy) > 0.9f) {
+            ux = 1.0f;
+            uy = 0.0f;
+        }
+        // s = normalize(up × f), u = f × s
+        float sx = uy * fz - uz * fy;
+        float sy = uz * fx - ux * fz;
+        float sz = ux * fy - uy * fx;
+        float sInv = (float) (1.0 / Math.sqrt(sx * sx + sy * sy + sz * sz));
+        sx *= sInv;
+        sy *= sInv;
+        sz *= sInv;
+        float vx = fy * sz - fz * sy;
+        float vy = fz * sx - fx * sz;
+        float vz = fx * sy - fy * sx;
+        float[] a = m;
+        a[0] = sx; a[4] = vx; a[8] = fx;  a[12] = tx;
+        a[1] = sy; a[5] = vy; a[9] = fy;  a[13] = ty;
+        a[2] = sz; a[6] = vz; a[10] = fz; a[14] = tz;
+        a[3] = 0;  a[7] = 0;  a[11] = 0;  a[15] = 1;
+        return this;
+    }
+
+    /** Same matrix as {@code gluLookAt}. */
+    public Mat4f lookAt(float eyeX, float eyeY, float eyeZ,
+                        float centerX, float centerY, float centerZ,
+                        float upX, float upY, float upZ) {
+        float fx = centerX - eyeX, fy = centerY - eyeY, fz = centerZ - eyeZ;
+        float fInv = (float) (1.0 / Math.sqrt(fx * fx + fy * fy + fz * fz));
+        fx *= fInv;
+        fy *= fInv;
+        fz *= fInv;
+        float sx = fy * upZ - fz * upY;
+        float sy = fz * upX - fx * upZ;
+        float sz = fx * upY - fy * upX;
+        float sInv = (float) (1.0 / Math.sqrt(sx * sx + sy * sy + sz * sz));
+        sx *= sInv;
+        sy *= sInv;
+        sz *= sInv;
+        float ux = sy * fz - sz * fy;
+        float uy = sz * fx - sx * fz;
+        float uz = sx * fy - sy * fx;
+        float[] a = m;
+        a[0] = sx;  a[4] = sy;  a[8] = sz;   a[12] = -(sx * eyeX + sy * eyeY + sz * eyeZ);
+        a[1] = ux;  a[5] = uy;  a[9] = uz;   a[13] = -(ux * eyeX + uy * eyeY + uz * eyeZ);
+        a[2] = -fx; a[6] = -fy; a[10] = -fz; a[14] = fx * eyeX + fy * eyeY + fz * eyeZ;
+        a[3] = 0;   a[7] = 0;   a[11] = 0;   a[15] = 1;
+        return this;
+    }
+
+    /** Same matrix as {@code gluPerspective}. */
+    public Mat4f perspective(float fovYDeg, float aspect, float near, float far) {
+        float f = (float) (1.0 / Math.tan(Math.toRadians(fovYDeg) * 0.5));
+        float[] a = m;
+        a[0] = f / aspect; a[4] = 0; a[8] = 0;                            a[12] = 0;
+        a[1] = 0;          a[5] = f; a[9] = 0;                            a[13] = 0;
+        a[2] = 0;          a[6] = 0; a[10] = (far + near) / (near - far); a[14] = 2 * far * near / (near - far);
+        a[3] = 0;          a[7] = 0; a[11] = -1;                          a[15] = 0;
+        return this;
+    }
+
+    /**
+     * Extracts the six clip planes (left, right, bottom, top, near, far) of
+     * this view-projection matrix into {@code out} as normalized
+     * (a, b, c, d) quadruples with normals pointing into the frustum.
+     */
+    public void frustumPlanes(float[] out) {
+        float[] a = m;
+        // Gribb-Hartmann: the fourth row plus or minus each of the first three
+        for (int i = 0; i < 3; i++) {
+            for (int sign = 0; sign < 2; sign++) {
+                float s = sign == 0 ? 1 : -1;
+                int o = (i * 2 + sign) * 4;
+                float pa = a[3] + s * a[i];
+                float pb = a[7] + s * a[4 + i];
+                float pc = a[11] + s * a[8 + i];
+                float pd = a[15] + s * a[12 + i];
+                float inv = (float) (1.0 / Math.sqrt(pa * pa + pb * pb + pc * pc));
+                out[o] = pa * inv;
+                out[o + 1] = pb * inv;
+                out[o + 2] = pc * inv;
+                out[o + 3] = pd * inv;
+            }
+        }
+    }
+
+    /** Transforms the point {@code p} in place (w = 1, affine part only). */
+    public Vec3f transformPoint(Vec3f p) {
+        float[] a = m;
+        float x = p.x, y = p.y, z = p.z;
+        return p.set(a[0] * x + a[4] * y + a[8] * z + a[12],
+                     a[1] * x + a[5] * y + a[9] * z + a[13],
+                     a[2] * x + a[6] * y + a[10] * z + a[14]);
+    }
+
+    /** Transforms the direction {@code d} in place (w = 0). */
+    public Vec3f transformDirection(Vec3f d) {
+        float[] a = m;
+        float x = d.x, y = d.y, z = d.z;
+        return d.set(a[0] * x + a[4] * y + a[8] * z,
+                     a[1] * x + a[5] * y + a[9] * z,
+                     a[2] * x + a[6] * y + a[10] * z);
+    }
+
+    /**
+     * Transforms {@code count} packed xyz points from {@code src} into
+     * {@code dst}. The arrays may be the same when the offsets match.
+     */
+    public void transformPoints(float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+        float[] a = m;
+        float m0 = a[0], m1 = a[1], m2 = a[2];
+        float m4 = a[4], m5 = a[5], m6 = a[6];
+        float m8 = a[8], m9 = a[9], m10 = a[10];
+        float m12 = a[12], m13 = a[13], m14 = a[14];
+        for (int i = 0; i < count; i++) {
+            int s = srcOffset + i * 3;
+            int d = dstOffset + i * 3;
+            float x = src[s], y = src[s + 1], z = src[s + 2];
+            dst[d]     = m0 * x + m4 * y + m8 * z + m12;
+            dst[d + 1] = m1 * x + m5 * y + m9 * z + m13;
+            dst[d + 2] = m2 * x + m6 * y + m10 * z + m14;
+        }
+    }
+}
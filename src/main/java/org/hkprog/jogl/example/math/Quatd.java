@@ -0,0 +1,71 @@
+package org.hkprog.jogl.example.math;
+
+/**
+ * Mutable double-precision unit quaternion (x, y, z, w).
+ */
+public final class Quatd {
+
+    public double x;
+    public double y;
+    public double z;
+    public double w = 1.0;
+
+    public Quatd identity() {
+        return set(0.0, 0.0, 0.0, 1.0);
+    }
+
+    public Quatd set(double x, double y, double z, double w) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+        return this;
+    }
+
+    public Quatd set(Quatd q) {
+        return set(q.x, q.y, q.z, q.w);
+    }
+
+    /** Rotation of {@code angleDeg} degrees around the (not necessarily unit) axis. */
+    public Quatd setAxisAngleDeg(double angleDeg, double ax, double ay, double az) {
+        double len = Math.sqrt(ax * ax + ay * ay + az * az);
+        if (len == 0.0) {
+            return identity();
+        }
+        double half = Math.toRadians(angleDeg) * 0.5;
+        double s = Math.sin(half) / len;
+        return set(ax * s, ay * s, az * s, Math.cos(half));
+    }
+
+    /** this = a * b (apply b first, then a); safe when this aliases a or b */
+    public Quatd mul(Quatd a, Quatd b) {
+        return set(a.w * b.x + a.x * b.w + a.y * b.z - a.z * b.y,
+                   a.w * b.y - a.x * b.z + a.y * b.w + a.z * b.x,
+                   a.w * b.z + a.x * b.y - a.y * b.x + a.z * b.w,
+                   a.w * b.w - a.x * b.x - a.y * b.y - a.z * b.z);
+    }
+
+    /** Inverts a unit quaternion in place. */
+    public Quatd conjugate() {
+        return set(-x, -y, -z, w);
+    }
+
+    /** Rotates {@code v} in place by this quaternion. */
+    public Vec3d rotate(Vec3d v) {
+        double tx = 2.0 * (y * v.z - z * v.y);
+        double ty = 2.0 * (z * v.x - x * v.z);
+        double tz = 2.0 * (x * v.y - y * v.x);
+        return v.set(v.x + w * tx + (y * tz - z * ty),
+                     v.y + w * ty + (z * tx - x * tz),
+                     v.z + w * tz + (x * ty - y * tx));
+    }
+
+    public Quatd normalize() {
+        double lenSq = x * x + y * y + z * z + w * w;
+        if (lenSq > 0.0) {
+            double inv = 1.0 / Math.sqrt(lenSq);
+            set(x * inv, y * inv, z * inv, w * inv);
+        }
+        return this;
+    }
+}
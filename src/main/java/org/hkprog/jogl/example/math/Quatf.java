@@ -0,0 +1,72 @@
+package org.hkprog.jogl.example.math;
+
+/**
+ * Mutable single-precision unit quaternion (x, y, z, w).
+ */
+public final class Quatf {
+
+    public float x;
+    public float y;
+    public float z;
+    public float w = 1.0f;
+
+    public Quatf identity() {
+        return set(0.0f, 0.0f, 0.0f, 1.0f);
+    }
+
+    public Quatf set(float x, float y, float z, float w) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+        return this;
+    }
+
+    public Quatf set(Quatf q) {
+        return set(q.x, q.y, q.z, q.w);
+    }
+
+    /** Rotation of {@code angleDeg} degrees around the (not necessarily unit) axis. */
+    public Quatf setAxisAngleDeg(float angleDeg, float ax, float ay, float az) {
+        float len = (float) Math.sqrt(ax * ax + ay * ay + az * az);
+        if (len == 0.0f) {
+            return identity();
+        }
+        double half = Math.toRadians(angleDeg) * 0.5;
+        float s = (float) Math.sin(half) / len;
+        return set(ax * s, ay * s, az * s, (float) Math.cos(half));
+    }
+
+    /** this = a * b (apply b first, then a); safe when this aliases a or b */
+    public Quatf mul(Quatf a, Quatf b) {
+        return set(a.w * b.x + a.x * b.w + a.y * b.z - a.z * b.y,
+                   a.w * b.y - a.x * b.z + a.y * b.w + a.z * b.x,
+                   a.w * b.z + a.x * b.y - a.y * b.x + a.z * b.w,
+                   a.w * b.w - a.x * b.x - a.y * b.y - a.z * b.z);
+    }
+
+    /** Inverts a unit quaternion in place. */
+    public Quatf conjugate() {
+        return set(-x, -y, -z, w);
+    }
+
+    /** Rotates {@code v} in place by this quaternion. */
+    public Vec3f rotate(Vec3f v) {
+        // v' = v + 2w(q × v) + 2(q × (q × v))
+        float tx = 2.0f * (y * v.z - z * v.y);
+        float ty = 2.0f * (z * v.x - x * v.z);
+        float tz = 2.0f * (x * v.y - y * v.x);
+        return v.set(v.x + w * tx + (y * tz - z * ty),
+                     v.y + w * ty + (z * tx - x * tz),
+                     v.z + w * tz + (x * ty - y * tx));
+    }
+
+    public Quatf normalize() {
+        float lenSq = x * x + y * y + z * z + w * w;
+        if (lenSq > 0.0f) {
+            float inv = (float) (1.0 / Math.sqrt(lenSq));
+            set(x * inv, y * inv, z * inv, w * inv);
+        }
+        return this;
+    }
+}
@@ -0,0 +1,94 @@
+package org.hkprog.jogl.example.math;
+
+/**
+ * Per-thread pool of temporaries for code that needs a few vectors or
+ * matrices inside a method without allocating them on every call.
+ *
+ * <pre>
+ * Scratch s = Scratch.get();
+ * int mark = s.mark();
+ * try {
+ *     Vec3f tmp = s.vec3f();
+ *     ...
+ * } finally {
+ *     s.release(mark);
+ * }
+ * </pre>
+ *
+ * Objects handed out after {@link #mark()} are reused once the matching
+ * {@link #release(int)} runs, so they must not escape that scope.
+ */
+public final class Scratch {
+
+    private static final int CAPACITY = 64;
+
+    private static final ThreadLocal<Scratch> POOL = ThreadLocal.withInitial(Scratch::new);
+
+    private final Vec3f[] vec3f = new Vec3f[CAPACITY];
+    private final Vec3d[] vec3d = new Vec3d[CAPACITY];
+    private final Quatf[] quatf = new Quatf[CAPACITY];
+    private final Quatd[] quatd = new Quatd[CAPACITY];
+    private final Mat4f[] mat4f = new Mat4f[CAPACITY];
+    private final Mat4d[] mat4d = new Mat4d[CAPACITY];
+
+    // One shared cursor: every type is indexed by how many temporaries are live
+    private int top;
+
+    private Scratch() {
+        for (int i = 0; i < CAPACITY; i++) {
+            vec3f[i] = new Vec3f();
+            vec3d[i] = new Vec3d();
+            quatf[i] = new Quatf();
+            quatd[i] = new Quatd();
+            mat4f[i] = new Mat4f();
+            mat4d[i] = new Mat4d();
+        }
+    }
+
+    /** The calling thread's pool. */
+    public static Scratch get() {
+        return POOL.get();
+    }
+
+    public int mark() {
+        return top;
+    }
+
+    public void release(int mark) {
+        if (mark < 0 || mark > top) {
+            throw new IllegalStateException("Unbalanced scratch release: mark " + mark + ", top " + top);
+        }
+        top = mark;
+    }
+
+    private int next() {
+        if (top == CAPACITY) {
+            throw new IllegalStateException("Scratch pool exhausted (" + CAPACITY + " live temporaries)");
+        }
+        return top++;
+    }
+
+    public Vec3f vec3f() {
+        return vec3f[next()].set(0.0f, 0.0f, 0.0f);
+    }
+
+    public Vec3d vec3d() {
+        return vec3d[next()].set(0.0, 0.0, 0.0);
+    }
+
+    public Quatf quatf() {
+        return quatf[next()].identity();
+    }
+
+    public Quatd quatd() {
+        return quatd[next()].identity();
+    }
+
+    public Mat4f mat4f() {
+        return mat4f[next()].identity();
+    }
+
+    public Mat4d mat4d() {
+        return mat4d[next()].identity();
+    }
+}
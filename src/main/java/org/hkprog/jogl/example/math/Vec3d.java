@@ -0,0 +1,90 @@
+package org.hkprog.jogl.example.math;
+
+/**
+ * Mutable double-precision 3D vector, used for world positions that must not
+ * lose precision before being made camera-relative.
+ */
+public final class Vec3d {
+
+    public double x;
+    public double y;
+    public double z;
+
+    public Vec3d() {
+    }
+
+    public Vec3d(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public Vec3d set(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    public Vec3d set(Vec3d v) {
+        return set(v.x, v.y, v.z);
+    }
+
+    public Vec3d set(Vec3f v) {
+        return set(v.x, v.y, v.z);
+    }
+
+    public Vec3d add(Vec3d v) {
+        return set(x + v.x, y + v.y, z + v.z);
+    }
+
+    public Vec3d sub(Vec3d v) {
+        return set(x - v.x, y - v.y, z - v.z);
+    }
+
+    public Vec3d sub(Vec3d a, Vec3d b) {
+        return set(a.x - b.x, a.y - b.y, a.z - b.z);
+    }
+
+    public Vec3d scale(double s) {
+        return set(x * s, y * s, z * s);
+    }
+
+    /** this += v * s */
+    public Vec3d addScaled(Vec3d v, double s) {
+        return set(x + v.x * s, y + v.y * s, z + v.z * s);
+    }
+
+    public double dot(Vec3d v) {
+        return x * v.x + y * v.y + z * v.z;
+    }
+
+    /** this = a × b (safe when this aliases a or b) */
+    public Vec3d cross(Vec3d a, Vec3d b) {
+        return set(a.y * b.z - a.z * b.y,
+                   a.z * b.x - a.x * b.z,
+                   a.x * b.y - a.y * b.x);
+    }
+
+    public double lengthSquared() {
+        return x * x + y * y + z * z;
+    }
+
+    public double length() {
+        return Math.sqrt(lengthSquared());
+    }
+
+    /** Normalizes in place; a zero vector is left unchanged. */
+    public Vec3d normalize() {
+        double lenSq = lengthSquared();
+        if (lenSq > 0.0) {
+            scale(1.0 / Math.sqrt(lenSq));
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + x + ", " + y + ", " + z + ")";
+    }
+}
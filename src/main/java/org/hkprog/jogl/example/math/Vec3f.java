@@ -0,0 +1,90 @@
+package org.hkprog.jogl.example.math;
+
+/**
+ * Mutable single-precision 3D vector. All operations write into {@code this}
+ * and return it, so instances can be kept as fields and reused every frame.
+ */
+public final class Vec3f {
+
+    public float x;
+    public float y;
+    public float z;
+
+    public Vec3f() {
+    }
+
+    public Vec3f(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public Vec3f set(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    public Vec3f set(Vec3f v) {
+        return set(v.x, v.y, v.z);
+    }
+
+    public Vec3f set(Vec3d v) {
+        return set((float) v.x, (float) v.y, (float) v.z);
+    }
+
+    public Vec3f add(Vec3f v) {
+        return set(x + v.x, y + v.y, z + v.z);
+    }
+
+    public Vec3f sub(Vec3f v) {
+        return set(x - v.x, y - v.y, z - v.z);
+    }
+
+    public Vec3f sub(Vec3f a, Vec3f b) {
+        return set(a.x - b.x, a.y - b.y, a.z - b.z);
+    }
+
+    public Vec3f scale(float s) {
+        return set(x * s, y * s, z * s);
+    }
+
+    /** this += v * s */
+    public Vec3f addScaled(Vec3f v, float s) {
+        return set(x + v.x * s, y + v.y * s, z + v.z * s);
+    }
+
+    public float dot(Vec3f v) {
+        return x * v.x + y * v.y + z * v.z;
+    }
+
+    /** this = a × b (safe when this aliases a or b) */
+    public Vec3f cross(Vec3f a, Vec3f b) {
+        return set(a.y * b.z - a.z * b.y,
+                   a.z * b.x - a.x * b.z,
+                   a.x * b.y - a.y * b.x);
+    }
+
+    public float lengthSquared() {
+        return x * x + y * y + z * z;
+    }
+
+    public float length() {
+        return (float) Math.sqrt(lengthSquared());
+    }
+
+    /** Normalizes in place; a zero vector is left unchanged. */
+    public Vec3f normalize() {
+        float lenSq = lengthSquared();
+        if (lenSq > 0.0f) {
+            scale((float) (1.0 / Math.sqrt(lenSq)));
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + x + ", " + y + ", " + z + ")";
+    }
+}
@@ -0,0 +1,66 @@
+package org.hkprog.jogl.example.overlay;
+
+import org.hkprog.jogl.example.math.Mat4f;
+
+import java.awt.Font;
+import java.util.Random;
+
+/**
+ * Times the CPU side of {@link LabelEngine}: projecting, culling and placing
+ * 20,000 candidate labels scattered over a globe-sized shell, as the camera
+ * turns. No GL context is needed.
+ *
+ * Usage: LabelBenchmark [labels] [frames]
+ */
+public final class LabelBenchmark {
+
+    public static void main(String[] args) {
+        int labels = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+
+        long start = System.nanoTime();
+        SdfFontAtlas atlas = SdfFontAtlas.load(new Font("SansSerif", Font.BOLD, 32), 32, 4, SdfFontAtlas.DEFAULT_CHARACTERS);
+        System.out.printf("Atlas ready in %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+        LabelEngine engine = new LabelEngine(atlas, 14.0f, 65_536);
+        Random random = new Random(42);
+        float[] anchors = new float[labels * 3];
+        TextBuffer text = new TextBuffer();
+        for (int i = 0; i < labels; i++) {
+            // Uniform on a sphere of radius 3 (DrawEarth's Earth)
+            double z = random.nextDouble() * 2.0 - 1.0;
+            double phi = random.nextDouble() * 2.0 * Math.PI;
+            double r = Math.sqrt(1.0 - z * z);
+            anchors[i * 3] = (float) (3.0 * r * Math.cos(phi));
+            anchors[i * 3 + 1] = (float) (3.0 * r * Math.sin(phi));
+            anchors[i * 3 + 2] = (float) (3.0 * z);
+            engine.add(text.clear().append("SAT-").append(i), random.nextFloat(), 1.0f, 1.0f, 0.8f, 1.0f);
+        }
+
+        Mat4f projection = new Mat4f().perspective(45.0f, 16.0f / 9.0f, 0.1f, 100.0f);
+        Mat4f view = new Mat4f();
+        Mat4f viewProjection = new Mat4f();
+        long total = 0;
+        long worst = 0;
+        int placed = 0;
+        for (int f = -30; f < frames; f++) { // the first frames warm up the JIT
+            double angle = f * 0.01;
+            view.lookAt((float) (10.0 * Math.sin(angle)), 2.0f, (float) (10.0 * Math.cos(angle)), 0, 0, 0, 0, 1, 0);
+            viewProjection.mul(projection, view);
+
+            long t0 = System.nanoTime();
+            engine.begin(viewProjection, 1920, 1080);
+            for (int i = 0; i < labels; i++) {
+                engine.offer(i, anchors[i * 3], anchors[i * 3 + 1], anchors[i * 3 + 2]);
+            }
+            placed = engine.place();
+            long elapsed = System.nanoTime() - t0;
+            if (f >= 0) {
+                total += elapsed;
+                worst = Math.max(worst, elapsed);
+            }
+        }
+        System.out.printf("%d candidates, %d offered, %d placed: %.3f ms/frame average, %.3f ms worst%n",
+                labels, engine.offeredCount(), placed, total / 1e6 / frames, worst / 1e6);
+    }
+}
@@ -0,0 +1,437 @@
+package org.hkprog.jogl.example.overlay;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL2;
+import org.hkprog.jogl.example.math.Mat4f;
+import org.hkprog.jogl.example.render.GlslProgram;
+import org.hkprog.jogl.example.render.GpuResources;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Screen-space labels for large numbers of anchors (satellites, cities,
+ * ground stations), drawn from an {@link SdfFontAtlas} in one batch.
+ *
+ * Labels are registered once with {@link #add}, which lays out their glyphs.
+ * Each frame: {@link #begin} with the view-projection, {@link #offer} the
+ * anchors that are candidates this frame, then {@link #place}. Placement
+ * walks the offered labels in priority order and keeps a label only if its
+ * box overlaps none already placed, using a uniform screen grid so each test
+ * only looks at nearby boxes. Survivors are written into one interleaved
+ * vertex buffer that {@link #draw} streams to a VBO and draws with a single
+ * call. Steady-state frames do not allocate.
+ */
+public final class LabelEngine {
+
+    private static final String VERTEX_SHADER = """
+            #version 120
+            void main() {
+                gl_Position = ftransform();
+                gl_TexCoord[0] = gl_MultiTexCoord0;
+                gl_FrontColor = gl_Color;
+            }
+            """;
+
+    // Fill at the 0.5 iso-line, a dark halo a little outside it for legibility over the globe
+    private static final String FRAGMENT_SHADER = """
+            #version 120
+            uniform sampler2D atlas;
+            uniform float outline;
+            void main() {
+                float d = texture2D(atlas, gl_TexCoord[0].st).a;
+                float w = fwidth(d) * 0.75;
+                float fill = smoothstep(0.5 - w, 0.5 + w, d);
+                float halo = smoothstep(0.5 - outline - w, 0.5 - outline + w, d);
+                gl_FragColor = vec4(gl_Color.rgb * fill * gl_Color.a, max(fill, halo * 0.8) * gl_Color.a);
+            }
+            """;
+
+    private static final int FLOATS_PER_VERTEX = 8; // x, y, u, v, r, g, b, a
+    private static final int CELL_SIZE = 64;
+    private static final float ANCHOR_GAP = 6.0f; // pixels between the anchor and the text
+    private static final float PADDING = 2.0f;
+
+    private final SdfFontAtlas atlas;
+    private final float pixelSize;
+    private final float scale;
+    private final int maxGlyphs;
+
+    // Registered labels
+    private int labelCount;
+    private int[] glyphStart = new int[256];
+    private int[] glyphCount = new int[256];
+    private int[] glyphCapacity = new int[256];
+    private float[] labelWidth = new float[256];
+    private float[] priority = new float[256];
+    private float[] color = new float[256 * 4];
+    private int[] glyphs = new int[1024];
+    private float[] penX = new float[1024];
+    private int[] byPriority = new int[0];
+    private boolean orderDirty;
+
+    // Per frame
+    private final float[] viewProjection = new float[16];
+    private int viewportWidth;
+    private int viewportHeight;
+    private int frame;
+    private int[] offeredFrame = new int[256];
+    private float[] screenX = new float[256];
+    private float[] screenY = new float[256];
+    private int offeredCount;
+
+    // Collision grid: per-cell linked lists of placed boxes
+    private int gridColumns;
+    private int gridRows;
+    private int[] cellHead = new int[0];
+    private int[] entryNext = new int[1024];
+    private int[] entryBox = new int[1024];
+    private float[] boxes = new float[256 * 4];
+    private int placedCount;
+    private int glyphsWritten;
+
+    private final FloatBuffer vertices;
+    private GlslProgram program;
+    private int atlasLocation = -1;
+    private int outlineLocation = -1;
+    private int vertexBuffer;
+
+    public LabelEngine(SdfFontAtlas atlas, float pixelSize, int maxGlyphs) {
+        this.atlas = atlas;
+        this.pixelSize = pixelSize;
+        this.scale = pixelSize / atlas.baseSize();
+        this.maxGlyphs = maxGlyphs;
+        vertices = Buffers.newDirectFloatBuffer(maxGlyphs * 4 * FLOATS_PER_VERTEX);
+    }
+
+    /** Registers a label; higher priority wins overlaps. Returns its id. */
+    public int add(CharSequence text, float labelPriority, float r, float g, float b, float a) {
+        int id = labelCount++;
+        if (id == glyphStart.length) {
+            int n = id * 2;
+            glyphStart = Arrays.copyOf(glyphStart, n);
+            glyphCount = Arrays.copyOf(glyphCount, n);
+            glyphCapacity = Arrays.copyOf(glyphCapacity, n);
+            labelWidth = Arrays.copyOf(labelWidth, n);
+            priority = Arrays.copyOf(priority, n);
+            color = Arrays.copyOf(color, n * 4);
+            offeredFrame = Arrays.copyOf(offeredFrame, n);
+            screenX = Arrays.copyOf(screenX, n);
+            screenY = Arrays.copyOf(screenY, n);
+            boxes = Arrays.copyOf(boxes, n * 4);
+        }
+        int start = id == 0 ? 0 : glyphStart[id - 1] + glyphCapacity[id - 1];
+        int length = text.length();
+        if (start + length > glyphs.length) {
+            int n = Math.max(glyphs.length * 2, start + length);
+            glyphs = Arrays.copyOf(glyphs, n);
+            penX = Arrays.copyOf(penX, n);
+        }
+        glyphStart[id] = start;
+        glyphCapacity[id] = length;
+        layout(id, text);
+        priority[id] = labelPriority;
+        color[id * 4] = r;
+        color[id * 4 + 1] = g;
+        color[id * 4 + 2] = b;
+        color[id * 4 + 3] = a;
+        offeredFrame[id] = -1;
+        orderDirty = true;
+        return id;
+    }
+
+    /**
+     * Replaces a label's text in place, so a label can be reused for
+     * changing values without registering new ones; the text may be no
+     * longer than the one the label was added with.
+     */
+    public void setText(int label, CharSequence text) {
+        if (text.length() > glyphCapacity[label]) {
+            throw new IllegalArgumentException("label " + label + " holds " + glyphCapacity[label]
+                    + " characters, not " + text.length());
+        }
+        layout(label, text);
+    }
+
+    private void layout(int label, CharSequence text) {
+        int start = glyphStart[label];
+        float pen = 0.0f;
+        for (int i = 0; i < text.length(); i++) {
+            int glyph = atlas.glyph(text.charAt(i));
+            glyphs[start + i] = glyph;
+            penX[start + i] = pen;
+            pen += atlas.advance(glyph);
+        }
+        glyphCount[label] = text.length();
+        labelWidth[label] = pen * scale;
+    }
+
+    public int labelCount() {
+        return labelCount;
+    }
+
+    public void begin(Mat4f viewProjectionMatrix, int width, int height) {
+        System.arraycopy(viewProjectionMatrix.m, 0, viewProjection, 0, 16);
+        viewportWidth = width;
+        viewportHeight = height;
+        frame++;
+        offeredCount = 0;
+    }
+
+    /**
+     * Offers a label at an anchor in the space of the view-projection given to
+     * {@link #begin}. Anchors behind the camera or whose label cannot reach the
+     * viewport are dropped here.
+     */
+    public void offer(int label, float x, float y, float z) {
+        float[] m = viewProjection;
+        float w = m[3] * x + m[7] * y + m[11] * z + m[15];
+        if (w <= 0.0f) {
+            return;
+        }
+        float invW = 1.0f / w;
+        float nz = (m[2] * x + m[6] * y + m[10] * z + m[14]) * invW;
+        if (nz < -1.0f || nz > 1.0f) {
+            return;
+        }
+        float sx = ((m[0] * x + m[4] * y + m[8] * z + m[12]) * invW * 0.5f + 0.5f) * viewportWidth;
+        float sy = ((m[1] * x + m[5] * y + m[9] * z + m[13]) * invW * 0.5f + 0.5f) * viewportHeight;
+        if (sx + ANCHOR_GAP + labelWidth[label] < 0.0f || sx > viewportWidth
+                || sy + pixelSize < 0.0f || sy - pixelSize > viewportHeight) {
+            return;
+        }
+        screenX[label] = sx;
+        screenY[label] = sy;
+        offeredFrame[label] = frame;
+        offeredCount++;
+    }
+
+    /** Resolves overlaps and fills the vertex buffer. Returns the number of labels placed. */
+    public int place() {
+        if (orderDirty) {
+            sortByPriority();
+        }
+        resetGrid();
+        vertices.clear();
+        placedCount = 0;
+        glyphsWritten = 0;
+        if (offeredCount == 0) {
+            vertices.flip();
+            return 0;
+        }
+
+        float ascent = atlas.ascent() * scale;
+        float descent = (atlas.lineHeight() - atlas.ascent()) * scale;
+        int entries = 0;
+        for (int label : byPriority) {
+            if (offeredFrame[label] != frame) {
+                continue;
+            }
+            // Text to the right of the anchor, vertically centered on it (y up)
+            float baseline = screenY[label] - ascent * 0.35f;
+            float x0 = screenX[label] + ANCHOR_GAP - PADDING;
+            float x1 = screenX[label] + ANCHOR_GAP + labelWidth[label] + PADDING;
+            float y0 = baseline - descent - PADDING;
+            float y1 = baseline + ascent + PADDING;
+
+            int cx0 = clamp((int) Math.floor(x0 / CELL_SIZE), gridColumns);
+            int cx1 = clamp((int) Math.floor(x1 / CELL_SIZE), gridColumns);
+            int cy0 = clamp((int) Math.floor(y0 / CELL_SIZE), gridRows);
+            int cy1 = clamp((int) Math.floor(y1 / CELL_SIZE), gridRows);
+            if (overlapsPlaced(x0, y0, x1, y1, cx0, cx1, cy0, cy1)) {
+                continue;
+            }
+            if (glyphsWritten + glyphCount[label] > maxGlyphs) {
+                break;
+            }
+
+            int box = placedCount++;
+            boxes[box * 4] = x0;
+            boxes[box * 4 + 1] = y0;
+            boxes[box * 4 + 2] = x1;
+            boxes[box * 4 + 3] = y1;
+            int needed = entries + (cx1 - cx0 + 1) * (cy1 - cy0 + 1);
+            if (needed > entryNext.length) {
+                entryNext = Arrays.copyOf(entryNext, Math.max(entryNext.length * 2, needed));
+                entryBox = Arrays.copyOf(entryBox, entryNext.length);
+            }
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    int cell = cy * gridColumns + cx;
+                    entryBox[entries] = box;
+                    entryNext[entries] = cellHead[cell];
+                    cellHead[cell] = entries++;
+                }
+            }
+            writeGlyphs(label, screenX[label] + ANCHOR_GAP, baseline);
+        }
+        vertices.flip();
+        return placedCount;
+    }
+
+    private boolean overlapsPlaced(float x0, float y0, float x1, float y1, int cx0, int cx1, int cy0, int cy1) {
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                for (int e = cellHead[cy * gridColumns + cx]; e >= 0; e = entryNext[e]) {
+                    int b = entryBox[e] * 4;
+                    if (x0 < boxes[b + 2] && x1 > boxes[b] && y0 < boxes[b + 3] && y1 > boxes[b + 1]) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void writeGlyphs(int label, float x, float baseline) {
+        float r = color[label * 4];
+        float g = color[label * 4 + 1];
+        float b = color[label * 4 + 2];
+        float a = color[label * 4 + 3];
+        int start = glyphStart[label];
+        for (int i = 0; i < glyphCount[label]; i++) {
+            int glyph = glyphs[start + i];
+            // Atlas metrics are y-down from the baseline; screen here is y-up
+            float left = x + (penX[start + i] + atlas.bearingX(glyph)) * scale;
+            float top = baseline - atlas.bearingY(glyph) * scale;
+            float right = left + atlas.cellWidth(glyph) * scale;
+            float bottom = top - atlas.cellHeight(glyph) * scale;
+            float u0 = atlas.u0(glyph);
+            float v0 = atlas.v0(glyph);
+            float u1 = atlas.u1(glyph);
+            float v1 = atlas.v1(glyph);
+            vertices.put(left).put(bottom).put(u0).put(v1).put(r).put(g).put(b).put(a);
+            vertices.put(right).put(bottom).put(u1).put(v1).put(r).put(g).put(b).put(a);
+            vertices.put(right).put(top).put(u1).put(v0).put(r).put(g).put(b).put(a);
+            vertices.put(left).put(top).put(u0).put(v0).put(r).put(g).put(b).put(a);
+        }
+        glyphsWritten += glyphCount[label];
+    }
+
+    private void sortByPriority() {
+        Integer[] order = new Integer[labelCount];
+        for (int i = 0; i < labelCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (p, q) -> Float.compare(priority[q], priority[p]));
+        byPriority = new int[labelCount];
+        for (int i = 0; i < labelCount; i++) {
+            byPriority[i] = order[i];
+        }
+        orderDirty = false;
+    }
+
+    private void resetGrid() {
+        gridColumns = Math.max(1, (viewportWidth + CELL_SIZE - 1) / CELL_SIZE);
+        gridRows = Math.max(1, (viewportHeight + CELL_SIZE - 1) / CELL_SIZE);
+        if (cellHead.length < gridColumns * gridRows) {
+            cellHead = new int[gridColumns * gridRows];
+        }
+        Arrays.fill(cellHead, 0, gridColumns * gridRows, -1);
+    }
+
+    private static int clamp(int cell, int cells) {
+        return Math.max(0, Math.min(cells - 1, cell));
+    }
+
+    public int offeredCount() {
+        return offeredCount;
+    }
+
+    public int placedCount() {
+        return placedCount;
+    }
+
+    public void init(GL2 gl) {
+        atlas.upload(gl);
+        program = GlslProgram.tryBuild(gl, "sdf-label", VERTEX_SHADER, FRAGMENT_SHADER);
+        if (program != null) {
+            atlasLocation = program.uniform(gl, "atlas");
+            outlineLocation = program.uniform(gl, "outline");
+        } else {
+            System.err.println("WARNING: SDF label shader unavailable, using alpha-tested labels");
+        }
+        int[] id = new int[1];
+        gl.glGenBuffers(1, id, 0);
+        vertexBuffer = id[0];
+        GpuResources.shared().track(GpuResources.Kind.BUFFER, vertexBuffer,
+                (long) vertices.capacity() * Buffers.SIZEOF_FLOAT, "label vertices");
+    }
+
+    /** Draws the labels from the last {@link #place()} in viewport pixels. */
+    public void draw(GL2 gl) {
+        int vertexCount = glyphsWritten * 4;
+        if (vertexCount == 0) {
+            return;
+        }
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, vertexBuffer);
+        // Orphan and refill: the driver can hand back fresh storage instead of syncing
+        long bytes = (long) vertices.capacity() * Buffers.SIZEOF_FLOAT;
+        gl.glBufferData(GL2.GL_ARRAY_BUFFER, bytes, null, GL2.GL_STREAM_DRAW);
+        gl.glBufferSubData(GL2.GL_ARRAY_BUFFER, 0, (long) vertices.limit() * Buffers.SIZEOF_FLOAT, vertices);
+
+        gl.glPushAttrib(GL2.GL_ENABLE_BIT | GL2.GL_COLOR_BUFFER_BIT | GL2.GL_TEXTURE_BIT);
+        gl.glDisable(GL2.GL_DEPTH_TEST);
+        gl.glDisable(GL2.GL_LIGHTING);
+        gl.glDisable(GL2.GL_CULL_FACE);
+        gl.glEnable(GL2.GL_BLEND);
+        gl.glBlendFunc(GL2.GL_ONE, GL2.GL_ONE_MINUS_SRC_ALPHA); // the shader outputs premultiplied color
+        gl.glEnable(GL2.GL_TEXTURE_2D);
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, atlas.texture());
+        if (program != null) {
+            program.use(gl);
+            gl.glUniform1i(atlasLocation, 0);
+            gl.glUniform1f(outlineLocation, 1.5f / (2.0f * atlas.spread() * scale));
+        } else {
+            gl.glBlendFunc(GL2.GL_SRC_ALPHA, GL2.GL_ONE_MINUS_SRC_ALPHA);
+            gl.glTexEnvi(GL2.GL_TEXTURE_ENV, GL2.GL_TEXTURE_ENV_MODE, GL2.GL_MODULATE);
+            gl.glEnable(GL2.GL_ALPHA_TEST);
+            gl.glAlphaFunc(GL2.GL_GEQUAL, 0.5f);
+        }
+
+        gl.glMatrixMode(GL2.GL_PROJECTION);
+        gl.glPushMatrix();
+        gl.glLoadIdentity();
+        gl.glOrtho(0, viewportWidth, 0, viewportHeight, -1, 1);
+        gl.glMatrixMode(GL2.GL_MODELVIEW);
+        gl.glPushMatrix();
+        gl.glLoadIdentity();
+
+        int stride = FLOATS_PER_VERTEX * Buffers.SIZEOF_FLOAT;
+        gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+        gl.glEnableClientState(GL2.GL_TEXTURE_COORD_ARRAY);
+        gl.glEnableClientState(GL2.GL_COLOR_ARRAY);
+        gl.glVertexPointer(2, GL2.GL_FLOAT, stride, 0L);
+        gl.glTexCoordPointer(2, GL2.GL_FLOAT, stride, 2L * Buffers.SIZEOF_FLOAT);
+        gl.glColorPointer(4, GL2.GL_FLOAT, stride, 4L * Buffers.SIZEOF_FLOAT);
+        gl.glDrawArrays(GL2.GL_QUADS, 0, vertexCount);
+        gl.glDisableClientState(GL2.GL_COLOR_ARRAY);
+        gl.glDisableClientState(GL2.GL_TEXTURE_COORD_ARRAY);
+        gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+        gl.glBindBuffer(GL2.GL_ARRAY_BUFFER, 0);
+
+        gl.glPopMatrix();
+        gl.glMatrixMode(GL2.GL_PROJECTION);
+        gl.glPopMatrix();
+        gl.glMatrixMode(GL2.GL_MODELVIEW);
+
+        if (program != null) {
+            GlslProgram.useNone(gl);
+        }
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+        gl.glPopAttrib();
+    }
+
+    public void dispose(GL2 gl) {
+        if (program != null) {
+            program.dispose(gl);
+            program = null;
+        }
+        if (vertexBuffer != 0) {
+            GpuResources.shared().free(GpuResources.Kind.BUFFER, vertexBuffer);
+            gl.glDeleteBuffers(1, new int[]{vertexBuffer}, 0);
+            vertexBuffer = 0;
+        }
+        atlas.dispose(gl);
+    }
+}
@@ -0,0 +1,464 @@
+package org.hkprog.jogl.example.overlay;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL2;
+import org.hkprog.jogl.example.render.GpuResources;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Signed-distance-field glyph atlas for scalable, outline-capable labels.
+ *
+ * Each glyph is rasterized at {@value #OVERSAMPLE}x the base size, its exact
+ * Euclidean distance transform is taken inside and outside the outline, and
+ * the result is point-sampled down to the base size and stored as 8-bit
+ * alpha with the edge at 0.5 and {@code spread} base pixels to either side.
+ * Glyphs are built in parallel; the finished atlas is cached on disk (see
+ * {@value #CACHE_DIR_PROPERTY}) so later runs skip generation entirely.
+ *
+ * Metrics are in base-size pixels with y down from the baseline, matching
+ * Java2D; callers scale by {@code pixelSize / baseSize()}.
+ */
+public final class SdfFontAtlas {
+
+    /** Directory for cached atlases; defaults to {@code ~/.cache/jogl-example/sdf}. */
+    public static final String CACHE_DIR_PROPERTY = "sdf.cache.dir";
+    public static final String DEFAULT_CHARACTERS;
+
+    static {
+        StringBuilder sb = new StringBuilder();
+        for (char c = 32; c < 127; c++) {
+            sb.append(c);
+        }
+        DEFAULT_CHARACTERS = sb.append("°₁₂θ").toString();
+    }
+
+    private static final int MAGIC = 0x53444641; // "SDFA"
+    private static final int VERSION = 1;
+    private static final int OVERSAMPLE = 4;
+    private static final int ATLAS_WIDTH = 512;
+    private static final float INF = 1e20f;
+
+    private final int baseSize;
+    private final int spread;
+    private final float ascent;
+    private final float lineHeight;
+    private final int width;
+    private final int height;
+    private final byte[] pixels;
+
+    // Per glyph, indexed by glyph number
+    private final char[] characters;
+    private final int[] atlasX;
+    private final int[] atlasY;
+    private final int[] cellWidth;
+    private final int[] cellHeight;
+    private final float[] bearingX; // cell left edge relative to the pen
+    private final float[] bearingY; // cell top edge relative to the baseline (negative = above)
+    private final float[] advance;
+    private final int[] glyphByChar;
+    private final int fallbackGlyph;
+
+    private int texture;
+
+    private SdfFontAtlas(int baseSize, int spread, float ascent, float lineHeight, int width, int height, byte[] pixels,
+                         char[] characters, int[] atlasX, int[] atlasY, int[] cellWidth, int[] cellHeight,
+                         float[] bearingX, float[] bearingY, float[] advance) {
+        this.baseSize = baseSize;
+        this.spread = spread;
+        this.ascent = ascent;
+        this.lineHeight = lineHeight;
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+        this.characters = characters;
+        this.atlasX = atlasX;
+        this.atlasY = atlasY;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.bearingX = bearingX;
+        this.bearingY = bearingY;
+        this.advance = advance;
+
+        int maxChar = 0;
+        for (char c : characters) {
+            maxChar = Math.max(maxChar, c);
+        }
+        glyphByChar = new int[maxChar + 1];
+        Arrays.fill(glyphByChar, -1);
+        for (int i = 0; i < characters.length; i++) {
+            glyphByChar[characters[i]] = i;
+        }
+        int question = '?' < glyphByChar.length ? glyphByChar['?'] : -1;
+        fallbackGlyph = question >= 0 ? question : 0;
+    }
+
+    /** Loads the atlas from the disk cache, or builds and caches it. */
+    public static SdfFontAtlas load(Font font, int baseSize, int spread, String characters) {
+        Path cacheFile = cacheDirectory().resolve(cacheKey(font, baseSize, spread, characters));
+        if (Files.isRegularFile(cacheFile)) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(cacheFile))) {
+                SdfFontAtlas atlas = read(in, baseSize, spread);
+                if (atlas != null) {
+                    return atlas;
+                }
+                System.err.println("Ignoring stale SDF atlas cache: " + cacheFile);
+            } catch (IOException e) {
+                System.err.println("Failed to read SDF atlas cache " + cacheFile + " - " + e.getMessage());
+            }
+        }
+
+        long start = System.nanoTime();
+        SdfFontAtlas atlas = build(font.deriveFont((float) baseSize), baseSize, spread, characters);
+        System.out.printf("Built SDF atlas for %s (%d glyphs, %dx%d) in %.0f ms%n",
+                font.getFontName(), characters.length(), atlas.width, atlas.height, (System.nanoTime() - start) / 1e6);
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tmp = Files.createTempFile(cacheFile.getParent(), "sdf", ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                atlas.write(out);
+            }
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to cache SDF atlas to " + cacheFile + " - " + e.getMessage());
+        }
+        return atlas;
+    }
+
+    private static Path cacheDirectory() {
+        String dir = System.getProperty(CACHE_DIR_PROPERTY);
+        return dir != null ? Paths.get(dir) : Paths.get(System.getProperty("user.home"), ".cache", "jogl-example", "sdf");
+    }
+
+    private static String cacheKey(Font font, int baseSize, int spread, String characters) {
+        String name = font.getFontName().replaceAll("[^A-Za-z0-9]+", "_");
+        return String.format("%s-%d-%d-%d-%08x-v%d.sdf", name, font.getStyle(), baseSize, spread, characters.hashCode(), VERSION);
+    }
+
+    private static SdfFontAtlas build(Font font, int baseSize, int spread, String characters) {
+        int count = characters.length();
+        FontRenderContext frc = new FontRenderContext(null, true, true);
+        Font big = font.deriveFont((float) baseSize * OVERSAMPLE);
+
+        byte[][] cells = new byte[count][];
+        int[] cellWidth = new int[count];
+        int[] cellHeight = new int[count];
+        float[] bearingX = new float[count];
+        float[] bearingY = new float[count];
+        float[] advance = new float[count];
+
+        IntStream.range(0, count).parallel().forEach(i -> {
+            GlyphVector glyph = big.createGlyphVector(frc, characters.substring(i, i + 1));
+            advance[i] = glyph.getGlyphMetrics(0).getAdvance() / OVERSAMPLE;
+            Rectangle bounds = glyph.getPixelBounds(frc, 0, 0);
+
+            // Cell in base pixels: glyph bounds plus the spread on each side
+            int left = Math.floorDiv(bounds.x, OVERSAMPLE) - spread;
+            int top = Math.floorDiv(bounds.y, OVERSAMPLE) - spread;
+            int right = Math.floorDiv(bounds.x + bounds.width + OVERSAMPLE - 1, OVERSAMPLE) + spread;
+            int bottom = Math.floorDiv(bounds.y + bounds.height + OVERSAMPLE - 1, OVERSAMPLE) + spread;
+            int w = right - left;
+            int h = bottom - top;
+            cellWidth[i] = w;
+            cellHeight[i] = h;
+            bearingX[i] = left;
+            bearingY[i] = top;
+            cells[i] = bounds.isEmpty() ? new byte[w * h] : distanceField(glyph, left, top, w, h, spread);
+        });
+
+        // Shelf packing, tallest first
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> cellHeight[i]).reversed());
+        int[] atlasX = new int[count];
+        int[] atlasY = new int[count];
+        int x = 0;
+        int y = 0;
+        int shelf = 0;
+        for (int i : order) {
+            if (x + cellWidth[i] > ATLAS_WIDTH) {
+                x = 0;
+                y += shelf;
+                shelf = 0;
+            }
+            atlasX[i] = x;
+            atlasY[i] = y;
+            x += cellWidth[i];
+            shelf = Math.max(shelf, cellHeight[i]);
+        }
+        int atlasHeight = Integer.highestOneBit(Math.max(1, y + shelf - 1)) << 1;
+
+        byte[] pixels = new byte[ATLAS_WIDTH * atlasHeight];
+        for (int i = 0; i < count; i++) {
+            for (int row = 0; row < cellHeight[i]; row++) {
+                System.arraycopy(cells[i], row * cellWidth[i], pixels, (atlasY[i] + row) * ATLAS_WIDTH + atlasX[i], cellWidth[i]);
+            }
+        }
+
+        Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY).createGraphics();
+        FontMetrics metrics = g.getFontMetrics(font);
+        g.dispose();
+        return new SdfFontAtlas(baseSize, spread, metrics.getAscent(), metrics.getHeight(), ATLAS_WIDTH, atlasHeight, pixels,
+                characters.toCharArray(), atlasX, atlasY, cellWidth, cellHeight, bearingX, bearingY, advance);
+    }
+
+    private static byte[] distanceField(GlyphVector glyph, int left, int top, int w, int h, int spread) {
+        int hiW = w * OVERSAMPLE;
+        int hiH = h * OVERSAMPLE;
+        BufferedImage mask = new BufferedImage(hiW, hiH, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = mask.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        g.fill(glyph.getOutline(-left * OVERSAMPLE, -top * OVERSAMPLE));
+        g.dispose();
+        byte[] inside = ((DataBufferByte) mask.getRaster().getDataBuffer()).getData();
+
+        // Squared distances to the nearest outside / inside texel
+        float[] toOutside = new float[hiW * hiH];
+        float[] toInside = new float[hiW * hiH];
+        for (int i = 0; i < inside.length; i++) {
+            boolean in = inside[i] != 0;
+            toOutside[i] = in ? INF : 0.0f;
+            toInside[i] = in ? 0.0f : INF;
+        }
+        distanceTransform(toOutside, hiW, hiH);
+        distanceTransform(toInside, hiW, hiH);
+
+        byte[] cell = new byte[w * h];
+        float scale = 0.5f / (spread * OVERSAMPLE);
+        for (int cy = 0; cy < h; cy++) {
+            int sy = cy * OVERSAMPLE + OVERSAMPLE / 2;
+            for (int cx = 0; cx < w; cx++) {
+                int s = sy * hiW + cx * OVERSAMPLE + OVERSAMPLE / 2;
+                float signed = (float) Math.sqrt(toOutside[s]) - (float) Math.sqrt(toInside[s]);
+                float value = Math.max(0.0f, Math.min(1.0f, 0.5f + signed * scale));
+                cell[cy * w + cx] = (byte) Math.round(value * 255.0f);
+            }
+        }
+        return cell;
+    }
+
+    /** Exact squared Euclidean distance transform (Felzenszwalb and Huttenlocher), in place. */
+    private static void distanceTransform(float[] grid, int w, int h) {
+        int n = Math.max(w, h);
+        float[] f = new float[n];
+        float[] d = new float[n];
+        int[] v = new int[n];
+        float[] z = new float[n + 1];
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                f[y] = grid[y * w + x];
+            }
+            transform1D(f, d, v, z, h);
+            for (int y = 0; y < h; y++) {
+                grid[y * w + x] = d[y];
+            }
+        }
+        for (int y = 0; y < h; y++) {
+            System.arraycopy(grid, y * w, f, 0, w);
+            transform1D(f, d, v, z, w);
+            System.arraycopy(d, 0, grid, y * w, w);
+        }
+    }
+
+    private static void transform1D(float[] f, float[] d, int[] v, float[] z, int n) {
+        int k = 0;
+        v[0] = 0;
+        z[0] = -INF;
+        z[1] = INF;
+        for (int q = 1; q < n; q++) {
+            float s = ((f[q] + q * q) - (f[v[k]] + v[k] * v[k])) / (2 * q - 2 * v[k]);
+            while (s <= z[k]) {
+                k--;
+                s = ((f[q] + q * q) - (f[v[k]] + v[k] * v[k])) / (2 * q - 2 * v[k]);
+            }
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = INF;
+        }
+        k = 0;
+        for (int q = 0; q < n; q++) {
+            while (z[k + 1] < q) {
+                k++;
+            }
+            float dq = q - v[k];
+            d[q] = dq * dq + f[v[k]];
+        }
+    }
+
+    private void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(baseSize);
+        out.writeInt(spread);
+        out.writeFloat(ascent);
+        out.writeFloat(lineHeight);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeInt(characters.length);
+        for (int i = 0; i < characters.length; i++) {
+            out.writeChar(characters[i]);
+            out.writeShort(atlasX[i]);
+            out.writeShort(atlasY[i]);
+            out.writeShort(cellWidth[i]);
+            out.writeShort(cellHeight[i]);
+            out.writeFloat(bearingX[i]);
+            out.writeFloat(bearingY[i]);
+            out.writeFloat(advance[i]);
+        }
+        out.write(pixels);
+        out.flush();
+    }
+
+    private static SdfFontAtlas read(InputStream stream, int expectedBaseSize, int expectedSpread) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            return null;
+        }
+        int baseSize = in.readInt();
+        int spread = in.readInt();
+        if (baseSize != expectedBaseSize || spread != expectedSpread) {
+            return null;
+        }
+        float ascent = in.readFloat();
+        float lineHeight = in.readFloat();
+        int width = in.readInt();
+        int height = in.readInt();
+        int count = in.readInt();
+        char[] characters = new char[count];
+        int[] atlasX = new int[count];
+        int[] atlasY = new int[count];
+        int[] cellWidth = new int[count];
+        int[] cellHeight = new int[count];
+        float[] bearingX = new float[count];
+        float[] bearingY = new float[count];
+        float[] advance = new float[count];
+        for (int i = 0; i < count; i++) {
+            characters[i] = in.readChar();
+            atlasX[i] = in.readUnsignedShort();
+            atlasY[i] = in.readUnsignedShort();
+            cellWidth[i] = in.readUnsignedShort();
+            cellHeight[i] = in.readUnsignedShort();
+            bearingX[i] = in.readFloat();
+            bearingY[i] = in.readFloat();
+            advance[i] = in.readFloat();
+        }
+        byte[] pixels = new byte[width * height];
+        in.readFully(pixels);
+        return new SdfFontAtlas(baseSize, spread, ascent, lineHeight, width, height, pixels,
+                characters, atlasX, atlasY, cellWidth, cellHeight, bearingX, bearingY, advance);
+    }
+
+    public void upload(GL2 gl) {
+        int[] id = new int[1];
+        gl.glGenTextures(1, id, 0);
+        texture = id[0];
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, texture);
+        gl.glPixelStorei(GL2.GL_UNPACK_ALIGNMENT, 1);
+        gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, GL2.GL_ALPHA, width, height, 0,
+                GL2.GL_ALPHA, GL2.GL_UNSIGNED_BYTE, Buffers.newDirectByteBuffer(pixels));
+        gl.glPixelStorei(GL2.GL_UNPACK_ALIGNMENT, 4);
+        GpuResources.shared().track(GpuResources.Kind.TEXTURE, texture, (long) width * height, "SDF font atlas");
+        // Bilinear filtering of the distance is what makes SDF text scale cleanly
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MIN_FILTER, GL2.GL_LINEAR);
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MAG_FILTER, GL2.GL_LINEAR);
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_S, GL2.GL_CLAMP_TO_EDGE);
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_T, GL2.GL_CLAMP_TO_EDGE);
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+    }
+
+    public void dispose(GL2 gl) {
+        if (texture != 0) {
+            GpuResources.shared().free(GpuResources.Kind.TEXTURE, texture);
+            gl.glDeleteTextures(1, new int[]{texture}, 0);
+            texture = 0;
+        }
+    }
+
+    public int texture() {
+        return texture;
+    }
+
+    /** Glyph number for {@code c}, or the '?' glyph if the atlas lacks it. */
+    public int glyph(char c) {
+        int g = c < glyphByChar.length ? glyphByChar[c] : -1;
+        return g >= 0 ? g : fallbackGlyph;
+    }
+
+    public int baseSize() {
+        return baseSize;
+    }
+
+    public int spread() {
+        return spread;
+    }
+
+    public float ascent() {
+        return ascent;
+    }
+
+    public float lineHeight() {
+        return lineHeight;
+    }
+
+    public float advance(int glyph) {
+        return advance[glyph];
+    }
+
+    public float bearingX(int glyph) {
+        return bearingX[glyph];
+    }
+
+    public float bearingY(int glyph) {
+        return bearingY[glyph];
+    }
+
+    public int cellWidth(int glyph) {
+        return cellWidth[glyph];
+    }
+
+    public int cellHeight(int glyph) {
+        return cellHeight[glyph];
+    }
+
+    public float u0(int glyph) {
+        return (float) atlasX[glyph] / width;
+    }
+
+    public float v0(int glyph) {
+        return (float) atlasY[glyph] / height;
+    }
+
+    public float u1(int glyph) {
+        return (float) (atlasX[glyph] + cellWidth[glyph]) / width;
+    }
+
+    public float v1(int glyph) {
+        return (float) (atlasY[glyph] + cellHeight[glyph]) / height;
+    }
+}
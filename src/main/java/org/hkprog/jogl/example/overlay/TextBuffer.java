@@ -0,0 +1,149 @@
+package org.hkprog.jogl.example.overlay;
+
+import java.util.Arrays;
+
+/**
+ * Growable char buffer with allocation-free number formatting, for text
+ * rebuilt every frame. Only growing past the current capacity allocates.
+ */
+public final class TextBuffer implements CharSequence {
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+    // Above this the fixed-point path would overflow a long; fall back to Double.toString
+    private static final double MAX_FIXED = 9.0e17 / POWERS_OF_TEN[POWERS_OF_TEN.length - 1];
+
+    private char[] chars;
+    private int length;
+
+    public TextBuffer() {
+        this(64);
+    }
+
+    public TextBuffer(int capacity) {
+        chars = new char[capacity];
+    }
+
+    public TextBuffer clear() {
+        length = 0;
+        return this;
+    }
+
+    public TextBuffer append(char c) {
+        ensure(1);
+        chars[length++] = c;
+        return this;
+    }
+
+    public TextBuffer append(CharSequence text) {
+        int n = text.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) {
+            chars[length++] = text.charAt(i);
+        }
+        return this;
+    }
+
+    public TextBuffer append(long value) {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                return append(Long.toString(value));
+            }
+            append('-');
+            value = -value;
+        }
+        return appendDigits(value, 1);
+    }
+
+    /**
+     * Appends {@code value} rounded half-up to {@code decimals} places, like
+     * {@code %.Nf} except that values rounding to zero print without a sign.
+     */
+    public TextBuffer append(double value, int decimals) {
+        if (decimals < 0 || decimals >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("decimals out of range: " + decimals);
+        }
+        if (Double.isNaN(value)) {
+            return append("NaN");
+        }
+        if (Double.isInfinite(value)) {
+            return append(value > 0 ? "Infinity" : "-Infinity");
+        }
+        if (Math.abs(value) >= MAX_FIXED) {
+            return append(Double.toString(value));
+        }
+        long scale = POWERS_OF_TEN[decimals];
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            append('-');
+        }
+        appendDigits(scaled / scale, 1);
+        if (decimals > 0) {
+            append('.');
+            appendDigits(scaled % scale, decimals);
+        }
+        return this;
+    }
+
+    private TextBuffer appendDigits(long value, int minDigits) {
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+        ensure(digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+        return this;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + extra));
+        }
+    }
+
+    /** Copies {@code other} into this buffer. */
+    public void set(TextBuffer other) {
+        length = 0;
+        ensure(other.length);
+        System.arraycopy(other.chars, 0, chars, 0, other.length);
+        length = other.length;
+    }
+
+    public boolean contentEquals(TextBuffer other) {
+        return Arrays.equals(chars, 0, length, other.chars, 0, other.length);
+    }
+
+    /** Backing array; valid up to {@link #length()}. */
+    public char[] array() {
+        return chars;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(chars, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
@@ -0,0 +1,331 @@
+package org.hkprog.jogl.example.overlay;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL2;
+import org.hkprog.jogl.example.render.GpuResources;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Screen-space text layer drawn as one textured quad.
+ *
+ * Static lines are rasterized once per viewport size on a background thread
+ * (which also loads the font's glyphs, CJK fallbacks included, off the GL
+ * thread) and uploaded as a whole. Dynamic lines own a one-line band of the
+ * texture; they are re-rasterized and uploaded with glTexSubImage2D only when
+ * their text actually changes. Until the static layer is ready only the
+ * dynamic lines show.
+ *
+ * Must be used from the GL thread apart from the constructor.
+ */
+public final class TextOverlay {
+
+    public enum Anchor {
+        /** Offset is the baseline's distance below the top edge. */
+        TOP,
+        /** Offset is the baseline's distance above the bottom edge, as with TextRenderer. */
+        BOTTOM
+    }
+
+    private static final ExecutorService RASTERIZER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "overlay-text");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Font font;
+    private final FontMetrics metrics;
+    private final List<StaticLine> staticLines = new ArrayList<>();
+    private final List<Line> dynamicLines = new ArrayList<>();
+    private final long refreshIntervalNanos;
+    private long lastRefreshNanos;
+    private boolean refreshForced = true;
+    private boolean synchronous;
+
+    private int texture;
+    private int width;
+    private int height;
+    private CompletableFuture<BufferedImage> staticLayer;
+    private boolean staticUploaded;
+
+    public TextOverlay(Font font, long refreshIntervalMillis) {
+        this.font = font;
+        this.refreshIntervalNanos = refreshIntervalMillis * 1_000_000L;
+        Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB_PRE).createGraphics();
+        metrics = g.getFontMetrics(font);
+        g.dispose();
+    }
+
+    public void addStatic(Anchor anchor, int x, int offset, float r, float g, float b, float a, String text) {
+        staticLines.add(new StaticLine(anchor, x, offset, new Color(r, g, b, a), text));
+        // Warm this font's glyph caches now rather than on the first rasterization
+        RASTERIZER.execute(() -> warmUp(text));
+    }
+
+    public Line addDynamic(Anchor anchor, int x, int offset, float r, float g, float b, float a) {
+        Line line = new Line(anchor, x, offset, new Color(r, g, b, a));
+        dynamicLines.add(line);
+        return line;
+    }
+
+    /**
+     * For offline rendering: every frame refreshes the dynamic lines and
+     * waits for the static layer, so no frame shows stale or missing text.
+     */
+    public void setSynchronous(boolean synchronous) {
+        this.synchronous = synchronous;
+    }
+
+    /**
+     * True at most once per refresh interval (and always after a resize);
+     * callers rebuild their dynamic lines only then.
+     */
+    public boolean tryBeginRefresh() {
+        long now = System.nanoTime();
+        if (synchronous || refreshForced || now - lastRefreshNanos >= refreshIntervalNanos) {
+            refreshForced = false;
+            lastRefreshNanos = now;
+            return true;
+        }
+        return false;
+    }
+
+    /** Uploads whatever changed and draws the overlay over the whole viewport. */
+    public void draw(GL2 gl, int viewportWidth, int viewportHeight) {
+        if (viewportWidth <= 0 || viewportHeight <= 0) {
+            return;
+        }
+        if (texture == 0 || viewportWidth != width || viewportHeight != height) {
+            resize(gl, viewportWidth, viewportHeight);
+        }
+        if (!staticUploaded && (synchronous || staticLayer.isDone())) {
+            uploadStatic(gl, staticLayer.join());
+        }
+        for (Line line : dynamicLines) {
+            if (line.dirty) {
+                line.upload(gl);
+            }
+        }
+
+        gl.glPushAttrib(GL2.GL_ENABLE_BIT | GL2.GL_COLOR_BUFFER_BIT | GL2.GL_TEXTURE_BIT | GL2.GL_CURRENT_BIT);
+        gl.glDisable(GL2.GL_DEPTH_TEST);
+        gl.glDisable(GL2.GL_LIGHTING);
+        gl.glDisable(GL2.GL_CULL_FACE);
+        gl.glEnable(GL2.GL_BLEND);
+        gl.glBlendFunc(GL2.GL_ONE, GL2.GL_ONE_MINUS_SRC_ALPHA); // Java2D rasterizes premultiplied
+        gl.glEnable(GL2.GL_TEXTURE_2D);
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, texture);
+        gl.glTexEnvi(GL2.GL_TEXTURE_ENV, GL2.GL_TEXTURE_ENV_MODE, GL2.GL_REPLACE);
+
+        gl.glMatrixMode(GL2.GL_PROJECTION);
+        gl.glPushMatrix();
+        gl.glLoadIdentity();
+        gl.glOrtho(0, width, 0, height, -1, 1);
+        gl.glMatrixMode(GL2.GL_MODELVIEW);
+        gl.glPushMatrix();
+        gl.glLoadIdentity();
+
+        // Image row 0 is the top of the screen and the first row uploaded, hence t = 0 at the top
+        gl.glBegin(GL2.GL_QUADS);
+        gl.glTexCoord2f(0.0f, 1.0f);
+        gl.glVertex2f(0.0f, 0.0f);
+        gl.glTexCoord2f(1.0f, 1.0f);
+        gl.glVertex2f(width, 0.0f);
+        gl.glTexCoord2f(1.0f, 0.0f);
+        gl.glVertex2f(width, height);
+        gl.glTexCoord2f(0.0f, 0.0f);
+        gl.glVertex2f(0.0f, height);
+        gl.glEnd();
+
+        gl.glPopMatrix();
+        gl.glMatrixMode(GL2.GL_PROJECTION);
+        gl.glPopMatrix();
+        gl.glMatrixMode(GL2.GL_MODELVIEW);
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+        gl.glPopAttrib();
+    }
+
+    private void resize(GL2 gl, int newWidth, int newHeight) {
+        width = newWidth;
+        height = newHeight;
+        if (texture == 0) {
+            int[] id = new int[1];
+            gl.glGenTextures(1, id, 0);
+            texture = id[0];
+        }
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, texture);
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MIN_FILTER, GL2.GL_NEAREST);
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MAG_FILTER, GL2.GL_NEAREST);
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_S, GL2.GL_CLAMP_TO_EDGE);
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_T, GL2.GL_CLAMP_TO_EDGE);
+        // Start fully transparent so nothing shows before the static layer arrives
+        IntBuffer clear = Buffers.newDirectIntBuffer(width * height);
+        gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, GL2.GL_RGBA8, width, height, 0,
+                GL2.GL_BGRA, GL2.GL_UNSIGNED_INT_8_8_8_8_REV, clear);
+        GpuResources.shared().track(GpuResources.Kind.TEXTURE, texture, (long) width * height * 4, "text overlay");
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+
+        int w = width;
+        int h = height;
+        staticLayer = CompletableFuture.supplyAsync(() -> rasterizeStatic(w, h), RASTERIZER);
+        staticUploaded = false;
+        for (Line line : dynamicLines) {
+            line.layout();
+        }
+        refreshForced = true;
+    }
+
+    private BufferedImage rasterizeStatic(int w, int h) {
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = createGraphics(image);
+        for (StaticLine line : staticLines) {
+            g.setColor(line.color);
+            g.drawString(line.text, line.x, baselineFromTop(line.anchor, line.offset, h));
+        }
+        g.dispose();
+        return image;
+    }
+
+    private void uploadStatic(GL2 gl, BufferedImage image) {
+        staticUploaded = true;
+        if (image.getWidth() != width || image.getHeight() != height) {
+            return; // a resize overtook this one; its own layer is on the way
+        }
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, texture);
+        gl.glTexSubImage2D(GL2.GL_TEXTURE_2D, 0, 0, 0, width, height,
+                GL2.GL_BGRA, GL2.GL_UNSIGNED_INT_8_8_8_8_REV, Buffers.newDirectIntBuffer(pixels));
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+        // The full upload cleared the dynamic bands
+        for (Line line : dynamicLines) {
+            line.dirty = true;
+        }
+    }
+
+    private void warmUp(String text) {
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = createGraphics(image);
+        g.drawString(text, 0, 0);
+        g.dispose();
+    }
+
+    private Graphics2D createGraphics(BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        g.setFont(font);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        return g;
+    }
+
+    private static int baselineFromTop(Anchor anchor, int offset, int height) {
+        return anchor == Anchor.TOP ? offset : height - offset;
+    }
+
+    public void dispose(GL2 gl) {
+        if (texture != 0) {
+            GpuResources.shared().free(GpuResources.Kind.TEXTURE, texture);
+            gl.glDeleteTextures(1, new int[]{texture}, 0);
+            texture = 0;
+        }
+        for (Line line : dynamicLines) {
+            line.image = null;
+            line.graphics = null;
+        }
+    }
+
+    private record StaticLine(Anchor anchor, int x, int offset, Color color, String text) {
+    }
+
+    /**
+     * A line whose text is rebuilt in place: {@link #begin()}, append to the
+     * returned buffer, then {@link #end()}. Nothing is rasterized or uploaded
+     * unless the result differs from what is already on screen.
+     */
+    public final class Line {
+        private final Anchor anchor;
+        private final int x;
+        private final int offset;
+        private final Color color;
+        private final TextBuffer pending = new TextBuffer();
+        private final TextBuffer shown = new TextBuffer();
+        private boolean dirty;
+
+        private int bandTop;
+        private int bandHeight;
+        private int bandBaseline;
+        private BufferedImage image;
+        private Graphics2D graphics;
+        private int[] pixels;
+        private IntBuffer upload;
+
+        private Line(Anchor anchor, int x, int offset, Color color) {
+            this.anchor = anchor;
+            this.x = x;
+            this.offset = offset;
+            this.color = color;
+        }
+
+        public TextBuffer begin() {
+            return pending.clear();
+        }
+
+        public void end() {
+            if (!pending.contentEquals(shown)) {
+                shown.set(pending);
+                dirty = true;
+            }
+        }
+
+        private void layout() {
+            int baseline = baselineFromTop(anchor, offset, height);
+            int top = Math.max(0, baseline - metrics.getAscent());
+            int bottom = Math.min(height, baseline + metrics.getDescent());
+            bandTop = top;
+            bandHeight = Math.max(0, bottom - top);
+            bandBaseline = baseline - top;
+            if (graphics != null) {
+                graphics.dispose();
+                graphics = null;
+            }
+            if (bandHeight > 0) {
+                image = new BufferedImage(width, bandHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+                graphics = createGraphics(image);
+                pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+                upload = Buffers.newDirectIntBuffer(pixels.length);
+            }
+            dirty = true;
+        }
+
+        private void upload(GL2 gl) {
+            dirty = false;
+            if (graphics == null) {
+                return;
+            }
+            graphics.setComposite(AlphaComposite.Clear);
+            graphics.fillRect(0, 0, width, bandHeight);
+            graphics.setComposite(AlphaComposite.SrcOver);
+            graphics.setColor(color);
+            graphics.drawChars(shown.array(), 0, shown.length(), x, bandBaseline);
+
+            upload.clear();
+            upload.put(pixels).flip();
+            gl.glBindTexture(GL2.GL_TEXTURE_2D, texture);
+            gl.glTexSubImage2D(GL2.GL_TEXTURE_2D, 0, 0, bandTop, width, bandHeight,
+                    GL2.GL_BGRA, GL2.GL_UNSIGNED_INT_8_8_8_8_REV, upload);
+            gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.hkprog.jogl.example.render;
+
+/**
+ * Per-frame instrumentation counters shown in the scene overlays.
+ * Written and read on the GL thread only.
+ */
+public final class FrameStats {
+
+    private static final double SMOOTHING = 0.1;
+
+    private long frameStartNanos;
+    private double frameMillis;
+
+    private int visibleObjects;
+    private int frustumCulled;
+    private int horizonCulled;
+
+    public void beginFrame() {
+        frameStartNanos = System.nanoTime();
+    }
+
+    public void endFrame() {
+        double millis = (System.nanoTime() - frameStartNanos) / 1_000_000.0;
+        // Exponential moving average so the overlay is readable
+        frameMillis = frameMillis == 0.0 ? millis : frameMillis + SMOOTHING * (millis - frameMillis);
+    }
+
+    public void setCulling(int visible, int frustum, int horizon) {
+        visibleObjects = visible;
+        frustumCulled = frustum;
+        horizonCulled = horizon;
+    }
+
+    /** Smoothed CPU time spent inside display(), in milliseconds. */
+    public double frameMillis() {
+        return frameMillis;
+    }
+
+    public int visibleObjects() {
+        return visibleObjects;
+    }
+
+    public int frustumCulled() {
+        return frustumCulled;
+    }
+
+    public int horizonCulled() {
+        return horizonCulled;
+    }
+}
@@ -0,0 +1,100 @@
+package org.hkprog.jogl.example.render;
+
+import com.jogamp.common.nio.Buffers;
+import org.hkprog.jogl.example.math.Mat4f;
+import org.hkprog.jogl.example.math.Quatf;
+import org.hkprog.jogl.example.math.Vec3d;
+import org.hkprog.jogl.example.math.Vec3f;
+import org.hkprog.jogl.example.sim.SatelliteCatalog;
+
+import java.lang.management.ManagementFactory;
+import java.nio.FloatBuffer;
+
+/**
+ * Runs the CPU side of a Chapter1 frame, without GL: the O₂ frame's
+ * transform, propagating the catalog, the relative-to-eye camera, culling
+ * and writing the eye-relative batch. After a warm-up it counts the bytes
+ * the thread allocates over the timed frames and fails unless that is zero,
+ * so a steady-state frame stays allocation-free.
+ *
+ * The catalog is Chapter1's size by default, below the culler's parallel
+ * threshold; larger catalogs are culled with a parallel stream, which
+ * allocates a few hundred bytes a frame and fails the check.
+ *
+ * Usage: FrameUpdateBenchmark [frames] [objects]
+ */
+public final class FrameUpdateBenchmark {
+
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int objects = args.length > 1 ? Integer.parseInt(args[1]) : 72 * 22;
+
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported()) {
+            System.err.println("This JVM can't count allocated bytes per thread");
+            System.exit(1);
+            return;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Frame frame = new Frame(SatelliteCatalog.walkerDelta(Math.max(1, objects / 22), 22, 1, 550_000.0, 53.0));
+        for (int i = 0; i < frames; i++) { // warm up the JIT and grow every reused buffer
+            frame.update(i);
+        }
+
+        long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            frame.update(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+
+        System.out.printf("%d objects, %d frames: %.2f us/frame, %d visible, %d bytes allocated (%.3f B/frame)%n",
+                frame.catalog.size(), frames, elapsed / 1e3 / frames, frame.visibleCount, bytes, (double) bytes / frames);
+        if (bytes != 0) {
+            System.err.println("FAIL: the frame update allocates");
+            System.exit(1);
+        }
+    }
+
+    /** The state Chapter1 keeps across frames, and its per-frame update. */
+    private static final class Frame {
+        private static final double FRAME_SEC = 1.0;
+        private static final double BOUNDING_RADIUS = 10.0;
+
+        final SatelliteCatalog catalog;
+        private final RelativeToEye relativeToEye = new RelativeToEye();
+        private final VisibilityCuller culler = new VisibilityCuller();
+        private final Vec3d focus = new Vec3d();
+        private final Quatf attitude = new Quatf();
+        private final Mat4f o2ToO1 = new Mat4f();
+        private final Vec3f point = new Vec3f();
+        private final int[] visibleIndices;
+        private final FloatBuffer eyeRelative;
+        int visibleCount;
+
+        Frame(SatelliteCatalog catalog) {
+            this.catalog = catalog;
+            this.visibleIndices = new int[catalog.size()];
+            this.eyeRelative = Buffers.newDirectFloatBuffer(catalog.size() * 3);
+        }
+
+        void update(int i) {
+            attitude.setAxisAngleDeg(i % 360, 0.0f, 0.0f, 1.0f);
+            o2ToO1.composeTRS(4.0f, 2.0f, 0.0f, attitude, 1.0f, 1.0f, 1.0f);
+            o2ToO1.transformPoint(point.set(1.0f, 0.5f, 0.25f));
+
+            catalog.propagate(i * FRAME_SEC);
+            int p = (i % catalog.size()) * 3;
+            focus.set(catalog.positions[p], catalog.positions[p + 1], catalog.positions[p + 2]);
+            relativeToEye.orbit(focus, 3.0 * SatelliteCatalog.EARTH_RADIUS_M, 20.0, i * 0.1);
+
+            double far = relativeToEye.distanceTo(0.0, 0.0, 0.0) + 2.0 * SatelliteCatalog.GEO_RADIUS_M;
+            culler.setView(relativeToEye, 45.0, 16.0 / 9.0, 1.0, far);
+            culler.setOccluderRadius(SatelliteCatalog.EARTH_RADIUS_M);
+            visibleCount = culler.cull(catalog.positions, catalog.size(), BOUNDING_RADIUS, visibleIndices);
+            relativeToEye.writeEyeRelative(catalog.positions, visibleIndices, visibleCount, eyeRelative);
+        }
+    }
+}
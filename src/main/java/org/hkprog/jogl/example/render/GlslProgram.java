@@ -0,0 +1,111 @@
+package org.hkprog.jogl.example.render;
+
+import com.jogamp.opengl.GL2;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal GLSL program wrapper for the fixed-function GL2 scenes.
+ * Build failures are reported on stderr and yield {@code null}, the same way
+ * the scenes treat missing textures, so callers can fall back gracefully.
+ */
+public final class GlslProgram {
+
+    private final int program;
+
+    private GlslProgram(int program) {
+        this.program = program;
+    }
+
+    public static GlslProgram tryBuild(GL2 gl, String name, String vertexSource, String fragmentSource) {
+        int vs = compile(gl, name, GL2.GL_VERTEX_SHADER, vertexSource);
+        if (vs == 0) {
+            return null;
+        }
+        int fs = compile(gl, name, GL2.GL_FRAGMENT_SHADER, fragmentSource);
+        if (fs == 0) {
+            gl.glDeleteShader(vs);
+            return null;
+        }
+
+        int program = gl.glCreateProgram();
+        gl.glAttachShader(program, vs);
+        gl.glAttachShader(program, fs);
+        gl.glLinkProgram(program);
+        // Shaders are owned by the program once linked
+        gl.glDetachShader(program, vs);
+        gl.glDetachShader(program, fs);
+        gl.glDeleteShader(vs);
+        gl.glDeleteShader(fs);
+
+        int[] status = new int[1];
+        gl.glGetProgramiv(program, GL2.GL_LINK_STATUS, status, 0);
+        if (status[0] == GL2.GL_FALSE) {
+            System.err.println("Failed to link shader program " + name + ": " + programLog(gl, program));
+            gl.glDeleteProgram(program);
+            return null;
+        }
+        GpuResources.shared().track(GpuResources.Kind.PROGRAM, program, 0, name);
+        return new GlslProgram(program);
+    }
+
+    private static int compile(GL2 gl, String name, int type, String source) {
+        int shader = gl.glCreateShader(type);
+        gl.glShaderSource(shader, 1, new String[]{source}, null, 0);
+        gl.glCompileShader(shader);
+
+        int[] status = new int[1];
+        gl.glGetShaderiv(shader, GL2.GL_COMPILE_STATUS, status, 0);
+        if (status[0] == GL2.GL_FALSE) {
+            String kind = type == GL2.GL_VERTEX_SHADER ? "vertex" : "fragment";
+            System.err.println("Failed to compile " + kind + " shader " + name + ": " + shaderLog(gl, shader));
+            gl.glDeleteShader(shader);
+            return 0;
+        }
+        return shader;
+    }
+
+    private static String shaderLog(GL2 gl, int shader) {
+        int[] length = new int[1];
+        gl.glGetShaderiv(shader, GL2.GL_INFO_LOG_LENGTH, length, 0);
+        if (length[0] <= 1) {
+            return "(no log)";
+        }
+        byte[] log = new byte[length[0]];
+        gl.glGetShaderInfoLog(shader, log.length, length, 0, log, 0);
+        return new String(log, 0, length[0], StandardCharsets.UTF_8).trim();
+    }
+
+    private static String programLog(GL2 gl, int program) {
+        int[] length = new int[1];
+        gl.glGetProgramiv(program, GL2.GL_INFO_LOG_LENGTH, length, 0);
+        if (length[0] <= 1) {
+            return "(no log)";
+        }
+        byte[] log = new byte[length[0]];
+        gl.glGetProgramInfoLog(program, log.length, length, 0, log, 0);
+        return new String(log, 0, length[0], StandardCharsets.UTF_8).trim();
+    }
+
+    public int id() {
+        return program;
+    }
+
+    public int uniform(GL2 gl, String name) {
+        return gl.glGetUniformLocation(program, name);
+    }
+
+    public void use(GL2 gl) {
+        gl.glUseProgram(program);
+    }
+
+    /** Returns to fixed-function rendering. */
+    public static void useNone(GL2 gl) {
+        gl.glUseProgram(0);
+    }
+
+    public void dispose(GL2 gl) {
+        GpuResources.shared().free(GpuResources.Kind.PROGRAM, program);
+        gl.glDeleteProgram(program);
+    }
+}
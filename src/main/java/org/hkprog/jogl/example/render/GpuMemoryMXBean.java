@@ -0,0 +1,28 @@
+package org.hkprog.jogl.example.render;
+
+/**
+ * JMX view of {@link GpuResources}, registered as
+ * {@code org.hkprog.jogl.example:type=GpuMemory}. Open it in JConsole or
+ * VisualVM while a scene runs.
+ */
+public interface GpuMemoryMXBean {
+
+    long getTextureBytes();
+
+    long getBufferBytes();
+
+    long getProgramCount();
+
+    long getTotalBytes();
+
+    /** Zero when no budget is set. */
+    long getBudgetBytes();
+
+    int getResourceCount();
+
+    /** How many times a texture was dropped to a smaller mip to stay within the budget. */
+    long getReductions();
+
+    /** The largest live resources, one line each. */
+    String[] getLargestResources();
+}
@@ -0,0 +1,280 @@
+package org.hkprog.jogl.example.render;
+
+import com.jogamp.opengl.GL2;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Registry of the GL objects the scenes create: every texture, buffer and
+ * program is tracked with its size, the scene that owns it and the line
+ * that created it, from creation until it is deleted.
+ *
+ * Anything still tracked when the JVM exits is printed as a leak. With
+ * {@code -Dgpu.budget.mb=N} the total is held under N MB by halving the
+ * resolution of the least recently used textures that have mipmaps to
+ * fall back on (see {@link #enforceBudget}). Totals are also published
+ * over JMX as a {@link GpuMemoryMXBean}.
+ *
+ * One registry per process, keyed by GL name, so like the
+ * {@link ResourceCache} it assumes a single share group. Thread-safe.
+ */
+public final class GpuResources implements GpuMemoryMXBean {
+
+    public enum Kind { TEXTURE, BUFFER, PROGRAM }
+
+    /** Shrinks a resource in place; returns its new size in bytes, or -1 if it can't get any smaller. */
+    public interface Reducer {
+        long reduce(GL2 gl);
+    }
+
+    public static final class Resource {
+        final Kind kind;
+        final int name;
+        final String label;
+        final String owner;
+        final StackTraceElement site;
+        long bytes;
+        volatile long lastUsed;
+        Reducer reducer;
+
+        Resource(Kind kind, int name, String label, String owner, StackTraceElement site) {
+            this.kind = kind;
+            this.name = name;
+            this.label = label;
+            this.owner = owner;
+            this.site = site;
+            this.lastUsed = System.nanoTime();
+        }
+
+        /** Marks the resource as drawn with, for the budget's least-recently-used order. */
+        public void markUsed() {
+            lastUsed = System.nanoTime();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %d '%s' %.1f MB, owner %s, created at %s",
+                    kind, name, label, bytes / (1024.0 * 1024.0), owner, site);
+        }
+    }
+
+    private static final GpuResources SHARED = new GpuResources();
+    private static final String PACKAGE = "org.hkprog.jogl.example.";
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    private final Map<Long, Resource> resources = new HashMap<>();
+    private final long[] bytesByKind = new long[Kind.values().length];
+    private final int[] countByKind = new int[Kind.values().length];
+    private final long budgetBytes;
+    private final ReentrantLock enforcing = new ReentrantLock();
+    private long reductions;
+    private boolean overBudgetReported;
+
+    private GpuResources() {
+        budgetBytes = Long.getLong("gpu.budget.mb", 0) * 1024 * 1024;
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(this, new ObjectName("org.hkprog.jogl.example:type=GpuMemory"));
+        } catch (Exception e) {
+            System.err.println("Failed to register GPU memory MBean - " + e.getMessage());
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::reportLeaks, "gpu-leak-report"));
+    }
+
+    public static GpuResources shared() {
+        return SHARED;
+    }
+
+    /**
+     * Registers a GL object just created, or updates the size of one
+     * already tracked after its storage was specified again.
+     */
+    public synchronized Resource track(Kind kind, int name, long bytes, String label) {
+        Long key = key(kind, name);
+        Resource resource = resources.get(key);
+        if (resource == null) {
+            StackTraceElement[] where = creationSite();
+            String owner = where[1].getClassName();
+            owner = owner.substring(owner.lastIndexOf('.') + 1).replaceFirst("\\$.*", "");
+            resource = new Resource(kind, name, label, owner, where[0]);
+            resources.put(key, resource);
+            countByKind[kind.ordinal()]++;
+        }
+        setBytes(resource, bytes);
+        return resource;
+    }
+
+    /** Forgets a GL object; call next to its glDelete. Unknown names are ignored. */
+    public synchronized void free(Kind kind, int name) {
+        Resource resource = resources.remove(key(kind, name));
+        if (resource != null) {
+            bytesByKind[kind.ordinal()] -= resource.bytes;
+            countByKind[kind.ordinal()]--;
+        }
+    }
+
+    /** Lets the budget shrink {@code resource}; mipmapped textures set this. */
+    public synchronized void setReducer(Resource resource, Reducer reducer) {
+        resource.reducer = reducer;
+    }
+
+    /**
+     * Shrinks the least recently used reducible resources until the total
+     * is within the budget. Needs a current context; cheap when nothing is
+     * over, so it can run every frame. The reductions run without the
+     * registry lock, one thread at a time; a call made while another
+     * thread is reducing returns at once.
+     */
+    public void enforceBudget(GL2 gl) {
+        if (budgetBytes <= 0 || !enforcing.tryLock()) {
+            return;
+        }
+        try {
+            Resource victim;
+            while ((victim = nextVictim()) != null) {
+                long before = victim.bytes;
+                long after = victim.reducer.reduce(gl);
+                reduced(victim, before, after);
+            }
+        } finally {
+            enforcing.unlock();
+        }
+    }
+
+    /** The least recently used reducible resource while over budget, else null. */
+    private synchronized Resource nextVictim() {
+        if (getTotalBytes() <= budgetBytes) {
+            overBudgetReported = false;
+            return null;
+        }
+        Resource victim = null;
+        for (Resource r : resources.values()) {
+            if (r.reducer != null && (victim == null || r.lastUsed < victim.lastUsed)) {
+                victim = r;
+            }
+        }
+        if (victim == null && !overBudgetReported) {
+            System.err.printf("WARNING: GPU memory %.1f MB is over the %.1f MB budget and nothing is left to reduce%n",
+                    getTotalBytes() / (1024.0 * 1024.0), budgetBytes / (1024.0 * 1024.0));
+            overBudgetReported = true;
+        }
+        return victim;
+    }
+
+    private synchronized void reduced(Resource victim, long before, long after) {
+        if (resources.get(key(victim.kind, victim.name)) != victim) {
+            return; // freed while it was being reduced
+        }
+        if (after < 0 || after >= before) {
+            victim.reducer = null;
+            return;
+        }
+        setBytes(victim, after);
+        reductions++;
+        System.out.printf("GPU budget: reduced %s '%s' from %.1f to %.1f MB%n", victim.kind, victim.label,
+                before / (1024.0 * 1024.0), after / (1024.0 * 1024.0));
+    }
+
+    @Override
+    public synchronized long getTextureBytes() {
+        return bytesByKind[Kind.TEXTURE.ordinal()];
+    }
+
+    @Override
+    public synchronized long getBufferBytes() {
+        return bytesByKind[Kind.BUFFER.ordinal()];
+    }
+
+    @Override
+    public synchronized long getProgramCount() {
+        return countByKind[Kind.PROGRAM.ordinal()];
+    }
+
+    @Override
+    public synchronized long getTotalBytes() {
+        long total = 0;
+        for (long bytes : bytesByKind) {
+            total += bytes;
+        }
+        return total;
+    }
+
+    @Override
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    @Override
+    public synchronized int getResourceCount() {
+        return resources.size();
+    }
+
+    @Override
+    public synchronized long getReductions() {
+        return reductions;
+    }
+
+    @Override
+    public synchronized String[] getLargestResources() {
+        return resources.values().stream()
+                .sorted(Comparator.comparingLong((Resource r) -> r.bytes).reversed())
+                .limit(20)
+                .map(Resource::toString)
+                .toArray(String[]::new);
+    }
+
+    private void setBytes(Resource resource, long bytes) {
+        bytesByKind[resource.kind.ordinal()] += bytes - resource.bytes;
+        resource.bytes = bytes;
+    }
+
+    private synchronized void reportLeaks() {
+        if (resources.isEmpty()) {
+            return;
+        }
+        List<Resource> leaked = new ArrayList<>(resources.values());
+        leaked.sort(Comparator.comparing((Resource r) -> r.owner).thenComparing(r -> r.kind));
+        System.err.printf("GPU resource leak: %d objects (%.1f MB) were never freed%n",
+                leaked.size(), getTotalBytes() / (1024.0 * 1024.0));
+        for (Resource r : leaked) {
+            System.err.println("  " + r);
+        }
+    }
+
+    /**
+     * The first frame outside this class, and the owner: the nearest scene
+     * class (one directly in the example package) up the stack, or the
+     * creating class when no scene is involved.
+     */
+    private static StackTraceElement[] creationSite() {
+        return WALKER.walk(frames -> {
+            StackTraceElement site = null;
+            StackTraceElement owner = null;
+            for (StackWalker.StackFrame frame : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                String className = frame.getClassName();
+                if (className.equals(GpuResources.class.getName())) {
+                    continue;
+                }
+                if (site == null) {
+                    site = frame.toStackTraceElement();
+                }
+                if (className.startsWith(PACKAGE) && className.indexOf('.', PACKAGE.length()) < 0) {
+                    owner = frame.toStackTraceElement();
+                    break;
+                }
+            }
+            return new StackTraceElement[] {site, owner != null ? owner : site};
+        });
+    }
+
+    private static Long key(Kind kind, int name) {
+        return ((long) kind.ordinal() << 32) | (name & 0xFFFFFFFFL);
+    }
+}
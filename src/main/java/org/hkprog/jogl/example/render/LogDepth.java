@@ -0,0 +1,181 @@
+package org.hkprog.jogl.example.render;
+
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.util.texture.Texture;
+
+/**
+ * Logarithmic depth buffer for scenes spanning meters to hundreds of
+ * thousands of kilometers. A GLSL 1.20 program keeps fixed-function
+ * transform and vertex color but writes {@code log2(1 + w) / log2(1 + far)}
+ * as the fragment depth, which spreads 24-bit depth precision evenly over
+ * orders of magnitude instead of packing it next to the near plane.
+ *
+ * Since the program replaces fixed-function shading, it also does the two
+ * things the real-scale scene needs from it: diffuse lighting from
+ * {@code GL_LIGHT0} (see {@link #setLighting}) and an equirectangular
+ * texture looked up by object-space direction, for spheres drawn without
+ * texture coordinates (see {@link #setSphereTexture}).
+ *
+ * Without GLSL, {@link #perspective} falls back to a conventional projection
+ * whose near plane is pushed out as far as the caller allows, lighting falls
+ * back to fixed function and the sphere texture is skipped.
+ */
+public final class LogDepth {
+
+    private static final String VERTEX_SHADER = """
+            #version 120
+            varying float logZ;
+            varying vec3 normal;
+            varying vec3 direction;
+            void main() {
+                gl_Position = ftransform();
+                gl_FrontColor = gl_Color;
+                gl_BackColor = gl_Color;
+                normal = gl_NormalMatrix * gl_Normal;
+                direction = gl_Vertex.xyz;
+                logZ = 1.0 + gl_Position.w;
+            }
+            """;
+
+    private static final String FRAGMENT_SHADER = """
+            #version 120
+            uniform float invLogFar;
+            uniform bool lit;
+            uniform bool textured;
+            uniform bool flipT;
+            uniform sampler2D sphereTexture;
+            varying float logZ;
+            varying vec3 normal;
+            varying vec3 direction;
+            void main() {
+                vec4 color = gl_Color;
+                if (textured) {
+                    // Laid out like SphereMesh.uv: poles on Z, s = 0 on +Y, s increasing towards -X
+                    vec3 d = normalize(direction);
+                    float turns = atan(-d.x, d.y) / 6.2831853;
+                    // Two s with seams half a turn apart; the one not jumping here keeps the mip choice sane
+                    float s = fract(turns);
+                    float across = fract(turns + 0.5) - 0.5;
+                    s = fwidth(s) <= fwidth(across) ? s : across;
+                    float t = 1.0 - acos(clamp(d.z, -1.0, 1.0)) / 3.1415927;
+                    color *= texture2D(sphereTexture, vec2(s, flipT ? 1.0 - t : t));
+                }
+                if (lit) {
+                    float diffuse = max(dot(normalize(normal), normalize(gl_LightSource[0].position.xyz)), 0.0);
+                    color.rgb *= gl_LightSource[0].ambient.rgb + gl_LightSource[0].diffuse.rgb * diffuse;
+                }
+                gl_FragColor = color;
+                gl_FragDepth = log2(logZ) * invLogFar;
+            }
+            """;
+
+    private GlslProgram program;
+    private int invLogFarLocation = -1;
+    private int litLocation = -1;
+    private int texturedLocation = -1;
+    private int flipTLocation = -1;
+    private double far = 1.0;
+    private boolean lit;
+
+    public void init(GL2 gl) {
+        program = GlslProgram.tryBuild(gl, "log-depth", VERTEX_SHADER, FRAGMENT_SHADER);
+        if (program != null) {
+            invLogFarLocation = program.uniform(gl, "invLogFar");
+            litLocation = program.uniform(gl, "lit");
+            texturedLocation = program.uniform(gl, "textured");
+            flipTLocation = program.uniform(gl, "flipT");
+            program.use(gl);
+            gl.glUniform1i(program.uniform(gl, "sphereTexture"), 0);
+            GlslProgram.useNone(gl);
+        } else {
+            System.err.println("WARNING: Logarithmic depth unavailable, using a fitted near/far projection");
+        }
+    }
+
+    public boolean isAvailable() {
+        return program != null;
+    }
+
+    /**
+     * Loads the projection matrix. With log depth the near plane only clips,
+     * so it can be tiny; otherwise {@code fallbackNear} is used to keep the
+     * far/near ratio (and z-fighting) under control.
+     */
+    public void perspective(GL2 gl, double fovYDeg, double aspect, double fallbackNear, double far) {
+        this.far = far;
+        double near = isAvailable() ? 0.01 : Math.max(fallbackNear, far * 1.0e-7);
+        double f = 1.0 / Math.tan(Math.toRadians(fovYDeg) * 0.5);
+        gl.glMatrixMode(GL2.GL_PROJECTION);
+        gl.glLoadIdentity();
+        gl.glFrustum(-near / f * aspect, near / f * aspect, -near / f, near / f, near, far);
+        gl.glMatrixMode(GL2.GL_MODELVIEW);
+    }
+
+    /** Starts drawing with log depth, unlit and untextured. */
+    public void begin(GL2 gl) {
+        if (program == null) {
+            return;
+        }
+        program.use(gl);
+        gl.glUniform1f(invLogFarLocation, (float) (1.0 / (Math.log(far + 1.0) / Math.log(2.0))));
+        gl.glUniform1i(litLocation, 0);
+        gl.glUniform1i(texturedLocation, 0);
+    }
+
+    /**
+     * Shades what follows with {@code GL_LIGHT0}: its position as a
+     * direction, its ambient plus its diffuse times the cosine to the
+     * normal, modulating the vertex color. Set the light's position with
+     * the view loaded, as for fixed function.
+     */
+    public void setLighting(GL2 gl, boolean on) {
+        if (on == lit) {
+            return;
+        }
+        lit = on;
+        if (program != null) {
+            gl.glUniform1i(litLocation, on ? 1 : 0);
+        } else if (on) {
+            gl.glPushAttrib(GL2.GL_ENABLE_BIT | GL2.GL_LIGHTING_BIT);
+            gl.glEnable(GL2.GL_LIGHTING);
+            gl.glEnable(GL2.GL_LIGHT0);
+            gl.glEnable(GL2.GL_NORMALIZE);
+            gl.glEnable(GL2.GL_COLOR_MATERIAL);
+            gl.glColorMaterial(GL2.GL_FRONT_AND_BACK, GL2.GL_AMBIENT_AND_DIFFUSE);
+        } else {
+            gl.glPopAttrib();
+        }
+    }
+
+    /**
+     * Modulates what follows by {@code texture}, an equirectangular map
+     * bound to unit 0 and looked up by the direction of each vertex from the
+     * model origin; null turns it off. Meant for {@link org.hkprog.jogl.example.globe.SphereMesh}
+     * spheres, which need no texture coordinates for it.
+     */
+    public void setSphereTexture(GL2 gl, Texture texture) {
+        if (program == null) {
+            return;
+        }
+        if (texture != null) {
+            gl.glActiveTexture(GL2.GL_TEXTURE0);
+            texture.bind(gl);
+            gl.glUniform1i(flipTLocation, texture.getMustFlipVertically() ? 1 : 0);
+        }
+        gl.glUniform1i(texturedLocation, texture != null ? 1 : 0);
+    }
+
+    public void end(GL2 gl) {
+        setLighting(gl, false);
+        if (program != null) {
+            GlslProgram.useNone(gl);
+        }
+    }
+
+    public void dispose(GL2 gl) {
+        if (program != null) {
+            program.dispose(gl);
+            program = null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.hkprog.jogl.example.render;
+
+import com.jogamp.opengl.GL2;
+import org.hkprog.jogl.example.math.Mat4d;
+import org.hkprog.jogl.example.math.Mat4f;
+import org.hkprog.jogl.example.math.Quatd;
+import org.hkprog.jogl.example.math.Vec3d;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Camera-relative ("relative to eye") rendering for double-precision worlds.
+ *
+ * The eye position is kept in doubles and subtracted from each object's
+ * double position on the CPU, so only small eye-relative offsets are ever
+ * converted to float. The view matrix handed to GL is rotation-only, which
+ * means mesh vertices stay in float model space and a meter-sized satellite
+ * at GEO distance renders without jitter. The double math is per object or
+ * per batch entry, never per mesh vertex.
+ */
+public final class RelativeToEye {
+
+    private final Vec3d eye = new Vec3d();
+    private final Quatd pitch = new Quatd();
+    private final Quatd yaw = new Quatd();
+    private final Quatd orientation = new Quatd();
+    private final Mat4d viewRotationD = new Mat4d();
+    private final Mat4f viewRotation = new Mat4f();
+    private final Mat4f modelView = new Mat4f();
+
+    /**
+     * Orbit camera matching the scenes' {@code glTranslatef(0, 0, -distance);
+     * glRotatef(rotX, 1, 0, 0); glRotatef(rotY, 0, 1, 0)} convention, but
+     * looking at {@code focus} instead of the origin.
+     */
+    public void orbit(Vec3d focus, double distance, double rotXDeg, double rotYDeg) {
+        pitch.setAxisAngleDeg(rotXDeg, 1.0, 0.0, 0.0);
+        yaw.setAxisAngleDeg(rotYDeg, 0.0, 1.0, 0.0);
+        orientation.mul(pitch, yaw);
+        viewRotationD.composeTRS(0.0, 0.0, 0.0, orientation, 1.0, 1.0, 1.0);
+        viewRotation.set(viewRotationD);
+
+        // eye = focus + Rᵀ * (0, 0, distance); Rᵀ's third column is R's third row
+        double[] r = viewRotationD.m;
+        eye.set(focus.x + r[2] * distance,
+                focus.y + r[6] * distance,
+                focus.z + r[10] * distance);
+    }
+
+    public Vec3d eye() {
+        return eye;
+    }
+
+    /** The rotation-only view matrix in double precision. */
+    public Mat4d viewRotation() {
+        return viewRotationD;
+    }
+
+    /** Loads the rotation-only view, for batches already made eye-relative. */
+    public void loadViewRotation(GL2 gl) {
+        gl.glLoadMatrixf(viewRotation.m, 0);
+    }
+
+    /** Loads view * translate(position - eye) for one object. */
+    public void loadModelView(GL2 gl, double x, double y, double z) {
+        float dx = (float) (x - eye.x);
+        float dy = (float) (y - eye.y);
+        float dz = (float) (z - eye.z);
+        float[] r = viewRotation.m;
+        float[] mv = modelView.set(viewRotation).m;
+        mv[12] = r[0] * dx + r[4] * dy + r[8] * dz;
+        mv[13] = r[1] * dx + r[5] * dy + r[9] * dz;
+        mv[14] = r[2] * dx + r[6] * dy + r[10] * dz;
+        gl.glLoadMatrixf(mv, 0);
+    }
+
+    /**
+     * Writes eye-relative float positions for {@code count} packed xyz double
+     * positions into {@code out}, leaving it flipped and ready for
+     * {@code glVertexPointer}.
+     */
+    public void writeEyeRelative(double[] positions, int count, FloatBuffer out) {
+        double ex = eye.x, ey = eye.y, ez = eye.z;
+        out.clear();
+        for (int i = 0; i < count; i++) {
+            int p = i * 3;
+            out.put((float) (positions[p] - ex));
+            out.put((float) (positions[p + 1] - ey));
+            out.put((float) (positions[p + 2] - ez));
+        }
+        out.flip();
+    }
+
+    /** Same as above for the subset of objects listed in {@code indices}. */
+    public void writeEyeRelative(double[] positions, int[] indices, int count, FloatBuffer out) {
+        double ex = eye.x, ey = eye.y, ez = eye.z;
+        out.clear();
+        for (int i = 0; i < count; i++) {
+            int p = indices[i] * 3;
+            out.put((float) (positions[p] - ex));
+            out.put((float) (positions[p + 1] - ey));
+            out.put((float) (positions[p + 2] - ez));
+        }
+        out.flip();
+    }
+
+    /** Distance from the eye to a double-precision point. */
+    public double distanceTo(double x, double y, double z) {
+        double dx = x - eye.x, dy = y - eye.y, dz = z - eye.z;
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+}
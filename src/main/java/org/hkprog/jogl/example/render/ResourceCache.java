@@ -0,0 +1,213 @@
+package org.hkprog.jogl.example.render;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.util.texture.Texture;
+import com.jogamp.opengl.util.texture.TextureData;
+import com.jogamp.opengl.util.texture.TextureIO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Reference-counted GL objects shared between scenes: the first
+ * {@link #acquire} of a key loads it, later ones return the same object,
+ * and it is deleted when the last holder calls {@link #release}.
+ *
+ * There is one cache per process, so every context using it must be in
+ * one share group (the launcher's single context, or the batch renderer's
+ * master and workers). Thread-safe; loading runs with the lock held so two
+ * contexts never load the same key twice.
+ */
+public final class ResourceCache {
+
+    private static final ResourceCache SHARED = new ResourceCache();
+
+    private static final class Entry {
+        final String key;
+        final Object value;
+        final BiConsumer<GL2, Object> disposer;
+        int references;
+        GpuResources.Resource resource;
+
+        Entry(String key, Object value, BiConsumer<GL2, Object> disposer) {
+            this.key = key;
+            this.value = value;
+            this.disposer = disposer;
+        }
+    }
+
+    private final Map<String, Entry> byKey = new HashMap<>();
+    private final Map<Object, Entry> byValue = new IdentityHashMap<>();
+    private final TextureReloader reloader = TextureReloader.fromSystemProperties();
+
+    public static ResourceCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the object cached under {@code key}, loading it with
+     * {@code loader} if nobody holds it. A null load result is returned but
+     * not cached, so the next acquire tries again.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T acquire(GL2 gl, String key, Function<GL2, T> loader, BiConsumer<GL2, ? super T> disposer) {
+        Entry entry = byKey.get(key);
+        if (entry == null) {
+            T value = loader.apply(gl);
+            if (value == null) {
+                return null;
+            }
+            entry = new Entry(key, value, (BiConsumer<GL2, Object>) disposer);
+            byKey.put(key, entry);
+            byValue.put(value, entry);
+            GpuResources.shared().enforceBudget(gl);
+        }
+        entry.references++;
+        return (T) entry.value;
+    }
+
+    /** A mipmapped 2D texture from the classpath, repeating in both directions; null if it can't be loaded. */
+    public synchronized Texture texture(GL2 gl, String resourcePath) {
+        Texture texture = acquire(gl, "texture:" + resourcePath, g -> loadTexture(g, resourcePath), ResourceCache::destroyTexture);
+        if (texture != null) {
+            Entry entry = byValue.get(texture);
+            entry.resource = GpuResources.shared().track(GpuResources.Kind.TEXTURE,
+                    texture.getTextureObject(), texture.getEstimatedMemorySize(), resourcePath);
+            if (entry.references == 1) {
+                reloader.watch(resourcePath, texture);
+            }
+        }
+        return texture;
+    }
+
+    /** Uploads textures changed on disk since the last call (see {@link TextureReloader}); once per frame. */
+    public void applyReloads(GL2 gl) {
+        reloader.apply(gl);
+    }
+
+    /**
+     * Notes that a cached object was drawn with this frame, so the GPU
+     * memory budget shrinks something else first.
+     */
+    public synchronized void markUsed(Object value) {
+        Entry entry = byValue.get(value);
+        if (entry != null && entry.resource != null) {
+            entry.resource.markUsed();
+        }
+    }
+
+    /** Gives back one reference to an object returned by {@link #acquire}; null is ignored. */
+    public synchronized void release(GL2 gl, Object value) {
+        if (value == null) {
+            return;
+        }
+        Entry entry = byValue.get(value);
+        if (entry == null) {
+            System.err.println("Released a resource the cache does not hold: " + value);
+            return;
+        }
+        if (--entry.references == 0) {
+            byKey.remove(entry.key);
+            byValue.remove(value);
+            if (value instanceof Texture texture) {
+                reloader.unwatch(texture);
+            }
+            entry.disposer.accept(gl, value);
+        }
+    }
+
+    private static Texture loadTexture(GL2 gl, String resourcePath) {
+        try (InputStream in = ResourceCache.class.getResourceAsStream(resourcePath)) {
+            if (in == null) {
+                System.err.println("Failed to load texture: " + resourcePath + " (resource not found)");
+                return null;
+            }
+
+            String lower = resourcePath.toLowerCase();
+            String ext = lower.endsWith(".png") ? "png"
+                       : lower.endsWith(".jpg") || lower.endsWith(".jpeg") ? "jpg"
+                       : null;
+            if (ext == null) {
+                System.err.println("Failed to load texture: " + resourcePath + " (unsupported extension)");
+                return null;
+            }
+
+            Texture texture = TextureIO.newTexture(in, true, ext);
+            applyParameters(gl, texture);
+            GpuResources.Resource resource = GpuResources.shared().track(GpuResources.Kind.TEXTURE,
+                    texture.getTextureObject(), texture.getEstimatedMemorySize(), resourcePath);
+            GpuResources.shared().setReducer(resource, new HalvingReducer(texture));
+            System.out.println("Successfully loaded texture: " + resourcePath);
+            return texture;
+        } catch (IOException e) {
+            System.err.println("Failed to load texture: " + resourcePath + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void applyParameters(GL2 gl, Texture texture) {
+        // Ensure texture coordinates wrap horizontally/vertically so texture matrix translation doesn't clamp
+        texture.bind(gl);
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_S, GL2.GL_REPEAT);
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_T, GL2.GL_REPEAT);
+        // Use decent filtering (mipmaps are generated by TextureIO when 'true' above)
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MIN_FILTER, GL2.GL_LINEAR_MIPMAP_LINEAR);
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MAG_FILTER, GL2.GL_LINEAR);
+    }
+
+    private static void destroyTexture(GL2 gl, Texture texture) {
+        GpuResources.shared().free(GpuResources.Kind.TEXTURE, texture.getTextureObject());
+        texture.destroy(gl);
+    }
+
+    /**
+     * Drops the texture's top mip for the memory budget by making level 1
+     * of its mip chain the new level 0, in the same texture object, so
+     * holders keep a valid texture, just a blurrier one. The smaller image
+     * is read back from the texture rather than decoded again, so it costs
+     * one readback, keeps any hot-reloaded edits and keeps alpha.
+     */
+    private static final class HalvingReducer implements GpuResources.Reducer {
+        private static final int MIN_SIZE = 256;
+
+        private final Texture texture;
+        private final int[] level = new int[3];
+
+        HalvingReducer(Texture texture) {
+            this.texture = texture;
+        }
+
+        @Override
+        public long reduce(GL2 gl) {
+            texture.bind(gl);
+            gl.glGetTexLevelParameteriv(GL2.GL_TEXTURE_2D, 1, GL2.GL_TEXTURE_WIDTH, level, 0);
+            gl.glGetTexLevelParameteriv(GL2.GL_TEXTURE_2D, 1, GL2.GL_TEXTURE_HEIGHT, level, 1);
+            gl.glGetTexLevelParameteriv(GL2.GL_TEXTURE_2D, 0, GL2.GL_TEXTURE_ALPHA_SIZE, level, 2);
+            int width = level[0];
+            int height = level[1];
+            if (Math.min(width, height) < MIN_SIZE) {
+                return -1;
+            }
+            boolean alpha = level[2] > 0;
+            int format = alpha ? GL2.GL_RGBA : GL2.GL_RGB;
+            ByteBuffer pixels = Buffers.newDirectByteBuffer(width * height * (alpha ? 4 : 3));
+            gl.glPixelStorei(GL2.GL_PACK_ALIGNMENT, 1);
+            gl.glGetTexImage(GL2.GL_TEXTURE_2D, 1, format, GL2.GL_UNSIGNED_BYTE, pixels);
+            gl.glPixelStorei(GL2.GL_PACK_ALIGNMENT, 4);
+            // Rows come back in the order the texture already holds them, so keep its flip
+            TextureData data = new TextureData(gl.getGLProfile(), format, width, height, 0, format, GL2.GL_UNSIGNED_BYTE,
+                    true, false, texture.getMustFlipVertically(), pixels, null);
+            data.setAlignment(1);
+            texture.updateImage(gl, data);
+            applyParameters(gl, texture);
+            return texture.getEstimatedMemorySize();
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package org.hkprog.jogl.example.render;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.util.texture.Texture;
+import com.jogamp.opengl.util.texture.awt.AWTTextureIO;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reloads cached textures while the app runs when their image files
+ * change on disk.
+ *
+ * Enabled by {@code -Dtexture.watch=dir}, where {@code dir} stands for the
+ * classpath root (usually {@code src/main/resources}), so
+ * {@code /textures/earth.jpg} is watched at {@code dir/textures/earth.jpg}.
+ * A changed file is decoded on a background thread and compared with the
+ * copy last uploaded in {@value #TILE}-pixel tiles; only the tiles that
+ * differ are packed into a direct buffer and sent with glTexSubImage2D on
+ * the next {@link #apply}, so a small edit to a large texture costs
+ * milliseconds and the texture is never reallocated. A file whose size no
+ * longer matches the texture is uploaded whole, unless the GPU memory
+ * budget shrank the texture: then the edit is resampled to the size the
+ * texture has now and diffed at that size.
+ */
+public final class TextureReloader {
+
+    static final int TILE = 64;
+    private static final long SETTLE_MILLIS = 150; // editors save in several writes
+
+    private static final class Watched {
+        final String resourcePath;
+        final Path file;
+        final Texture texture;
+        final boolean flipped; // texture rows run bottom-up relative to the image
+        int width;
+        int height;
+        int sourceWidth; // size of the file the texture was last loaded from
+        int sourceHeight;
+        int[] resident; // what the texture holds, in GL row order; reload thread only
+        int[] band; // one row of tiles being compared; reload thread only
+        final AtomicReference<IntBuffer> staging = new AtomicReference<>(); // handed back by apply for reuse
+
+        Watched(String resourcePath, Path file, Texture texture) {
+            this.resourcePath = resourcePath;
+            this.file = file;
+            this.texture = texture;
+            this.flipped = !texture.getMustFlipVertically();
+        }
+    }
+
+    /** Dirty rectangles packed one after another in {@code pixels}, or a whole new image. */
+    private record Update(Watched target, int width, int height, int[] rects, IntBuffer pixels, BufferedImage whole,
+                          int dirtyTiles, int totalTiles, long decodeNanos) {
+    }
+
+    private final Path root;
+    private final Map<Path, Watched> byFile = new ConcurrentHashMap<>();
+    private final Map<Path, ScheduledFuture<?>> settling = new ConcurrentHashMap<>();
+    private final Set<Path> directories = new HashSet<>();
+    private final ConcurrentLinkedQueue<Update> updates = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService decoder;
+    private WatchService watchService;
+
+    private TextureReloader(Path root) {
+        this.root = root;
+    }
+
+    public static TextureReloader fromSystemProperties() {
+        String dir = System.getProperty("texture.watch");
+        return new TextureReloader(dir != null ? Paths.get(dir) : null);
+    }
+
+    /** Starts watching the file behind {@code resourcePath}; does nothing if reloading is off or the file isn't there. */
+    public synchronized void watch(String resourcePath, Texture texture) {
+        if (root == null) {
+            return;
+        }
+        Path file = root.resolve(resourcePath.startsWith("/") ? resourcePath.substring(1) : resourcePath).toAbsolutePath();
+        if (!Files.isRegularFile(file)) {
+            System.err.println("Not watching " + resourcePath + ": no file at " + file);
+            return;
+        }
+        try {
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+                decoder = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "texture-reload");
+                    t.setDaemon(true);
+                    return t;
+                });
+                Thread watcher = new Thread(this::watchLoop, "texture-watch");
+                watcher.setDaemon(true);
+                watcher.start();
+            }
+            if (directories.add(file.getParent())) {
+                file.getParent().register(watchService,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to watch " + file + " - " + e.getMessage());
+            return;
+        }
+        Watched watched = new Watched(resourcePath, file, texture);
+        byFile.put(file, watched);
+        // The first decode only records what was uploaded, so later edits have something to diff against
+        decoder.execute(() -> decode(watched, true));
+        System.out.println("Watching " + file + " for texture changes");
+    }
+
+    public synchronized void unwatch(Texture texture) {
+        byFile.values().removeIf(w -> w.texture == texture);
+    }
+
+    /** Uploads whatever changed since the last call; GL thread, once per frame. */
+    public void apply(GL2 gl) {
+        Update update;
+        while ((update = updates.poll()) != null) {
+            Watched w = update.target();
+            if (byFile.get(w.file) != w) {
+                continue; // released while it was decoding
+            }
+            long start = System.nanoTime();
+            Texture texture = w.texture;
+            texture.bind(gl);
+            if (update.whole() != null) {
+                texture.updateImage(gl, AWTTextureIO.newTextureData(gl.getGLProfile(), update.whole(), true));
+                gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_S, GL2.GL_REPEAT);
+                gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_WRAP_T, GL2.GL_REPEAT);
+                gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MIN_FILTER, GL2.GL_LINEAR_MIPMAP_LINEAR);
+                gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MAG_FILTER, GL2.GL_LINEAR);
+                GpuResources.shared().track(GpuResources.Kind.TEXTURE, texture.getTextureObject(),
+                        texture.getEstimatedMemorySize(), w.resourcePath);
+            } else if (texture.getWidth() != update.width() || texture.getHeight() != update.height()) {
+                // The budget resized the texture while this was decoding; decode again for the new size
+                w.staging.set(update.pixels());
+                decoder.execute(() -> decode(w, false));
+                gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+                continue;
+            } else {
+                int[] rects = update.rects();
+                IntBuffer pixels = update.pixels();
+                for (int i = 0; i < rects.length; i += 4) {
+                    gl.glTexSubImage2D(GL2.GL_TEXTURE_2D, 0, rects[i], rects[i + 1], rects[i + 2], rects[i + 3],
+                            GL2.GL_BGRA, GL2.GL_UNSIGNED_INT_8_8_8_8_REV, pixels);
+                    pixels.position(pixels.position() + rects[i + 2] * rects[i + 3]);
+                }
+                gl.glGenerateMipmap(GL2.GL_TEXTURE_2D);
+                w.staging.set(pixels);
+            }
+            gl.glBindTexture(GL2.GL_TEXTURE_2D, 0);
+            System.out.printf("Reloaded %s: %s, decode %.0f ms, upload %.1f ms%n", w.resourcePath,
+                    update.whole() != null ? "whole image"
+                            : String.format("%d of %d tiles", update.dirtyTiles(), update.totalTiles()),
+                    update.decodeNanos() / 1e6, (System.nanoTime() - start) / 1e6);
+        }
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        continue;
+                    }
+                    Path file = dir.resolve((Path) event.context());
+                    Watched watched = byFile.get(file);
+                    if (watched != null) {
+                        ScheduledFuture<?> previous = settling.put(file,
+                                decoder.schedule(() -> decode(watched, false), SETTLE_MILLIS, TimeUnit.MILLISECONDS));
+                        if (previous != null) {
+                            previous.cancel(false);
+                        }
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Daemon thread; ends with the process
+        }
+    }
+
+    private void decode(Watched w, boolean baseline) {
+        settling.remove(w.file);
+        long start = System.nanoTime();
+        BufferedImage image;
+        try {
+            image = ImageIO.read(w.file.toFile());
+        } catch (IOException e) {
+            System.err.println("Failed to reload texture: " + w.file + " - " + e.getMessage());
+            return;
+        }
+        if (image == null) {
+            System.err.println("Failed to reload texture: " + w.file + " (unreadable image)");
+            return;
+        }
+        int textureWidth = w.texture.getWidth();
+        int textureHeight = w.texture.getHeight();
+        // Smaller than the file it was loaded from means the budget shrank it; keep that size
+        boolean reduced = baseline
+                ? textureWidth != image.getWidth() || textureHeight != image.getHeight()
+                : textureWidth != w.sourceWidth || textureHeight != w.sourceHeight;
+        w.sourceWidth = image.getWidth();
+        w.sourceHeight = image.getHeight();
+        if (reduced && (image.getWidth() != textureWidth || image.getHeight() != textureHeight)) {
+            image = resampled(image, textureWidth, textureHeight);
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (w.resident == null || width != w.width || height != w.height) {
+            w.width = width;
+            w.height = height;
+            w.resident = new int[width * height];
+            w.band = new int[width * TILE];
+            copyRows(image, w, 0, height, w.resident);
+            if (!baseline) {
+                // New dimensions: nothing to diff against
+                updates.add(new Update(w, width, height, null, null, image, 0, 0, System.nanoTime() - start));
+            }
+            return;
+        }
+        diff(image, w, System.nanoTime() - start);
+    }
+
+    /**
+     * Compares the image with the resident copy one band of tiles at a
+     * time, so the decoded pixels never need a second full-size array.
+     */
+    private void diff(BufferedImage image, Watched w, long decodeNanos) {
+        long start = System.nanoTime();
+        int width = w.width;
+        int height = w.height;
+        int tilesX = (width + TILE - 1) / TILE;
+        int tilesY = (height + TILE - 1) / TILE;
+        int[] band = w.band;
+        boolean[] dirty = new boolean[tilesX];
+        List<int[]> spans = new ArrayList<>();
+        int dirtyTiles = 0;
+        int dirtyPixels = 0;
+
+        for (int ty = 0; ty < tilesY; ty++) {
+            int y0 = ty * TILE;
+            int rows = Math.min(TILE, height - y0);
+            copyRows(image, w, y0, rows, band);
+            Arrays.fill(dirty, false);
+            for (int tx = 0; tx < tilesX; tx++) {
+                int x0 = tx * TILE;
+                int cols = Math.min(TILE, width - x0);
+                for (int r = 0; r < rows && !dirty[tx]; r++) {
+                    int at = glRow(w, y0 + r) * width + x0;
+                    dirty[tx] = Arrays.mismatch(w.resident, at, at + cols, band, r * width + x0, r * width + x0 + cols) >= 0;
+                }
+            }
+            // Neighbouring dirty tiles go up as one rectangle
+            for (int tx = 0; tx < tilesX; ) {
+                if (!dirty[tx]) {
+                    tx++;
+                    continue;
+                }
+                int first = tx;
+                while (tx < tilesX && dirty[tx]) {
+                    tx++;
+                }
+                int x0 = first * TILE;
+                int cols = Math.min(tx * TILE, width) - x0;
+                int glY = w.flipped ? height - y0 - rows : y0;
+                spans.add(new int[] {x0, glY, cols, rows});
+                dirtyTiles += tx - first;
+                dirtyPixels += cols * rows;
+                for (int r = 0; r < rows; r++) {
+                    System.arraycopy(band, r * width + x0, w.resident, glRow(w, y0 + r) * width + x0, cols);
+                }
+            }
+        }
+        if (spans.isEmpty()) {
+            return;
+        }
+
+        IntBuffer pixels = w.staging.getAndSet(null);
+        if (pixels == null || pixels.capacity() < dirtyPixels) {
+            pixels = Buffers.newDirectIntBuffer(Math.max(dirtyPixels, pixels != null ? pixels.capacity() * 2 : 0));
+        }
+        pixels.clear();
+        int[] rects = new int[spans.size() * 4];
+        for (int i = 0; i < spans.size(); i++) {
+            int[] s = spans.get(i);
+            System.arraycopy(s, 0, rects, i * 4, 4);
+            // Rectangle rows in GL order, straight from the resident copy
+            for (int r = 0; r < s[3]; r++) {
+                pixels.put(w.resident, (s[1] + r) * width + s[0], s[2]);
+            }
+        }
+        pixels.flip();
+        updates.add(new Update(w, width, height, rects, pixels, null, dirtyTiles, tilesX * tilesY,
+                decodeNanos + System.nanoTime() - start));
+    }
+
+    private static BufferedImage resampled(BufferedImage image, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height,
+                image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return scaled;
+    }
+
+    /** Image rows {@code y0 .. y0+rows} as ARGB, into {@code out} in GL row order relative to {@code y0}. */
+    private static void copyRows(BufferedImage image, Watched w, int y0, int rows, int[] out) {
+        int width = image.getWidth();
+        image.getRGB(0, y0, width, rows, out, 0, width);
+        if (w.flipped && out == w.resident) {
+            // Whole-image copy: reverse the rows into GL order
+            int[] row = new int[width];
+            for (int top = 0, bottom = rows - 1; top < bottom; top++, bottom--) {
+                System.arraycopy(out, top * width, row, 0, width);
+                System.arraycopy(out, bottom * width, out, top * width, width);
+                System.arraycopy(row, 0, out, bottom * width, width);
+            }
+        }
+    }
+
+    private static int glRow(Watched w, int imageRow) {
+        return w.flipped ? w.height - 1 - imageRow : imageRow;
+    }
+}
@@ -0,0 +1,166 @@
+package org.hkprog.jogl.example.render;
+
+import org.hkprog.jogl.example.math.Mat4d;
+import org.hkprog.jogl.example.math.Vec3d;
+
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Culls bounding spheres stored as packed xyz double positions against the
+ * view frustum and against a spherical occluder (the Earth) centered at the
+ * world origin, producing the list of indices that should be drawn.
+ *
+ * The horizon test is analytic: with the camera at E outside an occluder of
+ * radius R, a point P is hidden when it is both behind the horizon plane
+ * (P·E &lt; R²) and inside the tangent cone from E. Object radii are handled
+ * conservatively by shrinking the occluder by the object's radius.
+ *
+ * Large catalogs are split into fixed-size chunks culled in parallel; each
+ * chunk writes into its own slice of a scratch array, which is then
+ * compacted in index order so the output is deterministic.
+ */
+public final class VisibilityCuller {
+
+    private static final int CHUNK = 2048;
+    private static final int PARALLEL_THRESHOLD = 8192;
+
+    // Frustum planes (a, b, c, d) in eye-relative world space, normals pointing inward
+    private final double[] planes = new double[24];
+    private final Mat4d projection = new Mat4d();
+    private final Mat4d clip = new Mat4d();
+    private double eyeX, eyeY, eyeZ;
+    private double occluderRadius;
+
+    // Per-call inputs, held in fields so the chunk task needs no capture
+    private double[] positions;
+    private int count;
+    private double objectRadius;
+
+    private int[] chunkScratch = new int[0];
+    private int[] chunkVisible = new int[0];
+    private int[] chunkFrustum = new int[0];
+    private int[] chunkHorizon = new int[0];
+    private final IntConsumer chunkTask = this::cullChunk;
+
+    private int frustumCulled;
+    private int horizonCulled;
+
+    /** Sets the frustum from a camera-relative view and a perspective projection. */
+    public void setView(RelativeToEye camera, double fovYDeg, double aspect, double near, double far) {
+        Vec3d eye = camera.eye();
+        eyeX = eye.x;
+        eyeY = eye.y;
+        eyeZ = eye.z;
+        projection.perspective(fovYDeg, aspect, near, far);
+        clip.mul(projection, camera.viewRotation());
+        clip.frustumPlanes(planes);
+    }
+
+    /** Radius of the occluding sphere at the origin; 0 disables the horizon test. */
+    public void setOccluderRadius(double radius) {
+        occluderRadius = radius;
+    }
+
+    /**
+     * Writes the indices of visible objects into {@code visibleOut} (which
+     * must hold {@code count} entries) and returns how many there are.
+     */
+    public int cull(double[] positions, int count, double objectRadius, int[] visibleOut) {
+        this.positions = positions;
+        this.count = count;
+        this.objectRadius = objectRadius;
+
+        int chunks = (count + CHUNK - 1) / CHUNK;
+        ensureChunkCapacity(chunks);
+        if (count < PARALLEL_THRESHOLD) {
+            for (int c = 0; c < chunks; c++) {
+                cullChunk(c);
+            }
+        } else {
+            IntStream.range(0, chunks).parallel().forEach(chunkTask);
+        }
+
+        int visible = 0;
+        frustumCulled = 0;
+        horizonCulled = 0;
+        for (int c = 0; c < chunks; c++) {
+            System.arraycopy(chunkScratch, c * CHUNK, visibleOut, visible, chunkVisible[c]);
+            visible += chunkVisible[c];
+            frustumCulled += chunkFrustum[c];
+            horizonCulled += chunkHorizon[c];
+        }
+        this.positions = null;
+        return visible;
+    }
+
+    public int frustumCulled() {
+        return frustumCulled;
+    }
+
+    public int horizonCulled() {
+        return horizonCulled;
+    }
+
+    private void ensureChunkCapacity(int chunks) {
+        if (chunkVisible.length < chunks) {
+            chunkScratch = new int[chunks * CHUNK];
+            chunkVisible = new int[chunks];
+            chunkFrustum = new int[chunks];
+            chunkHorizon = new int[chunks];
+        }
+    }
+
+    private void cullChunk(int chunk) {
+        int from = chunk * CHUNK;
+        int to = Math.min(count, from + CHUNK);
+        double[] pos = positions;
+        double[] pl = planes;
+        double r = objectRadius;
+        double ex = eyeX, ey = eyeY, ez = eyeZ;
+
+        // Horizon cone terms, constant for the frame
+        double occluder = occluderRadius - r;
+        double eyeSq = ex * ex + ey * ey + ez * ez;
+        boolean horizonTest = occluder > 0.0 && eyeSq > occluder * occluder;
+        double horizonSq = eyeSq - occluder * occluder;
+
+        int visible = 0;
+        int frustum = 0;
+        int horizon = 0;
+        int out = from;
+        for (int i = from; i < to; i++) {
+            int p = i * 3;
+            double px = pos[p], py = pos[p + 1], pz = pos[p + 2];
+            double rx = px - ex, ry = py - ey, rz = pz - ez;
+
+            boolean inside = true;
+            for (int k = 0; k < 24; k += 4) {
+                if (pl[k] * rx + pl[k + 1] * ry + pl[k + 2] * rz + pl[k + 3] < -r) {
+                    inside = false;
+                    break;
+                }
+            }
+            if (!inside) {
+                frustum++;
+                continue;
+            }
+
+            if (horizonTest) {
+                // vt = P - E, vc = -E: hidden when vt·vc > |vh|² and (vt·vc)²/|vt|² > |vh|²
+                double vtDotVc = eyeSq - (px * ex + py * ey + pz * ez);
+                if (vtDotVc > horizonSq
+                        && vtDotVc * vtDotVc > horizonSq * (rx * rx + ry * ry + rz * rz)) {
+                    horizon++;
+                    continue;
+                }
+            }
+
+            chunkScratch[out++] = i;
+            visible++;
+        }
+        chunkVisible[chunk] = visible;
+        chunkFrustum[chunk] = frustum;
+        chunkHorizon[chunk] = horizon;
+    }
+}
@@ -0,0 +1,109 @@
+package org.hkprog.jogl.example.replay;
+
+import com.jogamp.opengl.GLAutoDrawable;
+import com.jogamp.opengl.GLCapabilities;
+import com.jogamp.opengl.GLDrawableFactory;
+import com.jogamp.opengl.GLEventListener;
+import com.jogamp.opengl.GLOffscreenAutoDrawable;
+import com.jogamp.opengl.GLProfile;
+import org.hkprog.jogl.example.batch.BatchScene;
+import org.hkprog.jogl.example.batch.Scenes;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Replays a recorded session offscreen as fast as possible and prints
+ * frame time percentiles, so the same interaction can be timed before and
+ * after a change. Record with {@code -Dreplay.record=session.jrpl} on
+ * DrawEarth or Chapter1, then:
+ *
+ * <pre>
+ * ReplayBenchmark session.jrpl [--repeat N]
+ * </pre>
+ *
+ * Frame times include a glFinish, so they cover the GPU work too.
+ */
+public final class ReplayBenchmark {
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: ReplayBenchmark <session log> [--repeat N]");
+            System.exit(1);
+        }
+        int repeat = args.length >= 3 && args[1].equals("--repeat") ? Math.max(1, Integer.parseInt(args[2])) : 1;
+
+        SessionReplay replay = SessionReplay.open(Paths.get(args[0]));
+        if (replay == null) {
+            System.exit(1);
+        }
+        BatchScene scene = Scenes.create(replay.sceneName());
+        if (scene == null) {
+            System.err.println("Unknown scene " + replay.sceneName() + ", expected one of " + Scenes.names());
+            System.exit(1);
+        }
+
+        GLProfile profile = GLProfile.get(GLProfile.GL2);
+        GLCapabilities capabilities = new GLCapabilities(profile);
+        capabilities.setOnscreen(false);
+        GLOffscreenAutoDrawable drawable = GLDrawableFactory.getFactory(profile)
+                .createOffscreenAutoDrawable(null, capabilities, null, 1, 1);
+        drawable.addGLEventListener(scene);
+        // Runs after the scene, so each timed display() includes its GPU work
+        drawable.addGLEventListener(new GLEventListener() {
+            @Override
+            public void init(GLAutoDrawable d) {
+            }
+
+            @Override
+            public void dispose(GLAutoDrawable d) {
+            }
+
+            @Override
+            public void display(GLAutoDrawable d) {
+                d.getGL().glFinish();
+            }
+
+            @Override
+            public void reshape(GLAutoDrawable d, int x, int y, int width, int height) {
+            }
+        });
+
+        long[] frameNanos = new long[1024];
+        for (int pass = 1; pass <= repeat; pass++) {
+            replay.rewind();
+            int frames = 0;
+            long start = System.nanoTime();
+            while (replay.next(scene)) {
+                if (replay.width() != drawable.getSurfaceWidth() || replay.height() != drawable.getSurfaceHeight()) {
+                    drawable.setSurfaceSize(Math.max(1, replay.width()), Math.max(1, replay.height()));
+                }
+                long frameStart = System.nanoTime();
+                drawable.display();
+                if (frames == frameNanos.length) {
+                    frameNanos = Arrays.copyOf(frameNanos, frames * 2);
+                }
+                frameNanos[frames++] = System.nanoTime() - frameStart;
+            }
+            long elapsed = System.nanoTime() - start;
+            report(pass, frameNanos, frames, elapsed);
+        }
+        drawable.destroy();
+    }
+
+    private static void report(int pass, long[] frameNanos, int frames, long elapsedNanos) {
+        if (frames == 0) {
+            System.out.println("Pass " + pass + ": no frames in session");
+            return;
+        }
+        long[] sorted = Arrays.copyOf(frameNanos, frames);
+        Arrays.sort(sorted);
+        System.out.printf("Pass %d: %d frames in %.2f s (%.1f fps) | ms p50 %.2f, p95 %.2f, p99 %.2f, max %.2f%n",
+                pass, frames, elapsedNanos / 1e9, frames / (elapsedNanos / 1e9),
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99), sorted[frames - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))] / 1e6;
+    }
+}
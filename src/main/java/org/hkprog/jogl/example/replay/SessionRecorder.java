@@ -0,0 +1,199 @@
+package org.hkprog.jogl.example.replay;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Appends what a scene showed each frame to a session log that
+ * {@link SessionReplay} plays back.
+ *
+ * The log is written through a memory-mapped window, so a frame costs a
+ * few buffer puts and no system call, and everything written survives
+ * even if the process exits without {@link #close()}. Records are
+ * {@code type, length, payload}. Only changes are stored: a frame whose
+ * view, size and options match the previous one is a single 3-5 byte
+ * record holding its time step, about 1 MB per hour at 60 fps.
+ *
+ * Enabled by {@code -Dreplay.record=file}; otherwise every call returns at
+ * once. GL thread only.
+ */
+public final class SessionRecorder {
+
+    static final int MAGIC = 0x4C50524A; // "JRPL" little-endian
+    static final int VERSION = 1;
+    static final byte END = 0;
+    static final byte FRAME = 1;
+    static final byte VIEW = 2;
+    static final byte SIZE = 3;
+    static final byte OPTION = 4;
+
+    private static final int WINDOW_BYTES = 1 << 20;
+    private static final int MAX_RECORD_BYTES = 2 + 255;
+
+    private final String sceneName;
+    private final Path file;
+    private FileChannel channel;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private boolean failed;
+
+    // Last values written, so unchanged state costs nothing
+    private long timeMicros;
+    private float rotX = Float.NaN;
+    private float rotY = Float.NaN;
+    private float zoom = Float.NaN;
+    private int width = -1;
+    private int height = -1;
+    private final Map<String, String> options = new HashMap<>();
+    private long frames;
+
+    private SessionRecorder(String sceneName, Path file) {
+        this.sceneName = sceneName;
+        this.file = file;
+    }
+
+    /** {@code sceneName} is the scene's name in {@link org.hkprog.jogl.example.batch.Scenes}. */
+    public static SessionRecorder fromSystemProperties(String sceneName) {
+        String file = System.getProperty("replay.record");
+        return new SessionRecorder(sceneName, file != null ? Paths.get(file) : null);
+    }
+
+    /** Records a scene option; call every frame before {@link #endFrame}, it is only written when it changes. */
+    public void option(String key, String value) {
+        if (!open() || value.equals(options.get(key))) {
+            return;
+        }
+        options.put(key, value);
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        byte[] v = value.getBytes(StandardCharsets.UTF_8);
+        if (1 + k.length + v.length > 255) {
+            System.err.println("Session option too long to record: " + key);
+            return;
+        }
+        if (begin(OPTION, 1 + k.length + v.length)) {
+            window.put((byte) k.length).put(k).put(v);
+        }
+    }
+
+    /** Records the end of a frame drawn at {@code simSeconds} of scene time with the given camera. */
+    public void endFrame(double simSeconds, float rotXDeg, float rotYDeg, float zoomValue, int surfaceWidth, int surfaceHeight) {
+        if (!open()) {
+            return;
+        }
+        if (surfaceWidth != width || surfaceHeight != height) {
+            width = surfaceWidth;
+            height = surfaceHeight;
+            if (!begin(SIZE, 8)) {
+                return;
+            }
+            window.putInt(width).putInt(height);
+        }
+        if (Float.compare(rotXDeg, rotX) != 0 || Float.compare(rotYDeg, rotY) != 0 || Float.compare(zoomValue, zoom) != 0) {
+            rotX = rotXDeg;
+            rotY = rotYDeg;
+            zoom = zoomValue;
+            if (!begin(VIEW, 12)) {
+                return;
+            }
+            window.putFloat(rotX).putFloat(rotY).putFloat(zoom);
+        }
+        // Rounding the absolute time, not each step, keeps the replayed clock from drifting
+        long micros = Math.round(simSeconds * 1e6);
+        long step = micros - timeMicros;
+        timeMicros = micros;
+        if (begin(FRAME, varintLength(zigZag(step)))) {
+            putVarint(zigZag(step));
+            frames++;
+        }
+    }
+
+    public void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            // Drop the unused tail of the last window
+            if (window != null) {
+                channel.truncate(windowStart + window.position());
+            }
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close session log " + file + " - " + e.getMessage());
+        }
+        channel = null;
+        window = null;
+        System.out.println("Session recorded: " + file + " (" + frames + " frames)");
+    }
+
+    private boolean open() {
+        if (window != null) {
+            return true;
+        }
+        if (file == null || failed) {
+            return false;
+        }
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            map(0);
+        } catch (IOException e) {
+            System.err.println("Failed to open session log " + file + " - " + e.getMessage());
+            failed = true;
+            return false;
+        }
+        byte[] name = sceneName.getBytes(StandardCharsets.UTF_8);
+        window.putInt(MAGIC).put((byte) VERSION).put((byte) name.length).put(name);
+        System.out.println("Recording session to " + file);
+        return true;
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_WRITE, start, WINDOW_BYTES);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private boolean begin(byte type, int length) {
+        if (window.remaining() < MAX_RECORD_BYTES) {
+            try {
+                map(windowStart + window.position());
+            } catch (IOException e) {
+                System.err.println("Failed to extend session log " + file + " - " + e.getMessage());
+                failed = true;
+                window = null;
+                return false;
+            }
+        }
+        window.put(type).put((byte) length);
+        return true;
+    }
+
+    private void putVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            window.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        window.put((byte) value);
+    }
+
+    private static int varintLength(long value) {
+        int length = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
@@ -0,0 +1,146 @@
+package org.hkprog.jogl.example.replay;
+
+import org.hkprog.jogl.example.batch.BatchScene;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Plays back a {@link SessionRecorder} log into a scene, one frame per
+ * {@link #next} call. The scene's clock only advances by the recorded
+ * steps, so a replay shows the same frames however fast it runs.
+ *
+ * The file is memory-mapped and decoded as it is played, so opening costs
+ * nothing beyond reading the header.
+ */
+public final class SessionReplay {
+
+    private final Path file;
+    private final MappedByteBuffer log;
+    private final String sceneName;
+    private final int firstRecord;
+
+    private long timeMicros;
+    private int width;
+    private int height;
+    private long frame;
+
+    private SessionReplay(Path file, MappedByteBuffer log, String sceneName) {
+        this.file = file;
+        this.log = log;
+        this.sceneName = sceneName;
+        this.firstRecord = log.position();
+    }
+
+    /** Returns null, after printing why, if the file is missing or not a session log. */
+    public static SessionReplay open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer log = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            log.order(ByteOrder.LITTLE_ENDIAN);
+            if (log.remaining() < 6 || log.getInt() != SessionRecorder.MAGIC) {
+                System.err.println("Not a session log: " + file);
+                return null;
+            }
+            int version = log.get();
+            if (version != SessionRecorder.VERSION) {
+                System.err.println("Unsupported session log version " + version + ": " + file);
+                return null;
+            }
+            byte[] name = new byte[log.get() & 0xFF];
+            log.get(name);
+            return new SessionReplay(file, log, new String(name, StandardCharsets.UTF_8));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to open session log " + file + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    public String sceneName() {
+        return sceneName;
+    }
+
+    /** Surface size of the frame last returned by {@link #next}. */
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /** Frames played since the start or the last {@link #rewind()}. */
+    public long frame() {
+        return frame;
+    }
+
+    public void rewind() {
+        log.position(firstRecord);
+        timeMicros = 0;
+        width = 0;
+        height = 0;
+        frame = 0;
+    }
+
+    /**
+     * Applies the next frame's options, view and time to {@code scene}, to
+     * be followed by one display(). Returns false at the end of the log.
+     */
+    public boolean next(BatchScene scene) {
+        while (log.remaining() >= 2) {
+            byte type = log.get();
+            int length = log.get() & 0xFF;
+            if (type == SessionRecorder.END) {
+                break;
+            }
+            if (log.remaining() < length) {
+                System.err.println("Session log " + file + " is truncated after frame " + frame);
+                break;
+            }
+            int end = log.position() + length;
+            switch (type) {
+                case SessionRecorder.FRAME -> {
+                    long step = readVarint();
+                    timeMicros += (step >>> 1) ^ -(step & 1);
+                    scene.setSimulationTime(timeMicros / 1e6);
+                    frame++;
+                    log.position(end);
+                    return true;
+                }
+                case SessionRecorder.VIEW -> scene.setView(log.getFloat(), log.getFloat(), log.getFloat());
+                case SessionRecorder.SIZE -> {
+                    width = log.getInt();
+                    height = log.getInt();
+                }
+                case SessionRecorder.OPTION -> {
+                    byte[] key = new byte[log.get() & 0xFF];
+                    log.get(key);
+                    byte[] value = new byte[end - log.position()];
+                    log.get(value);
+                    scene.setOption(new String(key, StandardCharsets.UTF_8), new String(value, StandardCharsets.UTF_8));
+                }
+                default -> {
+                    // Written by a newer recorder; its length lets us step over it
+                }
+            }
+            log.position(end);
+        }
+        log.position(log.limit());
+        return false;
+    }
+
+    private long readVarint() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = log.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
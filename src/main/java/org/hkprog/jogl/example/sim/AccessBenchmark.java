@@ -0,0 +1,38 @@
+package org.hkprog.jogl.example.sim;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One day of access windows between a mixed LEO catalog and a lattice of
+ * ground stations, timed end to end, with the delay until the first
+ * window streamed out.
+ *
+ * Usage: AccessBenchmark [satellites] [stations] [hours]
+ */
+public final class AccessBenchmark {
+
+    public static void main(String[] args) {
+        int satellites = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int stations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        double hours = args.length > 2 ? Double.parseDouble(args[2]) : 24.0;
+
+        SatelliteCatalog catalog = new SatelliteCatalog(satellites);
+        int planes = Math.max(1, satellites / 50);
+        catalog.addWalkerDelta(planes, 25, 1, 550_000.0, 53.0);
+        catalog.addWalkerDelta(planes, satellites / planes - 25, 1, 1_200_000.0, 87.9);
+        AccessEngine engine = new AccessEngine(0.0, 10.0, 30.0);
+        engine.addStationLattice(stations);
+
+        LongAdder streamed = new LongAdder();
+        AtomicLong firstNanos = new AtomicLong();
+        long start = System.nanoTime();
+        long windows = engine.run(catalog, 0.0, hours * 3600.0, (satellite, station, rise, set) -> {
+            firstNanos.compareAndSet(0, System.nanoTime() - start);
+            streamed.increment();
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d satellites x %d stations, %.0f h: %d windows in %.2f s (first after %.1f ms, %d streamed)%n",
+                catalog.size(), engine.stationCount(), hours, windows, seconds, firstNanos.get() / 1e6, streamed.sum());
+    }
+}
@@ -0,0 +1,268 @@
+package org.hkprog.jogl.example.sim;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Line-of-sight access windows between a {@link SatelliteCatalog} and a
+ * set of ground stations: the intervals during which a satellite stands
+ * above a station's minimum elevation.
+ *
+ * Each satellite is one fork-join task over all stations, so its coarse
+ * trajectory is computed once and shared by the pairs. Per pair the
+ * elevation is sampled on a fixed coarse step, and a sample that finds
+ * the satellite beyond the station's visibility cone also bounds how long
+ * it must stay there, from the largest rate at which the angle between
+ * them can close; the scan jumps that far. Sign changes between samples are
+ * then refined by regula falsi (Illinois) on the exact orbit to
+ * {@link #TIME_TOLERANCE_SEC}.
+ *
+ * Windows go to a {@link Sink} as soon as their set time is refined, from
+ * whichever worker found them. A pass shorter than the coarse step can fall
+ * between samples and be missed. Windows open at either end of the run are
+ * clipped to it.
+ *
+ * Stations sit on a spherical Earth and turn with it by the Greenwich
+ * sidereal angle of {@code epochSec + t}, with {@code t} on the catalog's clock.
+ */
+public final class AccessEngine {
+
+    /** Receives finished windows; called concurrently from the fork-join pool. */
+    public interface Sink {
+        void access(int satellite, int station, double riseSec, double setSec);
+    }
+
+    public static final double TIME_TOLERANCE_SEC = 1e-3;
+
+    private static final int REFINE_ITERATIONS = 40;
+    // Rate of the Greenwich sidereal angle, matching Ephemeris.greenwichSiderealRad
+    private static final double SIDEREAL_RATE = Math.toRadians(360.98564736629) / Ephemeris.SECONDS_PER_DAY;
+
+    private final double epochSec;
+    private final double sinMinElevation;
+    private final double minElevation;
+    private final double coarseStep;
+
+    // Earth-fixed unit up vectors and radii
+    private int stationCount;
+    private double[] upX = new double[16];
+    private double[] upY = new double[16];
+    private double[] upZ = new double[16];
+    private double[] stationRadius = new double[16];
+
+    private volatile boolean cancelled;
+
+    public AccessEngine(double epochSec, double minElevationDeg, double coarseStepSec) {
+        this.epochSec = epochSec;
+        this.minElevation = Math.toRadians(minElevationDeg);
+        this.sinMinElevation = Math.sin(minElevation);
+        this.coarseStep = coarseStepSec;
+    }
+
+    /** Adds a station on the spherical Earth; returns its index. */
+    public int addStation(double latitudeDeg, double longitudeDeg, double altitudeM) {
+        if (stationCount == upX.length) {
+            int capacity = stationCount * 2;
+            upX = Arrays.copyOf(upX, capacity);
+            upY = Arrays.copyOf(upY, capacity);
+            upZ = Arrays.copyOf(upZ, capacity);
+            stationRadius = Arrays.copyOf(stationRadius, capacity);
+        }
+        double lat = Math.toRadians(latitudeDeg);
+        double lon = Math.toRadians(longitudeDeg);
+        int s = stationCount++;
+        upX[s] = Math.cos(lat) * Math.cos(lon);
+        upY[s] = Math.cos(lat) * Math.sin(lon);
+        upZ[s] = Math.sin(lat);
+        stationRadius[s] = SatelliteCatalog.EARTH_RADIUS_M + altitudeM;
+        return s;
+    }
+
+    /** Adds {@code n} stations spread evenly over the globe on a Fibonacci lattice. */
+    public void addStationLattice(int n) {
+        double golden = Math.PI * (3.0 - Math.sqrt(5.0));
+        for (int k = 0; k < n; k++) {
+            double z = 1.0 - (2.0 * k + 1.0) / n;
+            addStation(Math.toDegrees(Math.asin(z)), Math.toDegrees(Math.IEEEremainder(k * golden, 2.0 * Math.PI)), 0.0);
+        }
+    }
+
+    public int stationCount() {
+        return stationCount;
+    }
+
+    /** Writes the inertial position of station {@code s} at {@code t} to {@code out[offset..offset+2]}. */
+    public void stationPosition(int s, double t, double[] out, int offset) {
+        double gmst = Ephemeris.greenwichSiderealRad(epochSec + t);
+        double cos = Math.cos(gmst);
+        double sin = Math.sin(gmst);
+        double r = stationRadius[s];
+        out[offset] = r * (cos * upX[s] - sin * upY[s]);
+        out[offset + 1] = r * (sin * upX[s] + cos * upY[s]);
+        out[offset + 2] = r * upZ[s];
+    }
+
+    /**
+     * Makes a {@link #run} in progress stop before its next satellite, and
+     * any later run return at once: a cancelled engine stays cancelled, so
+     * a run still queued behind others when it is dropped never starts work.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Finds every window in [{@code startSec}, {@code endSec}] for all
+     * satellite-station pairs, streaming them to {@code sink}. Returns the
+     * number of windows, or -1 if cancelled.
+     */
+    public long run(SatelliteCatalog catalog, double startSec, double endSec, Sink sink) {
+        if (cancelled) {
+            return -1;
+        }
+        int steps = (int) Math.ceil((endSec - startSec) / coarseStep);
+        // Earth rotation per coarse sample, shared by every task
+        double[] cos = new double[steps + 1];
+        double[] sin = new double[steps + 1];
+        for (int k = 0; k <= steps; k++) {
+            double gmst = Ephemeris.greenwichSiderealRad(epochSec + sampleTime(startSec, endSec, k));
+            cos[k] = Math.cos(gmst);
+            sin[k] = Math.sin(gmst);
+        }
+        long found = IntStream.range(0, catalog.size()).parallel()
+                .mapToLong(i -> cancelled ? 0 : satellite(catalog, i, startSec, endSec, steps, cos, sin, sink))
+                .sum();
+        return cancelled ? -1 : found;
+    }
+
+    private double sampleTime(double startSec, double endSec, int k) {
+        return Math.min(endSec, startSec + k * coarseStep);
+    }
+
+    private long satellite(SatelliteCatalog catalog, int i, double startSec, double endSec, int steps,
+                           double[] cos, double[] sin, Sink sink) {
+        double[] trajectory = new double[(steps + 1) * 3];
+        for (int k = 0; k <= steps; k++) {
+            catalog.position(i, sampleTime(startSec, endSec, k), trajectory, k * 3);
+        }
+        double orbitRadius = catalog.orbitRadius(i);
+        double closingRate = catalog.meanMotion(i) + SIDEREAL_RATE; // bound on the angle's rate of change
+        double[] scratch = new double[3];
+        long windows = 0;
+
+        for (int s = 0; s < stationCount; s++) {
+            // Largest Earth-central angle at which the satellite still clears the minimum elevation
+            double ratio = stationRadius[s] * Math.cos(minElevation) / orbitRadius;
+            if (ratio >= 1.0) {
+                continue; // never high enough
+            }
+            double coneAngle = Math.acos(ratio) - minElevation;
+            double cosCone = Math.cos(coneAngle);
+
+            boolean visible = false;
+            double rise = startSec;
+            int k = 0;
+            int last = 0; // the sample before k, known to share the state held in visible
+            while (k <= steps) {
+                int p = k * 3;
+                double ux = cos[k] * upX[s] - sin[k] * upY[s];
+                double uy = sin[k] * upX[s] + cos[k] * upY[s];
+                double cosAngle = (trajectory[p] * ux + trajectory[p + 1] * uy + trajectory[p + 2] * upZ[s]) / orbitRadius;
+                boolean now = cosAngle >= cosCone && sampleElevation(trajectory, cos, sin, k, s) >= 0.0;
+
+                if (now != visible) {
+                    double t = k == 0 ? startSec : refine(catalog, i, s, cos[last], sin[last],
+                            sampleTime(startSec, endSec, last), sampleElevation(trajectory, cos, sin, last, s),
+                            sampleTime(startSec, endSec, k), sampleElevation(trajectory, cos, sin, k, s), scratch);
+                    if (now) {
+                        rise = t;
+                    } else {
+                        sink.access(i, s, rise, t);
+                        windows++;
+                    }
+                    visible = now;
+                }
+                last = k;
+                if (!now && cosAngle < cosCone) {
+                    // cos λ - cos θ never exceeds θ - λ, and it spares an acos per sample
+                    double margin = (cosCone - cosAngle) / closingRate;
+                    k += Math.max(1, (int) (margin / coarseStep));
+                    last = k - 1;
+                } else {
+                    k++;
+                }
+            }
+            if (visible) {
+                sink.access(i, s, rise, endSec);
+                windows++;
+            }
+        }
+        return windows;
+    }
+
+    /** sin(elevation) minus sin(minimum elevation) of a satellite seen from a station along {@code u}. */
+    private double elevation(double x, double y, double z, double ux, double uy, double uz, double radius) {
+        double dx = x - radius * ux, dy = y - radius * uy, dz = z - radius * uz;
+        return (dx * ux + dy * uy + dz * uz) / Math.sqrt(dx * dx + dy * dy + dz * dz) - sinMinElevation;
+    }
+
+    /** {@link #elevation} at coarse sample {@code k}, from the precomputed trajectory and Earth rotation. */
+    private double sampleElevation(double[] trajectory, double[] cos, double[] sin, int k, int s) {
+        int p = k * 3;
+        return elevation(trajectory[p], trajectory[p + 1], trajectory[p + 2],
+                cos[k] * upX[s] - sin[k] * upY[s], sin[k] * upX[s] + cos[k] * upY[s], upZ[s], stationRadius[s]);
+    }
+
+    /**
+     * {@link #elevation} at {@code t}, with the Earth turned on from its
+     * angle at the bracket start {@code a} by a short series: the bracket is
+     * one coarse step, a few milliradians of rotation.
+     */
+    private double elevationAt(SatelliteCatalog catalog, int i, int s, double cosA, double sinA, double a, double t,
+                               double[] scratch) {
+        catalog.position(i, t, scratch, 0);
+        double d = SIDEREAL_RATE * (t - a);
+        double d2 = d * d;
+        double cosD = 1.0 - d2 * (0.5 - d2 / 24.0);
+        double sinD = d * (1.0 - d2 / 6.0);
+        double cos = cosA * cosD - sinA * sinD;
+        double sin = sinA * cosD + cosA * sinD;
+        return elevation(scratch[0], scratch[1], scratch[2],
+                cos * upX[s] - sin * upY[s], sin * upX[s] + cos * upY[s], upZ[s], stationRadius[s]);
+    }
+
+    /**
+     * Crossing of the minimum elevation in [a, b], whose ends are on
+     * opposite sides of it, once successive estimates agree to the tolerance.
+     */
+    private double refine(SatelliteCatalog catalog, int i, int s, double cosA, double sinA,
+                          double a, double fa, double b, double fb, double[] scratch) {
+        double start = a;
+        double previous = Double.NaN;
+        int side = 0;
+        for (int iteration = 0; iteration < REFINE_ITERATIONS; iteration++) {
+            double t = (a * fb - b * fa) / (fb - fa);
+            if (Math.abs(t - previous) < TIME_TOLERANCE_SEC) {
+                return t;
+            }
+            previous = t;
+            double ft = elevationAt(catalog, i, s, cosA, sinA, start, t, scratch);
+            if ((ft >= 0.0) == (fb >= 0.0)) {
+                b = t;
+                fb = ft;
+                if (side == -1) {
+                    fa *= 0.5; // Illinois: halve the stale end so it can't stall
+                }
+                side = -1;
+            } else {
+                a = t;
+                fa = ft;
+                if (side == 1) {
+                    fb *= 0.5;
+                }
+                side = 1;
+            }
+        }
+        return previous;
+    }
+}
@@ -0,0 +1,38 @@
+package org.hkprog.jogl.example.sim;
+
+import java.util.Random;
+
+/**
+ * Times one {@link ConjunctionScreener} pass over random LEO catalogs of
+ * growing size, to show the cost per object staying roughly flat.
+ *
+ * Usage: ConjunctionBenchmark [max objects]
+ */
+public final class ConjunctionBenchmark {
+
+    public static void main(String[] args) {
+        int maxCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_048_576;
+        ConjunctionScreener screener = new ConjunctionScreener(50_000.0, 5_000.0);
+        Random random = new Random(42);
+
+        for (int n = 16_384; n <= maxCount; n *= 4) {
+            SatelliteCatalog catalog = new SatelliteCatalog(n);
+            for (int i = 0; i < n; i++) {
+                catalog.add(SatelliteCatalog.EARTH_RADIUS_M + 400_000.0 + random.nextDouble() * 1_200_000.0,
+                        random.nextDouble() * 180.0, random.nextDouble() * 360.0, random.nextDouble() * 360.0);
+            }
+            catalog.propagate(0.0);
+            ConjunctionScreener.StateSource source = (i, dt, out) -> catalog.state(i, dt, out);
+
+            long best = Long.MAX_VALUE;
+            int found = 0;
+            for (int pass = 0; pass < 5; pass++) { // the first passes warm up the JIT
+                long start = System.nanoTime();
+                found = screener.screen(catalog.positions, n, 1.0, source);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            System.out.printf("%8d objects: %7.2f ms, %.0f ns/object, %d candidates, %d conjunctions%n",
+                    n, best / 1e6, (double) best / n, screener.candidateCount(), found);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package org.hkprog.jogl.example.sim;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Close-approach screening over a whole catalog each tick.
+ *
+ * Positions are binned into a uniform 3D grid whose cells are the
+ * screening distance across, stored as a spatial hash: each object's key
+ * is its hashed cell in the high bits and its index in the low bits, and
+ * one parallel sort of those keys groups every cell into a contiguous run.
+ * Each object is then tested only against later objects of its own cell
+ * and all objects of the 13 "forward" neighbor cells, so every pair within
+ * the screening distance is visited once and the work grows with N log N
+ * rather than N². Objects are scanned in parallel chunks.
+ *
+ * Each candidate pair is refined to its time of closest approach by
+ * Newton iteration on d/dt |Δr|² = 0 against exact states from a
+ * {@link StateSource}, and kept if the miss distance is under the
+ * reporting threshold and the approach falls inside the tick's window;
+ * a pair whose refinement stops at a window edge still closing is left
+ * for the tick that contains its approach.
+ * For nothing to slip through, the screening distance must be at least
+ * the miss distance plus the largest relative speed times the window.
+ */
+public final class ConjunctionScreener {
+
+    /** State of object {@code i} at {@code dt} seconds from the screened instant: position then velocity. */
+    public interface StateSource {
+        void state(int i, double dt, double[] out);
+    }
+
+    private static final int INDEX_BITS = 24;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+    private static final long HASH_MASK = (1L << (64 - INDEX_BITS - 1)) - 1; // keys stay positive
+    private static final int CHUNK = 2048;
+    private static final int NEWTON_ITERATIONS = 4;
+
+    // Forward half of the 26 neighbors: the first nonzero offset is positive
+    private static final int[][] FORWARD = forwardNeighbors();
+
+    private final double screeningDistance;
+    private final double missDistance;
+
+    private long[] keys = new long[0];
+    private long[] candidates = new long[0];
+    private int candidateCount;
+
+    // Results, valid until the next screen()
+    private int count;
+    private int[] first = new int[16];
+    private int[] second = new int[16];
+    private double[] timeOfClosestApproach = new double[16];
+    private double[] miss = new double[16];
+
+    public ConjunctionScreener(double screeningDistance, double missDistance) {
+        if (missDistance > screeningDistance) {
+            throw new IllegalArgumentException("miss distance " + missDistance + " exceeds screening distance " + screeningDistance);
+        }
+        this.screeningDistance = screeningDistance;
+        this.missDistance = missDistance;
+    }
+
+    /**
+     * Screens the first {@code objectCount} packed xyz positions and
+     * refines the candidates within {@code ±window} seconds. Returns the
+     * number of conjunctions found, ordered by object pair.
+     */
+    public int screen(double[] positions, int objectCount, double window, StateSource source) {
+        if (objectCount > INDEX_MASK) {
+            throw new IllegalArgumentException("too many objects for the spatial hash: " + objectCount);
+        }
+        if (keys.length < objectCount) {
+            keys = new long[objectCount];
+        }
+        double inverseCell = 1.0 / screeningDistance;
+        int chunks = (objectCount + CHUNK - 1) / CHUNK;
+        long[] keys = this.keys;
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            for (int i = c * CHUNK, end = Math.min(objectCount, (c + 1) * CHUNK); i < end; i++) {
+                int p = i * 3;
+                keys[i] = cellHash((long) Math.floor(positions[p] * inverseCell),
+                        (long) Math.floor(positions[p + 1] * inverseCell),
+                        (long) Math.floor(positions[p + 2] * inverseCell)) << INDEX_BITS | i;
+            }
+        });
+        Arrays.parallelSort(keys, 0, objectCount);
+
+        // Broad phase: one pair list per chunk, concatenated in chunk order
+        long[][] found = new long[chunks][];
+        IntStream.range(0, chunks).parallel().forEach(c ->
+                found[c] = neighbors(positions, objectCount, c * CHUNK, Math.min(objectCount, (c + 1) * CHUNK), inverseCell));
+        candidateCount = 0;
+        for (long[] pairs : found) {
+            int n = (int) pairs[0];
+            ensureCandidates(candidateCount + n);
+            System.arraycopy(pairs, 1, candidates, candidateCount, n);
+            candidateCount += n;
+        }
+        // Hash collisions can report a pair twice
+        Arrays.parallelSort(candidates, 0, candidateCount);
+        int unique = 0;
+        for (int k = 0; k < candidateCount; k++) {
+            if (unique == 0 || candidates[k] != candidates[unique - 1]) {
+                candidates[unique++] = candidates[k];
+            }
+        }
+        candidateCount = unique;
+
+        // Narrow phase: refine every candidate, keep the close ones
+        double[] tca = new double[candidateCount];
+        double[] distance = new double[candidateCount];
+        IntStream.range(0, (candidateCount + CHUNK - 1) / CHUNK).parallel().forEach(c -> {
+            double[] a = new double[6];
+            double[] b = new double[6];
+            for (int k = c * CHUNK, end = Math.min(candidateCount, (c + 1) * CHUNK); k < end; k++) {
+                refine((int) (candidates[k] >>> 32), (int) candidates[k], window, source, a, b, tca, distance, k);
+            }
+        });
+        count = 0;
+        for (int k = 0; k < candidateCount; k++) {
+            if (distance[k] <= missDistance) {
+                add((int) (candidates[k] >>> 32), (int) candidates[k], tca[k], distance[k]);
+            }
+        }
+        return count;
+    }
+
+    /** Pairs within the screening distance at the screened instant, before refinement. */
+    public int candidateCount() {
+        return candidateCount;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int first(int k) {
+        return first[k];
+    }
+
+    public int second(int k) {
+        return second[k];
+    }
+
+    /** Seconds from the screened instant to closest approach. */
+    public double timeOfClosestApproach(int k) {
+        return timeOfClosestApproach[k];
+    }
+
+    public double missDistance(int k) {
+        return miss[k];
+    }
+
+    /** Candidate pairs of sorted objects [from, to), returned as {count, pair, pair, ...}. */
+    private long[] neighbors(double[] positions, int objectCount, int from, int to, double inverseCell) {
+        long[] pairs = new long[64];
+        int n = 0;
+        double limit = screeningDistance * screeningDistance;
+        for (int s = from; s < to; s++) {
+            int i = (int) (keys[s] & INDEX_MASK);
+            int p = i * 3;
+            double px = positions[p], py = positions[p + 1], pz = positions[p + 2];
+            long cx = (long) Math.floor(px * inverseCell);
+            long cy = (long) Math.floor(py * inverseCell);
+            long cz = (long) Math.floor(pz * inverseCell);
+
+            for (int d = -1; d < FORWARD.length; d++) {
+                int start;
+                long hash;
+                if (d < 0) {
+                    // Own cell: only the objects after this one in the run
+                    hash = keys[s] >>> INDEX_BITS;
+                    start = s + 1;
+                } else {
+                    hash = cellHash(cx + FORWARD[d][0], cy + FORWARD[d][1], cz + FORWARD[d][2]);
+                    start = lowerBound(objectCount, hash << INDEX_BITS);
+                }
+                for (int t = start; t < objectCount && keys[t] >>> INDEX_BITS == hash; t++) {
+                    int j = (int) (keys[t] & INDEX_MASK);
+                    if (j == i) {
+                        continue; // a neighbor cell hashing to this one's run
+                    }
+                    int q = j * 3;
+                    double dx = positions[q] - px;
+                    double dy = positions[q + 1] - py;
+                    double dz = positions[q + 2] - pz;
+                    if (dx * dx + dy * dy + dz * dz <= limit) {
+                        if (n + 2 > pairs.length) {
+                            pairs = Arrays.copyOf(pairs, pairs.length * 2);
+                        }
+                        pairs[++n] = i < j ? (long) i << 32 | j : (long) j << 32 | i;
+                    }
+                }
+            }
+        }
+        pairs[0] = n;
+        return pairs;
+    }
+
+    private int lowerBound(int objectCount, long key) {
+        int lo = 0;
+        int hi = objectCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static void refine(int i, int j, double window, StateSource source, double[] a, double[] b,
+                               double[] tca, double[] distance, int k) {
+        double t = 0.0;
+        for (int iteration = 0; iteration < NEWTON_ITERATIONS; iteration++) {
+            source.state(i, t, a);
+            source.state(j, t, b);
+            double rx = b[0] - a[0], ry = b[1] - a[1], rz = b[2] - a[2];
+            double vx = b[3] - a[3], vy = b[4] - a[4], vz = b[5] - a[5];
+            double vv = vx * vx + vy * vy + vz * vz;
+            if (vv == 0.0) {
+                break;
+            }
+            // Gauss-Newton on Δr·Δv = 0, dropping the relative acceleration term
+            t = Math.max(-window, Math.min(window, t - (rx * vx + ry * vy + rz * vz) / vv));
+        }
+        source.state(i, t, a);
+        source.state(j, t, b);
+        double rx = b[0] - a[0], ry = b[1] - a[1], rz = b[2] - a[2];
+        double rv = rx * (b[3] - a[3]) + ry * (b[4] - a[4]) + rz * (b[5] - a[5]);
+        tca[k] = t;
+        // Pinned to a window edge and still closing (or already opening at the start): the approach is outside
+        boolean outside = (t == window && rv < 0.0) || (t == -window && rv > 0.0);
+        distance[k] = outside ? Double.POSITIVE_INFINITY : Math.sqrt(rx * rx + ry * ry + rz * rz);
+    }
+
+    private void add(int a, int b, double tca, double distance) {
+        if (count == first.length) {
+            int capacity = count * 2;
+            first = Arrays.copyOf(first, capacity);
+            second = Arrays.copyOf(second, capacity);
+            timeOfClosestApproach = Arrays.copyOf(timeOfClosestApproach, capacity);
+            miss = Arrays.copyOf(miss, capacity);
+        }
+        first[count] = a;
+        second[count] = b;
+        timeOfClosestApproach[count] = tca;
+        miss[count] = distance;
+        count++;
+    }
+
+    private void ensureCandidates(int needed) {
+        if (needed > candidates.length) {
+            candidates = Arrays.copyOf(candidates, Math.max(needed, candidates.length * 2));
+        }
+    }
+
+    private static long cellHash(long x, long y, long z) {
+        long h = x * 0x9E3779B97F4A7C15L ^ y * 0xC2B2AE3D27D4EB4FL ^ z * 0x165667B19E3779F9L;
+        h ^= h >>> 29;
+        return h & HASH_MASK;
+    }
+
+    private static int[][] forwardNeighbors() {
+        int[][] offsets = new int[13][];
+        int n = 0;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    if (dx > 0 || (dx == 0 && (dy > 0 || (dy == 0 && dz > 0)))) {
+                        offsets[n++] = new int[] {dx, dy, dz};
+                    }
+                }
+            }
+        }
+        return offsets;
+    }
+}
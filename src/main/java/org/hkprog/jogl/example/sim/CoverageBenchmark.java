@@ -0,0 +1,50 @@
+package org.hkprog.jogl.example.sim;
+
+/**
+ * Time per {@link CoverageGrid} update as a 10,000-satellite constellation
+ * (two Walker shells, 53° at 550 km and 87.9° at 1,200 km) advances by a
+ * fixed step, against counting a fresh grid from scratch at the same time.
+ *
+ * Usage: CoverageBenchmark [cells per degree] [step seconds]
+ */
+public final class CoverageBenchmark {
+
+    public static void main(String[] args) {
+        int cellsPerDegree = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        double step = args.length > 1 ? Double.parseDouble(args[1]) : 24.0;
+        SatelliteCatalog catalog = new SatelliteCatalog(10_000);
+        catalog.addWalkerDelta(125, 40, 1, 550_000.0, 53.0);
+        catalog.addWalkerDelta(125, 40, 1, 1_200_000.0, 87.9);
+        CoverageGrid grid = new CoverageGrid(cellsPerDegree, 10.0);
+
+        int ticks = 200;
+        long incremental = 0;
+        long fresh = 0;
+        int mismatches = 0;
+        for (int tick = 0; tick < 2 * ticks; tick++) { // the first half warms up the JIT
+            double t = tick * step;
+            catalog.propagate(t);
+            double sidereal = Ephemeris.greenwichSiderealRad(t);
+            long start = System.nanoTime();
+            grid.update(catalog.positions, catalog.size(), sidereal);
+            long middle = System.nanoTime();
+            CoverageGrid reference = new CoverageGrid(cellsPerDegree, 10.0);
+            reference.update(catalog.positions, catalog.size(), sidereal);
+            long end = System.nanoTime();
+            grid.clearDirty();
+            if (tick >= ticks) {
+                incremental += middle - start;
+                fresh += end - middle;
+            }
+            if (tick == 2 * ticks - 1) {
+                int[] a = grid.counts();
+                int[] b = reference.counts();
+                for (int i = 0; i < a.length; i++) {
+                    mismatches += a[i] != b[i] ? 1 : 0;
+                }
+            }
+        }
+        System.out.printf("%d satellites, %dx%d cells, %.0f s steps: %.2f ms/update, %.2f ms from scratch, %d mismatched cells%n",
+                catalog.size(), grid.width(), grid.height(), step, incremental / 1e6 / ticks, fresh / 1e6 / ticks, mismatches);
+    }
+}
@@ -0,0 +1,389 @@
+package org.hkprog.jogl.example.sim;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * How many satellites see each cell of an equirectangular latitude/longitude
+ * grid above a minimum elevation, kept current tick by tick.
+ *
+ * A satellite's footprint is a spherical cap around its sub-satellite
+ * point, which cuts each grid row in one longitude interval. Rather than
+ * recount the grid, an {@link #update} moves every footprint from where it
+ * was to where it is: per row only the cells that leave or enter the
+ * interval change, a sliver at either end for a satellite that moved a
+ * fraction of its footprint, and the old intervals are remembered rather
+ * than worked out again. Rows are split into bands that workers own
+ * outright, so counts need no atomics; each band walks the satellites and
+ * skips those whose old and new footprints both miss it. When the clock
+ * jumps so far that most satellites have left their old footprints, the
+ * grid is simply counted again.
+ *
+ * Rows run north to south and columns east from -180°, the layout of the
+ * Earth texture. A cell counts as covered when its center is inside the
+ * cap. Each row remembers the span of columns that changed since the last
+ * {@link #clearDirty}, so a renderer can send only those.
+ */
+public final class CoverageGrid {
+
+    private static final int ROWS_PER_BAND = 4;
+    private static final int SATELLITE_CHUNK = 1024;
+
+    private final int width;
+    private final int height;
+    private final double cellRad;
+    private final double cellsPerRad;
+    private final double minElevation;
+    private final int[] counts;
+    private final int[] dirtyFrom; // per row, first changed column, or width if none
+    private final int[] dirtyTo;   // per row, one past the last changed column
+    private final double[] rowSin;
+    private final double[] rowCos;
+
+    // Footprints as last applied, and as being applied; swapped after each update. Per satellite:
+    // longitude, sine and cosine of latitude, cosine of the cap's angle, and the rows it spans [north, south)
+    private static final int STRIDE = 6;
+    private static final int LON = 0, SIN_LAT = 1, COS_LAT = 2, COS_CAP = 3, NORTH_ROW = 4, SOUTH_ROW = 5;
+    private int satellites;
+    private double[] footprints = new double[0];
+    private double[] nextFootprints = new double[0];
+    // Each footprint's row intervals as [from, to) pairs from its north row on, kept so the old
+    // ones needn't be worked out again; rowsPerFootprint pairs per satellite
+    private int rowsPerFootprint;
+    private int[] spans = new int[0];
+    private int[] nextSpans = new int[0];
+
+    // Satellites whose old or new footprint reaches each band, bucketed band by band
+    private final int[] bandStart;
+    private int[] bandMembers = new int[0];
+
+    public CoverageGrid(int cellsPerDegree, double minElevationDeg) {
+        this.width = 360 * cellsPerDegree;
+        this.height = 180 * cellsPerDegree;
+        this.cellRad = Math.toRadians(1.0 / cellsPerDegree);
+        this.cellsPerRad = 1.0 / cellRad;
+        this.minElevation = Math.toRadians(minElevationDeg);
+        this.counts = new int[width * height];
+        this.dirtyFrom = new int[height];
+        this.dirtyTo = new int[height];
+        this.rowSin = new double[height];
+        this.rowCos = new double[height];
+        this.bandStart = new int[(height + ROWS_PER_BAND - 1) / ROWS_PER_BAND + 1];
+        for (int r = 0; r < height; r++) {
+            double latitude = Math.PI / 2 - (r + 0.5) * cellRad;
+            rowSin[r] = Math.sin(latitude);
+            rowCos[r] = Math.cos(latitude);
+        }
+        clearDirty();
+    }
+
+    /** Cells per degree given by {@code coverage.cellsPerDegree}, 1 by default, at a 10° mask. */
+    public static CoverageGrid fromSystemProperties() {
+        return new CoverageGrid(Math.max(1, Integer.getInteger("coverage.cellsPerDegree", 1)), 10.0);
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /** Satellites seeing the cell at row {@code r} (from the north) and column {@code c} (from -180°). */
+    public int count(int r, int c) {
+        return counts[r * width + c];
+    }
+
+    /** Counts row by row, {@link #width} per row. */
+    public int[] counts() {
+        return counts;
+    }
+
+    public int dirtyFrom(int r) {
+        return dirtyFrom[r];
+    }
+
+    public int dirtyTo(int r) {
+        return dirtyTo[r];
+    }
+
+    public void clearDirty() {
+        Arrays.fill(dirtyFrom, width);
+        Arrays.fill(dirtyTo, 0);
+    }
+
+    /**
+     * Moves every footprint to the first {@code count} packed inertial
+     * positions, seen from an Earth turned by {@code siderealRad}. A change
+     * in the satellite count starts the grid over.
+     */
+    public void update(double[] positions, int count, double siderealRad) {
+        if (count != satellites) {
+            Arrays.fill(counts, 0);
+            Arrays.fill(dirtyFrom, 0);
+            Arrays.fill(dirtyTo, width);
+            footprints = new double[count * STRIDE]; // no rows: no footprint yet
+            nextFootprints = new double[count * STRIDE];
+            rowsPerFootprint = 0;
+            satellites = count;
+        }
+        double cos = Math.cos(siderealRad);
+        double sin = Math.sin(siderealRad);
+        double cosMask = Math.cos(minElevation);
+        double sinMask = Math.sin(minElevation);
+        double[] next = nextFootprints;
+        double[] previous = footprints;
+        int jumped = IntStream.range(0, (count + SATELLITE_CHUNK - 1) / SATELLITE_CHUNK).parallel().map(c -> {
+            int outside = 0;
+            for (int i = c * SATELLITE_CHUNK, end = Math.min(count, (c + 1) * SATELLITE_CHUNK); i < end; i++) {
+                int p = i * 3;
+                double x = cos * positions[p] + sin * positions[p + 1];
+                double y = -sin * positions[p] + cos * positions[p + 1];
+                double z = positions[p + 2];
+                double horizontal = Math.sqrt(x * x + y * y);
+                double r = Math.sqrt(horizontal * horizontal + z * z);
+                int f = i * STRIDE;
+                next[f + LON] = Math.atan2(y, x);
+                next[f + SIN_LAT] = z / r;
+                next[f + COS_LAT] = horizontal / r;
+                // Earth-central radius of the cap above the mask is acos(R cos e / r) - e; its cosine needs no trig
+                double ratio = SatelliteCatalog.EARTH_RADIUS_M * cosMask / r;
+                if (ratio >= 1.0) {
+                    next[f + NORTH_ROW] = 0.0;
+                    next[f + SOUTH_ROW] = 0.0;
+                    continue;
+                }
+                double cosCap = ratio * cosMask + Math.sqrt(1.0 - ratio * ratio) * sinMask;
+                double reach = fastAcos(cosCap) + cellRad; // a cell's worth of slack for the approximation
+                double colatitude = Math.atan2(horizontal, z);
+                next[f + COS_CAP] = cosCap;
+                next[f + NORTH_ROW] = Math.max(0, (int) ((colatitude - reach) / cellRad + height) - height);
+                next[f + SOUTH_ROW] = Math.min(height, (int) ((colatitude + reach) / cellRad) + 1);
+                // Sub-satellite point moved out of its old footprint
+                double cosMoved = next[f + SIN_LAT] * previous[f + SIN_LAT]
+                        + next[f + COS_LAT] * previous[f + COS_LAT] * Math.cos(next[f + LON] - previous[f + LON]);
+                if (cosMoved < cosCap) {
+                    outside++;
+                }
+            }
+            return outside;
+        }).sum();
+        int rows = 0;
+        for (int f = 0; f < count * STRIDE; f += STRIDE) {
+            rows = Math.max(rows, (int) (next[f + SOUTH_ROW] - next[f + NORTH_ROW]));
+        }
+        boolean resized = rows > rowsPerFootprint;
+        if (resized) {
+            rowsPerFootprint = rows + 2;
+            spans = new int[count * rowsPerFootprint * 2];
+            nextSpans = new int[count * rowsPerFootprint * 2];
+        }
+        if (jumped > count / 2 || resized) {
+            // Most footprints no longer overlap their old selves: counting afresh touches half the cells
+            Arrays.fill(counts, 0);
+            Arrays.fill(dirtyFrom, 0);
+            Arrays.fill(dirtyTo, width);
+            for (int f = 0; f < count * STRIDE; f += STRIDE) {
+                footprints[f + NORTH_ROW] = 0.0;
+                footprints[f + SOUTH_ROW] = 0.0;
+            }
+        }
+
+        int bands = bandStart.length - 1;
+        bucket(bands);
+        IntStream.range(0, bands).parallel().forEach(this::updateBand);
+
+        double[] swap = footprints;
+        footprints = nextFootprints;
+        nextFootprints = swap;
+        int[] swapSpans = spans;
+        spans = nextSpans;
+        nextSpans = swapSpans;
+    }
+
+    /** Lists each band's satellites in {@link #bandMembers}, a counting sort over the rows they span. */
+    private void bucket(int bands) {
+        Arrays.fill(bandStart, 0);
+        for (int f = 0; f < satellites * STRIDE; f += STRIDE) {
+            for (int b = firstBand(f), last = lastBand(f); b <= last; b++) {
+                bandStart[b + 1]++;
+            }
+        }
+        for (int b = 0; b < bands; b++) {
+            bandStart[b + 1] += bandStart[b];
+        }
+        if (bandMembers.length < bandStart[bands]) {
+            bandMembers = new int[bandStart[bands] + bandStart[bands] / 4];
+        }
+        int[] fill = Arrays.copyOf(bandStart, bands);
+        for (int f = 0; f < satellites * STRIDE; f += STRIDE) {
+            for (int b = firstBand(f), last = lastBand(f); b <= last; b++) {
+                bandMembers[fill[b]++] = f;
+            }
+        }
+    }
+
+    /** First band reached by the old or new footprint at {@code f}, past {@link #lastBand} if neither has rows. */
+    private int firstBand(int f) {
+        int north = height;
+        if (footprints[f + SOUTH_ROW] > footprints[f + NORTH_ROW]) {
+            north = (int) footprints[f + NORTH_ROW];
+        }
+        if (nextFootprints[f + SOUTH_ROW] > nextFootprints[f + NORTH_ROW]) {
+            north = Math.min(north, (int) nextFootprints[f + NORTH_ROW]);
+        }
+        return north / ROWS_PER_BAND;
+    }
+
+    private int lastBand(int f) {
+        int south = 0;
+        if (footprints[f + SOUTH_ROW] > footprints[f + NORTH_ROW]) {
+            south = (int) footprints[f + SOUTH_ROW];
+        }
+        if (nextFootprints[f + SOUTH_ROW] > nextFootprints[f + NORTH_ROW]) {
+            south = Math.max(south, (int) nextFootprints[f + SOUTH_ROW]);
+        }
+        return (south - 1) / ROWS_PER_BAND;
+    }
+
+    private void updateBand(int band) {
+        int fromRow = band * ROWS_PER_BAND;
+        int toRow = Math.min(height, fromRow + ROWS_PER_BAND);
+        int[] span = new int[4];
+        for (int k = bandStart[band]; k < bandStart[band + 1]; k++) {
+            int f = bandMembers[k];
+            int oldNorth = (int) footprints[f + NORTH_ROW], oldSouth = (int) footprints[f + SOUTH_ROW];
+            int newNorth = (int) nextFootprints[f + NORTH_ROW], newSouth = (int) nextFootprints[f + SOUTH_ROW];
+            int base = f / STRIDE * rowsPerFootprint * 2;
+            for (int r = fromRow; r < toRow; r++) {
+                boolean had = false;
+                if (r >= oldNorth && r < oldSouth) {
+                    int s = base + (r - oldNorth) * 2;
+                    span[0] = spans[s];
+                    span[1] = spans[s + 1];
+                    had = span[1] > span[0];
+                }
+                boolean has = false;
+                if (r >= newNorth && r < newSouth) {
+                    int s = base + (r - newNorth) * 2;
+                    has = interval(nextFootprints, f, r, span, 2);
+                    nextSpans[s] = has ? span[2] : 0;
+                    nextSpans[s + 1] = has ? span[3] : 0;
+                }
+                if (had && has) {
+                    move(r, span[0], span[1], span[2], span[3]);
+                } else if (had) {
+                    add(r, span[0], span[1], -1);
+                } else if (has) {
+                    add(r, span[2], span[3], 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Columns of row {@code r} inside the cap, as an unwrapped [from, to)
+     * written to {@code out[offset]} and {@code out[offset + 1]}; false if none.
+     */
+    private boolean interval(double[] footprint, int f, int r, int[] out, int offset) {
+        // cos(angle to a cell center) = sin φ sin φs + cos φ cos φs cos Δλ ≥ cos cap
+        double denominator = rowCos[r] * footprint[f + COS_LAT];
+        double limit = denominator > 0.0 ? (footprint[f + COS_CAP] - rowSin[r] * footprint[f + SIN_LAT]) / denominator : 2.0;
+        if (limit > 1.0) {
+            return false;
+        }
+        if (limit <= -1.0) {
+            out[offset] = 0;
+            out[offset + 1] = width;
+            return true;
+        }
+        double halfWidth = fastAcos(limit) * cellsPerRad;
+        // Cell j's center is at -π + (j + 0.5) cell
+        double center = (footprint[f + LON] + Math.PI) * cellsPerRad - 0.5;
+        // Floor and ceiling by truncating a shifted positive value; Math.floor isn't an intrinsic everywhere
+        int shift = 2 * width;
+        int from = shift - (int) (shift - (center - halfWidth));
+        int to = (int) (center + halfWidth + shift) - shift + 1;
+        if (to - from >= width) {
+            from = 0;
+            to = width;
+        }
+        if (to <= from) {
+            return false;
+        }
+        out[offset] = from;
+        out[offset + 1] = to;
+        return true;
+    }
+
+    /** Takes a footprint's row interval from [a0, a1) to [b0, b1), touching only the cells that differ. */
+    private void move(int r, int a0, int a1, int b0, int b1) {
+        if ((a1 - a0) + (b1 - b0) > width) {
+            // Near the poles a cap takes most of a row; the gaps it leaves are short and differ by the
+            // same cells, so moving the new gap to the old one adds and removes exactly what's needed
+            difference(r, b1, b0 + width, a1, a0 + width);
+        } else {
+            difference(r, a0, a1, b0, b1);
+        }
+    }
+
+    /** Removes [a0, a1) minus [b0, b1) and adds [b0, b1) minus [a0, a1). */
+    private void difference(int r, int a0, int a1, int b0, int b1) {
+        // Bring the second interval to the same turn of the circle as the first
+        while (b0 - a0 > width / 2) {
+            b0 -= width;
+            b1 -= width;
+        }
+        while (a0 - b0 > width / 2) {
+            b0 += width;
+            b1 += width;
+        }
+        if (Math.max(a1, b1) - Math.min(a0, b0) > width) {
+            add(r, a0, a1, -1); // wraps into itself; rare enough to do the slow way
+            add(r, b0, b1, 1);
+            return;
+        }
+        add(r, a0, Math.min(a1, b0), -1);
+        add(r, Math.max(a0, b1), a1, -1);
+        add(r, b0, Math.min(b1, a0), 1);
+        add(r, Math.max(b0, a1), b1, 1);
+    }
+
+    /** Adds {@code delta} to the cells of row {@code r} in the unwrapped range [from, to). */
+    private void add(int r, int from, int to, int delta) {
+        if (to <= from) {
+            return;
+        }
+        int base = r * width;
+        int start = from;
+        while (start < 0) {
+            start += width;
+        }
+        while (start >= width) {
+            start -= width;
+        }
+        int length = to - from;
+        int first = Math.min(length, width - start);
+        for (int c = start; c < start + first; c++) {
+            counts[base + c] += delta;
+        }
+        for (int c = 0; c < length - first; c++) {
+            counts[base + c] += delta;
+        }
+        if (first < length) {
+            dirtyFrom[r] = 0;
+            dirtyTo[r] = width;
+        } else {
+            dirtyFrom[r] = Math.min(dirtyFrom[r], start);
+            dirtyTo[r] = Math.max(dirtyTo[r], start + first);
+        }
+    }
+
+    /** acos to within 7e-5 rad (Abramowitz and Stegun 4.4.45), about a hundredth of a 1° cell. */
+    private static double fastAcos(double x) {
+        double a = Math.abs(x);
+        double result = Math.sqrt(1.0 - a) * (1.5707288 + a * (-0.2121144 + a * (0.0742610 - 0.0187293 * a)));
+        return x >= 0.0 ? result : Math.PI - result;
+    }
+}
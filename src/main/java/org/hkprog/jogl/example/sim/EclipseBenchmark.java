@@ -0,0 +1,33 @@
+package org.hkprog.jogl.example.sim;
+
+/**
+ * Time per {@link EclipseCalculator} pass over Walker shells of growing
+ * size, with the Sun from the ephemeris.
+ *
+ * Usage: EclipseBenchmark [max objects]
+ */
+public final class EclipseBenchmark {
+
+    public static void main(String[] args) {
+        int maxCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_048_576;
+        double[] sun = new double[3];
+        Ephemeris.analyticPosition(Ephemeris.Body.SUN, 0.0, sun, 0);
+        EclipseCalculator eclipses = new EclipseCalculator();
+
+        for (int n = 3_200; n <= maxCount; n *= 4) {
+            SatelliteCatalog catalog = SatelliteCatalog.walkerDelta(n / 32, 32, 1, 550_000.0, 53.0);
+            catalog.propagate(0.0);
+            for (int pass = 0; pass < 200; pass++) { // warm up the JIT
+                eclipses.compute(catalog.positions, catalog.size(), sun);
+            }
+            int passes = 200;
+            long start = System.nanoTime();
+            for (int pass = 0; pass < passes; pass++) {
+                eclipses.compute(catalog.positions, catalog.size(), sun);
+            }
+            double micros = (System.nanoTime() - start) / 1e3 / passes;
+            System.out.printf("%8d objects: %8.1f us/pass, %.2f ns/object, umbra %d, penumbra %d%n",
+                    catalog.size(), micros, micros * 1e3 / catalog.size(), eclipses.umbraCount(), eclipses.penumbraCount());
+        }
+    }
+}
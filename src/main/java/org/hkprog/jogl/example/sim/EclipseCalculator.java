@@ -0,0 +1,120 @@
+package org.hkprog.jogl.example.sim;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Earth-shadow state of every object in a packed position array, using
+ * the conical shadow model (Vallado, <i>Fundamentals of Astrodynamics</i>
+ * §5.3): the umbra cone narrows and the penumbra cone widens behind the
+ * Earth along the Earth-Sun line, at slopes set by the solar and Earth
+ * radii over the Sun's distance.
+ *
+ * Each object costs one dot product and two squared-radius comparisons,
+ * with a square root only inside the penumbra, so the loop is branch-light
+ * straight-line arithmetic over the array and is split across cores in
+ * chunks for large catalogs. Sunlight across the penumbra ramps with a
+ * smoothstep of the radial position, close to the disk-overlap fraction.
+ */
+public final class EclipseCalculator {
+
+    public static final byte SUNLIT = 0;
+    public static final byte PENUMBRA = 1;
+    public static final byte UMBRA = 2;
+
+    private static final int PARALLEL_THRESHOLD = 4096;
+    private static final int CHUNK = 4096;
+
+    private byte[] states = new byte[0];
+    private float[] sunlight = new float[0];
+    private int count;
+    private int penumbraCount;
+    private int umbraCount;
+
+    /**
+     * Classifies the first {@code objectCount} packed xyz positions against
+     * a Sun at geocentric {@code sun[0..2]}, both in meters.
+     */
+    public void compute(double[] positions, int objectCount, double[] sun) {
+        if (states.length < objectCount) {
+            states = new byte[objectCount];
+            sunlight = new float[objectCount];
+        }
+        count = objectCount;
+        double distance = Math.sqrt(sun[0] * sun[0] + sun[1] * sun[1] + sun[2] * sun[2]);
+        double sx = sun[0] / distance, sy = sun[1] / distance, sz = sun[2] / distance;
+        double umbraSlope = (Ephemeris.SUN_RADIUS_M - SatelliteCatalog.EARTH_RADIUS_M) / distance;
+        double penumbraSlope = (Ephemeris.SUN_RADIUS_M + SatelliteCatalog.EARTH_RADIUS_M) / distance;
+
+        if (objectCount < PARALLEL_THRESHOLD) {
+            long shadowed = computeRange(positions, 0, objectCount, sx, sy, sz, umbraSlope, penumbraSlope);
+            penumbraCount = (int) shadowed;
+            umbraCount = (int) (shadowed >>> 32);
+            return;
+        }
+        int chunks = (objectCount + CHUNK - 1) / CHUNK;
+        long[] shadowed = new long[chunks];
+        IntStream.range(0, chunks).parallel().forEach(c -> shadowed[c] = computeRange(positions,
+                c * CHUNK, Math.min(objectCount, (c + 1) * CHUNK), sx, sy, sz, umbraSlope, penumbraSlope));
+        long total = Arrays.stream(shadowed).sum(); // neither half can carry: each count is below 2³²
+        penumbraCount = (int) total;
+        umbraCount = (int) (total >>> 32);
+    }
+
+    /** Classifies [from, to); returns the umbra count in the high 32 bits and the penumbra count in the low. */
+    private long computeRange(double[] positions, int from, int to, double sx, double sy, double sz,
+                              double umbraSlope, double penumbraSlope) {
+        double earthRadius = SatelliteCatalog.EARTH_RADIUS_M;
+        byte[] states = this.states;
+        float[] sunlight = this.sunlight;
+        int penumbra = 0;
+        int umbra = 0;
+        for (int i = from; i < to; i++) {
+            int p = i * 3;
+            double x = positions[p], y = positions[p + 1], z = positions[p + 2];
+            double behind = -(x * sx + y * sy + z * sz); // distance behind the Earth along the shadow axis
+            double axis2 = x * x + y * y + z * z - behind * behind; // squared distance from the axis
+            double penumbraRadius = earthRadius + behind * penumbraSlope;
+            if (behind <= 0.0 || axis2 >= penumbraRadius * penumbraRadius) {
+                states[i] = SUNLIT;
+                sunlight[i] = 1.0f;
+                continue;
+            }
+            // Negative past the umbra's apex, where the Earth only rings the Sun
+            double umbraRadius = earthRadius - behind * umbraSlope;
+            if (umbraRadius > 0.0 && axis2 <= umbraRadius * umbraRadius) {
+                states[i] = UMBRA;
+                sunlight[i] = 0.0f;
+                umbra++;
+                continue;
+            }
+            double t = (Math.sqrt(axis2) - umbraRadius) / (penumbraRadius - umbraRadius);
+            states[i] = PENUMBRA;
+            sunlight[i] = (float) (t * t * (3.0 - 2.0 * t));
+            penumbra++;
+        }
+        return (long) umbra << 32 | penumbra;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /** {@link #SUNLIT}, {@link #PENUMBRA} or {@link #UMBRA}. */
+    public byte state(int i) {
+        return states[i];
+    }
+
+    /** Fraction of the solar disk visible from object {@code i}, 0 in umbra to 1 in full sun. */
+    public float sunlight(int i) {
+        return sunlight[i];
+    }
+
+    public int penumbraCount() {
+        return penumbraCount;
+    }
+
+    public int umbraCount() {
+        return umbraCount;
+    }
+}
@@ -0,0 +1,228 @@
+package org.hkprog.jogl.example.sim;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.stream.IntStream;
+
+/**
+ * Geocentric Sun and Moon positions in the Earth-centered inertial frame
+ * (mean equator and equinox of J2000, Z toward the north pole, like
+ * {@link SatelliteCatalog}), in meters.
+ *
+ * Positions come from the truncated analytic series in Montenbruck and
+ * Gill, <i>Satellite Orbits</i> §3.3.2: about 0.1° for the Moon and 0.01°
+ * for the Sun, plenty for lighting and eclipses at scene scale. The series
+ * costs a few dozen sines per call, so {@link #covering} fits Chebyshev
+ * polynomials to it per time segment up front; a query then finds its
+ * segment and evaluates three short Clenshaw recurrences. Queries outside
+ * the fitted span fall back to the series.
+ *
+ * Times are seconds since J2000 (2000-01-01 12:00 TT; the difference from
+ * UTC doesn't matter at this accuracy). Immutable once built, so any number
+ * of threads may query it.
+ */
+public final class Ephemeris {
+
+    public enum Body {
+        // Segment lengths and degrees keep the fit well inside the series' own error
+        SUN(16.0, 10),
+        MOON(1.0, 12);
+
+        final double segmentSec;
+        final int coefficients;
+
+        Body(double segmentDays, int coefficients) {
+            this.segmentSec = segmentDays * SECONDS_PER_DAY;
+            this.coefficients = coefficients;
+        }
+    }
+
+    /** Scene epoch as an ISO-8601 instant, e.g. {@code 2024-03-20T03:06:00Z}; defaults to J2000. */
+    public static final String EPOCH_PROPERTY = "ephemeris.epoch";
+
+    public static final double SECONDS_PER_DAY = 86_400.0;
+    public static final double MOON_RADIUS_M = 1_737_400.0;
+    public static final double SUN_RADIUS_M = 696_000_000.0;
+
+    private static final Instant J2000 = Instant.parse("2000-01-01T12:00:00Z");
+    private static final double SECONDS_PER_CENTURY = 36_525.0 * SECONDS_PER_DAY;
+    private static final double ARCSEC = Math.PI / (180.0 * 3600.0);
+    private static final double OBLIQUITY = Math.toRadians(23.43929111);
+    private static final double COS_OBLIQUITY = Math.cos(OBLIQUITY);
+    private static final double SIN_OBLIQUITY = Math.sin(OBLIQUITY);
+
+    private final double start;
+    private final double end;
+    // Per body: segment-major, then x, y, z, then coefficient
+    private final double[][] coefficients = new double[Body.values().length][];
+
+    private Ephemeris(double start, double end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /** Fits both bodies over [{@code startSec}, {@code endSec}], segments in parallel. */
+    public static Ephemeris covering(double startSec, double endSec) {
+        Ephemeris ephemeris = new Ephemeris(startSec, endSec);
+        for (Body body : Body.values()) {
+            int segments = (int) Math.ceil((endSec - startSec) / body.segmentSec) + 1;
+            int n = body.coefficients;
+            double[] c = new double[segments * 3 * n];
+            IntStream.range(0, segments).parallel().forEach(s -> fit(body, startSec + s * body.segmentSec, c, s * 3 * n));
+            ephemeris.coefficients[body.ordinal()] = c;
+        }
+        return ephemeris;
+    }
+
+    /** Seconds since J2000 of the {@value #EPOCH_PROPERTY} instant, or of J2000 itself if unset or unreadable. */
+    public static double epochFromSystemProperty() {
+        String value = System.getProperty(EPOCH_PROPERTY);
+        if (value == null) {
+            return 0.0;
+        }
+        try {
+            return secondsSinceJ2000(Instant.parse(value));
+        } catch (DateTimeParseException e) {
+            System.err.println("Ignoring " + EPOCH_PROPERTY + "=" + value + " - " + e.getMessage());
+            return 0.0;
+        }
+    }
+
+    public static double secondsSinceJ2000(Instant instant) {
+        return (instant.getEpochSecond() - J2000.getEpochSecond()) + (instant.getNano() - J2000.getNano()) * 1e-9;
+    }
+
+    /** Greenwich mean sidereal angle in radians: the rotation from the inertial frame to the Earth-fixed one. */
+    public static double greenwichSiderealRad(double t) {
+        double days = t / SECONDS_PER_DAY;
+        return Math.toRadians((280.46061837 + 360.98564736629 * days) % 360.0);
+    }
+
+    /** Rotates {@code v} in place from the inertial frame to the Earth-fixed one (X at longitude 0) at {@code t}. */
+    public static void inertialToEarthFixed(double t, double[] v, int offset) {
+        double gmst = greenwichSiderealRad(t);
+        double cos = Math.cos(gmst);
+        double sin = Math.sin(gmst);
+        double x = v[offset];
+        double y = v[offset + 1];
+        v[offset] = cos * x + sin * y;
+        v[offset + 1] = -sin * x + cos * y;
+    }
+
+    /** Writes the position of {@code body} at {@code t} to {@code out[offset..offset+2]}. */
+    public void position(Body body, double t, double[] out, int offset) {
+        if (!(t >= start && t <= end)) {
+            analyticPosition(body, t, out, offset);
+            return;
+        }
+        double offsetSec = t - start;
+        int segment = (int) (offsetSec / body.segmentSec);
+        double x = 2.0 * (offsetSec - segment * body.segmentSec) / body.segmentSec - 1.0;
+        int n = body.coefficients;
+        double[] c = coefficients[body.ordinal()];
+        int base = segment * 3 * n;
+
+        // Clenshaw, all three axes in one pass
+        double x2 = 2.0 * x;
+        double b1x = 0.0, b2x = 0.0, b1y = 0.0, b2y = 0.0, b1z = 0.0, b2z = 0.0;
+        for (int j = n - 1; j >= 1; j--) {
+            double bx = x2 * b1x - b2x + c[base + j];
+            double by = x2 * b1y - b2y + c[base + n + j];
+            double bz = x2 * b1z - b2z + c[base + 2 * n + j];
+            b2x = b1x;
+            b1x = bx;
+            b2y = b1y;
+            b1y = by;
+            b2z = b1z;
+            b1z = bz;
+        }
+        out[offset] = x * b1x - b2x + 0.5 * c[base];
+        out[offset + 1] = x * b1y - b2y + 0.5 * c[base + n];
+        out[offset + 2] = x * b1z - b2z + 0.5 * c[base + 2 * n];
+    }
+
+    /** Velocity in m/s of {@code body} at {@code t}, by central difference over a minute. */
+    public void velocity(Body body, double t, double[] out, int offset) {
+        double[] ahead = new double[3];
+        double[] behind = new double[3];
+        position(body, t + 30.0, ahead, 0);
+        position(body, t - 30.0, behind, 0);
+        for (int k = 0; k < 3; k++) {
+            out[offset + k] = (ahead[k] - behind[k]) / 60.0;
+        }
+    }
+
+    /** Unit vector from the Earth's center toward {@code body}. */
+    public void direction(Body body, double t, double[] out, int offset) {
+        position(body, t, out, offset);
+        double length = Math.sqrt(out[offset] * out[offset] + out[offset + 1] * out[offset + 1] + out[offset + 2] * out[offset + 2]);
+        out[offset] /= length;
+        out[offset + 1] /= length;
+        out[offset + 2] /= length;
+    }
+
+    /** Evaluates the series directly. */
+    public static void analyticPosition(Body body, double t, double[] out, int offset) {
+        double T = t / SECONDS_PER_CENTURY;
+        double longitude;
+        double latitude;
+        double distance;
+        if (body == Body.SUN) {
+            double m = Math.toRadians(357.5256 + 35999.049 * T);
+            longitude = Math.toRadians(282.9400) + m + (6892.0 * Math.sin(m) + 72.0 * Math.sin(2.0 * m)) * ARCSEC;
+            latitude = 0.0;
+            distance = (149.619 - 2.499 * Math.cos(m) - 0.021 * Math.cos(2.0 * m)) * 1e9;
+        } else {
+            // Mean longitude (J2000 equinox), anomalies of Moon and Sun, argument of latitude, elongation
+            double l0 = Math.toRadians(218.31617 + 481267.88088 * T - 1.3972 * T);
+            double l = Math.toRadians(134.96292 + 477198.86753 * T);
+            double ls = Math.toRadians(357.52543 + 35999.04944 * T);
+            double f = Math.toRadians(93.27283 + 483202.01873 * T);
+            double d = Math.toRadians(297.85027 + 445267.11135 * T);
+            longitude = l0 + ARCSEC * (22640.0 * Math.sin(l) + 769.0 * Math.sin(2.0 * l)
+                    - 4586.0 * Math.sin(l - 2.0 * d) + 2370.0 * Math.sin(2.0 * d)
+                    - 668.0 * Math.sin(ls) - 412.0 * Math.sin(2.0 * f)
+                    - 212.0 * Math.sin(2.0 * l - 2.0 * d) - 206.0 * Math.sin(l + ls - 2.0 * d)
+                    + 192.0 * Math.sin(l + 2.0 * d) - 165.0 * Math.sin(ls - 2.0 * d)
+                    + 148.0 * Math.sin(l - ls) - 125.0 * Math.sin(d)
+                    - 110.0 * Math.sin(l + ls) - 55.0 * Math.sin(2.0 * f - 2.0 * d));
+            latitude = ARCSEC * (18520.0 * Math.sin(f + longitude - l0 + ARCSEC * (412.0 * Math.sin(2.0 * f) + 541.0 * Math.sin(ls)))
+                    - 526.0 * Math.sin(f - 2.0 * d) + 44.0 * Math.sin(l + f - 2.0 * d)
+                    - 31.0 * Math.sin(-l + f - 2.0 * d) - 25.0 * Math.sin(-2.0 * l + f)
+                    - 23.0 * Math.sin(ls + f - 2.0 * d) + 21.0 * Math.sin(-l + f)
+                    + 11.0 * Math.sin(-ls + f - 2.0 * d));
+            distance = (385000.0 - 20905.0 * Math.cos(l) - 3699.0 * Math.cos(2.0 * d - l)
+                    - 2956.0 * Math.cos(2.0 * d) - 570.0 * Math.cos(2.0 * l)
+                    + 246.0 * Math.cos(2.0 * l - 2.0 * d) - 205.0 * Math.cos(ls - 2.0 * d)
+                    - 171.0 * Math.cos(l + 2.0 * d) - 152.0 * Math.cos(l + ls - 2.0 * d)) * 1000.0;
+        }
+
+        // Ecliptic to equatorial: rotate about X by the obliquity
+        double cosLat = Math.cos(latitude);
+        double xe = distance * cosLat * Math.cos(longitude);
+        double ye = distance * cosLat * Math.sin(longitude);
+        double ze = distance * Math.sin(latitude);
+        out[offset] = xe;
+        out[offset + 1] = ye * COS_OBLIQUITY - ze * SIN_OBLIQUITY;
+        out[offset + 2] = ye * SIN_OBLIQUITY + ze * COS_OBLIQUITY;
+    }
+
+    /** Chebyshev coefficients of one segment from the series sampled at the Chebyshev nodes. */
+    private static void fit(Body body, double segmentStart, double[] c, int base) {
+        int n = body.coefficients;
+        double[] samples = new double[n * 3];
+        for (int k = 0; k < n; k++) {
+            double x = Math.cos(Math.PI * (k + 0.5) / n);
+            analyticPosition(body, segmentStart + (x + 1.0) * 0.5 * body.segmentSec, samples, k * 3);
+        }
+        for (int axis = 0; axis < 3; axis++) {
+            for (int j = 0; j < n; j++) {
+                double sum = 0.0;
+                for (int k = 0; k < n; k++) {
+                    sum += samples[k * 3 + axis] * Math.cos(Math.PI * j * (k + 0.5) / n);
+                }
+                c[base + axis * n + j] = 2.0 * sum / n;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.hkprog.jogl.example.sim;
+
+import java.util.Random;
+
+/**
+ * Checks the Chebyshev fit of {@link Ephemeris} against its series and
+ * times both, single-threaded, over random times in a ten-year span.
+ *
+ * Usage: EphemerisBenchmark [queries]
+ */
+public final class EphemerisBenchmark {
+
+    private static final double YEAR_SEC = 365.25 * Ephemeris.SECONDS_PER_DAY;
+
+    public static void main(String[] args) {
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+
+        long start = System.nanoTime();
+        Ephemeris ephemeris = Ephemeris.covering(0.0, 10.0 * YEAR_SEC);
+        System.out.printf("Fitted 10 years in %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+        Random random = new Random(42);
+        double[] times = new double[queries];
+        for (int i = 0; i < queries; i++) {
+            times[i] = random.nextDouble() * 10.0 * YEAR_SEC;
+        }
+
+        double[] fitted = new double[3];
+        double[] exact = new double[3];
+        for (Ephemeris.Body body : Ephemeris.Body.values()) {
+            double worst = 0.0;
+            for (int i = 0; i < 100_000; i++) {
+                ephemeris.position(body, times[i], fitted, 0);
+                Ephemeris.analyticPosition(body, times[i], exact, 0);
+                double dx = fitted[0] - exact[0];
+                double dy = fitted[1] - exact[1];
+                double dz = fitted[2] - exact[2];
+                worst = Math.max(worst, Math.sqrt(dx * dx + dy * dy + dz * dz));
+            }
+
+            double sink = 0.0;
+            long chebyshev = Long.MAX_VALUE;
+            long series = Long.MAX_VALUE;
+            for (int pass = 0; pass < 5; pass++) { // the first passes warm up the JIT
+                long t0 = System.nanoTime();
+                for (double t : times) {
+                    ephemeris.position(body, t, fitted, 0);
+                    sink += fitted[0];
+                }
+                long t1 = System.nanoTime();
+                for (double t : times) {
+                    Ephemeris.analyticPosition(body, t, exact, 0);
+                    sink += exact[0];
+                }
+                long t2 = System.nanoTime();
+                chebyshev = Math.min(chebyshev, t1 - t0);
+                series = Math.min(series, t2 - t1);
+            }
+            System.out.printf("%-4s fit error %.1f m; Chebyshev %.1f M queries/s, series %.1f M queries/s (%s)%n",
+                    body, worst, queries / (chebyshev / 1e3), queries / (series / 1e3), sink != 0.0 ? "ok" : "?");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.hkprog.jogl.example.sim;
+
+/**
+ * Steps per second of {@link NBodySystem} as the satellite count grows,
+ * for both integrators, followed by the energy drift of a one-day
+ * time-warped run of each.
+ *
+ * Usage: NBodyBenchmark [max satellites]
+ */
+public final class NBodyBenchmark {
+
+    private static final double STEP_SEC = 10.0;
+
+    public static void main(String[] args) {
+        int maxCount = args.length > 0 ? Integer.parseInt(args[0]) : 262_144;
+        Ephemeris ephemeris = Ephemeris.covering(0.0, 30.0 * Ephemeris.SECONDS_PER_DAY);
+
+        for (int n = 1024; n <= maxCount; n *= 4) {
+            SatelliteCatalog catalog = catalog(n);
+            StringBuilder line = new StringBuilder(String.format("%8d satellites:", n));
+            for (NBodySystem.Scheme scheme : NBodySystem.Scheme.values()) {
+                NBodySystem system = NBodySystem.fromCatalog(catalog, ephemeris, 0.0, 0.0, scheme, STEP_SEC);
+                system.advanceTo(20 * STEP_SEC); // warm up the JIT
+                long before = system.steps();
+                long start = System.nanoTime();
+                double target = system.time();
+                while (System.nanoTime() - start < 1_000_000_000L) {
+                    target += 10 * STEP_SEC;
+                    system.advanceTo(target);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                double stepsPerSecond = (system.steps() - before) / seconds;
+                line.append(String.format("  %s %.0f steps/s (%.1f M satellite-steps/s)",
+                        scheme, stepsPerSecond, stepsPerSecond * n / 1e6));
+            }
+            System.out.println(line);
+        }
+
+        SatelliteCatalog catalog = catalog(1024);
+        for (NBodySystem.Scheme scheme : NBodySystem.Scheme.values()) {
+            NBodySystem system = NBodySystem.fromCatalog(catalog, ephemeris, 0.0, 0.0, scheme, STEP_SEC);
+            long start = System.nanoTime();
+            system.advanceTo(Ephemeris.SECONDS_PER_DAY); // one call: the whole day at maximum warp
+            System.out.printf("%s, 1 day in %.0f ms: satellite energy drift %.2e, Earth-Moon %.2e%n", scheme,
+                    (System.nanoTime() - start) / 1e6, system.satelliteEnergyDrift(), system.earthMoonEnergyDrift());
+        }
+    }
+
+    /** Walker shells from LEO to MEO, about {@code n} objects. */
+    private static SatelliteCatalog catalog(int n) {
+        SatelliteCatalog catalog = new SatelliteCatalog(n);
+        int perPlane = 32;
+        int planes = Math.max(1, n / (4 * perPlane));
+        double[] altitudes = {550_000.0, 1_200_000.0, 8_000_000.0, 20_200_000.0};
+        double[] inclinations = {53.0, 87.9, 70.0, 55.0};
+        for (int shell = 0; shell < altitudes.length; shell++) {
+            catalog.addWalkerDelta(planes, perPlane, 1, altitudes[shell], inclinations[shell]);
+        }
+        return catalog;
+    }
+}
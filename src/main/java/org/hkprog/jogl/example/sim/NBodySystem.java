@@ -0,0 +1,388 @@
+package org.hkprog.jogl.example.sim;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Earth, Moon and satellites integrated as point masses in an inertial
+ * frame (axes as {@link SatelliteCatalog}'s, origin at the Earth–Moon
+ * barycenter), with the Earth's J2 oblateness acting on the satellites.
+ *
+ * Earth and Moon attract each other; satellites are test particles that
+ * feel both but pull on neither, so their cost is linear in N. State is
+ * kept as structure-of-arrays doubles, and above
+ * {@value #PARALLEL_THRESHOLD} satellites the force and update loops are
+ * split into chunks across cores.
+ *
+ * The integrators are symplectic: kick-drift-kick leapfrog, or Yoshida's
+ * fourth-order composition of three leapfrog steps. Neither accumulates a
+ * secular energy error at a fixed step, so {@link #earthMoonEnergyDrift} and
+ * {@link #satelliteEnergyDrift} stay bounded however long a time-warped run
+ * is. The satellite figure is their summed geocentric orbital energy (with
+ * J2), which the Moon's tide also moves slightly: around 1e-7 for LEO.
+ */
+public final class NBodySystem {
+
+    public enum Scheme { LEAPFROG, YOSHIDA4 }
+
+    public static final double MOON_MU = 4.9028e12; // m³/s²
+    public static final double EARTH_J2 = 1.08262668e-3;
+    public static final double EARTH_EQUATORIAL_RADIUS_M = 6_378_137.0;
+
+    private static final int PARALLEL_THRESHOLD = 4096;
+    private static final int CHUNK = 1024;
+    private static final double CBRT2 = Math.cbrt(2.0);
+    private static final double YOSHIDA_OUTER = 1.0 / (2.0 - CBRT2);
+    private static final double YOSHIDA_INNER = -CBRT2 / (2.0 - CBRT2);
+
+    private final Scheme scheme;
+    private final double maxStep;
+    private double time;
+    private double stateTime; // time of the integrated state, on a fixed grid of maxStep from the start
+
+    // Earth and Moon, positions in meters, velocities in m/s
+    private final double[] earth = new double[6];
+    private final double[] moon = new double[6];
+    private final double[] earthAcceleration = new double[3];
+    private final double[] moonAcceleration = new double[3];
+
+    // Satellites
+    private int count;
+    private double[] x, y, z;
+    private double[] vx, vy, vz;
+    private double[] ax, ay, az;
+
+    private double initialEarthMoonEnergy = Double.NaN;
+    private double initialSatelliteEnergy = Double.NaN;
+    private long steps;
+    private boolean accelerationsValid;
+
+    /** {@code maxStep} is the step in seconds that {@link #advanceTo} integrates with. */
+    public NBodySystem(int capacity, Scheme scheme, double maxStep) {
+        this.scheme = scheme;
+        this.maxStep = maxStep;
+        x = new double[capacity];
+        y = new double[capacity];
+        z = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        vz = new double[capacity];
+        ax = new double[capacity];
+        ay = new double[capacity];
+        az = new double[capacity];
+    }
+
+    /**
+     * Starts from the ephemeris Moon at ephemeris time {@code ephemerisTime},
+     * labelled {@code time} on this system's clock, and adds every satellite
+     * of {@code catalog} at its circular-orbit state for that time.
+     */
+    public static NBodySystem fromCatalog(SatelliteCatalog catalog, Ephemeris ephemeris, double ephemerisTime,
+                                          double time, Scheme scheme, double maxStep) {
+        NBodySystem system = new NBodySystem(catalog.size(), scheme, maxStep);
+        double[] moonState = new double[6];
+        ephemeris.position(Ephemeris.Body.MOON, ephemerisTime, moonState, 0);
+        ephemeris.velocity(Ephemeris.Body.MOON, ephemerisTime, moonState, 3);
+        system.setMoon(moonState);
+        system.time = time;
+        system.stateTime = time;
+
+        double[] state = new double[6];
+        catalog.propagate(time);
+        for (int i = 0; i < catalog.size(); i++) {
+            System.arraycopy(catalog.positions, i * 3, state, 0, 3);
+            catalog.velocity(i, time, state, 3);
+            system.addSatellite(state);
+        }
+        return system;
+    }
+
+    /** Places the Moon at a geocentric position and velocity, and the Earth so their barycenter is at rest at the origin. */
+    public void setMoon(double[] geocentricState) {
+        double massRatio = MOON_MU / (SatelliteCatalog.EARTH_MU + MOON_MU);
+        for (int k = 0; k < 6; k++) {
+            earth[k] = -massRatio * geocentricState[k];
+            moon[k] = (1.0 - massRatio) * geocentricState[k];
+        }
+        resetDiagnostics();
+    }
+
+    /** Adds a satellite at a geocentric position and velocity; returns its index. */
+    public int addSatellite(double[] geocentricState) {
+        if (count == x.length) {
+            grow(Math.max(16, count * 2));
+        }
+        int i = count++;
+        x[i] = earth[0] + geocentricState[0];
+        y[i] = earth[1] + geocentricState[1];
+        z[i] = earth[2] + geocentricState[2];
+        vx[i] = earth[3] + geocentricState[3];
+        vy[i] = earth[4] + geocentricState[4];
+        vz[i] = earth[5] + geocentricState[5];
+        resetDiagnostics();
+        return i;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public double time() {
+        return time;
+    }
+
+    public long steps() {
+        return steps;
+    }
+
+    public Scheme scheme() {
+        return scheme;
+    }
+
+    /**
+     * Moves the clock to {@code target}. The state is integrated only in
+     * whole steps of the maximum step, however far that is, and the time
+     * left over carries to the next call, so a time-warped caller gets the
+     * same trajectory as a real-time one. The positions and velocities read
+     * in between are extrapolated from the last whole step.
+     */
+    public void advanceTo(double target) {
+        if (target <= time) {
+            return;
+        }
+        while (target - stateTime >= maxStep) {
+            step(maxStep);
+            stateTime += maxStep;
+        }
+        time = target;
+        ensureAccelerations();
+    }
+
+    /** Packed xyz satellite positions relative to the Earth's center, like {@link SatelliteCatalog#positions}. */
+    public void geocentricPositions(double[] out) {
+        // At the clock's time, from the last whole step: within metres for LEO at a 10 s step
+        double dt = time - stateTime;
+        double half = 0.5 * dt * dt;
+        double ex = earth[0] + earth[3] * dt + earthAcceleration[0] * half;
+        double ey = earth[1] + earth[4] * dt + earthAcceleration[1] * half;
+        double ez = earth[2] + earth[5] * dt + earthAcceleration[2] * half;
+        for (int i = 0; i < count; i++) {
+            int p = i * 3;
+            out[p] = x[i] + vx[i] * dt + ax[i] * half - ex;
+            out[p + 1] = y[i] + vy[i] * dt + ay[i] * half - ey;
+            out[p + 2] = z[i] + vz[i] * dt + az[i] * half - ez;
+        }
+    }
+
+    /** Packed xyz satellite velocities relative to the Earth. */
+    public void geocentricVelocities(double[] out) {
+        double dt = time - stateTime;
+        double ex = earth[3] + earthAcceleration[0] * dt;
+        double ey = earth[4] + earthAcceleration[1] * dt;
+        double ez = earth[5] + earthAcceleration[2] * dt;
+        for (int i = 0; i < count; i++) {
+            int p = i * 3;
+            out[p] = vx[i] + ax[i] * dt - ex;
+            out[p + 1] = vy[i] + ay[i] * dt - ey;
+            out[p + 2] = vz[i] + az[i] * dt - ez;
+        }
+    }
+
+    public void geocentricMoon(double[] out, int offset) {
+        double dt = time - stateTime;
+        double half = 0.5 * dt * dt;
+        for (int k = 0; k < 3; k++) {
+            out[offset + k] = moon[k] + moon[3 + k] * dt + moonAcceleration[k] * half
+                    - (earth[k] + earth[3 + k] * dt + earthAcceleration[k] * half);
+        }
+    }
+
+    /** Relative change of the Earth–Moon energy since the start. */
+    public double earthMoonEnergyDrift() {
+        ensureInitialEnergies();
+        return (earthMoonEnergy() - initialEarthMoonEnergy) / Math.abs(initialEarthMoonEnergy);
+    }
+
+    /** Relative change of the satellites' summed geocentric energy since the start. */
+    public double satelliteEnergyDrift() {
+        ensureInitialEnergies();
+        return count == 0 ? 0.0 : (satelliteEnergy() - initialSatelliteEnergy) / Math.abs(initialSatelliteEnergy);
+    }
+
+    private void step(double h) {
+        ensureAccelerations();
+        if (scheme == Scheme.LEAPFROG) {
+            leapfrog(h);
+        } else {
+            leapfrog(YOSHIDA_OUTER * h);
+            leapfrog(YOSHIDA_INNER * h);
+            leapfrog(YOSHIDA_OUTER * h);
+        }
+        steps++;
+    }
+
+    /** Kick-drift-kick; accelerations are valid on entry and on exit. */
+    private void leapfrog(double h) {
+        double half = 0.5 * h;
+        kickDrift(half, h);
+        accelerations();
+        kick(half);
+    }
+
+    private void kickDrift(double half, double h) {
+        for (int k = 0; k < 3; k++) {
+            earth[3 + k] += half * earthAcceleration[k];
+            moon[3 + k] += half * moonAcceleration[k];
+            earth[k] += h * earth[3 + k];
+            moon[k] += h * moon[3 + k];
+        }
+        forEachChunk((from, to) -> {
+            for (int i = from; i < to; i++) {
+                vx[i] += half * ax[i];
+                vy[i] += half * ay[i];
+                vz[i] += half * az[i];
+                x[i] += h * vx[i];
+                y[i] += h * vy[i];
+                z[i] += h * vz[i];
+            }
+        });
+    }
+
+    private void kick(double half) {
+        for (int k = 0; k < 3; k++) {
+            earth[3 + k] += half * earthAcceleration[k];
+            moon[3 + k] += half * moonAcceleration[k];
+        }
+        forEachChunk((from, to) -> {
+            for (int i = from; i < to; i++) {
+                vx[i] += half * ax[i];
+                vy[i] += half * ay[i];
+                vz[i] += half * az[i];
+            }
+        });
+    }
+
+    private void accelerations() {
+        double dx = moon[0] - earth[0];
+        double dy = moon[1] - earth[1];
+        double dz = moon[2] - earth[2];
+        double r2 = dx * dx + dy * dy + dz * dz;
+        double inv3 = 1.0 / (r2 * Math.sqrt(r2));
+        earthAcceleration[0] = MOON_MU * dx * inv3;
+        earthAcceleration[1] = MOON_MU * dy * inv3;
+        earthAcceleration[2] = MOON_MU * dz * inv3;
+        moonAcceleration[0] = -SatelliteCatalog.EARTH_MU * dx * inv3;
+        moonAcceleration[1] = -SatelliteCatalog.EARTH_MU * dy * inv3;
+        moonAcceleration[2] = -SatelliteCatalog.EARTH_MU * dz * inv3;
+
+        double ex = earth[0], ey = earth[1], ez = earth[2];
+        double mx = moon[0], my = moon[1], mz = moon[2];
+        forEachChunk((from, to) -> {
+            double j2 = 1.5 * EARTH_J2 * EARTH_EQUATORIAL_RADIUS_M * EARTH_EQUATORIAL_RADIUS_M;
+            for (int i = from; i < to; i++) {
+                // Earth, point mass plus J2 about the inertial Z axis
+                double rx = x[i] - ex;
+                double ry = y[i] - ey;
+                double rz = z[i] - ez;
+                double rr = rx * rx + ry * ry + rz * rz;
+                double inv2 = 1.0 / rr;
+                double g = -SatelliteCatalog.EARTH_MU * inv2 * Math.sqrt(inv2);
+                double zz = 5.0 * rz * rz * inv2;
+                double oblate = j2 * inv2;
+                double a = g * (1.0 + oblate * (1.0 - zz));
+                double gx = a * rx;
+                double gy = a * ry;
+                double gz = g * (1.0 + oblate * (3.0 - zz)) * rz;
+
+                // Moon, point mass
+                double qx = x[i] - mx;
+                double qy = y[i] - my;
+                double qz = z[i] - mz;
+                double qq = qx * qx + qy * qy + qz * qz;
+                double m = -MOON_MU / (qq * Math.sqrt(qq));
+                ax[i] = gx + m * qx;
+                ay[i] = gy + m * qy;
+                az[i] = gz + m * qz;
+            }
+        });
+    }
+
+    private interface Range {
+        void run(int from, int to);
+    }
+
+    private void forEachChunk(Range range) {
+        if (count < PARALLEL_THRESHOLD) {
+            range.run(0, count);
+        } else {
+            int chunks = (count + CHUNK - 1) / CHUNK;
+            IntStream.range(0, chunks).parallel()
+                    .forEach(c -> range.run(c * CHUNK, Math.min(count, (c + 1) * CHUNK)));
+        }
+    }
+
+    private double earthMoonEnergy() {
+        double dx = moon[0] - earth[0];
+        double dy = moon[1] - earth[1];
+        double dz = moon[2] - earth[2];
+        double r = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        // Energy times G: masses enter as their GM
+        double kinetic = 0.5 * SatelliteCatalog.EARTH_MU * (earth[3] * earth[3] + earth[4] * earth[4] + earth[5] * earth[5])
+                + 0.5 * MOON_MU * (moon[3] * moon[3] + moon[4] * moon[4] + moon[5] * moon[5]);
+        return kinetic - SatelliteCatalog.EARTH_MU * MOON_MU / r;
+    }
+
+    private double satelliteEnergy() {
+        double re2 = EARTH_EQUATORIAL_RADIUS_M * EARTH_EQUATORIAL_RADIUS_M;
+        double total = 0.0;
+        for (int i = 0; i < count; i++) {
+            double rx = x[i] - earth[0];
+            double ry = y[i] - earth[1];
+            double rz = z[i] - earth[2];
+            double ux = vx[i] - earth[3];
+            double uy = vy[i] - earth[4];
+            double uz = vz[i] - earth[5];
+            double rr = rx * rx + ry * ry + rz * rz;
+            double r = Math.sqrt(rr);
+            double p2 = 1.5 * rz * rz / rr - 0.5;
+            double potential = -SatelliteCatalog.EARTH_MU / r * (1.0 - EARTH_J2 * re2 / rr * p2);
+            total += 0.5 * (ux * ux + uy * uy + uz * uz) + potential;
+        }
+        return total;
+    }
+
+    private void ensureInitialEnergies() {
+        if (Double.isNaN(initialEarthMoonEnergy)) {
+            initialEarthMoonEnergy = earthMoonEnergy();
+            initialSatelliteEnergy = satelliteEnergy();
+        }
+    }
+
+    private void resetDiagnostics() {
+        initialEarthMoonEnergy = Double.NaN;
+        initialSatelliteEnergy = Double.NaN;
+        steps = 0;
+        accelerationsValid = false;
+    }
+
+    /** Accelerations for the current state, which the first step and the readers' extrapolation need. */
+    private void ensureAccelerations() {
+        if (!accelerationsValid) {
+            ensureInitialEnergies();
+            accelerations();
+            accelerationsValid = true;
+        }
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        vz = Arrays.copyOf(vz, capacity);
+        ax = Arrays.copyOf(ax, capacity);
+        ay = Arrays.copyOf(ay, capacity);
+        az = Arrays.copyOf(az, capacity);
+    }
+}
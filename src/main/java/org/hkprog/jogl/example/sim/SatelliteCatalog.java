@@ -0,0 +1,177 @@
+package org.hkprog.jogl.example.sim;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Structure-of-arrays catalog of satellites on circular orbits around an
+ * Earth-centered inertial frame (Z toward the north pole, like Chapter1's O₁).
+ *
+ * Positions are stored packed as x, y, z doubles in meters in
+ * {@link #positions} so that renderers and later pipeline stages can walk a
+ * single primitive array.
+ */
+public final class SatelliteCatalog {
+
+    public static final double EARTH_RADIUS_M = 6_371_000.0;
+    public static final double EARTH_MU = 3.986004418e14; // m³/s²
+    public static final double GEO_RADIUS_M = 42_164_000.0;
+
+    // Below this many objects the fork-join split costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 4096;
+    private static final int CHUNK = 1024;
+
+    private int count;
+    private double[] orbitRadius;
+    private double[] cosInclination;
+    private double[] sinInclination;
+    private double[] cosRaan;
+    private double[] sinRaan;
+    private double[] phase;
+    private double[] meanMotion;
+
+    /** Packed xyz positions in meters, valid for the last {@link #propagate} time. */
+    public double[] positions;
+
+    public SatelliteCatalog(int capacity) {
+        orbitRadius = new double[capacity];
+        cosInclination = new double[capacity];
+        sinInclination = new double[capacity];
+        cosRaan = new double[capacity];
+        sinRaan = new double[capacity];
+        phase = new double[capacity];
+        meanMotion = new double[capacity];
+        positions = new double[capacity * 3];
+    }
+
+    /**
+     * Walker-delta pattern: {@code planes} evenly spaced ascending nodes with
+     * {@code perPlane} satellites each, phased by {@code phasing} slots.
+     */
+    public static SatelliteCatalog walkerDelta(int planes, int perPlane, int phasing,
+                                               double altitudeM, double inclinationDeg) {
+        SatelliteCatalog catalog = new SatelliteCatalog(planes * perPlane);
+        catalog.addWalkerDelta(planes, perPlane, phasing, altitudeM, inclinationDeg);
+        return catalog;
+    }
+
+    public void addWalkerDelta(int planes, int perPlane, int phasing,
+                               double altitudeM, double inclinationDeg) {
+        int total = planes * perPlane;
+        double radius = EARTH_RADIUS_M + altitudeM;
+        for (int p = 0; p < planes; p++) {
+            double raan = 2.0 * Math.PI * p / planes;
+            for (int s = 0; s < perPlane; s++) {
+                double anomaly = 2.0 * Math.PI * s / perPlane + 2.0 * Math.PI * phasing * p / total;
+                add(radius, inclinationDeg, Math.toDegrees(raan), Math.toDegrees(anomaly));
+            }
+        }
+    }
+
+    /** Adds one circular orbit; returns its index. */
+    public int add(double orbitRadiusM, double inclinationDeg, double raanDeg, double phaseDeg) {
+        ensureCapacity(count + 1);
+        int i = count++;
+        double inc = Math.toRadians(inclinationDeg);
+        double raan = Math.toRadians(raanDeg);
+        orbitRadius[i] = orbitRadiusM;
+        cosInclination[i] = Math.cos(inc);
+        sinInclination[i] = Math.sin(inc);
+        cosRaan[i] = Math.cos(raan);
+        sinRaan[i] = Math.sin(raan);
+        phase[i] = Math.toRadians(phaseDeg);
+        meanMotion[i] = Math.sqrt(EARTH_MU / (orbitRadiusM * orbitRadiusM * orbitRadiusM));
+        return i;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= orbitRadius.length) {
+            return;
+        }
+        int capacity = Math.max(needed, orbitRadius.length * 2);
+        orbitRadius = Arrays.copyOf(orbitRadius, capacity);
+        cosInclination = Arrays.copyOf(cosInclination, capacity);
+        sinInclination = Arrays.copyOf(sinInclination, capacity);
+        cosRaan = Arrays.copyOf(cosRaan, capacity);
+        sinRaan = Arrays.copyOf(sinRaan, capacity);
+        phase = Arrays.copyOf(phase, capacity);
+        meanMotion = Arrays.copyOf(meanMotion, capacity);
+        positions = Arrays.copyOf(positions, capacity * 3);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public double orbitRadius(int i) {
+        return orbitRadius[i];
+    }
+
+    /** Orbital speed in m/s of object {@code i}. */
+    public double speed(int i) {
+        return meanMotion[i] * orbitRadius[i];
+    }
+
+    /** Position then velocity of object {@code i} at time {@code t}, into {@code out[0..5]}. */
+    public void state(int i, double t, double[] out) {
+        position(i, t, out, 0);
+        velocity(i, t, out, 3);
+    }
+
+    /** Writes the position of object {@code i} at time {@code t} to {@code out[offset..offset+2]}. */
+    public void position(int i, double t, double[] out, int offset) {
+        double u = phase[i] + meanMotion[i] * t;
+        double r = orbitRadius[i];
+        double xp = r * Math.cos(u);
+        double yp = r * Math.sin(u);
+        double yi = yp * cosInclination[i];
+        out[offset] = xp * cosRaan[i] - yi * sinRaan[i];
+        out[offset + 1] = xp * sinRaan[i] + yi * cosRaan[i];
+        out[offset + 2] = yp * sinInclination[i];
+    }
+
+    /** Mean motion in rad/s of object {@code i}. */
+    public double meanMotion(int i) {
+        return meanMotion[i];
+    }
+
+    /** Writes the velocity in m/s of object {@code i} at time {@code t} to {@code out[offset..offset+2]}. */
+    public void velocity(int i, double t, double[] out, int offset) {
+        double u = phase[i] + meanMotion[i] * t;
+        double v = meanMotion[i] * orbitRadius[i];
+        double xp = -v * Math.sin(u);
+        double yp = v * Math.cos(u);
+        double yi = yp * cosInclination[i];
+        out[offset] = xp * cosRaan[i] - yi * sinRaan[i];
+        out[offset + 1] = xp * sinRaan[i] + yi * cosRaan[i];
+        out[offset + 2] = yp * sinInclination[i];
+    }
+
+    /** Updates {@link #positions} for simulation time {@code t} in seconds. */
+    public void propagate(double t) {
+        if (count < PARALLEL_THRESHOLD) {
+            propagateRange(t, 0, count);
+        } else {
+            int chunks = (count + CHUNK - 1) / CHUNK;
+            IntStream.range(0, chunks).parallel()
+                    .forEach(c -> propagateRange(t, c * CHUNK, Math.min(count, (c + 1) * CHUNK)));
+        }
+    }
+
+    private void propagateRange(double t, int from, int to) {
+        double[] out = positions;
+        for (int i = from; i < to; i++) {
+            double u = phase[i] + meanMotion[i] * t;
+            double r = orbitRadius[i];
+            // Position in the orbital plane, then rotate by inclination (about X) and RAAN (about Z)
+            double xp = r * Math.cos(u);
+            double yp = r * Math.sin(u);
+            double yi = yp * cosInclination[i];
+            double zi = yp * sinInclination[i];
+            int p = i * 3;
+            out[p] = xp * cosRaan[i] - yi * sinRaan[i];
+            out[p + 1] = xp * sinRaan[i] + yi * cosRaan[i];
+            out[p + 2] = zi;
+        }
+    }
+}